@@ -0,0 +1,89 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+
+package org.muse.mneme.api;
+
+import java.util.List;
+
+/**
+ * AnswerDistribution reports how the answers to one question are spread across the completed submissions to its assessment, for item analysis.
+ */
+public interface AnswerDistribution
+{
+	/**
+	 * Access the count of answers that picked this choice for this match.
+	 * 
+	 * @param matchId
+	 *        The match id.
+	 * @param choiceId
+	 *        The choice id.
+	 * @return The count.
+	 */
+	Integer getMatchCount(String matchId, String choiceId);
+
+	/**
+	 * Access the count of answers with this value at this position.
+	 * 
+	 * @param pos
+	 *        The 0 based position.
+	 * @param value
+	 *        The value.
+	 * @param caseSensitive
+	 *        if FALSE, count values that match ignoring case.
+	 * @return The count.
+	 */
+	Integer getPositionCount(Integer pos, String value, Boolean caseSensitive);
+
+	/**
+	 * Access the distinct values found at this position.
+	 * 
+	 * @param pos
+	 *        The 0 based position.
+	 * @param caseSensitive
+	 *        if FALSE, the values are lower cased.
+	 * @return The sorted List of distinct values at the position.
+	 */
+	List<String> getPositionValues(Integer pos, Boolean caseSensitive);
+
+	/**
+	 * Access the count of answers.
+	 * 
+	 * @return The count of answers.
+	 */
+	Integer getTotal();
+
+	/**
+	 * Access the count of unanswered answers.
+	 * 
+	 * @return The count of unanswered answers.
+	 */
+	Integer getUnanswered();
+
+	/**
+	 * Access the count of times this value appears in the answers.
+	 * 
+	 * @param value
+	 *        The value.
+	 * @return The count.
+	 */
+	Integer getValueCount(String value);
+}
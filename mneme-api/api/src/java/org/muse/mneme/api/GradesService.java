@@ -46,6 +46,20 @@ public interface GradesService
 	 */
 	Boolean available(String context);
 
+	/**
+	 * Access the number of grade reports waiting to be made to the grading authority.
+	 * 
+	 * @return The number of grade reports waiting.
+	 */
+	Integer getReportQueueDepth();
+
+	/**
+	 * Access how long the oldest waiting grade report has been waiting.
+	 * 
+	 * @return The age (ms) of the oldest waiting grade report, 0 if none are waiting.
+	 */
+	Long getReportQueueLag();
+
 	/**
 	 * Make sure the assessment is added to the grading authority.
 	 * 
@@ -59,22 +73,24 @@ public interface GradesService
 
 	/**
 	 * Report this assessment's grade. All completed "best" submissions that are found are reported.<br />
-	 * Replace the entire set of grades for this assessment that are currently reported.
+	 * Replace the entire set of grades for this assessment that are currently reported.<br />
+	 * The report may be made later, along with other changes to the same grades.
 	 * 
 	 * @param assessment
 	 *        The assessment.
-	 * @return TRUE if successful, FALSE if not.
+	 * @return TRUE if the report is accepted, FALSE if not.
 	 */
 	Boolean reportAssessmentGrades(Assessment assessment);
 
 	/**
 	 * Report this submission's grade.<br />
 	 * Establish the Assessment with the grading authority if needed.<br />
-	 * Replace any grade for this user / assessment that is currently reported.
+	 * Replace any grade for this user / assessment that is currently reported.<br />
+	 * The report may be made later, along with other changes to the same grade.
 	 * 
 	 * @param submission
 	 *        The submission.
-	 * @return TRUE if successful, FALSE if not.
+	 * @return TRUE if the report is accepted, FALSE if not.
 	 */
 	Boolean reportSubmissionGrade(Submission submission);
 
@@ -0,0 +1,39 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+package org.muse.mneme.api;
+
+/**
+ * MnemeTransferService copies Mneme content from one context to another.
+ */
+public interface MnemeTransferService
+{
+	/**
+	 * Access the status of the copy from one context to another, made by the site's transferCopyEntities() - while it runs, or after it failed.
+	 * 
+	 * @param fromContext
+	 *        The source context id.
+	 * @param toContext
+	 *        The destination context id.
+	 * @return The TransferStatus, or null if no copy between these contexts is running or stopped by a failure.
+	 */
+	TransferStatus getTransferStatus(String fromContext, String toContext);
+}
@@ -44,4 +44,10 @@ public interface QuestionAdminService
 	 *         if the current user is not allowed to edit this question.
 	 */
 	void forceSave(Question question) throws AssessmentPermissionException;
+
+	/**
+	 * Rebuild the question bank search index for the contexts it holds, from their non-historical questions. Other contexts are indexed when
+	 * first searched.
+	 */
+	void rebuildSearchIndex();
 }
@@ -21,6 +21,7 @@
 
 package org.muse.mneme.api;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -117,6 +118,15 @@ public interface QuestionService extends QuestionPoolService, QuestionGetService
 	List<Question> findQuestions(String context, FindQuestionsSort sort, String search, String questionType, Integer pageNum, Integer pageSize,
 			Boolean surveys, Boolean valid);
 
+	/**
+	 * Access a set of questions by id, reading together any not already at hand.
+	 * 
+	 * @param questionIds
+	 *        The question ids.
+	 * @return The questions, in the order of the ids; ids for questions not found are skipped.
+	 */
+	List<Question> getQuestions(Collection<String> questionIds);
+
 	/**
 	 * Move a question from one pool to another.
 	 * 
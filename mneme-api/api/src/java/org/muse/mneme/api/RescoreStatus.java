@@ -0,0 +1,64 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+
+package org.muse.mneme.api;
+
+/**
+ * RescoreStatus reports the progress of re-scoring the completed answers to a question.
+ */
+public interface RescoreStatus
+{
+	/**
+	 * Access the number of answers whose score changed.
+	 * 
+	 * @return The number of answers whose score changed, so far.
+	 */
+	Integer getAnswersChanged();
+
+	/**
+	 * Access the number of answers re-scored.
+	 * 
+	 * @return The number of answers re-scored, so far.
+	 */
+	Integer getAnswersDone();
+
+	/**
+	 * Access the number of answers to re-score.
+	 * 
+	 * @return The number of answers to re-score, or null if not yet known.
+	 */
+	Integer getAnswersTotal();
+
+	/**
+	 * Check if the re-scoring is done.
+	 * 
+	 * @return TRUE if done, FALSE if still in progress.
+	 */
+	Boolean getIsComplete();
+
+	/**
+	 * Access the id of the question being re-scored.
+	 * 
+	 * @return The question id.
+	 */
+	String getQuestionId();
+}
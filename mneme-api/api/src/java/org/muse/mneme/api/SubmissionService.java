@@ -22,6 +22,7 @@
 package org.muse.mneme.api;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
@@ -256,6 +257,17 @@ public interface SubmissionService extends SubmissionUnscoredQuestionService
 	 */
 	List<Answer> findSubmissionAnswers(Assessment assessment, Question question, FindAssessmentSubmissionsSort sort, Integer pageNum, Integer pageSize);
 
+	/**
+	 * Access the distribution of the answers to this question across the completed submissions to its assessment.
+	 * 
+	 * @param question
+	 *        The question.
+	 * @param submissions
+	 *        The submissions to count, used only if the question is not part of an assessment.
+	 * @return The answer distribution for the question.
+	 */
+	AnswerDistribution getAnswerDistribution(Question question, List<Submission> submissions);
+
 	/**
 	 * Find this answer.
 	 * 
@@ -294,6 +306,15 @@ public interface SubmissionService extends SubmissionUnscoredQuestionService
 	 */
 	List<Float> getAssessmentScores(Assessment assessment);
 
+	/**
+	 * Find the assessments with (non test drive) submissions completed or evaluated since this time - those whose grades may have changed.
+	 * 
+	 * @param since
+	 *        The time.
+	 * @return A List of the assessment ids.
+	 */
+	List<String> getAssessmentsGradedSince(Date since);
+
 	/**
 	 * Get either the in-progress submission, or a new one, to the assignment made by this user.<br />
 	 * The sibling count is set.
@@ -316,6 +337,15 @@ public interface SubmissionService extends SubmissionUnscoredQuestionService
 	 */
 	List<Float> getQuestionScores(Question question);
 
+	/**
+	 * Access the progress of the latest re-scoring of the completed answers to this question.
+	 * 
+	 * @param question
+	 *        The question.
+	 * @return The re-score status, or null if the question has not been re-scored.
+	 */
+	RescoreStatus getRescoreStatus(Question question);
+
 	/**
 	 * Access a submission by id. TODO: security
 	 * 
@@ -366,6 +396,18 @@ public interface SubmissionService extends SubmissionUnscoredQuestionService
 	 */
 	void releaseSubmissions(Assessment assessment, Boolean evaluatedOnly) throws AssessmentPermissionException;
 
+	/**
+	 * Re-compute the auto score of every completed answer to this question, such as after the question's correct answer is fixed.<br />
+	 * The work is done in the background; changed grades are sent to the grading authority when done.
+	 * 
+	 * @param question
+	 *        The question.
+	 * @return The re-score status, to follow the progress.
+	 * @throws AssessmentPermissionException
+	 *         if the current user is not allowed to grade in the question's context.
+	 */
+	RescoreStatus rescoreAnswers(Question question) throws AssessmentPermissionException;
+
 	/**
 	 * Retract (i.e. unrelease) all completed submissions to this assessment.
 	 * 
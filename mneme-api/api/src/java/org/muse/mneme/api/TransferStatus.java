@@ -0,0 +1,98 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+package org.muse.mneme.api;
+
+/**
+ * TransferStatus reports the progress of copying the pools, questions and assessments of one context into another.
+ */
+public interface TransferStatus
+{
+	/**
+	 * Access the number of assessments copied.
+	 * 
+	 * @return The number of assessments copied, so far.
+	 */
+	Integer getAssessmentsDone();
+
+	/**
+	 * Access the number of assessments to copy.
+	 * 
+	 * @return The number of assessments to copy, or null if not yet known.
+	 */
+	Integer getAssessmentsTotal();
+
+	/**
+	 * Access the context being copied from.
+	 * 
+	 * @return The source context id.
+	 */
+	String getFromContext();
+
+	/**
+	 * Check if the copy is done.
+	 * 
+	 * @return TRUE if done, FALSE if still in progress or stopped by a failure.
+	 */
+	Boolean getIsComplete();
+
+	/**
+	 * Check if the copy was stopped by a failure. Copying again to the same context resumes it from where it stopped.
+	 * 
+	 * @return TRUE if stopped by a failure, FALSE if not.
+	 */
+	Boolean getIsFailed();
+
+	/**
+	 * Access the number of pools copied.
+	 * 
+	 * @return The number of pools copied, so far.
+	 */
+	Integer getPoolsDone();
+
+	/**
+	 * Access the number of pools to copy.
+	 * 
+	 * @return The number of pools to copy, or null if not yet known.
+	 */
+	Integer getPoolsTotal();
+
+	/**
+	 * Access the number of questions copied.
+	 * 
+	 * @return The number of questions copied, so far.
+	 */
+	Integer getQuestionsDone();
+
+	/**
+	 * Access the number of questions to copy.
+	 * 
+	 * @return The number of questions to copy, or null if not yet known.
+	 */
+	Integer getQuestionsTotal();
+
+	/**
+	 * Access the context being copied into.
+	 * 
+	 * @return The destination context id.
+	 */
+	String getToContext();
+}
@@ -21,17 +21,16 @@
 
 package org.muse.mneme.impl;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.muse.ambrosia.api.Context;
 import org.muse.ambrosia.util.FormatDelegateImpl;
-import org.muse.mneme.api.Answer;
+import org.muse.mneme.api.AnswerDistribution;
 import org.muse.mneme.api.Question;
 import org.muse.mneme.api.Submission;
+import org.muse.mneme.api.SubmissionService;
 import org.muse.mneme.api.TypeSpecificQuestion;
 
 /**
@@ -42,6 +41,9 @@ public class AccessFillinPositionValuesDelegate extends FormatDelegateImpl
 	/** Our log. */
 	private static Log M_log = LogFactory.getLog(AccessFillinPositionValuesDelegate.class);
 
+	/** Dependency: SubmissionService */
+	protected SubmissionService submissionService = null;
+
 	/**
 	 * Shutdown.
 	 */
@@ -89,32 +91,10 @@ public class AccessFillinPositionValuesDelegate extends FormatDelegateImpl
 		FillBlanksQuestionImpl plugin = (FillBlanksQuestionImpl) tsq;
 		boolean caseSensitive = Boolean.valueOf(plugin.getCaseSensitive());
 
-		List<String> rv = new ArrayList<String>();
-		for (Submission s : submissions)
-		{
-			if (s.getIsPhantom()) continue;
-			if (!s.getIsComplete()) continue;
-
-			Answer a = s.getAnswer(question);
-			if (a != null)
-			{
-				if (a.getIsAnswered())
-				{
-					String[] answers = a.getTypeSpecificAnswer().getData();
-					if ((answers != null) && (answers.length > pos))
-					{
-						String answer = answers[pos];
-						if (answer != null)
-						{
-							if (!caseSensitive) answer = answer.toLowerCase();
-							if (!rv.contains(answer)) rv.add(answer);
-						}
-					}
-				}
-			}
-		}
-
-		Collections.sort(rv);
+		// the answer distribution for the question, across the completed submissions
+		AnswerDistribution stats = this.submissionService.getAnswerDistribution(question, submissions);
+
+		List<String> rv = stats.getPositionValues(pos, caseSensitive);
 
 		return rv;
 	}
@@ -127,4 +107,15 @@ public class AccessFillinPositionValuesDelegate extends FormatDelegateImpl
 		super.init();
 		M_log.info("init()");
 	}
+
+	/**
+	 * Dependency: SubmissionService.
+	 * 
+	 * @param service
+	 *        The SubmissionService.
+	 */
+	public void setSubmissionService(SubmissionService service)
+	{
+		this.submissionService = service;
+	}
 }
@@ -61,6 +61,9 @@ public class AnswerImpl implements Answer
 
 	protected String partId = null;
 
+	/** The question, for an answer read without its submission. */
+	protected transient Question question = null;
+
 	protected String questionId = null;
 
 	protected String reason = null;
@@ -70,6 +73,12 @@ public class AnswerImpl implements Answer
 
 	protected Submission submission = null;
 
+	/** The submission's assessment id (null for a test drive), for an answer read without its submission. */
+	protected String submissionAssessmentId = null;
+
+	/** The submission id, for an answer read without its submission. */
+	protected String submissionId = null;
+
 	protected Date submittedDate = null;
 
 	/**
@@ -109,8 +118,8 @@ public class AnswerImpl implements Answer
 	 */
 	public Float getAutoScore()
 	{
-		// if the submission has been completed, use the last stored auto score
-		if (this.submission.getIsComplete()) return this.storedAutoScore;
+		// if the submission has been completed, use the last stored auto score - an answer read without its submission is to a completed one
+		if ((this.submission == null) || this.submission.getIsComplete()) return this.storedAutoScore;
 
 		return computeAutoScore();
 	}
@@ -173,6 +182,12 @@ public class AnswerImpl implements Answer
 	 */
 	public Question getQuestion()
 	{
+		// read without our submission, we have the question
+		if (this.question != null) return this.question;
+
+		// our submission indexes its questions
+		if (this.submission instanceof SubmissionImpl) return ((SubmissionImpl) this.submission).findQuestion(this.partId, this.questionId);
+
 		Part p = getSubmission().getAssessment().getParts().getPart(this.partId);
 		Question q = p.getQuestion(this.questionId);
 
@@ -396,6 +411,27 @@ public class AnswerImpl implements Answer
 		return this.partId;
 	}
 
+	/**
+	 * Access the submission's assessment id, for an answer read without its submission.
+	 * 
+	 * @return The assessment id, or null if the submission is a test drive.
+	 */
+	protected String getSubmissionAssessmentId()
+	{
+		return this.submissionAssessmentId;
+	}
+
+	/**
+	 * Access the submission id.
+	 * 
+	 * @return The submission id.
+	 */
+	protected String getSubmissionId()
+	{
+		if (this.submission != null) return this.submission.getId();
+		return this.submissionId;
+	}
+
 	/**
 	 * Initialize the id.
 	 * 
@@ -487,6 +523,23 @@ public class AnswerImpl implements Answer
 		this.submission = submission;
 	}
 
+	/**
+	 * Initialize an answer read without its submission, with what it needs from the submission.
+	 * 
+	 * @param submissionId
+	 *        The submission id.
+	 * @param assessmentId
+	 *        The submission's assessment id, or null if the submission is a test drive.
+	 * @param question
+	 *        The question to which this is an answer.
+	 */
+	protected void initWithoutSubmission(String submissionId, String assessmentId, Question question)
+	{
+		this.submissionId = submissionId;
+		this.submissionAssessmentId = assessmentId;
+		this.question = question;
+	}
+
 	/**
 	 * Establish the type-specific answer handler.
 	 * 
@@ -513,10 +566,13 @@ public class AnswerImpl implements Answer
 		this.markedForReview = other.markedForReview;
 		this.mnemeService = other.mnemeService;
 		this.partId = other.partId;
+		this.question = other.question;
 		this.questionId = other.questionId;
 		this.reason = other.reason;
 		this.storedAutoScore = other.storedAutoScore;
 		this.submission = owner;
+		this.submissionAssessmentId = other.submissionAssessmentId;
+		this.submissionId = other.submissionId;
 		this.submittedDate = other.submittedDate;
 	}
 }
@@ -129,6 +129,15 @@ public class AssessmentImpl implements Assessment
 
 	protected AssessmentSpecialAccess specialAccess = null;
 
+	/** The number of questions as stored on the db. */
+	protected Integer storedNumQuestions = null;
+
+	/** The total points as stored on the db. */
+	protected Float storedTotalPoints = null;
+
+	/** The validity as stored on the db - kept up to date as the assessment, and the pools and questions it uses, change. */
+	protected Boolean storedValid = null;
+
 	protected transient Submission submissionContext = null;
 
 	protected transient SubmissionService submissionService = null;
@@ -831,6 +840,37 @@ public class AssessmentImpl implements Assessment
 		return rv;
 	}
 
+	/**
+	 * Access the number of questions as stored on the db.
+	 * 
+	 * @return The stored number of questions, or null if not stored.
+	 */
+	protected Integer getStoredNumQuestions()
+	{
+		return this.storedNumQuestions;
+	}
+
+	/**
+	 * Access the total points as stored on the db.
+	 * 
+	 * @return The stored total points, or null if not stored.
+	 */
+	protected Float getStoredTotalPoints()
+	{
+		return this.storedTotalPoints;
+	}
+
+	/**
+	 * Access the validity as stored on the db, without walking the parts and draws. If never stored, compute it.
+	 * 
+	 * @return TRUE if valid, FALSE if not.
+	 */
+	protected Boolean getStoredValid()
+	{
+		if (this.storedValid == null) return getIsValid();
+		return this.storedValid;
+	}
+
 	/**
 	 * Check if the title was changed.
 	 * 
@@ -910,6 +950,23 @@ public class AssessmentImpl implements Assessment
 		this.publishedWas = published;
 	}
 
+	/**
+	 * Establish the validity, number of questions and total points, as stored on the db.
+	 * 
+	 * @param valid
+	 *        The stored validity.
+	 * @param numQuestions
+	 *        The stored number of questions.
+	 * @param totalPoints
+	 *        The stored total points.
+	 */
+	protected void initStoredSummary(Boolean valid, Integer numQuestions, Float totalPoints)
+	{
+		this.storedValid = valid;
+		this.storedNumQuestions = numQuestions;
+		this.storedTotalPoints = totalPoints;
+	}
+
 	/**
 	 * Initialize the submission context.
 	 * 
@@ -971,9 +1028,16 @@ public class AssessmentImpl implements Assessment
 			}
 			else if (part instanceof ManualPart)
 			{
+				// read the part's questions together
+				Map<String, Question> questions = new HashMap<String, Question>();
+				for (Question q : ((ManualPartImpl) part).getPickQuestions(((ManualPartImpl) part).questions))
+				{
+					questions.put(q.getId(), q);
+				}
+
 				for (PoolPick pick : ((ManualPartImpl) part).questions)
 				{
-					Question q = this.questionService.getQuestion(pick.getQuestionId());
+					Question q = questions.get(pick.getQuestionId());
 					if (q != null)
 					{
 						// make sure we have this question's comlete pool
@@ -1039,6 +1103,9 @@ public class AssessmentImpl implements Assessment
 		this.submitPresentation = new PresentationImpl((PresentationImpl) other.submitPresentation, this.changed);
 		this.securityService = other.securityService;
 		this.specialAccess = new AssessmentSpecialAccessImpl(this, (AssessmentSpecialAccessImpl) other.specialAccess, this.changed);
+		this.storedNumQuestions = other.storedNumQuestions;
+		this.storedTotalPoints = other.storedTotalPoints;
+		this.storedValid = other.storedValid;
 		this.timeLimit = other.timeLimit;
 		this.title = other.title;
 		this.titleWas = other.titleWas;
@@ -27,6 +27,8 @@ import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Observable;
+import java.util.Observer;
 import java.util.Set;
 
 import org.apache.commons.logging.Log;
@@ -49,8 +51,9 @@ import org.muse.mneme.api.SecurityService;
 import org.muse.mneme.api.SubmissionService;
 import org.muse.mneme.api.Translation;
 import org.sakaiproject.db.api.SqlService;
+import org.sakaiproject.event.api.Event;
 import org.sakaiproject.event.api.EventTrackingService;
-import org.sakaiproject.memory.api.Cache;
+import org.sakaiproject.memory.api.MemoryService;
 import org.sakaiproject.thread_local.api.ThreadLocalManager;
 import org.sakaiproject.tool.api.SessionManager;
 import org.sakaiproject.user.api.User;
@@ -59,14 +62,11 @@ import org.sakaiproject.user.api.UserDirectoryService;
 /**
  * AssessmentServiceImpl implements AssessmentService.
  */
-public class AssessmentServiceImpl implements AssessmentService
+public class AssessmentServiceImpl implements AssessmentService, Observer
 {
 	/** Our logger. */
 	private static Log M_log = LogFactory.getLog(AssessmentServiceImpl.class);
 
-	/** A cache of assessments. */
-	protected Cache assessmentCache = null;
-
 	/** Dependency: AttachmentService */
 	protected AttachmentService attachmentService = null;
 
@@ -76,6 +76,9 @@ public class AssessmentServiceImpl implements AssessmentService
 	/** Dependency: GradesService */
 	protected GradesService gradesService = null;
 
+	/** Dependency: MemoryService */
+	protected MemoryService memoryService = null;
+
 	/** Dependency: PoolService */
 	protected PoolService poolService = null;
 
@@ -88,6 +91,12 @@ public class AssessmentServiceImpl implements AssessmentService
 	/** Dependency: SessionManager */
 	protected SessionManager sessionManager = null;
 
+	/** The process-wide read-only assessments, keyed by assessment id, dropped on assessment events (from this or any other app server). */
+	protected MnemeCacheImpl snapshotCache = null;
+
+	/** The maximum number of assessment snapshots to cache. */
+	protected int snapshotCacheSize = 1000;
+
 	/** Dependency: SqlService */
 	protected SqlService sqlService = null;
 
@@ -205,6 +214,7 @@ public class AssessmentServiceImpl implements AssessmentService
 		// events
 		for (String id : ids)
 		{
+			invalidateSnapshot(id);
 			eventTrackingService.post(eventTrackingService.newEvent(MnemeService.ASSESSMENT_DELETE, getAssessmentReference(id), true));
 		}
 	}
@@ -242,6 +252,15 @@ public class AssessmentServiceImpl implements AssessmentService
 	 */
 	public void destroy()
 	{
+		// stop watching for assessment changes
+		this.eventTrackingService.deleteObserver(this);
+
+		if (this.snapshotCache != null)
+		{
+			this.snapshotCache.destroy();
+			this.snapshotCache = null;
+		}
+
 		M_log.info("destroy()");
 	}
 
@@ -265,23 +284,11 @@ public class AssessmentServiceImpl implements AssessmentService
 	{
 		if (id == null) throw new IllegalArgumentException();
 
-		// for thread-local caching
-		String key = cacheKey(id);
-		AssessmentImpl rv = (AssessmentImpl) this.threadLocalManager.get(key);
-		if (rv != null)
-		{
-			// return a copy
-			return this.storage.clone(rv);
-		}
+		AssessmentImpl snapshot = getAssessmentSnapshot(id);
+		if (snapshot == null) return null;
 
-		if (M_log.isDebugEnabled()) M_log.debug("getAssessment: " + id);
-
-		rv = this.storage.getAssessment(id);
-
-		// thread-local cache (a copy)
-		if (rv != null) this.threadLocalManager.set(key, this.storage.clone(rv));
-
-		return rv;
+		// the caller may edit what we return, so it gets its own copy
+		return this.storage.clone(snapshot);
 	}
 
 	/**
@@ -363,7 +370,13 @@ public class AssessmentServiceImpl implements AssessmentService
 
 			storage.init();
 
-			M_log.info("init(): storage: " + this.storage);
+			// the snapshot cache - we watch the events ourselves, as pool and question changes drop snapshots too
+			this.snapshotCache = new MnemeCacheImpl(this.memoryService, this.eventTrackingService, this.snapshotCacheSize, null, null);
+
+			// watch for assessment changes (from this or any other app server) to invalidate the snapshots
+			this.eventTrackingService.addPriorityObserver(this);
+
+			M_log.info("init(): snapshot cache size: " + this.snapshotCacheSize + " storage: " + this.storage);
 		}
 		catch (Throwable t)
 		{
@@ -415,10 +428,6 @@ public class AssessmentServiceImpl implements AssessmentService
 		// clear any test-drive submissions for this assessment
 		this.submissionService.removeTestDriveSubmissions(assessment);
 
-		// clear the cache
-		String key = cacheKey(assessment.getId());
-		this.threadLocalManager.set(key, null);
-
 		// retract the test from the gb
 		if (assessment.getIsValid() && assessment.getGrading().getGradebookIntegration() && assessment.getPublished())
 		{
@@ -427,6 +436,9 @@ public class AssessmentServiceImpl implements AssessmentService
 
 		this.storage.removeAssessment((AssessmentImpl) assessment);
 
+		// clear the cache
+		invalidateSnapshot(assessment.getId());
+
 		// event
 		eventTrackingService.post(eventTrackingService.newEvent(MnemeService.ASSESSMENT_DELETE, getAssessmentReference(assessment.getId()), true));
 	}
@@ -456,11 +468,11 @@ public class AssessmentServiceImpl implements AssessmentService
 			{
 				if (M_log.isDebugEnabled()) M_log.debug("saveAssessment: deleting mint: " + assessment.getId());
 
-				// clear the cache
-				this.threadLocalManager.set(cacheKey(assessment.getId()), null);
-
 				this.storage.removeAssessment((AssessmentImpl) assessment);
 
+				// clear the cache
+				invalidateSnapshot(assessment.getId());
+
 				// event
 				eventTrackingService.post(eventTrackingService.newEvent(MnemeService.ASSESSMENT_DELETE, getAssessmentReference(assessment.getId()),
 						true));
@@ -694,6 +706,17 @@ public class AssessmentServiceImpl implements AssessmentService
 		this.gradesService = service;
 	}
 
+	/**
+	 * Dependency: MemoryService.
+	 * 
+	 * @param service
+	 *        The MemoryService.
+	 */
+	public void setMemoryService(MemoryService service)
+	{
+		this.memoryService = service;
+	}
+
 	/**
 	 * Dependency: PoolService.
 	 * 
@@ -738,6 +761,17 @@ public class AssessmentServiceImpl implements AssessmentService
 		sessionManager = service;
 	}
 
+	/**
+	 * Set the maximum number of assessment snapshots to cache.
+	 * 
+	 * @param size
+	 *        The maximum number of assessment snapshots to cache.
+	 */
+	public void setSnapshotCacheSize(String size)
+	{
+		this.snapshotCacheSize = Integer.parseInt(size);
+	}
+
 	/**
 	 * Dependency: SqlService.
 	 * 
@@ -805,16 +839,59 @@ public class AssessmentServiceImpl implements AssessmentService
 	}
 
 	/**
-	 * Form a key for caching an assessment.
-	 * 
-	 * @param assessmentId
-	 *        The assessment id.
-	 * @return The cache key.
+	 * {@inheritDoc}
 	 */
-	protected String cacheKey(String assessmentId)
+	public void update(Observable o, Object arg)
 	{
-		String key = "mneme:assessment:" + assessmentId;
-		return key;
+		// arg is Event
+		if (!(arg instanceof Event)) return;
+		Event event = (Event) arg;
+
+		String function = event.getEvent();
+
+		// changes to pools and questions may change the validity and totals of the assessments that use them
+		if (MnemeService.POOL_EDIT.equals(function) || MnemeService.QUESTION_NEW.equals(function) || MnemeService.QUESTION_EDIT.equals(function)
+				|| MnemeService.QUESTION_DELETE.equals(function))
+		{
+			// the pool or question id is the last part of the reference
+			String ref = event.getResource();
+			if (ref == null) return;
+			String id = ref.substring(ref.lastIndexOf('/') + 1);
+
+			if (M_log.isDebugEnabled()) M_log.debug("update: " + function + " : " + id);
+
+			if (MnemeService.POOL_EDIT.equals(function))
+			{
+				summarizeDependentAssessments(id, null);
+			}
+			else if (MnemeService.QUESTION_DELETE.equals(function))
+			{
+				// the question is gone, so we can't tell which assessments drew it - the server that deleted it has stored their new values,
+				// and we drop all the snapshots so they are read again here
+				invalidateAllSnapshots();
+			}
+			else
+			{
+				// the question's pool, for the draws
+				Question question = this.questionService.getQuestion(id);
+				summarizeDependentAssessments(((question == null) || (question.getPool() == null)) ? null : question.getPool().getId(), id);
+			}
+
+			return;
+		}
+
+		// otherwise we only care about changes to assessments
+		if (!(MnemeService.ASSESSMENT_EDIT.equals(function) || MnemeService.ASSESSMENT_NEW.equals(function) || MnemeService.ASSESSMENT_DELETE
+				.equals(function))) return;
+
+		// the assessment id is the last part of the reference
+		String ref = event.getResource();
+		if (ref == null) return;
+		String id = ref.substring(ref.lastIndexOf('/') + 1);
+
+		if (M_log.isDebugEnabled()) M_log.debug("update: " + function + " : " + id);
+
+		invalidateSnapshot(id);
 	}
 
 	/**
@@ -914,6 +991,21 @@ public class AssessmentServiceImpl implements AssessmentService
 		return rv;
 	}
 
+	/**
+	 * Access an assessment by id, shared with all other readers, without making a copy - for use within the service implementations only.<br />
+	 * The assessment returned must not be changed - use getAssessment() for an assessment to edit, or to give a context.
+	 * 
+	 * @param id
+	 *        The assessment id.
+	 * @return The shared, read-only assessment object, or null if not found.
+	 */
+	protected Assessment getAssessmentReadOnly(String id)
+	{
+		if (id == null) throw new IllegalArgumentException();
+
+		return getAssessmentSnapshot(id);
+	}
+
 	/**
 	 * Form an assessment reference for this assessment id.
 	 * 
@@ -927,6 +1019,84 @@ public class AssessmentServiceImpl implements AssessmentService
 		return ref;
 	}
 
+	/**
+	 * Find the published assessments that open in this time range, for everyone or for anyone with special access.
+	 * 
+	 * @param from
+	 *        The start of the range (inclusive).
+	 * @param to
+	 *        The end of the range (exclusive).
+	 * @return The ids of the assessments opening in the range.
+	 */
+	protected List<String> getAssessmentsOpening(Date from, Date to)
+	{
+		if (M_log.isDebugEnabled()) M_log.debug("getAssessmentsOpening: from: " + from + " to: " + to);
+
+		return this.storage.getAssessmentsOpening(from, to);
+	}
+
+	/**
+	 * Get the shared, read-only snapshot of this assessment, reading it if needed.<br />
+	 * The snapshot must not be modified - callers that need to make changes, or set a context, must make their own copy.
+	 * 
+	 * @param id
+	 *        The assessment id.
+	 * @return The assessment snapshot, or null if not found.
+	 */
+	protected AssessmentImpl getAssessmentSnapshot(String id)
+	{
+		if (id == null) throw new IllegalArgumentException();
+
+		AssessmentImpl rv = (AssessmentImpl) this.snapshotCache.get(id);
+		if (rv != null) return rv;
+
+		if (M_log.isDebugEnabled()) M_log.debug("getAssessmentSnapshot: " + id);
+
+		long version = this.snapshotCache.getVersion();
+		rv = this.storage.getAssessment(id);
+		if (rv == null) return null;
+
+		// cache, unless there was an invalidation while we were reading
+		this.snapshotCache.putIfCurrent(id, rv, 0, version);
+
+		return rv;
+	}
+
+	/**
+	 * Find the attachment references embedded in the assessments in this context, and their parts, from the reference index.
+	 * 
+	 * @param context
+	 *        The context.
+	 * @return The attachment references (normalized), each once.
+	 */
+	protected Set<String> getContextReferences(String context)
+	{
+		if (M_log.isDebugEnabled()) M_log.debug("getContextReferences: " + context);
+
+		return this.storage.getContextReferences(context);
+	}
+
+	/**
+	 * Drop all the assessment snapshots.
+	 */
+	protected void invalidateAllSnapshots()
+	{
+		this.snapshotCache.clear();
+	}
+
+	/**
+	 * Drop the snapshot of this assessment, so the next read sees the current stored values.
+	 * 
+	 * @param id
+	 *        The assessment id.
+	 */
+	protected void invalidateSnapshot(String id)
+	{
+		if (id == null) return;
+
+		this.snapshotCache.remove(id);
+	}
+
 	/**
 	 * Set this assessment to be live.
 	 * 
@@ -935,10 +1105,10 @@ public class AssessmentServiceImpl implements AssessmentService
 	 */
 	protected void makeLive(Assessment assessment)
 	{
-		// clear the cache
-		this.threadLocalManager.set(cacheKey(assessment.getId()), null);
-
 		this.storage.makeLive(assessment);
+
+		// clear the cache
+		invalidateSnapshot(assessment.getId());
 	}
 
 	/**
@@ -953,6 +1123,9 @@ public class AssessmentServiceImpl implements AssessmentService
 		this.submissionService.removeTestDriveSubmissions(pool.getContext());
 
 		this.storage.removeDependency(pool);
+
+		// any unlocked assessment may have changed
+		invalidateAllSnapshots();
 	}
 
 	/**
@@ -967,6 +1140,9 @@ public class AssessmentServiceImpl implements AssessmentService
 		this.submissionService.removeTestDriveSubmissions(question.getContext());
 
 		this.storage.removeDependency(question);
+
+		// any unlocked assessment may have changed
+		invalidateAllSnapshots();
 	}
 
 	/**
@@ -1012,13 +1188,52 @@ public class AssessmentServiceImpl implements AssessmentService
 		assessment.getModifiedBy().setDate(now);
 		assessment.getModifiedBy().setUserId(userId);
 
-		// clear the cache
-		this.threadLocalManager.set(cacheKey(assessment.getId()), null);
-
 		// save
 		this.storage.saveAssessment(assessment);
 
+		// clear the cache
+		invalidateSnapshot(assessment.getId());
+
 		// event
 		eventTrackingService.post(eventTrackingService.newEvent(event, getAssessmentReference(assessment.getId()), true));
 	}
+
+	/**
+	 * Bring the stored validity, number of questions and total points up to date for these assessments.
+	 * 
+	 * @param ids
+	 *        The assessment ids.
+	 */
+	protected void summarizeAssessments(List<String> ids)
+	{
+		for (String id : ids)
+		{
+			AssessmentImpl assessment = this.storage.getAssessment(id);
+			if (assessment != null) this.storage.saveAssessmentSummary(assessment);
+
+			// the snapshot holds the stored values
+			invalidateSnapshot(id);
+		}
+	}
+
+	/**
+	 * Bring the stored validity, number of questions and total points up to date for the assessments that draw from this pool or pick this
+	 * question.
+	 * 
+	 * @param poolId
+	 *        The pool id - may be null.
+	 * @param questionId
+	 *        The question id - may be null.
+	 */
+	protected void summarizeDependentAssessments(String poolId, String questionId)
+	{
+		try
+		{
+			summarizeAssessments(this.storage.getDependentAssessments(poolId, questionId));
+		}
+		catch (Throwable t)
+		{
+			M_log.warn("summarizeDependentAssessments: pool: " + poolId + " question: " + questionId, t);
+		}
+	}
 }
@@ -23,6 +23,7 @@ package org.muse.mneme.impl;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
 import org.muse.mneme.api.Assessment;
 import org.muse.mneme.api.AssessmentService;
@@ -88,6 +89,17 @@ public interface AssessmentStorage
 	 */
 	AssessmentImpl getAssessment(String id);
 
+	/**
+	 * Find the published assessments that open in this time range, for everyone or for anyone with special access.
+	 * 
+	 * @param from
+	 *        The start of the range (inclusive).
+	 * @param to
+	 *        The end of the range (exclusive).
+	 * @return The ids of the assessments opening in the range, each once.
+	 */
+	List<String> getAssessmentsOpening(Date from, Date to);
+
 	/**
 	 * Get all the assessments defined in this context, sorted. Does not include archived assessments.
 	 * 
@@ -110,6 +122,26 @@ public interface AssessmentStorage
 	 */
 	List<AssessmentImpl> getContextGbInvalidAssessments(String context);
 
+	/**
+	 * Find the attachment references embedded in the (non-archived) assessments in this context, and their parts, from the reference index.
+	 * 
+	 * @param context
+	 *        The context.
+	 * @return The attachment references (normalized), each once.
+	 */
+	Set<String> getContextReferences(String context);
+
+	/**
+	 * Find the (non-archived, non-mint) assessments that draw from this pool, or pick this question.
+	 * 
+	 * @param poolId
+	 *        The pool id - may be null.
+	 * @param questionId
+	 *        The question id - may be null.
+	 * @return The ids of the assessments.
+	 */
+	List<String> getDependentAssessments(String poolId, String questionId);
+
 	/**
 	 * Initialize.
 	 */
@@ -161,4 +193,12 @@ public interface AssessmentStorage
 	 *        the assessment to save.
 	 */
 	void saveAssessment(AssessmentImpl assessment);
+
+	/**
+	 * Bring the stored validity, number of questions and total points for this assessment up to date, if they have changed.
+	 * 
+	 * @param assessment
+	 *        The assessment.
+	 */
+	void saveAssessmentSummary(AssessmentImpl assessment);
 }
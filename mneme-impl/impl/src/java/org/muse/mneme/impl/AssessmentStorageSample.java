@@ -27,10 +27,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -415,6 +417,86 @@ public class AssessmentStorageSample implements AssessmentStorage
 		return rv;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public Set<String> getContextReferences(String context)
+	{
+		fakeIt();
+
+		Set<String> rv = new HashSet<String>();
+		for (AssessmentImpl assessment : this.assessments.values())
+		{
+			if ((!assessment.getMint()) && (!assessment.getArchived()) && assessment.getContext().equals(context))
+			{
+				ReferenceScanner.harvest(assessment, rv);
+			}
+		}
+
+		return rv;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<String> getAssessmentsOpening(Date from, Date to)
+	{
+		fakeIt();
+
+		List<String> rv = new ArrayList<String>();
+		for (AssessmentImpl assessment : this.assessments.values())
+		{
+			if (assessment.getArchived() || assessment.getMint() || (!assessment.getPublished())) continue;
+
+			boolean opening = isWithin(assessment.getDates().getOpenDate(), from, to);
+			for (AssessmentAccess access : assessment.getSpecialAccess().getAccess())
+			{
+				if (access.getOverrideOpenDate() && isWithin(access.getOpenDate(), from, to)) opening = true;
+			}
+
+			if (opening) rv.add(assessment.getId());
+		}
+
+		return rv;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<String> getDependentAssessments(String poolId, String questionId)
+	{
+		fakeIt();
+
+		List<String> rv = new ArrayList<String>();
+		for (AssessmentImpl assessment : this.assessments.values())
+		{
+			if (assessment.getArchived() || assessment.getMint()) continue;
+
+			boolean found = false;
+			for (Part part : assessment.getParts().getParts())
+			{
+				if (part instanceof DrawPartImpl)
+				{
+					for (PoolDraw draw : ((DrawPartImpl) part).pools)
+					{
+						if (draw.getPoolId().equals(poolId)) found = true;
+					}
+				}
+				else if (part instanceof ManualPartImpl)
+				{
+					for (PoolPick pick : ((ManualPartImpl) part).questions)
+					{
+						if (pick.getQuestionId().equals(questionId)) found = true;
+					}
+				}
+			}
+
+			if (found) rv.add(assessment.getId());
+		}
+
+		return rv;
+	}
+
 	/**
 	 * Final initialization, once all dependencies are set.
 	 */
@@ -579,12 +661,30 @@ public class AssessmentStorageSample implements AssessmentStorage
 			}
 		}
 
+		assessment.initStoredSummary(assessment.getIsValid(), assessment.getParts().getNumQuestions(), assessment.getParts().getTotalPoints());
+
 		// save a copy
 		AssessmentImpl copy = new AssessmentImpl(assessment);
 
 		this.assessments.put(assessment.getId(), copy);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public void saveAssessmentSummary(AssessmentImpl assessment)
+	{
+		fakeIt();
+
+		assessment.initStoredSummary(assessment.getIsValid(), assessment.getParts().getNumQuestions(), assessment.getParts().getTotalPoints());
+
+		AssessmentImpl stored = this.assessments.get(assessment.getId());
+		if ((stored != null) && (stored != assessment))
+		{
+			stored.initStoredSummary(assessment.storedValid, assessment.storedNumQuestions, assessment.storedTotalPoints);
+		}
+	}
+
 	/**
 	 * Set the AssessmentService.
 	 * 
@@ -822,4 +922,20 @@ public class AssessmentStorageSample implements AssessmentStorage
 			this.assessments.put(a.getId(), a);
 		}
 	}
+	/**
+	 * Check if a date is in a time range.
+	 * 
+	 * @param date
+	 *        The date, may be null.
+	 * @param from
+	 *        The start of the range (inclusive).
+	 * @param to
+	 *        The end of the range (exclusive).
+	 * @return true if the date is in the range, false if not (or if null).
+	 */
+	protected boolean isWithin(Date date, Date from, Date to)
+	{
+		if (date == null) return false;
+		return (!date.before(from)) && date.before(to);
+	}
 }
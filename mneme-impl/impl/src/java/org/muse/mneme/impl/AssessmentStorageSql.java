@@ -27,9 +27,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -191,6 +193,28 @@ public abstract class AssessmentStorageSql implements AssessmentStorage
 		return readAssessment(id);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<String> getAssessmentsOpening(Date from, Date to)
+	{
+		StringBuilder sql = new StringBuilder();
+		sql.append("SELECT A.ID FROM MNEME_ASSESSMENT A");
+		sql.append(" WHERE A.ARCHIVED='0' AND A.MINT='0' AND A.PUBLISHED='1' AND A.DATES_OPEN>=? AND A.DATES_OPEN<?");
+		sql.append(" UNION SELECT X.ASSESSMENT_ID FROM MNEME_ASSESSMENT_ACCESS X");
+		sql.append(" JOIN MNEME_ASSESSMENT A ON X.ASSESSMENT_ID=A.ID AND A.ARCHIVED='0' AND A.MINT='0' AND A.PUBLISHED='1'");
+		sql.append(" WHERE X.OVERRIDE_OPEN='1' AND X.DATES_OPEN>=? AND X.DATES_OPEN<?");
+
+		Object[] fields = new Object[4];
+		fields[0] = from.getTime();
+		fields[1] = to.getTime();
+		fields[2] = from.getTime();
+		fields[3] = to.getTime();
+
+		List<String> rv = this.sqlService.dbRead(sql.toString(), fields, null);
+		return rv;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -199,7 +223,8 @@ public abstract class AssessmentStorageSql implements AssessmentStorage
 		String where = "WHERE A.CONTEXT=? AND A.ARCHIVED='0' AND A.MINT='0'";
 		if (publishedOnly)
 		{
-			where += " AND A.PUBLISHED='1'";
+			// those saved before validity was stored are checked below
+			where += " AND A.PUBLISHED='1' AND (A.VALID='1' OR A.VALID IS NULL)";
 		}
 
 		// sort
@@ -279,17 +304,14 @@ public abstract class AssessmentStorageSql implements AssessmentStorage
 
 		List<AssessmentImpl> rv = readAssessments(where, (order != null) ? order.toString() : null, fields);
 
-		// since valid is not stored on the db, filter invalid ones out if desired
-		if (publishedOnly)
+		// store the validity, number of questions and total points of any saved before these were stored, and drop the invalid
+		for (Iterator<AssessmentImpl> i = rv.iterator(); i.hasNext();)
 		{
-			for (Iterator i = rv.iterator(); i.hasNext();)
-			{
-				AssessmentImpl a = (AssessmentImpl) i.next();
-				if (!a.getIsValid())
-				{
-					i.remove();
-				}
-			}
+			AssessmentImpl assessment = i.next();
+			if (assessment.storedValid != null) continue;
+
+			saveAssessmentSummary(assessment);
+			if (publishedOnly && (!assessment.storedValid)) i.remove();
 		}
 
 		return rv;
@@ -310,6 +332,44 @@ public abstract class AssessmentStorageSql implements AssessmentStorage
 		return rv;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public Set<String> getContextReferences(String context)
+	{
+		// bring the index up to date
+		indexContextReferences(context);
+
+		StringBuilder sql = new StringBuilder();
+		sql.append("SELECT DISTINCT R.REF FROM MNEME_ASSESSMENT_REF R");
+		sql.append(" LEFT OUTER JOIN MNEME_ASSESSMENT A ON R.ASSESSMENT_ID=A.ID");
+		sql.append(" WHERE R.CONTEXT=? AND R.REF IS NOT NULL AND A.ARCHIVED='0'");
+
+		Object[] fields = new Object[1];
+		fields[0] = context;
+
+		List<String> results = this.sqlService.dbRead(sql.toString(), fields, null);
+		return new HashSet<String>(results);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<String> getDependentAssessments(String poolId, String questionId)
+	{
+		StringBuilder sql = new StringBuilder();
+		sql.append("SELECT DISTINCT D.ASSESSMENT_ID FROM MNEME_ASSESSMENT_PART_DETAIL D");
+		sql.append(" JOIN MNEME_ASSESSMENT A ON D.ASSESSMENT_ID=A.ID AND A.ARCHIVED='0' AND A.MINT='0'");
+		sql.append(" WHERE D.POOL_ID=? OR D.QUESTION_ID=?");
+
+		Object[] fields = new Object[2];
+		fields[0] = (poolId == null) ? null : Long.valueOf(poolId);
+		fields[1] = (questionId == null) ? null : Long.valueOf(questionId);
+
+		List<String> rv = this.sqlService.dbRead(sql.toString(), fields, null);
+		return rv;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -346,6 +406,8 @@ public abstract class AssessmentStorageSql implements AssessmentStorage
 	 */
 	public void removeDependency(final Pool pool)
 	{
+		List<String> dependents = getDependentAssessments(pool.getId(), null);
+
 		this.sqlService.transact(new Runnable()
 		{
 			public void run()
@@ -353,6 +415,9 @@ public abstract class AssessmentStorageSql implements AssessmentStorage
 				removeDependencyTx(pool);
 			}
 		}, "removeDependency(pool): " + pool.getId());
+
+		// the assessments that drew from the pool may have changed validity and totals
+		summarizeAssessments(dependents);
 	}
 
 	/**
@@ -360,6 +425,8 @@ public abstract class AssessmentStorageSql implements AssessmentStorage
 	 */
 	public void removeDependency(final Question question)
 	{
+		List<String> dependents = getDependentAssessments(null, question.getId());
+
 		this.sqlService.transact(new Runnable()
 		{
 			public void run()
@@ -367,6 +434,9 @@ public abstract class AssessmentStorageSql implements AssessmentStorage
 				removeDependencyTx(question);
 			}
 		}, "removeDependency(question): " + question.getId());
+
+		// the assessments that picked the question may have changed validity and totals
+		summarizeAssessments(dependents);
 	}
 
 	/**
@@ -401,6 +471,30 @@ public abstract class AssessmentStorageSql implements AssessmentStorage
 		((AssessmentPartsImpl) assessment.getParts()).clearDeleted();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public void saveAssessmentSummary(final AssessmentImpl assessment)
+	{
+		final Boolean valid = assessment.getIsValid();
+		final Integer numQuestions = assessment.getParts().getNumQuestions();
+		final Float totalPoints = assessment.getParts().getTotalPoints();
+
+		// skip if nothing changed
+		if (valid.equals(assessment.storedValid) && numQuestions.equals(assessment.storedNumQuestions)
+				&& totalPoints.equals(assessment.storedTotalPoints)) return;
+
+		this.sqlService.transact(new Runnable()
+		{
+			public void run()
+			{
+				saveAssessmentSummaryTx(assessment, valid, numQuestions, totalPoints);
+			}
+		}, "saveAssessmentSummary: " + assessment.getId());
+
+		assessment.initStoredSummary(valid, numQuestions, totalPoints);
+	}
+
 	/**
 	 * Set the AssessmentService.
 	 * 
@@ -687,6 +781,25 @@ public abstract class AssessmentStorageSql implements AssessmentStorage
 		}
 	}
 
+	/**
+	 * Delete the reference index entries for an assessment and its parts (transaction code).
+	 * 
+	 * @param assessment
+	 *        The assessment.
+	 */
+	protected void deleteAssessmentReferencesTx(AssessmentImpl assessment)
+	{
+		String sql = "DELETE FROM MNEME_ASSESSMENT_REF WHERE ASSESSMENT_ID=?";
+
+		Object[] fields = new Object[1];
+		fields[0] = Long.valueOf(assessment.getId());
+
+		if (!this.sqlService.dbWrite(sql, fields))
+		{
+			throw new RuntimeException("deleteAssessmentReferencesTx: db write failed");
+		}
+	}
+
 	/**
 	 * Delete an assessment (transaction code).
 	 * 
@@ -701,6 +814,9 @@ public abstract class AssessmentStorageSql implements AssessmentStorage
 		// parts
 		deleteAssessmentPartTx(assessment);
 
+		// reference index
+		deleteAssessmentReferencesTx(assessment);
+
 		// assessment
 		StringBuilder sql = new StringBuilder();
 		sql.append("DELETE FROM MNEME_ASSESSMENT");
@@ -715,6 +831,33 @@ public abstract class AssessmentStorageSql implements AssessmentStorage
 		}
 	}
 
+	/**
+	 * Add any assessments in the context missing from the reference index - those saved before there was an index.
+	 * 
+	 * @param context
+	 *        The context.
+	 */
+	protected void indexContextReferences(String context)
+	{
+		// every indexed assessment has at least one entry, with a null reference if it has none
+		Object[] fields = new Object[1];
+		fields[0] = context;
+		final List<AssessmentImpl> assessments = readAssessments(
+				"WHERE A.CONTEXT=? AND A.MINT='0' AND NOT EXISTS (SELECT 1 FROM MNEME_ASSESSMENT_REF R WHERE R.ASSESSMENT_ID=A.ID)", null, fields);
+		if (assessments.isEmpty()) return;
+
+		this.sqlService.transact(new Runnable()
+		{
+			public void run()
+			{
+				for (AssessmentImpl assessment : assessments)
+				{
+					saveAssessmentReferencesTx(assessment);
+				}
+			}
+		}, "indexContextReferences: " + context);
+	}
+
 	/**
 	 * Insert a new assessment.
 	 * 
@@ -723,13 +866,21 @@ public abstract class AssessmentStorageSql implements AssessmentStorage
 	 */
 	protected void insertAssessment(final AssessmentImpl assessment)
 	{
+		final Boolean valid = assessment.getIsValid();
+		final Integer numQuestions = assessment.getParts().getNumQuestions();
+		final Float totalPoints = assessment.getParts().getTotalPoints();
+
 		this.sqlService.transact(new Runnable()
 		{
 			public void run()
 			{
 				insertAssessmentTx(assessment);
+				saveAssessmentSummaryTx(assessment, valid, numQuestions, totalPoints);
+				saveAssessmentReferencesTx(assessment);
 			}
 		}, "insertAssessment: " + assessment.getId());
+
+		assessment.initStoredSummary(valid, numQuestions, totalPoints);
 	}
 
 	/**
@@ -817,6 +968,34 @@ public abstract class AssessmentStorageSql implements AssessmentStorage
 	 */
 	protected abstract void insertAssessmentTx(AssessmentImpl assessment);
 
+	/**
+	 * Insert reference index entries for an assessment or one of its parts (transaction code).
+	 * 
+	 * @param assessment
+	 *        The assessment.
+	 * @param part
+	 *        The part, or null for the assessment's own references.
+	 * @param refs
+	 *        The references.
+	 */
+	protected void insertReferencesTx(AssessmentImpl assessment, Part part, Set<String> refs)
+	{
+		String sql = "INSERT INTO MNEME_ASSESSMENT_REF (ASSESSMENT_ID, CONTEXT, PART_ID, REF) VALUES (?,?,?,?)";
+		for (String ref : refs)
+		{
+			Object[] fields = new Object[4];
+			fields[0] = Long.valueOf(assessment.getId());
+			fields[1] = assessment.getContext();
+			fields[2] = (part == null) ? null : Long.valueOf(part.getId());
+			fields[3] = ((ref != null) && (ref.length() > 2048)) ? ref.substring(0, 2048) : ref;
+
+			if (!this.sqlService.dbWrite(sql, fields))
+			{
+				throw new RuntimeException("insertReferencesTx: db write failed");
+			}
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -881,7 +1060,8 @@ public abstract class AssessmentStorageSql implements AssessmentStorage
 		sql.append(" A.PARTS_CONTINUOUS, A.PARTS_SHOW_PRES, A.PASSWORD, A.PRESENTATION_TEXT,");
 		sql.append(" A.PUBLISHED, A.QUESTION_GROUPING, A.RANDOM_ACCESS,");
 		sql.append(" A.REVIEW_DATE, A.REVIEW_SHOW_CORRECT, A.REVIEW_SHOW_FEEDBACK, A.REVIEW_TIMING,");
-		sql.append(" A.SHOW_HINTS, A.SUBMIT_PRES_TEXT, A.TIME_LIMIT, A.TITLE, A.TRIES, A.TYPE");
+		sql.append(" A.SHOW_HINTS, A.SUBMIT_PRES_TEXT, A.TIME_LIMIT, A.TITLE, A.TRIES, A.TYPE,");
+		sql.append(" A.VALID, A.NUM_QUESTIONS, A.TOTAL_POINTS");
 		sql.append(" FROM MNEME_ASSESSMENT A ");
 		sql.append(where);
 		if (order != null) sql.append(order);
@@ -930,6 +1110,10 @@ public abstract class AssessmentStorageSql implements AssessmentStorage
 					assessment.initTitle(SqlHelper.readString(result, i++));
 					assessment.setTries(SqlHelper.readInteger(result, i++));
 					assessment.setType(AssessmentType.valueOf(SqlHelper.readString(result, i++)));
+					Boolean valid = SqlHelper.readBoolean(result, i++);
+					Integer numQuestions = SqlHelper.readInteger(result, i++);
+					Float totalPoints = SqlHelper.readFloat(result, i++);
+					assessment.initStoredSummary(valid, numQuestions, totalPoints);
 
 					rv.add(assessment);
 					assessments.put(assessment.getId(), assessment);
@@ -1116,6 +1300,79 @@ public abstract class AssessmentStorageSql implements AssessmentStorage
 	 */
 	protected abstract void removeDependencyTx(Question question);
 
+	/**
+	 * Replace the reference index entries for an assessment with the references now embedded in it and its parts (transaction code).<br />
+	 * Mint assessments are left out of the index until they are saved as non-mint.
+	 * 
+	 * @param assessment
+	 *        The assessment.
+	 */
+	protected void saveAssessmentReferencesTx(AssessmentImpl assessment)
+	{
+		deleteAssessmentReferencesTx(assessment);
+		if (assessment.getMint()) return;
+
+		// the assessment's own references
+		Set<String> refs = new HashSet<String>();
+		ReferenceScanner.harvest(assessment.getPresentation().getText(), true, refs);
+		ReferenceScanner.harvest(assessment.getSubmitPresentation().getText(), true, refs);
+
+		// mark an assessment with no references as indexed
+		if (refs.isEmpty()) refs.add(null);
+		insertReferencesTx(assessment, null, refs);
+
+		// each part's references
+		for (Part part : assessment.getParts().getParts())
+		{
+			Set<String> partRefs = new HashSet<String>();
+			ReferenceScanner.harvest(part.getPresentation().getText(), true, partRefs);
+			insertReferencesTx(assessment, part, partRefs);
+		}
+	}
+
+	/**
+	 * Store the assessment's validity, number of questions and total points (transaction code).
+	 * 
+	 * @param assessment
+	 *        The assessment.
+	 * @param valid
+	 *        The validity.
+	 * @param numQuestions
+	 *        The number of questions.
+	 * @param totalPoints
+	 *        The total points.
+	 */
+	protected void saveAssessmentSummaryTx(AssessmentImpl assessment, Boolean valid, Integer numQuestions, Float totalPoints)
+	{
+		String sql = "UPDATE MNEME_ASSESSMENT SET VALID=?, NUM_QUESTIONS=?, TOTAL_POINTS=? WHERE ID=?";
+
+		Object[] fields = new Object[4];
+		fields[0] = valid ? "1" : "0";
+		fields[1] = numQuestions;
+		fields[2] = totalPoints;
+		fields[3] = Long.valueOf(assessment.getId());
+
+		if (!this.sqlService.dbWrite(sql, fields))
+		{
+			throw new RuntimeException("saveAssessmentSummaryTx: db write failed");
+		}
+	}
+
+	/**
+	 * Bring the stored validity, number of questions and total points up to date for these assessments.
+	 * 
+	 * @param ids
+	 *        The assessment ids.
+	 */
+	protected void summarizeAssessments(List<String> ids)
+	{
+		for (String id : ids)
+		{
+			AssessmentImpl assessment = readAssessment(id);
+			if (assessment != null) saveAssessmentSummary(assessment);
+		}
+	}
+
 	/**
 	 * Update an existing assessment.
 	 * 
@@ -1124,13 +1381,21 @@ public abstract class AssessmentStorageSql implements AssessmentStorage
 	 */
 	protected void updateAssessment(final AssessmentImpl assessment)
 	{
+		final Boolean valid = assessment.getIsValid();
+		final Integer numQuestions = assessment.getParts().getNumQuestions();
+		final Float totalPoints = assessment.getParts().getTotalPoints();
+
 		this.sqlService.transact(new Runnable()
 		{
 			public void run()
 			{
 				updateAssessmentTx(assessment);
+				saveAssessmentSummaryTx(assessment, valid, numQuestions, totalPoints);
+				saveAssessmentReferencesTx(assessment);
 			}
 		}, "updateAssessment: " + assessment.getId());
+
+		assessment.initStoredSummary(valid, numQuestions, totalPoints);
 	}
 
 	/**
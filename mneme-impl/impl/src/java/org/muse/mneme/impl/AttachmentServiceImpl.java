@@ -21,26 +21,33 @@
 
 package org.muse.mneme.impl;
 
-import java.awt.Container;
+import java.awt.Color;
 import java.awt.Graphics2D;
-import java.awt.Image;
-import java.awt.MediaTracker;
-import java.awt.Toolkit;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
-import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
-import java.net.URLDecoder;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -84,15 +91,13 @@ import org.sakaiproject.exception.PermissionException;
 import org.sakaiproject.exception.ServerOverloadException;
 import org.sakaiproject.exception.TypeException;
 import org.sakaiproject.id.api.IdManager;
+import org.sakaiproject.thread_local.api.ThreadLocalManager;
+import org.sakaiproject.tool.api.Session;
 import org.sakaiproject.tool.api.SessionManager;
 import org.sakaiproject.util.StringUtil;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
-import com.sun.image.codec.jpeg.JPEGCodec;
-import com.sun.image.codec.jpeg.JPEGEncodeParam;
-import com.sun.image.codec.jpeg.JPEGImageEncoder;
-
 /**
  * AttachmentServiceImpl implements AttachmentService.
  */
@@ -135,6 +140,18 @@ public class AttachmentServiceImpl implements AttachmentService, EntityProducer
 	/** Dependency: SubmissionService */
 	protected SubmissionService submissionService = null;
 
+	/** Dependency: ThreadLocalManager */
+	protected ThreadLocalManager threadLocalManager = null;
+
+	/** Configuration: the number of thumbnails waiting to be made before we stop taking more. */
+	protected int thumbQueueSize = 100;
+
+	/** The threads that make the thumbnails, off the request thread. */
+	protected ThreadPoolExecutor thumbRunner = null;
+
+	/** Configuration: the number of threads to make thumbnails with. */
+	protected int thumbThreads = 2;
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -152,8 +169,7 @@ public class AttachmentServiceImpl implements AttachmentService, EntityProducer
 
 			String type = file.getContentType();
 
-			// TODO: change to file.getInputStream() for after Sakai 2.3 more efficient support
-			// InputStream body = file.getInputStream();
+			// TODO: change to file.getInputStream() once we require a Sakai with ContentResourceEdit.setContent(InputStream)
 			byte[] body = file.get();
 
 			long size = file.getSize();
@@ -161,8 +177,6 @@ public class AttachmentServiceImpl implements AttachmentService, EntityProducer
 			// detect no file selected
 			if ((name == null) || (type == null) || (body == null) || (size == 0))
 			{
-				// TODO: if using input stream, close it
-				// if (body != null) body.close();
 				return null;
 			}
 
@@ -181,7 +195,7 @@ public class AttachmentServiceImpl implements AttachmentService, EntityProducer
 				// if it is an image
 				if (type.toLowerCase().startsWith("image/"))
 				{
-					addThumb(rv, name, body);
+					addThumb(rv, name);
 				}
 			}
 
@@ -230,7 +244,7 @@ public class AttachmentServiceImpl implements AttachmentService, EntityProducer
 				// if it is an image
 				if (type.toLowerCase().startsWith("image/"))
 				{
-					addThumb(rv, name, body);
+					addThumb(rv, name);
 				}
 			}
 
@@ -298,7 +312,7 @@ public class AttachmentServiceImpl implements AttachmentService, EntityProducer
 				// if it is an image
 				if (type.toLowerCase().startsWith("image/"))
 				{
-					addThumb(rv, name, body);
+					addThumb(rv, name);
 				}
 			}
 
@@ -323,6 +337,8 @@ public class AttachmentServiceImpl implements AttachmentService, EntityProducer
 	 */
 	public void destroy()
 	{
+		if (this.thumbRunner != null) this.thumbRunner.shutdownNow();
+
 		M_log.info("destroy()");
 	}
 
@@ -511,63 +527,7 @@ public class AttachmentServiceImpl implements AttachmentService, EntityProducer
 	 */
 	public Set<String> harvestAttachmentsReferenced(String data, boolean normalize)
 	{
-		Set<String> rv = new HashSet<String>();
-		if (data == null) return rv;
-
-		// pattern to find any src= or href= text
-		// groups: 0: the whole matching text 1: src|href 2: the string in the quotes
-		Pattern p = Pattern.compile("(src|href)[\\s]*=[\\s]*\"([^\"]*)\"");
-
-		Matcher m = p.matcher(data);
-		while (m.find())
-		{
-			if (m.groupCount() == 2)
-			{
-				String ref = m.group(2);
-
-				// harvest any content hosting reference
-				int index = ref.indexOf("/access/content/");
-				if (index != -1)
-				{
-					// except for any in /user/ or /public/
-					if (ref.indexOf("/access/content/user/") != -1)
-					{
-						index = -1;
-					}
-					else if (ref.indexOf("/access/content/public/") != -1)
-					{
-						index = -1;
-					}
-				}
-
-				// harvest also the mneme docs references
-				if (index == -1) index = ref.indexOf("/access/mneme/content/");
-
-				// TODO: further filter to docs root and context (optional)
-				if (index != -1)
-				{
-					// save just the reference part (i.e. after the /access);
-					String refString = ref.substring(index + 7);
-
-					// deal with %20 and other encoded URL stuff
-					if (normalize)
-					{
-						try
-						{
-							refString = URLDecoder.decode(refString, "UTF-8");
-						}
-						catch (UnsupportedEncodingException e)
-						{
-							M_log.warn("harvestAttachmentsReferenced: " + e);
-						}
-					}
-
-					rv.add(refString);
-				}
-			}
-		}
-
-		return rv;
+		return ReferenceScanner.harvest(data, normalize);
 	}
 
 	/**
@@ -580,7 +540,15 @@ public class AttachmentServiceImpl implements AttachmentService, EntityProducer
 			// register as an entity producer
 			entityManager.registerEntityProducer(this, REFERENCE_ROOT);
 
-			M_log.info("init(): thumbs: " + this.makeThumbs);
+			// thumbnails are made in the background, by a few threads from a bounded queue
+			if (this.makeThumbs)
+			{
+				int threads = Math.max(1, this.thumbThreads);
+				this.thumbRunner = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(Math.max(1,
+						this.thumbQueueSize)));
+			}
+
+			M_log.info("init(): thumbs: " + this.makeThumbs + " thumb threads: " + this.thumbThreads + " thumb queue: " + this.thumbQueueSize);
 		}
 		catch (Throwable t)
 		{
@@ -775,82 +743,44 @@ public class AttachmentServiceImpl implements AttachmentService, EntityProducer
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Dependency: ThreadLocalManager.
+	 * 
+	 * @param service
+	 *        The ThreadLocalManager.
 	 */
-	public String translateEmbeddedReferences(String data, List<Translation> translations)
+	public void setThreadLocalManager(ThreadLocalManager service)
 	{
-		if (data == null) return data;
-		if (translations == null) return data;
-
-		// pattern to find any src= or href= text
-		// groups: 0: the whole matching text 1: src|href 2: the string in the quotes
-		Pattern p = Pattern.compile("(src|href)[\\s]*=[\\s]*\"([^\"]*)\"");
-
-		Matcher m = p.matcher(data);
-		StringBuffer sb = new StringBuffer();
-
-		// process each "harvested" string (avoiding like strings that are not in src= or href= patterns)
-		while (m.find())
-		{
-			if (m.groupCount() == 2)
-			{
-				String ref = m.group(2);
-
-				// harvest any content hosting reference
-				int index = ref.indexOf("/access/content/");
-				if (index != -1)
-				{
-					// except for any in /user/ or /public/
-					if (ref.indexOf("/access/content/user/") != -1)
-					{
-						index = -1;
-					}
-					else if (ref.indexOf("/access/content/public/") != -1)
-					{
-						index = -1;
-					}
-				}
-
-				// harvest also the mneme docs references
-				if (index == -1) index = ref.indexOf("/access/mneme/content/");
-
-				if (index != -1)
-				{
-					// save just the reference part (i.e. after the /access);
-					String normal = ref.substring(index + 7);
-
-					// deal with %20 and other encoded URL stuff
-					try
-					{
-						normal = URLDecoder.decode(normal, "UTF-8");
-					}
-					catch (UnsupportedEncodingException e)
-					{
-						M_log.warn("harvestAttachmentsReferenced: " + e);
-					}
-
-					// translate the normal form
-					String translated = normal;
-					for (Translation translation : translations)
-					{
-						translated = translation.translate(translated);
-					}
-
-					// URL encode translated
-					String escaped = EscapeRefUrl.escapeUrl(translated);
+		this.threadLocalManager = service;
+	}
 
-					// if changed, replace
-					if (!normal.equals(translated))
-					{
-						m.appendReplacement(sb, Matcher.quoteReplacement(m.group(1) + "=\"" + ref.substring(0, index + 7) + escaped + "\""));
-					}
-				}
-			}
-		}
+	/**
+	 * Set the number of thumbnails that may wait to be made; images added while this many are waiting get their thumbnail made on the request thread.
+	 * 
+	 * @param size
+	 *        The queue size.
+	 */
+	public void setThumbQueueSize(String size)
+	{
+		this.thumbQueueSize = Integer.parseInt(size);
+	}
 
-		m.appendTail(sb);
+	/**
+	 * Set the number of threads to make thumbnails with.
+	 * 
+	 * @param count
+	 *        The number of threads.
+	 */
+	public void setThumbThreads(String count)
+	{
+		this.thumbThreads = Integer.parseInt(count);
+	}
 
-		return sb.toString();
+	/**
+	 * {@inheritDoc}
+	 */
+	public String translateEmbeddedReferences(String data, List<Translation> translations)
+	{
+		return ReferenceScanner.translate(data, translations);
 	}
 
 	/**
@@ -862,41 +792,62 @@ public class AttachmentServiceImpl implements AttachmentService, EntityProducer
 	}
 
 	/**
-	 * Add a thumbnail for the image at this reference with this name and contents.
+	 * Queue up the making of a thumbnail for the image at this reference with this name.<br />
+	 * The thumbnail is made in the background from the stored image, and appears when ready. If the queue is full, the image goes without.
 	 * 
 	 * @param resource
 	 *        The image resource reference.
 	 * @param name
 	 *        The original file name.
-	 * @param body
-	 *        The image bytes.
-	 * @return A reference to the thumbnail, or null if not made.
 	 */
-	protected Reference addThumb(Reference resource, String name, byte[] body)
+	protected void addThumb(Reference resource, final String name)
 	{
 		// if disabled
-		if (!this.makeThumbs) return null;
+		if ((!this.makeThumbs) || (this.thumbRunner == null)) return;
+
+		// the content hosting id of the image
+		final String id = this.getReference(resource.getId()).getId();
+		final String userId = this.sessionManager.getCurrentSessionUserId();
 
-		Reference ref = this.getReference(resource.getId());
-		String thumbId = ref.getId() + THUMB_SUFFIX;
-		String thumbName = name + THUMB_SUFFIX;
 		try
 		{
-			byte[] thumb = makeThumb(body, 80, 80, 0.75f);
-			Reference thumbRef = doAdd(thumbId, thumbName, "image/jpeg", thumb, thumb.length, true);
+			this.thumbRunner.execute(new Runnable()
+			{
+				public void run()
+				{
+					// act as the user who added the image, in a session of our own
+					Session session = sessionManager.getCurrentSession();
+					try
+					{
+						session.setUserId(userId);
 
-			return thumbRef;
-		}
-		catch (IOException e)
-		{
-			M_log.warn("addAttachment: thumbing: " + e.toString());
+						pushAdvisor();
+						try
+						{
+							makeThumb(id, name);
+						}
+						finally
+						{
+							popAdvisor();
+						}
+					}
+					catch (Throwable t)
+					{
+						M_log.warn("addThumb: " + id, t);
+					}
+					finally
+					{
+						session.invalidate();
+						threadLocalManager.clear();
+					}
+				}
+			});
 		}
-		catch (InterruptedException e)
+		catch (RejectedExecutionException e)
 		{
-			M_log.warn("addAttachment: thumbing: " + e.toString());
+			// the queue is full - keep the request thread free, and go without
+			M_log.warn("addThumb: thumbnail queue full, skipping: " + id);
 		}
-
-		return null;
 	}
 
 	/**
@@ -1129,17 +1080,6 @@ public class AttachmentServiceImpl implements AttachmentService, EntityProducer
 		{
 			M_log.warn("addAttachment: creating our content: " + e2.toString());
 		}
-		finally
-		{
-			// try
-			// {
-			// // TODO: if using input stream
-			// if (body != null) body.close();
-			// }
-			// catch (IOException e)
-			// {
-			// }
-		}
 
 		return null;
 	}
@@ -1247,10 +1187,68 @@ public class AttachmentServiceImpl implements AttachmentService, EntityProducer
 	}
 
 	/**
-	 * Create a thumbnail image from the full image in the byte[], of the desired width and height and quality, preserving aspect ratio.
+	 * Make the thumbnail for the image resource with this id, and add it next to the image.
+	 * 
+	 * @param id
+	 *        The image resource id.
+	 * @param name
+	 *        The original file name.
+	 * @return A reference to the thumbnail, or null if not made.
+	 */
+	protected Reference makeThumb(String id, String name)
+	{
+		String thumbId = id + THUMB_SUFFIX;
+		String thumbName = name + THUMB_SUFFIX;
+
+		InputStream full = null;
+		try
+		{
+			full = this.contentHostingService.getResource(id).streamContent();
+			byte[] thumb = makeThumb(full, 80, 80, 0.75f);
+			Reference thumbRef = doAdd(thumbId, thumbName, "image/jpeg", thumb, thumb.length, true);
+
+			return thumbRef;
+		}
+		catch (IOException e)
+		{
+			M_log.warn("makeThumb: " + id + " : " + e.toString());
+		}
+		catch (PermissionException e)
+		{
+			M_log.warn("makeThumb: " + id + " : " + e.toString());
+		}
+		catch (IdUnusedException e)
+		{
+			M_log.warn("makeThumb: " + id + " : " + e.toString());
+		}
+		catch (TypeException e)
+		{
+			M_log.warn("makeThumb: " + id + " : " + e.toString());
+		}
+		catch (ServerOverloadException e)
+		{
+			M_log.warn("makeThumb: " + id + " : " + e.toString());
+		}
+		finally
+		{
+			try
+			{
+				if (full != null) full.close();
+			}
+			catch (IOException e)
+			{
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Create a thumbnail image from the full image in the stream, of the desired width and height and quality, preserving aspect ratio.<br />
+	 * Large images are sub-sampled as they are read, so the full size image is never held in memory.
 	 * 
 	 * @param full
-	 *        The full image bytes.
+	 *        The full image stream.
 	 * @param width
 	 *        The desired max width (pixels).
 	 * @param height
@@ -1259,46 +1257,89 @@ public class AttachmentServiceImpl implements AttachmentService, EntityProducer
 	 *        The JPEG quality (0 - 1).
 	 * @return The thumbnail JPEG as a byte[].
 	 * @throws IOException
-	 * @throws InterruptedException
+	 *         if the image cannot be read.
 	 */
-	protected byte[] makeThumb(byte[] full, int width, int height, float quality) throws IOException, InterruptedException
+	protected byte[] makeThumb(InputStream full, int width, int height, float quality) throws IOException
 	{
-		// read the image from the byte array, waiting till it's processed
-		Image fullImage = Toolkit.getDefaultToolkit().createImage(full);
-		MediaTracker tracker = new MediaTracker(new Container());
-		tracker.addImage(fullImage, 0);
-		tracker.waitForID(0);
-
-		// get the full image dimensions
-		int fullWidth = fullImage.getWidth(null);
-		int fullHeight = fullImage.getHeight(null);
-
-		// preserve the aspect of the full image, not exceeding the thumb dimensions
-		if (fullWidth > fullHeight)
+		ImageInputStream in = ImageIO.createImageInputStream(full);
+		if (in == null) throw new IOException("no image input stream");
+
+		BufferedImage thumbImage = null;
+		try
 		{
-			// full width will take the full desired width, set the appropriate height
-			height = (int) ((((float) width) / ((float) fullWidth)) * ((float) fullHeight));
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+			if (!readers.hasNext()) throw new IOException("no reader for image");
+			ImageReader reader = readers.next();
+			try
+			{
+				reader.setInput(in, true, true);
+
+				// get the full image dimensions
+				int fullWidth = reader.getWidth(0);
+				int fullHeight = reader.getHeight(0);
+
+				// preserve the aspect of the full image, not exceeding the thumb dimensions
+				if (fullWidth > fullHeight)
+				{
+					// full width will take the full desired width, set the appropriate height
+					height = Math.max(1, (int) ((((float) width) / ((float) fullWidth)) * ((float) fullHeight)));
+				}
+				else
+				{
+					// full height will take the full desired height, set the appropriate width
+					width = Math.max(1, (int) ((((float) height) / ((float) fullHeight)) * ((float) fullWidth)));
+				}
+
+				// read only every n'th pixel of a large image, keeping twice the thumb's resolution to scale from
+				ImageReadParam param = reader.getDefaultReadParam();
+				int step = Math.min(fullWidth / (width * 2), fullHeight / (height * 2));
+				if (step > 1) param.setSourceSubsampling(step, step, 0, 0);
+				BufferedImage fullImage = reader.read(0, param);
+
+				// draw the scaled thumb, on white for any transparent parts
+				thumbImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+				Graphics2D g2D = thumbImage.createGraphics();
+				try
+				{
+					g2D.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+					g2D.setColor(Color.WHITE);
+					g2D.fillRect(0, 0, width, height);
+					g2D.drawImage(fullImage, 0, 0, width, height, null);
+				}
+				finally
+				{
+					g2D.dispose();
+				}
+			}
+			finally
+			{
+				reader.dispose();
+			}
 		}
-		else
+		finally
 		{
-			// full height will take the full desired height, set the appropriate width
-			width = (int) ((((float) height) / ((float) fullHeight)) * ((float) fullWidth));
+			in.close();
 		}
 
-		// draw the scaled thumb
-		BufferedImage thumbImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-		Graphics2D g2D = thumbImage.createGraphics();
-		g2D.drawImage(fullImage, 0, 0, width, height, null);
-
 		// encode as jpeg to a byte array
+		Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+		if (!writers.hasNext()) throw new IOException("no jpeg writer");
+		ImageWriter writer = writers.next();
 		ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-		BufferedOutputStream out = new BufferedOutputStream(byteStream);
-		JPEGImageEncoder encoder = JPEGCodec.createJPEGEncoder(out);
-		JPEGEncodeParam param = encoder.getDefaultJPEGEncodeParam(thumbImage);
-		param.setQuality(quality, false);
-		encoder.setJPEGEncodeParam(param);
-		encoder.encode(thumbImage);
-		out.close();
+		ImageOutputStream out = ImageIO.createImageOutputStream(byteStream);
+		try
+		{
+			ImageWriteParam param = writer.getDefaultWriteParam();
+			param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+			param.setCompressionQuality(quality);
+			writer.setOutput(out);
+			writer.write(null, new IIOImage(thumbImage, null, null), param);
+		}
+		finally
+		{
+			writer.dispose();
+			out.close();
+		}
 		byte[] thumb = byteStream.toByteArray();
 
 		return thumb;
@@ -0,0 +1,191 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+package org.muse.mneme.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DeadlineWheel is a hashed timer wheel of ids, each due at some time.<br />
+ * Each id hashes to a slot by its due tick, so advancing the wheel only looks at the slots for the ticks that have passed, not at every id.
+ */
+public class DeadlineWheel
+{
+	/** The slot index for each scheduled id. */
+	protected Map<String, Integer> ids = new HashMap<String, Integer>();
+
+	/** The last tick we have advanced through. */
+	protected long lastTick = 0;
+
+	/** The wheel - ids in each slot, keyed by id, with their due time (ms). */
+	protected List<Map<String, Long>> slots = null;
+
+	/** The ms in each tick. */
+	protected long tickMs = 0;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param tickMs
+	 *        The ms in each tick of the wheel - due times are resolved to this.
+	 * @param numSlots
+	 *        The number of slots in the wheel.
+	 * @param now
+	 *        The current time (ms).
+	 */
+	public DeadlineWheel(long tickMs, int numSlots, long now)
+	{
+		if (tickMs <= 0) throw new IllegalArgumentException();
+		if (numSlots <= 0) throw new IllegalArgumentException();
+
+		this.tickMs = tickMs;
+		this.slots = new ArrayList<Map<String, Long>>(numSlots);
+		for (int i = 0; i < numSlots; i++)
+		{
+			this.slots.add(new HashMap<String, Long>());
+		}
+		this.lastTick = (now / tickMs) - 1;
+	}
+
+	/**
+	 * Advance the wheel to this time, removing and returning the ids that are due.
+	 * 
+	 * @param now
+	 *        The current time (ms).
+	 * @return The List of ids that are due by now, in no particular order. May be empty.
+	 */
+	public synchronized List<String> advance(long now)
+	{
+		List<String> rv = new ArrayList<String>();
+
+		long nowTick = now / this.tickMs;
+		if (nowTick <= this.lastTick) return rv;
+
+		// visit each slot passed since last time - no more than once around
+		long ticks = Math.min(nowTick - this.lastTick, this.slots.size());
+		for (long t = nowTick - ticks + 1; t <= nowTick; t++)
+		{
+			Map<String, Long> slot = this.slots.get(slotIndex(t));
+			for (Iterator<Map.Entry<String, Long>> i = slot.entrySet().iterator(); i.hasNext();)
+			{
+				Map.Entry<String, Long> entry = i.next();
+
+				// ids further out than once around the wheel stay for a later pass
+				if (entry.getValue().longValue() <= now)
+				{
+					i.remove();
+					this.ids.remove(entry.getKey());
+					rv.add(entry.getKey());
+				}
+			}
+		}
+
+		this.lastTick = nowTick;
+
+		return rv;
+	}
+
+	/**
+	 * Remove this id from the wheel, if scheduled.
+	 * 
+	 * @param id
+	 *        The id.
+	 */
+	public synchronized void cancel(String id)
+	{
+		Integer slot = this.ids.remove(id);
+		if (slot == null) return;
+
+		this.slots.get(slot.intValue()).remove(id);
+	}
+
+	/**
+	 * Access the due time for this id.
+	 * 
+	 * @param id
+	 *        The id.
+	 * @return The due time (ms), or null if the id is not scheduled.
+	 */
+	public synchronized Long getDue(String id)
+	{
+		Integer slot = this.ids.get(id);
+		if (slot == null) return null;
+
+		return this.slots.get(slot.intValue()).get(id);
+	}
+
+	/**
+	 * Schedule this id to be due at this time, replacing any current schedule for the id.
+	 * 
+	 * @param id
+	 *        The id.
+	 * @param due
+	 *        The due time (ms). A time already past is due on the next advance.
+	 */
+	public synchronized void schedule(String id, long due)
+	{
+		if (id == null) throw new IllegalArgumentException();
+
+		cancel(id);
+
+		int slot = slotIndex(dueTick(due));
+		this.ids.put(id, Integer.valueOf(slot));
+		this.slots.get(slot).put(id, Long.valueOf(due));
+	}
+
+	/**
+	 * Access the number of ids scheduled.
+	 * 
+	 * @return The number of ids scheduled.
+	 */
+	public synchronized int size()
+	{
+		return this.ids.size();
+	}
+
+	/**
+	 * Find the tick for a due time - the first tick starting at or after the time, but never earlier than the next tick we will advance through.
+	 * 
+	 * @param due
+	 *        The due time (ms).
+	 * @return The tick.
+	 */
+	protected long dueTick(long due)
+	{
+		return Math.max((due + this.tickMs - 1) / this.tickMs, this.lastTick + 1);
+	}
+
+	/**
+	 * Find the slot for a tick.
+	 * 
+	 * @param tick
+	 *        The tick.
+	 * @return The slot index.
+	 */
+	protected int slotIndex(long tick)
+	{
+		return (int) (tick % this.slots.size());
+	}
+}
@@ -430,12 +430,15 @@ public class DrawPartImpl extends PartImpl implements DrawPart
 	/**
 	 * {@inheritDoc}
 	 */
-	protected List<PoolPick> getPossibleQuestionPicks()
+	protected List<PoolPick> computeQuestionPickOrder()
 	{
+		Shuffler shuffler = new ShufflerImpl(this);
+
+		// random draw from the pools, randomize the results
 		List<PoolPick> rv = new ArrayList<PoolPick>();
 		for (PoolDraw draw : this.pools)
 		{
-			List<String> draws = draw.getAllQuestionIds();
+			List<String> draws = draw.drawQuestionIds(shuffler);
 			for (String id : draws)
 			{
 				PoolPick pick = new PoolPick(this.questionService, id, draw.getPoolId());
@@ -443,21 +446,35 @@ public class DrawPartImpl extends PartImpl implements DrawPart
 			}
 		}
 
+		// randomize the questions in the copy
+		shuffler.shuffle(rv, this.id);
+
 		return rv;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
-	protected List<PoolPick> getQuestionPickOrder()
+	protected List<String> getDrawPoolIds()
 	{
-		Shuffler shuffler = new ShufflerImpl(this);
+		List<String> rv = new ArrayList<String>();
+		for (PoolDraw draw : this.pools)
+		{
+			rv.add(draw.getPoolId());
+		}
 
-		// random draw from the pools, randomize the results
+		return rv;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	protected List<PoolPick> getPossibleQuestionPicks()
+	{
 		List<PoolPick> rv = new ArrayList<PoolPick>();
 		for (PoolDraw draw : this.pools)
 		{
-			List<String> draws = draw.drawQuestionIds(shuffler);
+			List<String> draws = draw.getAllQuestionIds();
 			for (String id : draws)
 			{
 				PoolPick pick = new PoolPick(this.questionService, id, draw.getPoolId());
@@ -465,9 +482,6 @@ public class DrawPartImpl extends PartImpl implements DrawPart
 			}
 		}
 
-		// randomize the questions in the copy
-		shuffler.shuffle(rv, this.id);
-
 		return rv;
 	}
 
@@ -21,10 +21,8 @@
 
 package org.muse.mneme.impl;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -63,161 +61,11 @@ public class FillBlanksAnswerImpl implements TypeSpecificAnswer
 	protected static Boolean answerCorrect(String answer, String correctPattern, boolean caseSensitive, boolean anyOrder, boolean textual,
 			List<String> correctAnswers, List<String> priorAnswers)
 	{
-		if (!anyOrder)
-		{
-			// answer must match correctPattern
-			if (textual)
-			{
-				return isFillInAnswerCorrect(answer, correctPattern, caseSensitive);
-			}
-			else
-			{
-				return isNumericAnswerCorrect(answer, correctPattern);
-			}
-		}
-
-		else
-		{
-			// answer must not be one of the priors
-			for (String prior : priorAnswers)
-			{
-				if (caseSensitive)
-				{
-					if (prior.equals(answer)) return Boolean.FALSE;
-				}
-				else
-				{
-					if (prior.equalsIgnoreCase(answer)) return Boolean.FALSE;
-				}
-			}
-
-			// answer must match one of the correct answers
-			for (String pattern : correctAnswers)
-			{
-				// answer must match correctPattern
-				if (textual)
-				{
-					if (isFillInAnswerCorrect(answer, pattern, caseSensitive))
-					{
-						return Boolean.TRUE;
-					}
-				}
-				else
-				{
-					if (isNumericAnswerCorrect(answer, pattern))
-					{
-						return Boolean.TRUE;
-					}
-				}
-			}
-		}
-
-		return Boolean.FALSE;
-	}
-
-	/**
-	 * Figure out if a fill-in answer is correct.
-	 * 
-	 * @param answer
-	 *        The given answer.
-	 * @param correct
-	 *        The correct answer pattern (with option bars and wild cards).
-	 * @param caseSensitive
-	 *        if we should be case sensitive.
-	 * @return true if the answer is correct, false if not
-	 */
-	protected static boolean isFillInAnswerCorrect(String answer, String correct, boolean caseSensitive)
-	{
-		// get the set of valid answers from the correct answer pattern (each one may have wild cards)
-		String[] valid = correct.split("\\|");
-		for (String test : valid)
-		{
-			// ignore leading and trailing white space
-			test = trim(test);
-
-			// prepare the test as a regex, quoting all non-wildcards, changing the wildcard "*" into a regex ".+"
-			StringBuffer regex = new StringBuffer();
-			String[] parts = test.replaceAll("\\*", "|*|").split("\\|");
-			for (String part : parts)
-			{
-				if ("*".equals(part))
-				{
-					regex.append(".+");
-				}
-				else
-				{
-					regex.append(Pattern.quote(part));
-				}
-			}
-			Pattern p = Pattern.compile(regex.toString(), ((!caseSensitive) ? Pattern.CASE_INSENSITIVE : 0));
-
-			// test
-			Matcher m = p.matcher(answer);
-			boolean result = m.matches();
-
-			if (result) return true;
-		}
-
-		return false;
-	}
-
-	/**
-	 * Figure out if a fill-in numeric answer is correct.
-	 * 
-	 * @param answer
-	 *        The given answer.
-	 * @param correct
-	 *        The correct answer pattern (with option bars).
-	 * @return true if the answer is correct, false if not
-	 */
-	protected static boolean isNumericAnswerCorrect(String answer, String correct)
-	{
-		try
-		{
-			// allow dot or comma for decimal point
-			// TODO: this needs to be changed to respect locale, not just replace commas! -ggolden
-			answer = answer.replace(',', '.');
-			correct = correct.replace(',', '.');
-
-			// answer needs to become a float (allow dot or comma for decimal point)
-			float answerValue = Float.parseFloat(answer);
-
-			// form the range of correct answers
-			Float[] range = new Float[2];
-
-			// if there's a bar in the correct pattern, split and use the first two as the range
-			if (correct.indexOf("|") != -1)
-			{
-				String[] parts = correct.split("\\|");
-				range[0] = Float.parseFloat(trim(parts[0]));
-				range[1] = Float.parseFloat(trim(parts[1]));
-
-				// make sure [0] <= [1]
-				if (range[0].floatValue() > range[1].floatValue())
-				{
-					Float hold = range[0];
-					range[0] = range[1];
-					range[1] = hold;
-				}
-			}
-
-			// otherwise use the single value for both sides of the range
-			else
-			{
-				range[0] = range[1] = Float.parseFloat(trim(correct));
-			}
-
-			// test
-			if ((answerValue >= range[0].floatValue()) && (answerValue <= range[1].floatValue()))
-			{
-				return true;
-			}
-		}
-		catch (NumberFormatException e)
-		{
-		}
+		// the grader does the checking - compile just the pattern we need if order matters, else all of them
+		List<String> corrects = anyOrder ? correctAnswers : Collections.singletonList(correctPattern);
+		FillBlanksGrader grader = new FillBlanksGrader(null, caseSensitive, anyOrder, textual, false, corrects);
 
-		return false;
+		return Boolean.valueOf(grader.isCorrect(answer, 0, priorAnswers));
 	}
 
 	/**
@@ -388,52 +236,9 @@ public class FillBlanksAnswerImpl implements TypeSpecificAnswer
 	{
 		// this.answers has an entry for each blank - null or filled in. Or is null if we have not been answered.
 
-		// we need an answer for each fill-in. The correct answers will give us that size
+		// the question's compiled grader knows the correct answers, and how to check each blank
 		Question question = answer.getQuestion();
-		List<String> correctAnswers = ((FillBlanksQuestionImpl) question.getTypeSpecificQuestion()).getCorrectAnswers();
-		int size = correctAnswers.size();
-
-		// Get all other question properties
-		boolean caseSensitive = Boolean.parseBoolean(((FillBlanksQuestionImpl) question.getTypeSpecificQuestion()).getCaseSensitive());
-		boolean anyOrder = Boolean.parseBoolean(((FillBlanksQuestionImpl) question.getTypeSpecificQuestion()).getAnyOrder());
-		boolean textual = Boolean.parseBoolean(((FillBlanksQuestionImpl) question.getTypeSpecificQuestion()).getResponseTextual());
-
-		List<Boolean> rv = new ArrayList<Boolean>(size);
-
-		// if not answered
-		if (this.answers == null)
-		{
-			for (int i = 0; i < size; i++)
-			{
-				rv.add(Boolean.FALSE);
-			}
-
-			return rv;
-		}
-
-		// we have answers
-		if (this.answers.length != size)
-		{
-			M_log.warn("getEntryCorrects: answers length: " + this.answers.length + " != correct answers length: " + size);
-		}
-
-		List<String> priorAnswers = new ArrayList<String>(size);
-		for (int i = 0; i < size; i++)
-		{
-			String answer = answers[i];
-			if (answer == null)
-			{
-				rv.add(Boolean.FALSE);
-			}
-			else
-			{
-				String correctAnswer = correctAnswers.get(i);
-				rv.add(answerCorrect(answer, correctAnswer, caseSensitive, anyOrder, textual, correctAnswers, priorAnswers));
-				priorAnswers.add(answer);
-			}
-		}
-
-		return rv;
+		return ((FillBlanksQuestionImpl) question.getTypeSpecificQuestion()).getGrader().getEntryCorrects(this.answers);
 	}
 
 	/**
@@ -0,0 +1,374 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+
+package org.muse.mneme.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * FillBlanksGrader is the compiled, immutable form of a fill-in question's correct answers - each correct answer pattern is parsed and compiled once,
+ * and the grader is shared by all the answers to the question.<br />
+ * The grader remembers the question settings it was compiled from, so a cached grader can be checked against a question before it is used.
+ */
+public class FillBlanksGrader
+{
+	/** Our log. */
+	private static Log M_log = LogFactory.getLog(FillBlanksGrader.class);
+
+	/**
+	 * Compile a fill-in correct answer pattern (with option bars and wild cards) into a pattern for each option.
+	 * 
+	 * @param correct
+	 *        The correct answer pattern.
+	 * @param caseSensitive
+	 *        if we should be case sensitive.
+	 * @return The compiled patterns, one for each option.
+	 */
+	protected static Pattern[] compileFillIn(String correct, boolean caseSensitive)
+	{
+		// get the set of valid answers from the correct answer pattern (each one may have wild cards)
+		String[] valid = correct.split("\\|");
+		Pattern[] rv = new Pattern[valid.length];
+		for (int i = 0; i < valid.length; i++)
+		{
+			// ignore leading and trailing white space
+			String test = FillBlanksAnswerImpl.trim(valid[i]);
+
+			// prepare the test as a regex, quoting all non-wildcards, changing the wildcard "*" into a regex ".+"
+			StringBuilder regex = new StringBuilder();
+			String[] parts = test.replaceAll("\\*", "|*|").split("\\|");
+			for (String part : parts)
+			{
+				if ("*".equals(part))
+				{
+					regex.append(".+");
+				}
+				else
+				{
+					regex.append(Pattern.quote(part));
+				}
+			}
+			rv[i] = Pattern.compile(regex.toString(), ((!caseSensitive) ? Pattern.CASE_INSENSITIVE : 0));
+		}
+
+		return rv;
+	}
+
+	/**
+	 * Compile a fill-in numeric correct answer pattern (with option bars) into a range.
+	 * 
+	 * @param correct
+	 *        The correct answer pattern.
+	 * @return The low and high values of the range, or null if the pattern is not numeric.
+	 */
+	protected static float[] compileNumeric(String correct)
+	{
+		try
+		{
+			// allow dot or comma for decimal point
+			// TODO: this needs to be changed to respect locale, not just replace commas! -ggolden
+			correct = correct.replace(',', '.');
+
+			float[] range = new float[2];
+
+			// if there's a bar in the correct pattern, split and use the first two as the range
+			if (correct.indexOf("|") != -1)
+			{
+				String[] parts = correct.split("\\|");
+				if (parts.length < 2) return null;
+				range[0] = Float.parseFloat(FillBlanksAnswerImpl.trim(parts[0]));
+				range[1] = Float.parseFloat(FillBlanksAnswerImpl.trim(parts[1]));
+
+				// make sure [0] <= [1]
+				if (range[0] > range[1])
+				{
+					float hold = range[0];
+					range[0] = range[1];
+					range[1] = hold;
+				}
+			}
+
+			// otherwise use the single value for both sides of the range
+			else
+			{
+				range[0] = range[1] = Float.parseFloat(FillBlanksAnswerImpl.trim(correct));
+			}
+
+			return range;
+		}
+		catch (NumberFormatException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Check a fill-in answer against compiled patterns.
+	 * 
+	 * @param answer
+	 *        The given answer.
+	 * @param patterns
+	 *        The compiled patterns.
+	 * @return true if the answer matches any of the patterns, false if not.
+	 */
+	protected static boolean matchFillIn(String answer, Pattern[] patterns)
+	{
+		for (Pattern p : patterns)
+		{
+			if (p.matcher(answer).matches()) return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Check a numeric answer against a compiled range.
+	 * 
+	 * @param answer
+	 *        The given answer.
+	 * @param range
+	 *        The compiled range, or null if there is none.
+	 * @return true if the answer is a number in the range, false if not.
+	 */
+	protected static boolean matchNumeric(String answer, float[] range)
+	{
+		if (range == null) return false;
+
+		try
+		{
+			// answer needs to become a float (allow dot or comma for decimal point)
+			float answerValue = Float.parseFloat(answer.replace(',', '.'));
+
+			return (answerValue >= range[0]) && (answerValue <= range[1]);
+		}
+		catch (NumberFormatException e)
+		{
+			return false;
+		}
+	}
+
+	/** if order does not matter. */
+	protected final boolean anyOrder;
+
+	/** if we are to be case sensitive. */
+	protected final boolean caseSensitive;
+
+	/** The correct answer patterns, one for each fill-in. */
+	protected final List<String> correctAnswers;
+
+	/** The compiled fill-in patterns for each correct answer, if textual. */
+	protected final List<Pattern[]> patterns;
+
+	/** The compiled numeric range for each correct answer, if not textual. */
+	protected final List<float[]> ranges;
+
+	/** If the question is a survey. */
+	protected final boolean survey;
+
+	/** The question text we were compiled from. */
+	protected final String text;
+
+	/** if the response is to be textual, not numeric. */
+	protected final boolean textual;
+
+	/**
+	 * Construct, compiling the correct answers.
+	 * 
+	 * @param text
+	 *        The question text the correct answers were parsed from.
+	 * @param caseSensitive
+	 *        if we are to be case sensitive.
+	 * @param anyOrder
+	 *        if order does not matter.
+	 * @param textual
+	 *        if the response is to be textual, not numeric.
+	 * @param survey
+	 *        if the question is a survey.
+	 * @param correctAnswers
+	 *        The correct answer patterns, one for each fill-in.
+	 */
+	public FillBlanksGrader(String text, boolean caseSensitive, boolean anyOrder, boolean textual, boolean survey, List<String> correctAnswers)
+	{
+		this.text = text;
+		this.caseSensitive = caseSensitive;
+		this.anyOrder = anyOrder;
+		this.textual = textual;
+		this.survey = survey;
+		this.correctAnswers = Collections.unmodifiableList(new ArrayList<String>(correctAnswers));
+
+		List<Pattern[]> patterns = new ArrayList<Pattern[]>(correctAnswers.size());
+		List<float[]> ranges = new ArrayList<float[]>(correctAnswers.size());
+		for (String correct : correctAnswers)
+		{
+			if (textual)
+			{
+				patterns.add(compileFillIn(correct, caseSensitive));
+			}
+			else
+			{
+				ranges.add(compileNumeric(correct));
+			}
+		}
+		this.patterns = Collections.unmodifiableList(patterns);
+		this.ranges = Collections.unmodifiableList(ranges);
+	}
+
+	/**
+	 * Access the correct answer patterns.
+	 * 
+	 * @return The correct answer patterns, one for each fill-in - not modifiable.
+	 */
+	public List<String> getCorrectAnswers()
+	{
+		return this.correctAnswers;
+	}
+
+	/**
+	 * Get an Boolean for each possible fill-in blank.
+	 * 
+	 * @param answers
+	 *        The answers, one for each fill-in - null or filled in, or null if not answered.
+	 * @return A list of Boolean, one for each possible fill-in blank, TRUE if the entry was made and is correct, FALSE if not.
+	 */
+	public List<Boolean> getEntryCorrects(String[] answers)
+	{
+		int size = this.correctAnswers.size();
+		List<Boolean> rv = new ArrayList<Boolean>(size);
+
+		// if not answered
+		if (answers == null)
+		{
+			for (int i = 0; i < size; i++)
+			{
+				rv.add(Boolean.FALSE);
+			}
+
+			return rv;
+		}
+
+		// we have answers
+		if (answers.length != size)
+		{
+			M_log.warn("getEntryCorrects: answers length: " + answers.length + " != correct answers length: " + size);
+		}
+
+		List<String> priorAnswers = new ArrayList<String>(size);
+		for (int i = 0; i < size; i++)
+		{
+			String answer = answers[i];
+			if (answer == null)
+			{
+				rv.add(Boolean.FALSE);
+			}
+			else
+			{
+				rv.add(Boolean.valueOf(isCorrect(answer, i, priorAnswers)));
+				priorAnswers.add(answer);
+			}
+		}
+
+		return rv;
+	}
+
+	/**
+	 * Check if this grader was compiled from these question settings.
+	 * 
+	 * @param text
+	 *        The question text.
+	 * @param caseSensitive
+	 *        if we are to be case sensitive.
+	 * @param anyOrder
+	 *        if order does not matter.
+	 * @param textual
+	 *        if the response is to be textual, not numeric.
+	 * @param survey
+	 *        if the question is a survey.
+	 * @return true if compiled from these settings, false if not.
+	 */
+	public boolean isFor(String text, boolean caseSensitive, boolean anyOrder, boolean textual, boolean survey)
+	{
+		if ((this.caseSensitive != caseSensitive) || (this.anyOrder != anyOrder) || (this.textual != textual) || (this.survey != survey)) return false;
+		return !Different.different(this.text, text);
+	}
+
+	/**
+	 * Check if this answer to a fill-in is correct.
+	 * 
+	 * @param answer
+	 *        The answer.
+	 * @param index
+	 *        The fill-in position.
+	 * @param priorAnswers
+	 *        The answers already processed.
+	 * @return true if the answer is correct, false if not.
+	 */
+	protected boolean isCorrect(String answer, int index, List<String> priorAnswers)
+	{
+		// answer must match the correct answer for this position
+		if (!this.anyOrder)
+		{
+			return matches(answer, index);
+		}
+
+		// answer must not be one of the priors
+		for (String prior : priorAnswers)
+		{
+			if (this.caseSensitive)
+			{
+				if (prior.equals(answer)) return false;
+			}
+			else
+			{
+				if (prior.equalsIgnoreCase(answer)) return false;
+			}
+		}
+
+		// answer must match one of the correct answers
+		for (int i = 0; i < this.correctAnswers.size(); i++)
+		{
+			if (matches(answer, i)) return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Check an answer against the compiled correct answer at this position.
+	 * 
+	 * @param answer
+	 *        The answer.
+	 * @param index
+	 *        The correct answer position.
+	 * @return true if the answer matches, false if not.
+	 */
+	protected boolean matches(String answer, int index)
+	{
+		if (this.textual) return matchFillIn(answer, this.patterns.get(index));
+		return matchNumeric(answer, this.ranges.get(index));
+	}
+}
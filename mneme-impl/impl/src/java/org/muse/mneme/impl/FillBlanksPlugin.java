@@ -21,6 +21,9 @@
 
 package org.muse.mneme.impl;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.muse.ambrosia.api.UiService;
@@ -43,6 +46,12 @@ public class FillBlanksPlugin implements QuestionPlugin
 	/** Messages bundle name. */
 	protected String bundle = null;
 
+	/** The compiled graders, keyed by question id and modification date, least recently used first. */
+	protected Map<String, FillBlanksGrader> graders = null;
+
+	/** The most compiled graders to keep. */
+	protected int gradersMaxSize = 2000;
+
 	/** Localized messages. */
 	protected InternationalizedMessages messages = null;
 
@@ -59,6 +68,19 @@ public class FillBlanksPlugin implements QuestionPlugin
 		M_log.info("destroy()");
 	}
 
+	/**
+	 * Get the cached compiled grader for a question.
+	 * 
+	 * @param key
+	 *        The question id and modification date key.
+	 * @return The grader, or null if not cached.
+	 */
+	public synchronized FillBlanksGrader getGrader(String key)
+	{
+		if (this.graders == null) return null;
+		return this.graders.get(key);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -113,6 +135,32 @@ public class FillBlanksPlugin implements QuestionPlugin
 		return new FillBlanksQuestionImpl(this, this.messages, this.uiService, question);
 	}
 
+	/**
+	 * Cache the compiled grader for a question.
+	 * 
+	 * @param key
+	 *        The question id and modification date key.
+	 * @param grader
+	 *        The grader.
+	 */
+	public synchronized void putGrader(String key, FillBlanksGrader grader)
+	{
+		if (this.gradersMaxSize <= 0) return;
+
+		if (this.graders == null)
+		{
+			this.graders = new LinkedHashMap<String, FillBlanksGrader>(16, 0.75f, true)
+			{
+				protected boolean removeEldestEntry(Map.Entry<String, FillBlanksGrader> eldest)
+				{
+					return size() > FillBlanksPlugin.this.gradersMaxSize;
+				}
+			};
+		}
+
+		this.graders.put(key, grader);
+	}
+
 	/**
 	 * Set the message bundle.
 	 * 
@@ -124,6 +172,17 @@ public class FillBlanksPlugin implements QuestionPlugin
 		this.bundle = name;
 	}
 
+	/**
+	 * Set the most compiled graders to keep.
+	 * 
+	 * @param size
+	 *        The most compiled graders to keep.
+	 */
+	public void setGraderCacheSize(String size)
+	{
+		this.gradersMaxSize = Integer.parseInt(size);
+	}
+
 	/**
 	 * Dependency: MnemeService.
 	 * 
@@ -22,6 +22,7 @@
 package org.muse.mneme.impl;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 import org.muse.ambrosia.api.AndDecision;
@@ -244,13 +245,7 @@ public class FillBlanksQuestionImpl implements TypeSpecificQuestion
 	 */
 	public List<String> getCorrectAnswers()
 	{
-		List<String> correctAnswers = new ArrayList<String>();
-
-		if (!getIsValid()) return correctAnswers;
-
-		parseCorrectAnswers(correctAnswers);
-
-		return correctAnswers;
+		return new ArrayList<String>(getGrader().getCorrectAnswers());
 	}
 
 	/**
@@ -294,6 +289,37 @@ public class FillBlanksQuestionImpl implements TypeSpecificQuestion
 		return getQuestionText();
 	}
 
+	/**
+	 * Access the compiled grader for the question, shared through the plugin by all copies of the question with the same id and modification date.
+	 * 
+	 * @return The grader.
+	 */
+	public FillBlanksGrader getGrader()
+	{
+		boolean survey = this.question.getIsSurvey().booleanValue();
+
+		// a saved question's grader may already be compiled
+		String key = null;
+		FillBlanksPlugin cache = (this.plugin instanceof FillBlanksPlugin) ? (FillBlanksPlugin) this.plugin : null;
+		if ((cache != null) && (this.question.getId() != null))
+		{
+			Date modified = this.question.getModifiedBy().getDate();
+			key = this.question.getId() + "/" + ((modified == null) ? "" : Long.toString(modified.getTime()));
+
+			// make sure it was compiled from what we have now, in case we have been edited but not yet saved
+			FillBlanksGrader rv = cache.getGrader(key);
+			if ((rv != null) && rv.isFor(this.text, this.caseSensitive, this.anyOrder, this.responseTextual, survey)) return rv;
+		}
+
+		List<String> correctAnswers = new ArrayList<String>();
+		if (getIsValid()) parseCorrectAnswers(correctAnswers);
+
+		FillBlanksGrader rv = new FillBlanksGrader(this.text, this.caseSensitive, this.anyOrder, this.responseTextual, survey, correctAnswers);
+		if (key != null) cache.putGrader(key, rv);
+
+		return rv;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
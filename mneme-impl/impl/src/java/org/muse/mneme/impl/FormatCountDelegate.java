@@ -27,9 +27,10 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.muse.ambrosia.api.Context;
 import org.muse.ambrosia.util.FormatDelegateImpl;
-import org.muse.mneme.api.Answer;
+import org.muse.mneme.api.AnswerDistribution;
 import org.muse.mneme.api.Question;
 import org.muse.mneme.api.Submission;
+import org.muse.mneme.api.SubmissionService;
 
 /**
  * The "FormatCount" format delegate for the mneme tool.
@@ -39,6 +40,9 @@ public class FormatCountDelegate extends FormatDelegateImpl
 	/** Our log. */
 	private static Log M_log = LogFactory.getLog(FormatCountDelegate.class);
 
+	/** Dependency: SubmissionService */
+	protected SubmissionService submissionService = null;
+
 	/**
 	 * Shutdown.
 	 */
@@ -69,36 +73,12 @@ public class FormatCountDelegate extends FormatDelegateImpl
 		if (!(o instanceof Question)) return value.toString();
 		Question question = (Question) o;
 
-		int count = 0;
-		int total = 0;
-		for (Submission s : submissions)
-		{
-			if (s.getIsPhantom()) continue;
-			if (!s.getIsComplete()) continue;
-
-			Answer a = s.getAnswer(question);
-			if (a != null)
-			{
-				total++;
-
-				if (a.getIsAnswered())
-				{
-					// does the answer's value match our target answer?
-					// Note: assume that the answer is one of the getData() strings
-					String[] answers = a.getTypeSpecificAnswer().getData();
-					if ((answers != null) && (answers.length > 0))
-					{
-						for (int i = 0; i < answers.length; i++)
-						{
-							if (answers[i].equals(target))
-							{
-								count++;
-							}
-						}
-					}
-				}
-			}
-		}
+		// the answer distribution for the question, across the completed submissions
+		AnswerDistribution stats = this.submissionService.getAnswerDistribution(question, submissions);
+
+		// Note: assume that the answer is one of the getData() strings
+		int count = stats.getValueCount(target);
+		int total = stats.getTotal();
 
 		if (total > 0)
 		{
@@ -129,4 +109,15 @@ public class FormatCountDelegate extends FormatDelegateImpl
 		super.init();
 		M_log.info("init()");
 	}
+
+	/**
+	 * Dependency: SubmissionService.
+	 * 
+	 * @param service
+	 *        The SubmissionService.
+	 */
+	public void setSubmissionService(SubmissionService service)
+	{
+		this.submissionService = service;
+	}
 }
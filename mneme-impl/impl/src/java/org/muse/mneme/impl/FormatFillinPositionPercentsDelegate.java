@@ -27,9 +27,10 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.muse.ambrosia.api.Context;
 import org.muse.ambrosia.util.FormatDelegateImpl;
-import org.muse.mneme.api.Answer;
+import org.muse.mneme.api.AnswerDistribution;
 import org.muse.mneme.api.Question;
 import org.muse.mneme.api.Submission;
+import org.muse.mneme.api.SubmissionService;
 import org.muse.mneme.api.TypeSpecificQuestion;
 
 /**
@@ -40,6 +41,9 @@ public class FormatFillinPositionPercentsDelegate extends FormatDelegateImpl
 	/** Our log. */
 	private static Log M_log = LogFactory.getLog(FormatFillinPositionPercentsDelegate.class);
 
+	/** Dependency: SubmissionService */
+	protected SubmissionService submissionService = null;
+
 	/**
 	 * Shutdown.
 	 */
@@ -82,43 +86,12 @@ public class FormatFillinPositionPercentsDelegate extends FormatDelegateImpl
 		Integer position = (Integer) o;
 		int pos = position - 1;
 
-		int count = 0;
-		int total = 0;
-		for (Submission s : submissions)
-		{
-			if (s.getIsPhantom()) continue;
-			if (!s.getIsComplete()) continue;
-
-			Answer a = s.getAnswer(question);
-			if (a != null)
-			{
-				total++;
-
-				if (a.getIsAnswered())
-				{
-					// does the answer's value match our target answer?
-					// Note: assume that the answer for this position is the nth data element
-					String[] answers = a.getTypeSpecificAnswer().getData();
-					if ((answers != null) && (answers.length > pos) && (answers[pos] != null))
-					{
-						if (caseSensitive)
-						{
-							if (answers[pos].equals(target))
-							{
-								count++;
-							}
-						}
-						else
-						{
-							if (answers[pos].equalsIgnoreCase(target))
-							{
-								count++;
-							}
-						}
-					}
-				}
-			}
-		}
+		// the answer distribution for the question, across the completed submissions
+		AnswerDistribution stats = this.submissionService.getAnswerDistribution(question, submissions);
+
+		// Note: assume that the answer for this position is the nth data element
+		int count = stats.getPositionCount(pos, target, caseSensitive);
+		int total = stats.getTotal();
 
 		if (total > 0)
 		{
@@ -153,4 +126,15 @@ public class FormatFillinPositionPercentsDelegate extends FormatDelegateImpl
 		super.init();
 		M_log.info("init()");
 	}
+
+	/**
+	 * Dependency: SubmissionService.
+	 * 
+	 * @param service
+	 *        The SubmissionService.
+	 */
+	public void setSubmissionService(SubmissionService service)
+	{
+		this.submissionService = service;
+	}
 }
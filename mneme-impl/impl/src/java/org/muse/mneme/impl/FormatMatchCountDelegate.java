@@ -27,9 +27,10 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.muse.ambrosia.api.Context;
 import org.muse.ambrosia.util.FormatDelegateImpl;
-import org.muse.mneme.api.Answer;
+import org.muse.mneme.api.AnswerDistribution;
 import org.muse.mneme.api.Question;
 import org.muse.mneme.api.Submission;
+import org.muse.mneme.api.SubmissionService;
 import org.muse.mneme.api.TypeSpecificQuestion;
 
 /**
@@ -40,6 +41,9 @@ public class FormatMatchCountDelegate extends FormatDelegateImpl
 	/** Our log. */
 	private static Log M_log = LogFactory.getLog(FormatMatchCountDelegate.class);
 
+	/** Dependency: SubmissionService */
+	protected SubmissionService submissionService = null;
+
 	/**
 	 * Shutdown.
 	 */
@@ -83,41 +87,12 @@ public class FormatMatchCountDelegate extends FormatDelegateImpl
 		if (!(o instanceof String)) return null;
 		String choiceId = (String) o;
 
-		int count = 0;
-		int total = 0;
-		for (Submission s : submissions)
-		{
-			if (s.getIsPhantom()) continue;
-			if (!s.getIsComplete()) continue;
-
-			Answer a = s.getAnswer(question);
-			if (a != null)
-			{
-				total++;
-
-				if (a.getIsAnswered())
-				{
-					// does this answer's entry for this match id = the choice id?
-					// Note: assume that the answer data is match id, choice id, etc...
-					String[] answers = a.getTypeSpecificAnswer().getData();
-					if (answers != null)
-					{
-						for (int i = 0; i < answers.length; i++)
-						{
-							String answerMatchId = answers[i++];
-							String answerChoiceId = answers[i];
-							if ((answerMatchId != null) && (answerMatchId.equals(matchId)))
-							{
-								if ((answerChoiceId != null) && (answerChoiceId.equals(choiceId)))
-								{
-									count++;
-								}
-							}
-						}
-					}
-				}
-			}
-		}
+		// the answer distribution for the question, across the completed submissions
+		AnswerDistribution stats = this.submissionService.getAnswerDistribution(question, submissions);
+
+		// Note: assume that the answer data is match id, choice id, etc...
+		int count = stats.getMatchCount(matchId, choiceId);
+		int total = stats.getTotal();
 
 		if (total > 0)
 		{
@@ -148,4 +123,15 @@ public class FormatMatchCountDelegate extends FormatDelegateImpl
 		super.init();
 		M_log.info("init()");
 	}
+
+	/**
+	 * Dependency: SubmissionService.
+	 * 
+	 * @param service
+	 *        The SubmissionService.
+	 */
+	public void setSubmissionService(SubmissionService service)
+	{
+		this.submissionService = service;
+	}
 }
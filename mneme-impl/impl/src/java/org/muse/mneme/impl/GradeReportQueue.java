@@ -0,0 +1,264 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+
+package org.muse.mneme.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * GradeReportQueue holds the grade reports waiting to go to the grading authority.<br />
+ * Reports are coalesced: many changes for the same assessment / user while a report waits become one report, and a whole assessment report
+ * covers the (released) user reports for that assessment.
+ */
+public class GradeReportQueue
+{
+	/**
+	 * One pending report - for a single user's grade in an assessment, or (with no user) for the whole assessment.
+	 */
+	public static class Report
+	{
+		protected String assessmentId = null;
+
+		protected int attempts = 0;
+
+		protected long due = 0;
+
+		protected long queued = 0;
+
+		protected boolean released = false;
+
+		protected String userId = null;
+
+		public Report(String assessmentId, String userId, boolean released, long queued, long due)
+		{
+			this.assessmentId = assessmentId;
+			this.userId = userId;
+			this.released = released;
+			this.queued = queued;
+			this.due = due;
+		}
+
+		/**
+		 * @return The assessment id.
+		 */
+		public String getAssessmentId()
+		{
+			return this.assessmentId;
+		}
+
+		/**
+		 * @return The number of failed attempts so far.
+		 */
+		public int getAttempts()
+		{
+			return this.attempts;
+		}
+
+		/**
+		 * @return TRUE if the user's grade is released, FALSE if the grade is to be withheld.
+		 */
+		public boolean getReleased()
+		{
+			return this.released;
+		}
+
+		/**
+		 * @return The user id, or null if this reports the whole assessment.
+		 */
+		public String getUserId()
+		{
+			return this.userId;
+		}
+	}
+
+	/** How long (ms) a new report waits, collecting more changes, before it is due. */
+	protected long delayMs = 0;
+
+	/** The pending reports, keyed by assessment / user, oldest first. */
+	protected Map<String, Report> reports = new LinkedHashMap<String, Report>();
+
+	/**
+	 * Construct.
+	 * 
+	 * @param delayMs
+	 *        How long (ms) a new report waits, collecting more changes, before it is due.
+	 */
+	public GradeReportQueue(long delayMs)
+	{
+		this.delayMs = delayMs;
+	}
+
+	/**
+	 * Queue a report for this user's grade, or the whole assessment's grades.
+	 * 
+	 * @param assessmentId
+	 *        The assessment id.
+	 * @param userId
+	 *        The user id, or null for the whole assessment.
+	 * @param released
+	 *        For a user report, if the user's grade is to be released (reported) or withheld (reported as no grade).
+	 * @param now
+	 *        The current time (ms).
+	 */
+	public synchronized void add(String assessmentId, String userId, boolean released, long now)
+	{
+		if (assessmentId == null) throw new IllegalArgumentException();
+
+		if (userId != null)
+		{
+			// a waiting whole assessment report covers a released grade
+			if (released && this.reports.containsKey(key(assessmentId, null))) return;
+		}
+		else
+		{
+			// the whole assessment report replaces any waiting released user reports
+			for (Iterator<Report> i = this.reports.values().iterator(); i.hasNext();)
+			{
+				Report report = i.next();
+				if ((report.userId != null) && report.released && report.assessmentId.equals(assessmentId)) i.remove();
+			}
+		}
+
+		// coalesce with a waiting report: the latest release setting wins, but it keeps its place and due time
+		Report report = this.reports.get(key(assessmentId, userId));
+		if (report != null)
+		{
+			report.released = released;
+			return;
+		}
+
+		this.reports.put(key(assessmentId, userId), new Report(assessmentId, userId, released, now, now + this.delayMs));
+	}
+
+	/**
+	 * Remove and return the reports due by now.
+	 * 
+	 * @param now
+	 *        The current time (ms).
+	 * @return The List of due reports, oldest first. May be empty.
+	 */
+	public synchronized List<Report> due(long now)
+	{
+		List<Report> rv = new ArrayList<Report>();
+		for (Iterator<Report> i = this.reports.values().iterator(); i.hasNext();)
+		{
+			Report report = i.next();
+			if (report.due <= now)
+			{
+				i.remove();
+				rv.add(report);
+			}
+		}
+
+		return rv;
+	}
+
+	/**
+	 * Access the age (ms) of the oldest waiting report.
+	 * 
+	 * @param now
+	 *        The current time (ms).
+	 * @return The age (ms) of the oldest waiting report, 0 if none are waiting.
+	 */
+	public synchronized long getLag(long now)
+	{
+		long oldest = now;
+		for (Report report : this.reports.values())
+		{
+			if (report.queued < oldest) oldest = report.queued;
+		}
+
+		return now - oldest;
+	}
+
+	/**
+	 * Drop any waiting reports for this user's grade, or all the reports for the assessment.
+	 * 
+	 * @param assessmentId
+	 *        The assessment id.
+	 * @param userId
+	 *        The user id, or null for all reports for the assessment.
+	 */
+	public synchronized void remove(String assessmentId, String userId)
+	{
+		if (userId != null)
+		{
+			this.reports.remove(key(assessmentId, userId));
+			return;
+		}
+
+		for (Iterator<Report> i = this.reports.values().iterator(); i.hasNext();)
+		{
+			if (i.next().assessmentId.equals(assessmentId)) i.remove();
+		}
+	}
+
+	/**
+	 * Put a failed report back, to try again after a wait that grows with each attempt.<br />
+	 * If a newer report for the same grade is already waiting, that one will do.
+	 * 
+	 * @param report
+	 *        The report that failed.
+	 * @param retryMs
+	 *        The wait (ms) after the first failure.
+	 * @param now
+	 *        The current time (ms).
+	 */
+	public synchronized void retry(Report report, long retryMs, long now)
+	{
+		String key = key(report.assessmentId, report.userId);
+		if (this.reports.containsKey(key)) return;
+		if ((report.userId != null) && report.released && this.reports.containsKey(key(report.assessmentId, null))) return;
+
+		report.attempts++;
+		report.due = now + (retryMs * report.attempts);
+		this.reports.put(key, report);
+	}
+
+	/**
+	 * Access the number of waiting reports.
+	 * 
+	 * @return The number of waiting reports.
+	 */
+	public synchronized int size()
+	{
+		return this.reports.size();
+	}
+
+	/**
+	 * Form the key for a report.
+	 * 
+	 * @param assessmentId
+	 *        The assessment id.
+	 * @param userId
+	 *        The user id, or null for the whole assessment.
+	 * @return The key.
+	 */
+	protected String key(String assessmentId, String userId)
+	{
+		return (userId == null) ? assessmentId : (assessmentId + "/" + userId);
+	}
+}
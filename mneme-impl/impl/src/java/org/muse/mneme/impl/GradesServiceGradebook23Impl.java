@@ -21,7 +21,9 @@
 
 package org.muse.mneme.impl;
 
+import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.logging.Log;
@@ -33,6 +35,7 @@ import org.muse.mneme.api.GradesService;
 import org.muse.mneme.api.SecurityService;
 import org.muse.mneme.api.Submission;
 import org.muse.mneme.api.SubmissionService;
+import org.sakaiproject.component.cover.ComponentManager;
 import org.sakaiproject.service.gradebook.shared.AssessmentNotFoundException;
 import org.sakaiproject.service.gradebook.shared.AssignmentHasIllegalPointsException;
 import org.sakaiproject.service.gradebook.shared.ConflictingAssignmentNameException;
@@ -44,9 +47,10 @@ import org.sakaiproject.tool.api.SessionManager;
 import org.sakaiproject.user.api.UserDirectoryService;
 
 /**
- * GradesServiceGradebook23Impl implements GradesService, using the Sakai Gradebook, version 2.3, as the grading authority.
+ * GradesServiceGradebook23Impl implements GradesService, using the Sakai Gradebook, version 2.3, as the grading authority.<br />
+ * Grades are reported from a background thread, so the gradebook is not in the way of a student's submit.
  */
-public class GradesServiceGradebook23Impl implements GradesService
+public class GradesServiceGradebook23Impl implements GradesService, Runnable
 {
 	/** Our logger. */
 	private static Log M_log = LogFactory.getLog(GradesServiceGradebook23Impl.class);
@@ -58,6 +62,27 @@ public class GradesServiceGradebook23Impl implements GradesService
 	// for 2.4 only: protected GradebookExternalAssessmentService m_gradebookService = null;
 	protected GradebookService gradebookService = null;
 
+	/** How long (ms) a grade report waits, collecting more changes to the same grade, before it is made. */
+	protected long reportDelayMs = 1000L * 2L;
+
+	/** The grade reports waiting to be made. */
+	protected GradeReportQueue reportQueue = null;
+
+	/** How far back (ms), at startup, to look for grades that may not have been reported. */
+	protected long reportRecoveryMs = 1000L * 60L * 60L * 24L;
+
+	/** How many times to retry a failed grade report before giving up on it. */
+	protected int reportRetries = 5;
+
+	/** How long (ms) to wait before the first retry of a failed grade report - later retries wait longer. */
+	protected long reportRetryMs = 1000L * 30L;
+
+	/** The reporting thread. */
+	protected Thread reportThread = null;
+
+	/** How often (ms) the reporting thread looks for due reports. */
+	protected long reportTickMs = 1000L;
+
 	/** Dependency: SecurityService */
 	protected SecurityService securityService = null;
 
@@ -70,6 +95,9 @@ public class GradesServiceGradebook23Impl implements GradesService
 	/** Dependency: ThreadLocalManager */
 	protected ThreadLocalManager threadLocalManager = null;
 
+	/** The thread quit flag. */
+	protected boolean threadStop = false;
+
 	/** Dependenct: UserDirectoryService. */
 	protected UserDirectoryService userDirectoryService = null;
 
@@ -111,15 +139,52 @@ public class GradesServiceGradebook23Impl implements GradesService
 	 */
 	public void destroy()
 	{
+		stop();
+
+		// make what reports we can before we go
+		for (GradeReportQueue.Report report : this.reportQueue.due(Long.MAX_VALUE))
+		{
+			try
+			{
+				reportNow(report);
+			}
+			catch (Throwable e)
+			{
+				M_log.warn("destroy: report for assessment: " + report.getAssessmentId() + " user: " + report.getUserId() + " : " + e);
+			}
+		}
+
 		M_log.info("destroy()");
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public Integer getReportQueueDepth()
+	{
+		return Integer.valueOf(this.reportQueue.size());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Long getReportQueueLag()
+	{
+		return Long.valueOf(this.reportQueue.getLag(System.currentTimeMillis()));
+	}
+
 	/**
 	 * Final initialization, once all dependencies are set.
 	 */
 	public void init()
 	{
-		M_log.info("init()");
+		this.reportQueue = new GradeReportQueue(this.reportDelayMs);
+
+		// start the reporting thread
+		start();
+
+		M_log.info("init(): report delay (ms): " + this.reportDelayMs + " retries: " + this.reportRetries + " retry (ms): " + this.reportRetryMs
+				+ " recovery (ms): " + this.reportRecoveryMs);
 	}
 
 	/**
@@ -187,45 +252,12 @@ public class GradesServiceGradebook23Impl implements GradesService
 		if (!(assessment.getPublished() && assessment.getGrading().getGradebookIntegration() && assessment.getIsValid() && (assessment.getTitle() != null)))
 			return Boolean.FALSE;
 
-		// make sure our assessment is in the gb
-		if (!assessmentReported(assessment)) return Boolean.FALSE;
-
-		M_log.debug("reportAssessmentGrades: " + assessment.getId());
-
-		try
-		{
-			// make sure there's a gradebook
-			boolean hasGradebook = gradebookService.isGradebookDefined(assessment.getContext());
-			if (hasGradebook)
-			{
-				// get the "official" submissions map of user id -> Float score (for released completed submissions)
-				Map<String, Float> scores = this.submissionService.getAssessmentHighestScores(assessment, Boolean.TRUE);
-
-				// make them double for gb
-				Map<String, Double> dScores = new HashMap<String, Double>();
-				for (Map.Entry entry : scores.entrySet())
-				{
-					String key = (String) entry.getKey();
-					Float total = (Float) entry.getValue();
-					dScores.put(key, (total == null) ? null : Double.valueOf(total.doubleValue()));
-				}
+		// whether our assessment is in the gb is checked when the report is made, off the caller's thread
+		if (M_log.isDebugEnabled()) M_log.debug("reportAssessmentGrades: queued: " + assessment.getId());
 
-				// report them
-				gradebookService.updateExternalAssessmentScores(assessment.getContext(), assessment.getTitle(), dScores);
+		this.reportQueue.add(assessment.getId(), null, true, System.currentTimeMillis());
 
-				return Boolean.TRUE;
-			}
-		}
-		catch (GradebookNotFoundException e)
-		{
-			M_log.warn("reportAssessmentGrades: " + assessment.getId() + e.toString());
-		}
-		catch (AssessmentNotFoundException e)
-		{
-			M_log.warn("reportAssessmentGrades: " + assessment.getId() + e.toString());
-		}
-
-		return Boolean.FALSE;
+		return Boolean.TRUE;
 	}
 
 	/**
@@ -243,47 +275,12 @@ public class GradesServiceGradebook23Impl implements GradesService
 		// make sure we are complete
 		if (!submission.getIsComplete()) return Boolean.FALSE;
 
-		M_log.debug("reportSubmissionGrade: " + submission.getId());
-
-		try
-		{
-			// make sure there's an entry
-			boolean hasGradebook = gradebookService.isGradebookDefined(assessment.getContext());
-			if (hasGradebook)
-			{
-				boolean reported = gradebookService.isExternalAssignmentDefined(assessment.getContext(), assessment.getTitle());
-				if (reported)
-				{
-					Double dScore = null;
-
-					// if not released, report the null score
-					if (submission.getIsReleased())
-					{
-						// get this submission's user's "official" submission for this submission's assessment
-						Float score = this.submissionService.getSubmissionOfficialScore(assessment, submission.getUserId());
-						if (score != null)
-						{
-							dScore = Double.valueOf(score.doubleValue());
-						}
-					}
+		// whether our assessment is in the gb is checked when the report is made, off the caller's thread
+		if (M_log.isDebugEnabled()) M_log.debug("reportSubmissionGrade: queued: " + submission.getId());
 
-					// report it
-					gradebookService.updateExternalAssessmentScore(assessment.getContext(), assessment.getTitle(), submission.getUserId(), dScore);
-
-					return Boolean.TRUE;
-				}
-			}
-		}
-		catch (GradebookNotFoundException e)
-		{
-			M_log.warn("reportAssessmentGrades: " + assessment.getId() + e.toString());
-		}
-		catch (AssessmentNotFoundException e)
-		{
-			M_log.warn("reportAssessmentGrades: " + assessment.getId() + e.toString());
-		}
+		this.reportQueue.add(assessment.getId(), submission.getUserId(), submission.getIsReleased().booleanValue(), System.currentTimeMillis());
 
-		return Boolean.FALSE;
+		return Boolean.TRUE;
 	}
 
 	/**
@@ -293,6 +290,9 @@ public class GradesServiceGradebook23Impl implements GradesService
 	{
 		M_log.debug("retractAssessmentGrades: " + assessment.getId());
 
+		// no waiting report should follow the retraction
+		this.reportQueue.remove(assessment.getId(), null);
+
 		try
 		{
 			boolean hasGradebook = gradebookService.isGradebookDefined(assessment.getContext());
@@ -327,6 +327,9 @@ public class GradesServiceGradebook23Impl implements GradesService
 
 		M_log.debug("retractSubmissionGrade: " + submission.getId());
 
+		// no waiting report should follow the retraction
+		this.reportQueue.remove(assessment.getId(), submission.getUserId());
+
 		try
 		{
 			// make sure there's an entry
@@ -358,6 +361,75 @@ public class GradesServiceGradebook23Impl implements GradesService
 		return Boolean.FALSE;
 	}
 
+	/**
+	 * Run the reporting thread.
+	 */
+	public void run()
+	{
+		// since we might be running while the component manager is still being created and populated,
+		// such as at server startup, wait here for a complete component manager
+		ComponentManager.waitTillConfigured();
+
+		// queue again the grades that may have been lost when we last went down
+		recover();
+
+		// loop till told to stop
+		while ((!threadStop) && (!Thread.currentThread().isInterrupted()))
+		{
+			try
+			{
+				List<GradeReportQueue.Report> reports = this.reportQueue.due(System.currentTimeMillis());
+				if ((!reports.isEmpty()) && M_log.isDebugEnabled())
+				{
+					M_log.debug("run: reporting: " + reports.size() + " waiting: " + getReportQueueDepth() + " lag (ms): " + getReportQueueLag());
+				}
+
+				for (GradeReportQueue.Report report : reports)
+				{
+					try
+					{
+						reportNow(report);
+					}
+					catch (Throwable e)
+					{
+						if (report.getAttempts() < this.reportRetries)
+						{
+							M_log.warn("run: will retry: assessment: " + report.getAssessmentId() + " user: " + report.getUserId() + " : " + e);
+							this.reportQueue.retry(report, this.reportRetryMs, System.currentTimeMillis());
+						}
+						else
+						{
+							M_log.warn("run: giving up (till the next startup): assessment: " + report.getAssessmentId() + " user: " + report.getUserId() + " : ", e);
+						}
+					}
+					finally
+					{
+						// clear out any current current bindings
+						this.threadLocalManager.clear();
+					}
+				}
+			}
+			catch (Throwable e)
+			{
+				M_log.warn("run: will continue: ", e);
+			}
+			finally
+			{
+				// clear out any current current bindings
+				this.threadLocalManager.clear();
+			}
+
+			// take a small nap
+			try
+			{
+				Thread.sleep(this.reportTickMs);
+			}
+			catch (Exception ignore)
+			{
+			}
+		}
+	}
+
 	/**
 	 * Dependency: AssessmentService.
 	 * 
@@ -380,6 +452,50 @@ public class GradesServiceGradebook23Impl implements GradesService
 		this.gradebookService = service;
 	}
 
+	/**
+	 * Set the # seconds a grade report waits, collecting more changes to the same grade, before it is made.
+	 * 
+	 * @param time
+	 *        The # seconds a grade report waits.
+	 */
+	public void setReportDelaySeconds(String time)
+	{
+		this.reportDelayMs = Integer.parseInt(time) * 1000L;
+	}
+
+	/**
+	 * Set the # seconds back, at startup, to look for grades that may not have been reported.
+	 * 
+	 * @param time
+	 *        The # seconds back to look.
+	 */
+	public void setReportRecoverySeconds(String time)
+	{
+		this.reportRecoveryMs = Integer.parseInt(time) * 1000L;
+	}
+
+	/**
+	 * Set how many times to retry a failed grade report.
+	 * 
+	 * @param count
+	 *        The number of retries.
+	 */
+	public void setReportRetries(String count)
+	{
+		this.reportRetries = Integer.parseInt(count);
+	}
+
+	/**
+	 * Set the # seconds to wait before the first retry of a failed grade report.
+	 * 
+	 * @param time
+	 *        The # seconds to wait before the first retry.
+	 */
+	public void setReportRetrySeconds(String time)
+	{
+		this.reportRetryMs = Integer.parseInt(time) * 1000L;
+	}
+
 	/**
 	 * Dependency: SecurityService.
 	 * 
@@ -431,4 +547,168 @@ public class GradesServiceGradebook23Impl implements GradesService
 	{
 		this.userDirectoryService = service;
 	}
+
+	/**
+	 * Queue a whole assessment report for each assessment with submissions completed or evaluated within the recovery time.<br />
+	 * Reports waiting or failed when we last went down are not kept, so they are derived again from the submissions - a whole assessment report
+	 * sends the current grades, so reporting one again does no harm.
+	 */
+	protected void recover()
+	{
+		if (this.reportRecoveryMs <= 0) return;
+
+		try
+		{
+			long now = System.currentTimeMillis();
+			List<String> assessmentIds = this.submissionService.getAssessmentsGradedSince(new Date(now - this.reportRecoveryMs));
+			for (String assessmentId : assessmentIds)
+			{
+				this.reportQueue.add(assessmentId, null, true, now);
+			}
+
+			M_log.info("recover: queued reports for assessments: " + assessmentIds.size());
+		}
+		catch (Throwable e)
+		{
+			M_log.warn("recover: ", e);
+		}
+		finally
+		{
+			// clear out any current current bindings
+			this.threadLocalManager.clear();
+		}
+	}
+
+	/**
+	 * Report this assessment's grades to the gradebook, now.<br />
+	 * A gradebook or gradebook entry not found is thrown, not caught, so the queue retries the report.
+	 * 
+	 * @param assessment
+	 *        The assessment.
+	 * @return TRUE if reported, FALSE if not.
+	 */
+	protected Boolean reportAssessmentGradesNow(Assessment assessment)
+	{
+		// make sure we are (still) published, valid, have a title, and desire gradebook integration
+		if (!(assessment.getPublished() && assessment.getGrading().getGradebookIntegration() && assessment.getIsValid() && (assessment.getTitle() != null)))
+			return Boolean.FALSE;
+
+		M_log.debug("reportAssessmentGradesNow: " + assessment.getId());
+
+		// make sure there's a gradebook, and our assessment is in it
+		boolean hasGradebook = gradebookService.isGradebookDefined(assessment.getContext());
+		if (!hasGradebook) return Boolean.FALSE;
+		boolean reported = gradebookService.isExternalAssignmentDefined(assessment.getContext(), assessment.getTitle());
+		if (!reported) return Boolean.FALSE;
+
+		// get the "official" submissions map of user id -> Float score (for released completed submissions)
+		Map<String, Float> scores = this.submissionService.getAssessmentHighestScores(assessment, Boolean.TRUE);
+
+		// make them double for gb
+		Map<String, Double> dScores = new HashMap<String, Double>();
+		for (Map.Entry entry : scores.entrySet())
+		{
+			String key = (String) entry.getKey();
+			Float total = (Float) entry.getValue();
+			dScores.put(key, (total == null) ? null : Double.valueOf(total.doubleValue()));
+		}
+
+		// report them
+		gradebookService.updateExternalAssessmentScores(assessment.getContext(), assessment.getTitle(), dScores);
+
+		return Boolean.TRUE;
+	}
+
+	/**
+	 * Make this grade report.
+	 * 
+	 * @param report
+	 *        The report.
+	 */
+	protected void reportNow(GradeReportQueue.Report report)
+	{
+		Assessment assessment = this.assessmentService.getAssessment(report.getAssessmentId());
+		if (assessment == null) return;
+
+		if (report.getUserId() == null)
+		{
+			reportAssessmentGradesNow(assessment);
+		}
+		else
+		{
+			reportUserGradeNow(assessment, report.getUserId(), report.getReleased());
+		}
+	}
+
+	/**
+	 * Report this user's grade in this assessment to the gradebook, now.<br />
+	 * A gradebook or gradebook entry not found is thrown, not caught, so the queue retries the report.
+	 * 
+	 * @param assessment
+	 *        The assessment.
+	 * @param userId
+	 *        The user id.
+	 * @param released
+	 *        if true, report the user's official score, otherwise report no score.
+	 * @return TRUE if reported, FALSE if not.
+	 */
+	protected Boolean reportUserGradeNow(Assessment assessment, String userId, boolean released)
+	{
+		// make sure we are (still) published, valid and desire gradebook integration
+		if (!(assessment.getPublished() && assessment.getGrading().getGradebookIntegration() && assessment.getIsValid() && (assessment.getTitle() != null)))
+			return Boolean.FALSE;
+
+		if (M_log.isDebugEnabled()) M_log.debug("reportUserGradeNow: " + assessment.getId() + " user: " + userId);
+
+		// make sure there's a gradebook, and our assessment is in it
+		boolean hasGradebook = gradebookService.isGradebookDefined(assessment.getContext());
+		if (!hasGradebook) return Boolean.FALSE;
+		boolean reported = gradebookService.isExternalAssignmentDefined(assessment.getContext(), assessment.getTitle());
+		if (!reported) return Boolean.FALSE;
+
+		Double dScore = null;
+
+		// if not released, report the null score
+		if (released)
+		{
+			// get this submission's user's "official" submission for this submission's assessment
+			Float score = this.submissionService.getSubmissionOfficialScore(assessment, userId);
+			if (score != null)
+			{
+				dScore = Double.valueOf(score.doubleValue());
+			}
+		}
+
+		// report it
+		gradebookService.updateExternalAssessmentScore(assessment.getContext(), assessment.getTitle(), userId, dScore);
+
+		return Boolean.TRUE;
+	}
+
+	/**
+	 * Start the reporting thread.
+	 */
+	protected void start()
+	{
+		threadStop = false;
+
+		reportThread = new Thread(this, getClass().getName());
+		reportThread.start();
+	}
+
+	/**
+	 * Stop the reporting thread.
+	 */
+	protected void stop()
+	{
+		if (reportThread == null) return;
+
+		// signal the thread to stop
+		threadStop = true;
+
+		// wake up the thread
+		reportThread.interrupt();
+
+		reportThread = null;
+	}
 }
@@ -124,12 +124,16 @@ public class ManualPartImpl extends PartImpl implements ManualPart
 			return messages.getFormattedMessage("invalid-part-empty", args);
 		}
 
-		// the questions must exist and be valid
+		// the questions must exist and be valid - missing questions are skipped, so walk the picks alongside
+		List<Question> questions = getPickQuestions(this.questions);
+		int next = 0;
 		for (PoolPick pick : this.questions)
 		{
-			Question question = this.questionService.getQuestion(pick.getQuestionId());
-			if (question == null) return messages.getFormattedMessage("invalid-manual-part-deleted-question", args);
-			if (!question.getIsValid()) return messages.getFormattedMessage("invalid-manual-part-invalid-question", args);
+			if ((next == questions.size()) || (!questions.get(next).getId().equals(pick.getQuestionId())))
+			{
+				return messages.getFormattedMessage("invalid-manual-part-deleted-question", args);
+			}
+			if (!questions.get(next++).getIsValid()) return messages.getFormattedMessage("invalid-manual-part-invalid-question", args);
 		}
 
 		return null;
@@ -144,10 +148,10 @@ public class ManualPartImpl extends PartImpl implements ManualPart
 		if (this.questions.isEmpty()) return Boolean.FALSE;
 
 		// the questions must exist and be valid
-		for (PoolPick pick : this.questions)
+		List<Question> questions = getPickQuestions(this.questions);
+		if (questions.size() < this.questions.size()) return Boolean.FALSE;
+		for (Question question : questions)
 		{
-			Question question = this.questionService.getQuestion(pick.getQuestionId());
-			if (question == null) return Boolean.FALSE;
 			if (!question.getIsValid()) return Boolean.FALSE;
 		}
 
@@ -175,13 +179,8 @@ public class ManualPartImpl extends PartImpl implements ManualPart
 	 */
 	public Integer getNumQuestions()
 	{
-		int count = 0;
-		for (PoolPick pick : this.questions)
-		{
-			if (this.questionService.existsQuestion(pick.getQuestionId())) count++;
-		}
-
-		return count;
+		// count those that still exist
+		return getPickQuestions(this.questions).size();
 	}
 
 	/**
@@ -189,21 +188,7 @@ public class ManualPartImpl extends PartImpl implements ManualPart
 	 */
 	public List<Question> getQuestionsAsAuthored()
 	{
-		List<Question> rv = new ArrayList<Question>(this.questions.size());
-		for (PoolPick pick : this.questions)
-		{
-			QuestionImpl question = (QuestionImpl) this.questionService.getQuestion(pick.getQuestionId());
-			if (question != null)
-			{
-				// set the assessment, part and submission context
-				question.initSubmissionContext(this.assessment.getSubmissionContext());
-				question.initPartContext(this);
-
-				rv.add(question);
-			}
-		}
-
-		return rv;
+		return getPickQuestions(this.questions);
 	}
 
 	/**
@@ -223,13 +208,9 @@ public class ManualPartImpl extends PartImpl implements ManualPart
 		if (!this.assessment.getHasPoints()) return Float.valueOf(0f);
 
 		float total = 0f;
-		for (PoolPick pick : this.questions)
+		for (Question question : getPickQuestions(this.questions))
 		{
-			QuestionImpl question = (QuestionImpl) this.questionService.getQuestion(pick.getQuestionId());
-			if (question != null)
-			{
-				total += question.getPoints();
-			}
+			total += question.getPoints();
 		}
 
 		// round away bogus decimals
@@ -354,14 +335,12 @@ public class ManualPartImpl extends PartImpl implements ManualPart
 	protected List<String> getPoolPicks(Pool pool, Boolean survey)
 	{
 		List<String> rv = new ArrayList<String>();
-		for (PoolPick pick : this.questions)
+		for (Question question : getPickQuestions(this.questions))
 		{
-			Question question = this.questionService.getQuestion(pick.getQuestionId());
-			if (question == null) continue;
 			if ((survey != null) && (!question.getIsSurvey().equals(survey))) continue;
 			if (!question.getPool().getId().equals(pool.getId())) continue;
 
-			rv.add(pick.getQuestionId());
+			rv.add(question.getId());
 		}
 
 		return rv;
@@ -370,15 +349,7 @@ public class ManualPartImpl extends PartImpl implements ManualPart
 	/**
 	 * {@inheritDoc}
 	 */
-	protected List<PoolPick> getPossibleQuestionPicks()
-	{
-		return this.questions;
-	}
-
-	/**
-	 * {@inheritDoc}
-	 */
-	protected List<PoolPick> getQuestionPickOrder()
+	protected List<PoolPick> computeQuestionPickOrder()
 	{
 		if ((!this.randomize) || (this.assessment == null) || (this.assessment.getSubmissionContext() == null)) return this.questions;
 
@@ -392,6 +363,14 @@ public class ManualPartImpl extends PartImpl implements ManualPart
 		return rv;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	protected List<PoolPick> getPossibleQuestionPicks()
+	{
+		return this.questions;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -21,12 +21,15 @@
 
 package org.muse.mneme.impl;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -38,15 +41,22 @@ import org.sakaiproject.memory.api.DerivedCache;
 import org.sakaiproject.memory.api.MemoryService;
 import org.sakaiproject.util.StringUtil;
 
-import EDU.oswego.cs.dl.util.concurrent.ConcurrentReaderHashMap;
-
 /**
  * <p>
- * A Cache of objects with keys with a limited lifespan, with special handling for extra information in the usage event reference that is not used for
- * the cache key.
+ * A size-bounded Cache of objects with keys with a limited lifespan, with special handling for extra information in the usage event reference that is
+ * not used for the cache key.
+ * </p>
+ * <p>
+ * Eviction is segmented LRU: new entries go into a probation segment, and are promoted to a protected segment when hit again. When full, the least
+ * recently used probation entry goes first, so a scan of once-read entries does not push out the entries in repeated use. Expired entries are dropped
+ * when found, or when evicted - there is no sweeping thread.
+ * </p>
+ * <p>
+ * Larger caches are split by key hash into stripes, each with its own lock and its share of the size bound, so readers of different keys do not wait
+ * on each other.
  * </p>
  */
-public class SubmissionCacheImpl implements Cache, Runnable, Observer
+public class MnemeCacheImpl implements Cache, Observer
 {
 	/**
 	 * The cache entry. Holds a time stamped payload.
@@ -128,8 +138,219 @@ public class SubmissionCacheImpl implements Cache, Runnable, Observer
 		}
 	}
 
+	/**
+	 * One lock stripe of the cache: its own probation and protected segments, and its share of the size bound.
+	 */
+	protected class Stripe
+	{
+		/** The maximum number of entries in this stripe. */
+		protected int maxSize = 0;
+
+		/** Entries that have been hit at least once since they were cached, in access order. */
+		protected LinkedHashMap<Object, CacheEntry> protectedEntries = new LinkedHashMap<Object, CacheEntry>(16, 0.75f, true);
+
+		/** The maximum number of entries in the protected segment. */
+		protected int protectedMaxSize = 0;
+
+		/** Entries that have not been hit since they were cached, in access order. */
+		protected LinkedHashMap<Object, CacheEntry> probationEntries = new LinkedHashMap<Object, CacheEntry>(16, 0.75f, true);
+
+		/** Puts of values read before this version are refused - set by a clear, and raised as the oldest removals are forgotten. */
+		protected long removedBefore = 0;
+
+		/** The version of the latest removal of each recently removed key, oldest first, bounded to the stripe's size. */
+		protected LinkedHashMap<Object, Long> removals = new LinkedHashMap<Object, Long>();
+
+		/**
+		 * Construct.
+		 * 
+		 * @param maxSize
+		 *        The maximum number of entries in this stripe.
+		 */
+		public Stripe(int maxSize)
+		{
+			// most of the room goes to the entries that have proven themselves
+			this.maxSize = maxSize;
+			this.protectedMaxSize = (maxSize * 4) / 5;
+		}
+
+		/**
+		 * Drop all entries.
+		 * 
+		 * @param version
+		 *        The cache version of the clear.
+		 */
+		public synchronized void clear(long version)
+		{
+			this.probationEntries.clear();
+			this.protectedEntries.clear();
+			this.removals.clear();
+			this.removedBefore = version;
+		}
+
+		/**
+		 * Snapshot the entries from both segments.
+		 * 
+		 * @param rv
+		 *        The list to add the entries to.
+		 */
+		public synchronized void entries(List<Map.Entry<Object, CacheEntry>> rv)
+		{
+			rv.addAll(this.protectedEntries.entrySet());
+			rv.addAll(this.probationEntries.entrySet());
+		}
+
+		/**
+		 * Find the entry for this key, promoting it to the protected segment if it was on probation.
+		 * 
+		 * @param key
+		 *        The cache key.
+		 * @param removeExpired
+		 *        if true, an expired entry is removed and not returned.
+		 * @return The entry, or null if not found.
+		 */
+		public synchronized CacheEntry find(Object key, boolean removeExpired)
+		{
+			// a hit in protected just refreshes its recency
+			CacheEntry entry = this.protectedEntries.get(key);
+			if (entry != null)
+			{
+				if (removeExpired && entry.hasExpired())
+				{
+					this.protectedEntries.remove(key);
+					return null;
+				}
+				return entry;
+			}
+
+			// a hit in probation earns promotion
+			entry = this.probationEntries.remove(key);
+			if (entry != null)
+			{
+				if (removeExpired && entry.hasExpired()) return null;
+
+				this.protectedEntries.put(key, entry);
+				evict();
+			}
+
+			return entry;
+		}
+
+		/**
+		 * Snapshot the keys from both segments.
+		 * 
+		 * @param rv
+		 *        The list to add the keys to.
+		 */
+		public synchronized void keys(List rv)
+		{
+			rv.addAll(this.protectedEntries.keySet());
+			rv.addAll(this.probationEntries.keySet());
+		}
+
+		/**
+		 * Cache an entry, unless this key has been removed, or the stripe cleared, since the version was taken.
+		 * 
+		 * @param key
+		 *        The cache key.
+		 * @param entry
+		 *        The entry.
+		 * @param version
+		 *        The cache version taken before the payload was read, or -1 to put regardless.
+		 * @return true if cached, false if not.
+		 */
+		public synchronized boolean put(Object key, CacheEntry entry, long version)
+		{
+			// a removal of this key is recorded while holding this stripe's lock, so it cannot slip in between the check and the put
+			if (version != -1)
+			{
+				if (version < this.removedBefore) return false;
+				Long removed = this.removals.get(key);
+				if ((removed != null) && (removed.longValue() > version)) return false;
+			}
+
+			// a replacement keeps its segment
+			if (this.protectedEntries.containsKey(key))
+			{
+				this.protectedEntries.put(key, entry);
+			}
+			else
+			{
+				this.probationEntries.put(key, entry);
+				evict();
+			}
+
+			return true;
+		}
+
+		/**
+		 * Remove the entry for this key.
+		 * 
+		 * @param key
+		 *        The cache key.
+		 */
+		public synchronized void remove(Object key)
+		{
+			// record the removal, even of a key not cached - its value may be being read now - forgetting the oldest beyond our size
+			this.removals.remove(key);
+			this.removals.put(key, Long.valueOf(m_version.incrementAndGet()));
+			if (this.removals.size() > this.maxSize)
+			{
+				Iterator<Long> i = this.removals.values().iterator();
+				this.removedBefore = i.next().longValue();
+				i.remove();
+			}
+
+			if (this.probationEntries.remove(key) == null)
+			{
+				this.protectedEntries.remove(key);
+			}
+		}
+
+		/**
+		 * Access the number of entries.
+		 * 
+		 * @return The number of entries in the stripe.
+		 */
+		public synchronized int size()
+		{
+			return this.probationEntries.size() + this.protectedEntries.size();
+		}
+
+		/**
+		 * Evict till we are within our size bounds. Call only while synchronized.
+		 */
+		protected void evict()
+		{
+			// keep the protected segment to its size, moving its least recent entries back to probation
+			while (this.protectedEntries.size() > this.protectedMaxSize)
+			{
+				Iterator<Map.Entry<Object, CacheEntry>> i = this.protectedEntries.entrySet().iterator();
+				Map.Entry<Object, CacheEntry> eldest = i.next();
+				i.remove();
+				this.probationEntries.put(eldest.getKey(), eldest.getValue());
+			}
+
+			// drop the least recent entries - from probation first
+			while ((this.probationEntries.size() + this.protectedEntries.size()) > this.maxSize)
+			{
+				LinkedHashMap<Object, CacheEntry> segment = this.probationEntries.isEmpty() ? this.protectedEntries : this.probationEntries;
+				Iterator<Object> i = segment.keySet().iterator();
+				i.next();
+				i.remove();
+				m_evictCount.incrementAndGet();
+			}
+		}
+	}
+
+	/** The most lock stripes. */
+	protected final static int STRIPES = 16;
+
+	/** The fewest entries a stripe may hold - smaller caches use fewer stripes, down to one, which keeps the SLRU order exact. */
+	protected final static int STRIPE_MIN_SIZE = 64;
+
 	/** Our logger. */
-	private static Log M_log = LogFactory.getLog(SubmissionCacheImpl.class);
+	private static Log M_log = LogFactory.getLog(MnemeCacheImpl.class);
 
 	/** The string that separates the cache key prefix of the event reference from the extra information that may follow. */
 	protected String m_cleaver = null;
@@ -140,61 +361,66 @@ public class SubmissionCacheImpl implements Cache, Runnable, Observer
 	/** Constructor injected event tracking service. */
 	protected EventTrackingService m_eventTrackingService = null;
 
+	/** Count of entries evicted to keep within the size bound. */
+	protected AtomicLong m_evictCount = new AtomicLong(0);
+
 	/** Count of access requests. */
-	protected long m_getCount = 0;
+	protected AtomicLong m_getCount = new AtomicLong(0);
 
 	/** Count of access requests satisfied with a cached entry. */
-	protected long m_hitCount = 0;
+	protected AtomicLong m_hitCount = new AtomicLong(0);
 
-	/** Map holding cached entries. */
-	protected Map m_map = null;
+	/** The maximum number of entries we will hold. */
+	protected int m_maxSize = 0;
 
 	/** Constructor injected memory service. */
 	protected MemoryService m_memoryService = null;
 
 	/** Count of things put into the cache. */
-	protected long m_putCount = 0;
-
-	/** The number of seconds to sleep between expiration checks. */
-	protected long m_refresherSleep = 60;
+	protected AtomicLong m_putCount = new AtomicLong(0);
 
 	/** The string that all resources in this cache will start with. */
 	protected String m_resourcePattern = null;
 
-	/** The thread which runs the expiration check. */
-	protected Thread m_thread = null;
+	/** The lock stripes, chosen by key hash. */
+	protected Stripe[] m_stripes = null;
 
-	/** My thread's quit flag. */
-	protected boolean m_threadStop = false;
+	/** Bumped on each removal and clear, so a value read before a change to its key is not put in after it. */
+	protected AtomicLong m_version = new AtomicLong(0);
 
 	/**
 	 * Construct the Cache. Event scanning if pattern not null - will expire entries.
 	 * 
-	 * @param sleep
-	 *        The number of seconds to sleep between expiration checks.
+	 * @param maxSize
+	 *        The maximum number of entries to hold.
 	 * @param pattern
 	 *        The "startsWith()" string for all resources that may be in this cache - if null, don't watch events for expiration.
 	 * @param cleaver
 	 *        The string that separates the cache key prefix of each reference from the extra following information.
 	 */
-	public SubmissionCacheImpl(MemoryService memoryService, EventTrackingService eventTrackingService, long sleep, String pattern, String cleaver)
+	public MnemeCacheImpl(MemoryService memoryService, EventTrackingService eventTrackingService, int maxSize, String pattern, String cleaver)
 	{
+		if (maxSize < 1) throw new IllegalArgumentException();
+
 		// inject our dependencies
 		m_memoryService = memoryService;
 		m_eventTrackingService = eventTrackingService;
 
-		m_map = new ConcurrentReaderHashMap();
+		// split the size over the stripes
+		m_maxSize = maxSize;
+		int stripes = Math.max(1, Math.min(STRIPES, maxSize / STRIPE_MIN_SIZE));
+		m_stripes = new Stripe[stripes];
+		for (int i = 0; i < stripes; i++)
+		{
+			m_stripes[i] = new Stripe((maxSize / stripes) + ((i < (maxSize % stripes)) ? 1 : 0));
+		}
 
 		// register as a cacher
-		m_memoryService.registerCacher(this);
+		if (m_memoryService != null) m_memoryService.registerCacher(this);
 
-		m_refresherSleep = sleep;
 		m_resourcePattern = pattern;
 		m_cleaver = cleaver;
 
-		// start the expiration thread
-		start();
-
 		// register to get events - first, before others
 		if (pattern != null)
 		{
@@ -214,10 +440,12 @@ public class SubmissionCacheImpl implements Cache, Runnable, Observer
 	 */
 	public void clear()
 	{
-		m_map.clear();
-		m_getCount = 0;
-		m_hitCount = 0;
-		m_putCount = 0;
+		// the counts are kept - they measure the cache's use, not its current contents
+		long version = m_version.incrementAndGet();
+		for (Stripe stripe : m_stripes)
+		{
+			stripe.clear(version);
+		}
 	}
 
 	/**
@@ -231,20 +459,13 @@ public class SubmissionCacheImpl implements Cache, Runnable, Observer
 	{
 		if (disabled()) return false;
 
-		m_getCount++;
+		m_getCount.incrementAndGet();
 
-		// is it there?
-		CacheEntry entry = (CacheEntry) m_map.get(key);
+		// is it there, and not expired?
+		CacheEntry entry = find(key, true);
 		if (entry != null)
 		{
-			// has it expired?
-			if (entry.hasExpired())
-			{
-				// if so, remove it
-				remove(key);
-				return false;
-			}
-			m_hitCount++;
+			m_hitCount.incrementAndGet();
 			return true;
 		}
 
@@ -263,12 +484,12 @@ public class SubmissionCacheImpl implements Cache, Runnable, Observer
 		if (disabled()) return false;
 
 		// is it there?
-		boolean rv = m_map.containsKey(key);
+		boolean rv = (find(key, false) != null);
 
-		m_getCount++;
+		m_getCount.incrementAndGet();
 		if (rv)
 		{
-			m_hitCount++;
+			m_hitCount.incrementAndGet();
 		}
 
 		return rv;
@@ -282,7 +503,7 @@ public class SubmissionCacheImpl implements Cache, Runnable, Observer
 		clear();
 
 		// if we are not in a global shutdown
-		if (!ComponentManager.hasBeenClosed())
+		if ((m_memoryService != null) && !ComponentManager.hasBeenClosed())
 		{
 			// remove my registration
 			m_memoryService.unregisterCacher(this);
@@ -290,9 +511,6 @@ public class SubmissionCacheImpl implements Cache, Runnable, Observer
 			// remove my event notification registration
 			m_eventTrackingService.deleteObserver(this);
 		}
-
-		// stop our expiration thread (if any)
-		stop();
 	}
 
 	/**
@@ -301,7 +519,7 @@ public class SubmissionCacheImpl implements Cache, Runnable, Observer
 	public void disable()
 	{
 		m_disabled = true;
-		m_eventTrackingService.deleteObserver(this);
+		if (m_eventTrackingService != null) m_eventTrackingService.deleteObserver(this);
 		clear();
 	}
 
@@ -322,7 +540,7 @@ public class SubmissionCacheImpl implements Cache, Runnable, Observer
 	{
 		m_disabled = false;
 
-		if (m_resourcePattern != null)
+		if ((m_resourcePattern != null) && (m_eventTrackingService != null))
 		{
 			m_eventTrackingService.addPriorityObserver(this);
 		}
@@ -354,17 +572,13 @@ public class SubmissionCacheImpl implements Cache, Runnable, Observer
 	{
 		if (disabled()) return null;
 
-		// get it if there
-		CacheEntry entry = (CacheEntry) m_map.get(key);
+		m_getCount.incrementAndGet();
+
+		// get it if there, and not expired
+		CacheEntry entry = find(key, true);
 		if (entry != null)
 		{
-			// has it expired?
-			if (entry.hasExpired())
-			{
-				// if so, remove it
-				remove(key);
-				return null;
-			}
+			m_hitCount.incrementAndGet();
 			return entry.getPayload(key);
 		}
 
@@ -381,13 +595,11 @@ public class SubmissionCacheImpl implements Cache, Runnable, Observer
 		List rv = new Vector();
 
 		if (disabled()) return rv;
-		if (m_map.isEmpty()) return rv;
 
 		// for each entry in the cache
-		for (Iterator iKeys = m_map.entrySet().iterator(); iKeys.hasNext();)
+		for (Map.Entry<Object, CacheEntry> e : entries())
 		{
-			Map.Entry e = (Map.Entry) iKeys.next();
-			CacheEntry entry = (CacheEntry) e.getValue();
+			CacheEntry entry = e.getValue();
 
 			// skip expired
 			if (entry.hasExpired()) continue;
@@ -416,13 +628,11 @@ public class SubmissionCacheImpl implements Cache, Runnable, Observer
 		List rv = new Vector();
 
 		if (disabled()) return rv;
-		if (m_map.isEmpty()) return rv;
 
 		// for each entry in the cache
-		for (Iterator iKeys = m_map.entrySet().iterator(); iKeys.hasNext();)
+		for (Map.Entry<Object, CacheEntry> e : entries())
 		{
-			Map.Entry e = (Map.Entry) iKeys.next();
-			CacheEntry entry = (CacheEntry) e.getValue();
+			CacheEntry entry = e.getValue();
 
 			// skip expired
 			if (entry.hasExpired()) continue;
@@ -451,7 +661,7 @@ public class SubmissionCacheImpl implements Cache, Runnable, Observer
 	public String getDescription()
 	{
 		StringBuffer buf = new StringBuffer();
-		buf.append("MnemeSubmissionCache");
+		buf.append("MnemeCache");
 		if (m_disabled)
 		{
 			buf.append(" disabled");
@@ -460,17 +670,25 @@ public class SubmissionCacheImpl implements Cache, Runnable, Observer
 		{
 			buf.append(" " + m_resourcePattern);
 		}
-		if (m_thread != null)
-		{
-			buf.append(" thread_sleep: " + m_refresherSleep);
-		}
 
-		buf.append("  puts:" + m_putCount + "  gets:" + m_getCount + "  hits:" + m_hitCount + "  hit%:"
-				+ ((m_getCount > 0) ? "" + ((100l * m_hitCount) / m_getCount) : "n/a"));
+		long gets = m_getCount.get();
+		long hits = m_hitCount.get();
+		buf.append("  size:" + getSize() + "/" + m_maxSize + "  puts:" + m_putCount.get() + "  gets:" + gets + "  hits:" + hits + "  hit%:"
+				+ ((gets > 0) ? "" + ((100l * hits) / gets) : "n/a") + "  evictions:" + m_evictCount.get());
 
 		return buf.toString();
 	}
 
+	/**
+	 * Access the count of entries evicted to keep within the size bound.
+	 * 
+	 * @return The eviction count.
+	 */
+	public long getEvictCount()
+	{
+		return m_evictCount.get();
+	}
+
 	/**
 	 * Get the entry, or null if not there (expired entries are returned, too).
 	 * 
@@ -483,7 +701,7 @@ public class SubmissionCacheImpl implements Cache, Runnable, Observer
 		if (disabled()) return null;
 
 		// is it there?
-		CacheEntry entry = (CacheEntry) m_map.get(key);
+		CacheEntry entry = find(key, false);
 		if (entry != null)
 		{
 			return entry.getPayload(key);
@@ -492,6 +710,26 @@ public class SubmissionCacheImpl implements Cache, Runnable, Observer
 		return null;
 	}
 
+	/**
+	 * Access the count of access requests.
+	 * 
+	 * @return The get count.
+	 */
+	public long getGetCount()
+	{
+		return m_getCount.get();
+	}
+
+	/**
+	 * Access the count of access requests satisfied with a cached entry.
+	 * 
+	 * @return The hit count.
+	 */
+	public long getHitCount()
+	{
+		return m_hitCount.get();
+	}
+
 	/**
 	 * Get all the keys, eache modified to remove the resourcePattern prefix. Note: only works with String keys.
 	 * 
@@ -501,7 +739,7 @@ public class SubmissionCacheImpl implements Cache, Runnable, Observer
 	{
 		List rv = new Vector();
 
-		for (Iterator it = m_map.keySet().iterator(); it.hasNext();)
+		for (Iterator it = getKeys().iterator(); it.hasNext();)
 		{
 			String key = (String) it.next();
 			int i = key.indexOf(m_resourcePattern);
@@ -520,10 +758,33 @@ public class SubmissionCacheImpl implements Cache, Runnable, Observer
 	public List getKeys()
 	{
 		List rv = new Vector();
-		rv.addAll(m_map.keySet());
+		for (Stripe stripe : m_stripes)
+		{
+			stripe.keys(rv);
+		}
 		return rv;
 	}
 
+	/**
+	 * Access the count of things put into the cache.
+	 * 
+	 * @return The put count.
+	 */
+	public long getPutCount()
+	{
+		return m_putCount.get();
+	}
+
+	/**
+	 * Access the version - take this before reading a value to cache with putIfCurrent().
+	 * 
+	 * @return The current version.
+	 */
+	public long getVersion()
+	{
+		return m_version.get();
+	}
+
 	/**
 	 * Return the size of the cacher - indicating how much memory in use.
 	 * 
@@ -531,7 +792,12 @@ public class SubmissionCacheImpl implements Cache, Runnable, Observer
 	 */
 	public long getSize()
 	{
-		return m_map.size();
+		long rv = 0;
+		for (Stripe stripe : m_stripes)
+		{
+			rv += stripe.size();
+		}
+		return rv;
 	}
 
 	/**
@@ -603,8 +869,31 @@ public class SubmissionCacheImpl implements Cache, Runnable, Observer
 	{
 		if (disabled()) return;
 
-		m_map.put(key, new CacheEntry(payload, duration));
-		m_putCount++;
+		stripe(key).put(key, new CacheEntry(payload, duration), -1);
+		m_putCount.incrementAndGet();
+	}
+
+	/**
+	 * Cache an object, unless its key has been removed, or the cache cleared, since the version was taken.
+	 * 
+	 * @param key
+	 *        The key with which to find the object.
+	 * @param payload
+	 *        The object to cache.
+	 * @param duration
+	 *        The time to cache the object (seconds).
+	 * @param version
+	 *        The cache version (from getVersion()) taken before the payload was read.
+	 * @return true if cached, false if not.
+	 */
+	public boolean putIfCurrent(Object key, Object payload, int duration, long version)
+	{
+		if (disabled()) return false;
+
+		if (!stripe(key).put(key, new CacheEntry(payload, duration), version)) return false;
+		m_putCount.incrementAndGet();
+
+		return true;
 	}
 
 	/**
@@ -617,7 +906,7 @@ public class SubmissionCacheImpl implements Cache, Runnable, Observer
 	{
 		if (disabled()) return;
 
-		CacheEntry entry = (CacheEntry) m_map.remove(key);
+		stripe(key).remove(key);
 	}
 
 	/**
@@ -628,74 +917,6 @@ public class SubmissionCacheImpl implements Cache, Runnable, Observer
 		clear();
 	}
 
-	/*************************************************************************************************************************************************
-	 * Runnable implementation
-	 ************************************************************************************************************************************************/
-
-	/**
-	 * Run the expiration thread.
-	 */
-	public void run()
-	{
-		// since we might be running while the component manager is still being created and populated, such as at server
-		// startup, wait here for a complete component manager
-		ComponentManager.waitTillConfigured();
-
-		// loop till told to stop
-		while ((!m_threadStop) && (!Thread.currentThread().isInterrupted()))
-		{
-			long startTime = 0;
-			try
-			{
-				if (M_log.isDebugEnabled())
-				{
-					startTime = System.currentTimeMillis();
-					M_log.debug(this + ".checking ...");
-				}
-
-				// collect keys of expired entries in the cache
-				List expired = new Vector();
-				for (Iterator iKeys = m_map.entrySet().iterator(); iKeys.hasNext();)
-				{
-					Map.Entry e = (Map.Entry) iKeys.next();
-					String key = (String) e.getKey();
-					CacheEntry entry = (CacheEntry) e.getValue();
-
-					// if it has expired
-					if (entry.hasExpired())
-					{
-						expired.add(key);
-					}
-				}
-
-				// for each expired, remove
-				for (Iterator iKeys = expired.iterator(); iKeys.hasNext();)
-				{
-					String key = (String) iKeys.next();
-					remove(key);
-				}
-			}
-			catch (Throwable e)
-			{
-				M_log.warn(this + ": exception: ", e);
-			}
-
-			if (M_log.isDebugEnabled())
-			{
-				M_log.debug(this + ".done. Time: " + (System.currentTimeMillis() - startTime));
-			}
-
-			// take a small nap
-			try
-			{
-				Thread.sleep(m_refresherSleep * 1000);
-			}
-			catch (Exception ignore)
-			{
-			}
-		}
-	}
-
 	/**
 	 * Set the cache to be complete, containing all possible entries.
 	 */
@@ -748,13 +969,37 @@ public class SubmissionCacheImpl implements Cache, Runnable, Observer
 			key = StringUtil.splitFirst(ref, m_cleaver)[0];
 		}
 
-		// do we have this in our cache?
-		Object oldValue = get(key);
-		if (m_map.containsKey(key))
+		// invalidate our copy
+		remove(key);
+	}
+
+	/**
+	 * Snapshot the entries from all the stripes.
+	 * 
+	 * @return A List of the cache entries.
+	 */
+	protected List<Map.Entry<Object, CacheEntry>> entries()
+	{
+		List<Map.Entry<Object, CacheEntry>> rv = new ArrayList<Map.Entry<Object, CacheEntry>>();
+		for (Stripe stripe : m_stripes)
 		{
-			// invalidate our copy
-			remove(key);
+			stripe.entries(rv);
 		}
+		return rv;
+	}
+
+	/**
+	 * Find the entry for this key, promoting it to the protected segment if it was on probation.
+	 * 
+	 * @param key
+	 *        The cache key.
+	 * @param removeExpired
+	 *        if true, an expired entry is removed and not returned.
+	 * @return The entry, or null if not found.
+	 */
+	protected CacheEntry find(Object key, boolean removeExpired)
+	{
+		return stripe(key).find(key, removeExpired);
 	}
 
 	/**
@@ -786,38 +1031,16 @@ public class SubmissionCacheImpl implements Cache, Runnable, Observer
 		return path;
 	}
 
-	/*************************************************************************************************************************************************
-	 * Observer implementation
-	 ************************************************************************************************************************************************/
-
 	/**
-	 * Start the expiration thread.
-	 */
-	protected void start()
-	{
-		m_threadStop = false;
-
-		m_thread = new Thread(this, getClass().getName());
-		m_thread.setDaemon(true);
-		m_thread.setPriority(Thread.MIN_PRIORITY + 2);
-		m_thread.start();
-
-	} // start
-
-	/**
-	 * Stop the expiration thread.
+	 * Find the stripe for a key.
+	 * 
+	 * @param key
+	 *        The cache key.
+	 * @return The key's stripe.
 	 */
-	protected void stop()
+	protected Stripe stripe(Object key)
 	{
-		if (m_thread == null) return;
-
-		// signal the thread to stop
-		m_threadStop = true;
-
-		// wake up the thread
-		m_thread.interrupt();
-
-		m_thread = null;
-
-	} // stop
+		if (m_stripes.length == 1) return m_stripes[0];
+		return m_stripes[(key.hashCode() & 0x7fffffff) % m_stripes.length];
+	}
 }
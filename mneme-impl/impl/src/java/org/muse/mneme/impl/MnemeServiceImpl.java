@@ -24,15 +24,23 @@ package org.muse.mneme.impl;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.muse.mneme.api.Assessment;
 import org.muse.mneme.api.AssessmentService;
 import org.muse.mneme.api.MnemeService;
+import org.muse.mneme.api.Part;
+import org.muse.mneme.api.PoolDraw;
+import org.muse.mneme.api.PoolPick;
 import org.muse.mneme.api.PoolService;
+import org.muse.mneme.api.Question;
 import org.muse.mneme.api.QuestionPlugin;
 import org.muse.mneme.api.QuestionService;
 import org.sakaiproject.authz.api.FunctionManager;
@@ -74,6 +82,15 @@ public class MnemeServiceImpl implements MnemeService, Runnable
 	/** How long to wait (ms) between checks for timed-out submission in the db. 0 disables. */
 	protected long timeoutCheckMs = 1000L * 60L * 60L * 12L;
 
+	/** How long to wait (ms) between checks for assessments about to open, to warm up for. 0 disables. */
+	protected long warmCheckMs = 1000L * 30L;
+
+	/** The end of the time (ms) already checked for assessments about to open. */
+	protected long warmedUntil = 0;
+
+	/** How far ahead (ms) to look for assessments about to open. */
+	protected long warmWindowMs = 1000L * 120L;
+
 	/**
 	 * Returns to uninitialized state.
 	 */
@@ -132,12 +149,13 @@ public class MnemeServiceImpl implements MnemeService, Runnable
 			functionManager.registerFunction(SUBMIT_PERMISSION);
 
 			// start the checking thread
-			if (timeoutCheckMs > 0)
+			if ((timeoutCheckMs > 0) || (warmCheckMs > 0))
 			{
 				start();
 			}
 
-			M_log.info("init(): timout check seconds: " + timeoutCheckMs / 1000);
+			M_log.info("init(): timout check seconds: " + timeoutCheckMs / 1000 + " warm check seconds: " + warmCheckMs / 1000
+					+ " warm window seconds: " + warmWindowMs / 1000);
 		}
 		catch (Throwable t)
 		{
@@ -162,15 +180,35 @@ public class MnemeServiceImpl implements MnemeService, Runnable
 		// such as at server startup, wait here for a complete component manager
 		ComponentManager.waitTillConfigured();
 
+		// the mint clearing may run less often than the warming
+		long nap = timeoutCheckMs;
+		if ((warmCheckMs > 0) && ((nap <= 0) || (warmCheckMs < nap))) nap = warmCheckMs;
+		long nextClear = 0;
+
 		// loop till told to stop
 		while ((!threadStop) && (!Thread.currentThread().isInterrupted()))
 		{
 			try
 			{
+				long now = System.currentTimeMillis();
+
 				// ask the various services to clear their stale mints
-				this.questionService.clearStaleMintQuestions();
-				this.poolService.clearStaleMintPools();
-				this.assessmentService.clearStaleMintAssessments();
+				if ((timeoutCheckMs > 0) && (now >= nextClear))
+				{
+					nextClear = now + timeoutCheckMs;
+
+					this.questionService.clearStaleMintQuestions();
+					this.poolService.clearStaleMintPools();
+					this.assessmentService.clearStaleMintAssessments();
+				}
+
+				// warm up for the assessments opening soon - each once, as it comes into the window
+				if (warmCheckMs > 0)
+				{
+					long from = Math.max(this.warmedUntil, now);
+					this.warmedUntil = now + warmWindowMs;
+					if (this.warmedUntil > from) warmOpening(new Date(from), new Date(this.warmedUntil));
+				}
 			}
 			catch (Throwable e)
 			{
@@ -185,7 +223,7 @@ public class MnemeServiceImpl implements MnemeService, Runnable
 			// take a small nap
 			try
 			{
-				Thread.sleep(timeoutCheckMs);
+				Thread.sleep(nap);
 			}
 			catch (Exception ignore)
 			{
@@ -259,6 +297,28 @@ public class MnemeServiceImpl implements MnemeService, Runnable
 		this.timeoutCheckMs = Integer.parseInt(time) * 1000L;
 	}
 
+	/**
+	 * Set the # seconds to wait between checks for assessments about to open.
+	 * 
+	 * @param time
+	 *        The # seconds to wait between checks for assessments about to open - 0 disables warming.
+	 */
+	public void setWarmCheckSeconds(String time)
+	{
+		this.warmCheckMs = Integer.parseInt(time) * 1000L;
+	}
+
+	/**
+	 * Set the # seconds ahead to look for assessments about to open.
+	 * 
+	 * @param time
+	 *        The # seconds ahead to look for assessments about to open.
+	 */
+	public void setWarmWindowSeconds(String time)
+	{
+		this.warmWindowMs = Integer.parseInt(time) * 1000L;
+	}
+
 	/**
 	 * Start the clean and report thread.
 	 */
@@ -285,4 +345,53 @@ public class MnemeServiceImpl implements MnemeService, Runnable
 
 		checkerThread = null;
 	}
+
+	/**
+	 * Read the assessments opening in this time range, with their draw pools' question id lists and all their questions, into the shared caches,
+	 * so the first students in do not all wait on the db.
+	 * 
+	 * @param from
+	 *        The start of the range (inclusive).
+	 * @param to
+	 *        The end of the range (exclusive).
+	 */
+	protected void warmOpening(Date from, Date to)
+	{
+		List<String> ids = ((AssessmentServiceImpl) this.assessmentService).getAssessmentsOpening(from, to);
+		for (String id : ids)
+		{
+			long start = System.currentTimeMillis();
+
+			// reading the assessment makes its snapshot
+			Assessment assessment = ((AssessmentServiceImpl) this.assessmentService).getAssessmentReadOnly(id);
+			if (assessment == null) continue;
+
+			// the pools drawn from, and the questions that may be drawn or are picked
+			int pools = 0;
+			Set<String> questionIds = new HashSet<String>();
+			for (Part part : assessment.getParts().getParts())
+			{
+				if (part instanceof DrawPartImpl)
+				{
+					for (PoolDraw draw : ((DrawPartImpl) part).getDraws())
+					{
+						questionIds.addAll(((PoolDrawImpl) draw).getDrawQuestionIds());
+						pools++;
+					}
+				}
+				else if (part instanceof ManualPartImpl)
+				{
+					for (PoolPick pick : ((ManualPartImpl) part).questions)
+					{
+						questionIds.add(pick.getQuestionId());
+					}
+				}
+			}
+
+			List<Question> questions = this.questionService.getQuestions(questionIds);
+
+			M_log.info("warmOpening: assessment: " + id + " opens: " + assessment.getDates().getOpenDate() + " pools: " + pools + " questions: "
+					+ questions.size() + " ms: " + (System.currentTimeMillis() - start));
+		}
+	}
 }
@@ -36,12 +36,12 @@ import org.muse.mneme.api.Assessment;
 import org.muse.mneme.api.AssessmentService;
 import org.muse.mneme.api.AttachmentService;
 import org.muse.mneme.api.MnemeService;
-import org.muse.mneme.api.Part;
+import org.muse.mneme.api.MnemeTransferService;
 import org.muse.mneme.api.Pool;
 import org.muse.mneme.api.PoolService;
-import org.muse.mneme.api.Question;
 import org.muse.mneme.api.QuestionService;
 import org.muse.mneme.api.SecurityService;
+import org.muse.mneme.api.TransferStatus;
 import org.muse.mneme.api.Translation;
 import org.sakaiproject.entity.api.Entity;
 import org.sakaiproject.entity.api.EntityManager;
@@ -56,9 +56,9 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
 /**
- * MnemeServiceImpl implements MnemeService
+ * MnemeTransferServiceImpl implements MnemeTransferService, copying a site's Mneme content for site import.
  */
-public class MnemeTransferServiceImpl implements EntityTransferrer, EntityProducer
+public class MnemeTransferServiceImpl implements MnemeTransferService, EntityTransferrer, EntityProducer
 {
 	/** Our logger. */
 	private static Log M_log = LogFactory.getLog(MnemeTransferServiceImpl.class);
@@ -87,6 +87,9 @@ public class MnemeTransferServiceImpl implements EntityTransferrer, EntityProduc
 	/** Dependency: ThreadLocalManager */
 	protected ThreadLocalManager threadLocalManager = null;
 
+	/** The copy jobs in progress or stopped by a failure, by from and to context - done jobs are dropped. */
+	protected Map<String, TransferJob> transferJobs = new HashMap<String, TransferJob>();
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -160,6 +163,19 @@ public class MnemeTransferServiceImpl implements EntityTransferrer, EntityProduc
 		return "Test Center";
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public TransferStatus getTransferStatus(String fromContext, String toContext)
+	{
+		if ((fromContext == null) || (toContext == null)) throw new IllegalArgumentException();
+
+		synchronized (this.transferJobs)
+		{
+			return this.transferJobs.get(fromContext + "/" + toContext);
+		}
+	}
+
 	/**
 	 * Final initialization, once all dependencies are set.
 	 */
@@ -305,88 +321,32 @@ public class MnemeTransferServiceImpl implements EntityTransferrer, EntityProduc
 			return;
 		}
 
-		// map from old pool ids to new ids
-		Map<String, String> pidMap = new HashMap<String, String>();
-
-		// map from old question ids to new ids
-		Map<String, String> qidMap = new HashMap<String, String>();
-
-		// get all pools in the context
-		List<Pool> pools = this.poolService.findPools(fromContext, null, null);
-
-		// get all the assessments
-		List<Assessment> assessments = this.assessmentService.getContextAssessments(fromContext, null, Boolean.FALSE);
-
-		// collect media references
-		Set<String> refs = new HashSet<String>();
-
-		for (Pool pool : pools)
+		// find the job - a failed one is resumed, one running is left alone, otherwise we start a new one
+		TransferJob job = null;
+		String key = fromContext + "/" + toContext;
+		synchronized (this.transferJobs)
 		{
-			List<String> qids = ((PoolImpl) pool).getAllQuestionIds(null, null);
-			for (String qid : qids)
-			{
-				Question question = this.questionService.getQuestion(qid);
-				// for (Reference attachment : question.getPresentation().getAttachments())
-				// {
-				// refs.add(attachment.getReference());
-				// }
-				refs.addAll(this.attachmentService.harvestAttachmentsReferenced(question.getPresentation().getText(), true));
-				refs.addAll(this.attachmentService.harvestAttachmentsReferenced(question.getHints(), true));
-				refs.addAll(this.attachmentService.harvestAttachmentsReferenced(question.getFeedback(), true));
-				for (String data : question.getTypeSpecificQuestion().getData())
-				{
-					refs.addAll(this.attachmentService.harvestAttachmentsReferenced(data, true));
-				}
-			}
-		}
+			job = this.transferJobs.get(key);
+			if ((job != null) && (!job.getIsFailed())) return;
 
-		for (Assessment assessment : assessments)
-		{
-			// get this assessment's media refs instructions, part instructions, attachments
-			// for (Reference attachment : assessment.getPresentation().getAttachments())
-			// {
-			// refs.add(attachment.getReference());
-			// }
-			refs.addAll(this.attachmentService.harvestAttachmentsReferenced(assessment.getPresentation().getText(), true));
-			refs.addAll(this.attachmentService.harvestAttachmentsReferenced(assessment.getSubmitPresentation().getText(), true));
-
-			for (Part part : assessment.getParts().getParts())
+			if (job != null)
 			{
-				// for (Reference attachment : part.getPresentation().getAttachments())
-				// {
-				// refs.add(attachment.getReference());
-				// }
-				refs.addAll(this.attachmentService.harvestAttachmentsReferenced(part.getPresentation().getText(), true));
+				job.initFailed(false);
 			}
-		}
-
-		// copy the attachments, creating translations
-		List<Translation> translations = new ArrayList<Translation>();
-		for (String refString : refs)
-		{
-			// move the referenced attachment into our docs area in this context
-			Reference ref = this.attachmentService.getReference(refString);
-			Reference attachment = this.attachmentService.addAttachment(AttachmentService.MNEME_APPLICATION, toContext, AttachmentService.DOCS_AREA,
-					false, ref);
-			if (attachment != null)
+			else
 			{
-				// make the translation
-				Translation t = new TranslationImpl(ref.getReference(), attachment.getReference());
-				translations.add(t);
+				job = new TransferJob(fromContext, toContext);
+				this.transferJobs.put(key, job);
 			}
 		}
 
-		// copy each pool, with all questions
-		for (Pool pool : pools)
-		{
-			Pool newPool = ((PoolServiceImpl) this.poolService).doCopyPool(toContext, pool, false, qidMap, false, translations);
-			pidMap.put(pool.getId(), newPool.getId());
-		}
+		// the copy is done before we return, as site import expects - a failure is kept to be resumed, and passed on
+		transfer(job);
 
-		// copy each assessment
-		for (Assessment assessment : assessments)
+		// done - we no longer need the job
+		synchronized (this.transferJobs)
 		{
-			((AssessmentServiceImpl) this.assessmentService).doCopyAssessment(toContext, assessment, pidMap, qidMap, false, translations);
+			this.transferJobs.remove(key);
 		}
 	}
 
@@ -406,4 +366,88 @@ public class MnemeTransferServiceImpl implements EntityTransferrer, EntityProduc
 	{
 		return false;
 	}
+
+	/**
+	 * Copy the pools, questions and assessments for a copy job, skipping any the job has already copied.
+	 * 
+	 * @param job
+	 *        The job.
+	 * @throws RuntimeException
+	 *         if the copy fails - the job is marked failed, and may be resumed.
+	 */
+	protected void transfer(TransferJob job)
+	{
+		try
+		{
+			String toContext = job.getToContext();
+
+			// get all pools in the context
+			List<Pool> pools = this.poolService.findPools(job.getFromContext(), null, null);
+
+			// get all the assessments
+			List<Assessment> assessments = this.assessmentService.getContextAssessments(job.getFromContext(), null, Boolean.FALSE);
+
+			int numQuestions = 0;
+			for (Pool pool : pools)
+			{
+				numQuestions += ((PoolImpl) pool).getAllQuestionIds(null, null).size();
+			}
+
+			job.initTotals(pools.size(), numQuestions, assessments.size());
+
+			if (job.translations == null)
+			{
+				// the media references in the context's questions and assessments, from the reference index
+				Set<String> refs = new HashSet<String>();
+				refs.addAll(((QuestionServiceImpl) this.questionService).getContextReferences(job.getFromContext()));
+				refs.addAll(((AssessmentServiceImpl) this.assessmentService).getContextReferences(job.getFromContext()));
+
+				// copy the attachments, creating translations
+				List<Translation> translations = new ArrayList<Translation>();
+				for (String refString : refs)
+				{
+					// move the referenced attachment into our docs area in this context
+					Reference ref = this.attachmentService.getReference(refString);
+					Reference attachment = this.attachmentService.addAttachment(AttachmentService.MNEME_APPLICATION, toContext,
+							AttachmentService.DOCS_AREA, false, ref);
+					if (attachment != null)
+					{
+						// make the translation
+						Translation t = new TranslationImpl(ref.getReference(), attachment.getReference());
+						translations.add(t);
+					}
+				}
+
+				job.initTranslations(translations);
+			}
+
+			// copy each pool, with all questions
+			for (Pool pool : pools)
+			{
+				if (job.isPoolCopied(pool.getId())) continue;
+
+				Map<String, String> qidMap = new HashMap<String, String>();
+				Pool newPool = ((PoolServiceImpl) this.poolService).doCopyPool(toContext, pool, false, qidMap, false, job.translations);
+				job.addPool(pool.getId(), newPool.getId(), qidMap);
+			}
+
+			// copy each assessment
+			for (Assessment assessment : assessments)
+			{
+				if (job.isAssessmentCopied(assessment.getId())) continue;
+
+				((AssessmentServiceImpl) this.assessmentService).doCopyAssessment(toContext, assessment, job.pidMap, job.qidMap, false,
+						job.translations);
+				job.addAssessment(assessment.getId());
+			}
+
+			job.initComplete();
+		}
+		catch (RuntimeException e)
+		{
+			M_log.warn("transfer: from: " + job.getFromContext() + " to: " + job.getToContext() + " : ", e);
+			job.initFailed(true);
+			throw e;
+		}
+	}
 }
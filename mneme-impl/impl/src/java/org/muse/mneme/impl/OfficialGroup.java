@@ -0,0 +1,168 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+
+package org.muse.mneme.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.muse.mneme.api.Submission;
+
+/**
+ * OfficialGroup collects the submissions from one user to an assessment (or to one assessment from a user) while picking the official one.<br />
+ * Each submission's total score is taken just once, when it is offered as a best candidate.
+ */
+public class OfficialGroup
+{
+	/**
+	 * Check if the candidate score is better than the best so far.
+	 * 
+	 * @param best
+	 *        The best score so far.
+	 * @param candidate
+	 *        The candidate score.
+	 * @return true if the candidate is better, false if not.
+	 */
+	protected static boolean candidateBetter(Float best, Float candidate)
+	{
+		if ((best == null) && (candidate == null)) return false;
+		if (candidate == null) return false;
+		if (best == null) return true;
+		if (best.floatValue() < candidate.floatValue()) return true;
+		return false;
+	}
+
+	/**
+	 * Check if the candidate score is the same as the best so far.
+	 * 
+	 * @param best
+	 *        The best score so far.
+	 * @param candidate
+	 *        The candidate score.
+	 * @return true if the scores are the same, false if not.
+	 */
+	protected static boolean sameScores(Float best, Float candidate)
+	{
+		if ((best == null) && (candidate == null)) return true;
+		if ((candidate == null) || (best == null)) return false;
+		if (best.floatValue() == candidate.floatValue()) return true;
+		return false;
+	}
+
+	/** The best complete submission so far. */
+	protected SubmissionImpl best = null;
+
+	/** The best submission's total score. */
+	protected Float bestScore = null;
+
+	/** The number of started submissions. */
+	protected int count = 0;
+
+	/** The first submission of the group. */
+	protected SubmissionImpl first = null;
+
+	/** The in-progress submission. */
+	protected SubmissionImpl inProgress = null;
+
+	/** The submissions that lost out to the best. */
+	protected List<Submission> loosers = new ArrayList<Submission>();
+
+	/**
+	 * Construct.
+	 * 
+	 * @param first
+	 *        The first submission of the group.
+	 */
+	public OfficialGroup(SubmissionImpl first)
+	{
+		this.first = first;
+	}
+
+	/**
+	 * Offer a complete submission as the best - taken if it has a better score, or the same score and a later submit date.<br />
+	 * A best that is replaced becomes a looser.
+	 * 
+	 * @param candidate
+	 *        The complete submission.
+	 * @return true if the candidate is now the best, false if not.
+	 */
+	public boolean offer(SubmissionImpl candidate)
+	{
+		Float score = candidate.getTotalScore();
+
+		boolean take = false;
+		if (this.best == null)
+		{
+			take = true;
+		}
+
+		// take the new one if it exceeds the best so far
+		else if (candidateBetter(this.bestScore, score))
+		{
+			take = true;
+		}
+
+		// if we match the best, pick the latest submit date
+		else if (sameScores(this.bestScore, score))
+		{
+			take = (this.best.getSubmittedDate() != null) && (candidate.getSubmittedDate() != null)
+					&& (this.best.getSubmittedDate().before(candidate.getSubmittedDate()));
+		}
+
+		if (!take) return false;
+
+		if (this.best != null) this.loosers.add(this.best);
+		this.best = candidate;
+		this.bestScore = score;
+		return true;
+	}
+
+	/**
+	 * Pick the winner: the one in progress, else the best, else the first.
+	 * 
+	 * @return The winner.
+	 */
+	public SubmissionImpl getWinner()
+	{
+		if (this.inProgress != null) return this.inProgress;
+		if (this.best != null) return this.best;
+		return this.first;
+	}
+
+	/**
+	 * Set the winner's sibling count and best.
+	 * 
+	 * @return The winner.
+	 */
+	public SubmissionImpl initWinner()
+	{
+		SubmissionImpl winner = getWinner();
+
+		winner.initSiblingCount(Integer.valueOf(this.count));
+		if (this.best != null)
+		{
+			winner.initBest(this.best);
+		}
+
+		return winner;
+	}
+}
@@ -359,22 +359,7 @@ public abstract class PartImpl implements Part, Changeable
 	 */
 	public List<Question> getQuestions()
 	{
-		List<PoolPick> order = getQuestionPickOrder();
-		List<Question> rv = new ArrayList<Question>(order.size());
-		for (PoolPick pick : order)
-		{
-			QuestionImpl question = (QuestionImpl) this.questionService.getQuestion(pick.getQuestionId());
-			if (question != null)
-			{
-				// set the question contexts
-				question.initSubmissionContext(this.assessment.getSubmissionContext());
-				question.initPartContext(this);
-
-				rv.add(question);
-			}
-		}
-
-		return rv;
+		return getPickQuestions(getQuestionPickOrder());
 	}
 
 	/**
@@ -422,6 +407,49 @@ public abstract class PartImpl implements Part, Changeable
 		setChanged();
 	}
 
+	/**
+	 * Compute the list of question picks as they should be presented for the submission context.
+	 * 
+	 * @return The list of question picks as they should be presented for the submission context.
+	 */
+	protected abstract List<PoolPick> computeQuestionPickOrder();
+
+	/**
+	 * Get the questions for these picks, read together, with our contexts set.
+	 * 
+	 * @param picks
+	 *        The question picks.
+	 * @return The questions, in pick order; picks of questions that no longer exist are skipped.
+	 */
+	protected List<Question> getPickQuestions(List<PoolPick> picks)
+	{
+		List<String> ids = new ArrayList<String>(picks.size());
+		for (PoolPick pick : picks)
+		{
+			ids.add(pick.getQuestionId());
+		}
+
+		List<Question> rv = this.questionService.getQuestions(ids);
+		for (Question question : rv)
+		{
+			// set the question contexts
+			((QuestionImpl) question).initSubmissionContext(this.assessment.getSubmissionContext());
+			((QuestionImpl) question).initPartContext(this);
+		}
+
+		return rv;
+	}
+
+	/**
+	 * Get the ids of the pools the part draws questions from.
+	 * 
+	 * @return The ids of the pools drawn from, empty if the part does not draw.
+	 */
+	protected List<String> getDrawPoolIds()
+	{
+		return new ArrayList<String>();
+	}
+
 	/**
 	 * Get the list of possible question picks.
 	 * 
@@ -430,11 +458,34 @@ public abstract class PartImpl implements Part, Changeable
 	protected abstract List<PoolPick> getPossibleQuestionPicks();
 
 	/**
-	 * Get the list of question picks as they should be presented for the submission context.
+	 * Get the list of question picks as they should be presented for the submission context.<br />
+	 * Under a submission context, this is computed once for the submission and part, and cached.
 	 * 
 	 * @return The list of question picks as they should be presented for the submission context.
 	 */
-	protected abstract List<PoolPick> getQuestionPickOrder();
+	protected List<PoolPick> getQuestionPickOrder()
+	{
+		// without a saved submission context or the full submission service, there is nothing to key a cached order to
+		if ((this.id == null) || (this.assessment == null) || (this.assessment.getSubmissionContext() == null)
+				|| (this.assessment.getSubmissionContext().getId() == null) || (!(this.submissionService instanceof SubmissionServiceImpl)))
+		{
+			return computeQuestionPickOrder();
+		}
+
+		PickOrderCache cache = ((SubmissionServiceImpl) this.submissionService).getPickOrderCache();
+		if (cache == null) return computeQuestionPickOrder();
+
+		String submissionId = this.assessment.getSubmissionContext().getId();
+		List<PoolPick> rv = cache.get(this.questionService, submissionId, this.id);
+		if (rv == null)
+		{
+			long generation = cache.getGeneration();
+			rv = computeQuestionPickOrder();
+			cache.put(submissionId, this.id, this.assessment.getId(), getDrawPoolIds(), generation, rv);
+		}
+
+		return rv;
+	}
 
 	/**
 	 * Establish the assessment.
@@ -0,0 +1,266 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+
+package org.muse.mneme.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.muse.mneme.api.QuestionService;
+
+/**
+ * PickOrderCache holds the resolved question pick order for each submission and part, so the draws and shuffles are done once, not on every call.<br />
+ * Orders are kept as just the question ids, along with the assessment and the pools drawn from, so a change to an assessment, pool or question drops
+ * only the orders that depend on it. The cache has a generation, advanced by each such drop; an order computed under an older generation is not
+ * put in.
+ */
+public class PickOrderCache
+{
+	/**
+	 * A cached pick order.
+	 */
+	protected static class Entry
+	{
+		/** The assessment id. */
+		protected String assessmentId = null;
+
+		/** The question id and original question id of each pick, in order, in pairs. */
+		protected String[] ids = null;
+
+		/** The ids of the pools drawn from. */
+		protected String[] poolIds = null;
+	}
+
+	/** The pick orders, keyed by submission id and part id, least recently used first. */
+	protected Map<String, Entry> entries = null;
+
+	/** The current generation. */
+	protected long generation = 0;
+
+	/** The most pick orders to keep. */
+	protected int maxSize = 0;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param maxSize
+	 *        The most pick orders to keep.
+	 */
+	public PickOrderCache(int maxSize)
+	{
+		this.maxSize = maxSize;
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true)
+		{
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+			{
+				return size() > PickOrderCache.this.maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Advance the generation, so that all the orders we have are recomputed when next needed.
+	 */
+	public synchronized void advance()
+	{
+		this.generation++;
+		this.entries.clear();
+	}
+
+	/**
+	 * Drop the orders for this assessment's parts.
+	 * 
+	 * @param assessmentId
+	 *        The assessment id.
+	 */
+	public synchronized void dropAssessment(String assessmentId)
+	{
+		this.generation++;
+		for (Iterator<Entry> i = this.entries.values().iterator(); i.hasNext();)
+		{
+			if (assessmentId.equals(i.next().assessmentId)) i.remove();
+		}
+	}
+
+	/**
+	 * Drop the orders drawn from this pool.
+	 * 
+	 * @param poolId
+	 *        The pool id.
+	 */
+	public synchronized void dropPool(String poolId)
+	{
+		this.generation++;
+		for (Iterator<Entry> i = this.entries.values().iterator(); i.hasNext();)
+		{
+			if (contains(i.next().poolIds, poolId, 1)) i.remove();
+		}
+	}
+
+	/**
+	 * Drop the orders that pick this question, or that draw from its pool.
+	 * 
+	 * @param questionId
+	 *        The question id.
+	 * @param poolId
+	 *        The question's pool id.
+	 */
+	public synchronized void dropQuestion(String questionId, String poolId)
+	{
+		this.generation++;
+		for (Iterator<Entry> i = this.entries.values().iterator(); i.hasNext();)
+		{
+			Entry entry = i.next();
+			if (contains(entry.ids, questionId, 2) || contains(entry.poolIds, poolId, 1)) i.remove();
+		}
+	}
+
+	/**
+	 * Get the cached pick order for this submission and part.
+	 * 
+	 * @param questionService
+	 *        The QuestionService for the picks.
+	 * @param submissionId
+	 *        The submission id.
+	 * @param partId
+	 *        The part id.
+	 * @return A new list of new picks, in order, or null if we don't have a current order cached.
+	 */
+	public List<PoolPick> get(QuestionService questionService, String submissionId, String partId)
+	{
+		String[] ids = null;
+		synchronized (this)
+		{
+			Entry entry = this.entries.get(key(submissionId, partId));
+			if (entry == null) return null;
+			ids = entry.ids;
+		}
+
+		List<PoolPick> rv = new ArrayList<PoolPick>(ids.length / 2);
+		for (int i = 0; i < ids.length; i += 2)
+		{
+			PoolPick pick = new PoolPick(questionService);
+			pick.questionId = ids[i];
+			pick.origQuestionId = ids[i + 1];
+			rv.add(pick);
+		}
+
+		return rv;
+	}
+
+	/**
+	 * Get the current generation - take this before computing an order to put().
+	 * 
+	 * @return The current generation.
+	 */
+	public synchronized long getGeneration()
+	{
+		return this.generation;
+	}
+
+	/**
+	 * Cache the pick order for this submission and part, unless the generation has moved on since it was computed.
+	 * 
+	 * @param submissionId
+	 *        The submission id.
+	 * @param partId
+	 *        The part id.
+	 * @param assessmentId
+	 *        The part's assessment id.
+	 * @param poolIds
+	 *        The ids of the pools the part draws from.
+	 * @param generation
+	 *        The generation when the order was computed.
+	 * @param order
+	 *        The pick order.
+	 */
+	public void put(String submissionId, String partId, String assessmentId, List<String> poolIds, long generation, List<PoolPick> order)
+	{
+		if (this.maxSize <= 0) return;
+
+		Entry entry = new Entry();
+		entry.assessmentId = assessmentId;
+		entry.poolIds = poolIds.toArray(new String[poolIds.size()]);
+		entry.ids = new String[order.size() * 2];
+		int i = 0;
+		for (PoolPick pick : order)
+		{
+			entry.ids[i++] = pick.questionId;
+			entry.ids[i++] = pick.origQuestionId;
+		}
+
+		synchronized (this)
+		{
+			if (generation != this.generation) return;
+			this.entries.put(key(submissionId, partId), entry);
+		}
+	}
+
+	/**
+	 * Access the number of pick orders cached.
+	 * 
+	 * @return The number of pick orders cached.
+	 */
+	public synchronized int size()
+	{
+		return this.entries.size();
+	}
+
+	/**
+	 * Check if a value is in an array, looking at every step'th element.
+	 * 
+	 * @param values
+	 *        The array.
+	 * @param value
+	 *        The value.
+	 * @param step
+	 *        The step between the elements to check.
+	 * @return true if found, false if not.
+	 */
+	protected boolean contains(String[] values, String value, int step)
+	{
+		if (value == null) return false;
+		for (int i = 0; i < values.length; i += step)
+		{
+			if (value.equals(values[i])) return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Form the key for a submission and part.
+	 * 
+	 * @param submissionId
+	 *        The submission id.
+	 * @param partId
+	 *        The part id.
+	 * @return The key.
+	 */
+	protected String key(String submissionId, String partId)
+	{
+		return submissionId + "/" + partId;
+	}
+}
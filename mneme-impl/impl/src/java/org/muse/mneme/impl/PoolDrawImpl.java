@@ -124,13 +124,7 @@ public class PoolDrawImpl implements PoolDraw
 		Pool pool = getPool();
 		if (pool == null) return new ArrayList<String>();
 
-		// for a uniform pool, draw from any survey or not; otherwise match the draw to the assessment type
-		Pool.PoolCounts counts = pool.getNumQuestionsSurvey();
-		Boolean survey = null;
-		if ((counts.assessment != 0) && (counts.survey != 0))
-		{
-			survey = Boolean.valueOf(this.assessment.getType() == AssessmentType.survey);
-		}
+		Boolean survey = getDrawSurvey(pool);
 
 		// we need to overdraw by the number of manual questions this assessment uses from the pool
 		List<String> manualQuestionIds = ((AssessmentPartsImpl) this.assessment.getParts()).getPoolPicks(pool, survey);
@@ -274,6 +268,37 @@ public class PoolDrawImpl implements PoolDraw
 		}
 	}
 
+	/**
+	 * Access the question ids the draw picks from, as read when drawing.
+	 * 
+	 * @return The question ids the draw picks from, or an empty list if the pool is missing.
+	 */
+	protected List<String> getDrawQuestionIds()
+	{
+		Pool pool = getPool();
+		if (pool == null) return new ArrayList<String>();
+
+		return pool.getAllQuestionIds(getDrawSurvey(pool), Boolean.TRUE);
+	}
+
+	/**
+	 * Find the survey selection for drawing from the pool.
+	 * 
+	 * @param pool
+	 *        The pool.
+	 * @return For a uniform pool, null, to draw from any survey or not; otherwise match the draw to the assessment type.
+	 */
+	protected Boolean getDrawSurvey(Pool pool)
+	{
+		Pool.PoolCounts counts = pool.getNumQuestionsSurvey();
+		if ((counts.assessment != 0) && (counts.survey != 0))
+		{
+			return Boolean.valueOf(this.assessment.getType() == AssessmentType.survey);
+		}
+
+		return null;
+	}
+
 	/**
 	 * Set as a copy of another.
 	 * 
@@ -542,7 +542,16 @@ public class PoolServiceImpl implements PoolService
 		storage.savePool((PoolImpl) rv);
 
 		// make a copy of the questions
-		this.questionService.copyPoolQuestions(pool, rv, asHistory, oldToNew, attachmentTranslations);
+		try
+		{
+			this.questionService.copyPoolQuestions(pool, rv, asHistory, oldToNew, attachmentTranslations);
+		}
+		catch (RuntimeException e)
+		{
+			// the questions are copied all or none - so if they failed, don't leave the empty pool behind
+			storage.removePool(rv);
+			throw e;
+		}
 
 		if (asHistory)
 		{
@@ -569,13 +578,9 @@ public class PoolServiceImpl implements PoolService
 	{
 		// remove each of our questions
 		List<String> qids = pool.getAllQuestionIds(null, null);
-		for (String qid : qids)
+		for (Question q : this.questionService.getQuestions(qids))
 		{
-			Question q = this.questionService.getQuestion(qid);
-			if (q != null)
-			{
-				this.questionService.doRemoveQuestion(q);
-			}
+			this.questionService.doRemoveQuestion(q);
 		}
 
 		// remove any assessment dependencies on this pool
@@ -0,0 +1,460 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+
+package org.muse.mneme.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.muse.mneme.api.Question;
+
+/**
+ * QuestionSearchIndex is an in-memory inverted index over the text of non-historical questions, for ranked question bank search.<br />
+ * The index covers the presentation text, hints, feedback and type-specific data of each question. Contexts are loaded in full the first time they
+ * are searched, then kept up to date one question at a time. Only the most recently searched contexts are kept; the rest are dropped, to be loaded
+ * again if searched.
+ */
+public class QuestionSearchIndex
+{
+	/**
+	 * The indexed information about one question.
+	 */
+	protected class Entry
+	{
+		String context;
+
+		String poolId;
+
+		Boolean survey;
+
+		Map<String, Integer> terms;
+
+		String type;
+
+		Boolean valid;
+	}
+
+	/** Words too common to be worth indexing. */
+	protected static final Set<String> STOP_WORDS = new HashSet<String>();
+	static
+	{
+		String[] words = {"a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it", "of", "on", "or", "that", "the", "this", "to",
+				"was", "with"};
+		for (String word : words)
+		{
+			STOP_WORDS.add(word);
+		}
+	}
+
+	/** The contexts that have been loaded, least recently searched first. */
+	protected LinkedHashMap<String, Boolean> contexts = new LinkedHashMap<String, Boolean>(16, 0.75f, true);
+
+	/** Indexed questions, keyed by question id. */
+	protected Map<String, Entry> entries = new HashMap<String, Entry>();
+
+	/** The most contexts to keep loaded (0 for no limit). */
+	protected int maxContexts = 0;
+
+	/** For each term, the question ids using the term, with the term's count in the question. */
+	protected TreeMap<String, Map<String, Integer>> postings = new TreeMap<String, Map<String, Integer>>();
+
+	/**
+	 * Construct, keeping any number of contexts.
+	 */
+	public QuestionSearchIndex()
+	{
+	}
+
+	/**
+	 * Construct.
+	 * 
+	 * @param maxContexts
+	 *        The most contexts to keep loaded (0 for no limit).
+	 */
+	public QuestionSearchIndex(int maxContexts)
+	{
+		this.maxContexts = maxContexts;
+	}
+
+	/**
+	 * Break some (possibly html) text into index terms: lower case words, with markup, entities and stop words removed.
+	 * 
+	 * @param text
+	 *        The text.
+	 * @return The terms, in order, with repeats.
+	 */
+	public static List<String> terms(String text)
+	{
+		List<String> rv = new ArrayList<String>();
+		if (text == null) return rv;
+
+		// drop tags and entities
+		text = text.replaceAll("<[^>]*>", " ").replaceAll("&#?[a-zA-Z0-9]+;", " ");
+
+		StringBuilder word = new StringBuilder();
+		for (int i = 0; i <= text.length(); i++)
+		{
+			char c = (i < text.length()) ? text.charAt(i) : ' ';
+			if (Character.isLetterOrDigit(c))
+			{
+				word.append(Character.toLowerCase(c));
+			}
+			else if (word.length() > 0)
+			{
+				String term = word.toString();
+				if (!STOP_WORDS.contains(term)) rv.add(term);
+				word.setLength(0);
+			}
+		}
+
+		return rv;
+	}
+
+	/**
+	 * Add a question to the index, or update it if already indexed. Historical and mint questions are removed instead.
+	 * 
+	 * @param question
+	 *        The question.
+	 */
+	public synchronized void add(QuestionImpl question)
+	{
+		if (question.getId() == null) return;
+
+		remove(question.getId());
+		if (question.getIsHistorical() || question.getMint()) return;
+
+		Entry entry = new Entry();
+		entry.context = question.getContext();
+		entry.poolId = question.getPool().getId();
+		entry.survey = question.getIsSurvey();
+		entry.type = question.getType();
+		entry.valid = question.getIsValid();
+		entry.terms = countTerms(question);
+
+		this.entries.put(question.getId(), entry);
+		for (Map.Entry<String, Integer> term : entry.terms.entrySet())
+		{
+			Map<String, Integer> ids = this.postings.get(term.getKey());
+			if (ids == null)
+			{
+				ids = new HashMap<String, Integer>();
+				this.postings.put(term.getKey(), ids);
+			}
+			ids.put(question.getId(), term.getValue());
+		}
+	}
+
+	/**
+	 * Forget everything.
+	 */
+	public synchronized void clear()
+	{
+		this.contexts.clear();
+		this.entries.clear();
+		this.postings.clear();
+	}
+
+	/**
+	 * Access the loaded contexts.
+	 * 
+	 * @return The loaded contexts, least recently searched first.
+	 */
+	public synchronized List<String> getContexts()
+	{
+		return new ArrayList<String>(this.contexts.keySet());
+	}
+
+	/**
+	 * Check if any context has been loaded.
+	 * 
+	 * @return true if nothing is loaded, false if not.
+	 */
+	public synchronized boolean isEmpty()
+	{
+		return this.contexts.isEmpty();
+	}
+
+	/**
+	 * Check if this context has been loaded.
+	 * 
+	 * @param context
+	 *        The context.
+	 * @return true if loaded, false if not.
+	 */
+	public synchronized boolean isLoaded(String context)
+	{
+		// don't disturb the recent search order
+		return this.contexts.keySet().contains(context);
+	}
+
+	/**
+	 * Load all the non-historical questions of a context, replacing anything we have for the context.
+	 * 
+	 * @param context
+	 *        The context.
+	 * @param questions
+	 *        The context's questions.
+	 */
+	public synchronized void load(String context, List<QuestionImpl> questions)
+	{
+		removeContext(context);
+		for (QuestionImpl question : questions)
+		{
+			add(question);
+		}
+		this.contexts.put(context, Boolean.TRUE);
+
+		// drop the least recently searched contexts, if we have too many
+		while ((this.maxContexts > 0) && (this.contexts.size() > this.maxContexts))
+		{
+			removeContext(this.contexts.keySet().iterator().next());
+		}
+	}
+
+	/**
+	 * Remove this question from the index.
+	 * 
+	 * @param questionId
+	 *        The question id.
+	 */
+	public synchronized void remove(String questionId)
+	{
+		Entry entry = this.entries.remove(questionId);
+		if (entry == null) return;
+
+		for (String term : entry.terms.keySet())
+		{
+			Map<String, Integer> ids = this.postings.get(term);
+			if (ids != null)
+			{
+				ids.remove(questionId);
+				if (ids.isEmpty()) this.postings.remove(term);
+			}
+		}
+	}
+
+	/**
+	 * Find the questions matching every word of the search, best match first.<br />
+	 * The last search word also matches as a prefix, so partial words work as they are typed.
+	 * 
+	 * @param context
+	 *        Limit to questions in this context, or null for any.
+	 * @param poolId
+	 *        Limit to questions in this pool, or null for any.
+	 * @param search
+	 *        The search words.
+	 * @param questionType
+	 *        Limit to questions of this type, or null for any.
+	 * @param survey
+	 *        Limit to survey (TRUE) or non-survey (FALSE) questions, or null for both.
+	 * @param valid
+	 *        Limit to valid (TRUE) or invalid (FALSE) questions, or null for both.
+	 * @return The matching question ids, ranked. May be empty.
+	 */
+	public synchronized List<String> search(String context, String poolId, String search, String questionType, Boolean survey, Boolean valid)
+	{
+		// note the context's use
+		if (context != null) this.contexts.get(context);
+
+		List<String> words = new ArrayList<String>(new LinkedHashSet<String>(terms(search)));
+		if (words.isEmpty()) return new ArrayList<String>();
+
+		final Map<String, Double> scores = new HashMap<String, Double>();
+		double total = this.entries.size();
+		for (int i = 0; i < words.size(); i++)
+		{
+			String word = words.get(i);
+
+			// the term itself (the only key between word and word + \0), and for the last word, any term it starts
+			SortedMap<String, Map<String, Integer>> matches = (i == words.size() - 1) ? this.postings.subMap(word, word + Character.MAX_VALUE)
+					: this.postings.subMap(word, word + Character.MIN_VALUE);
+
+			Map<String, Double> wordScores = new HashMap<String, Double>();
+			for (Map.Entry<String, Map<String, Integer>> match : matches.entrySet())
+			{
+				// rarer terms count more, and a whole word more than a prefix
+				double idf = Math.log(1.0 + total / match.getValue().size());
+				double weight = match.getKey().equals(word) ? 2.0 : 1.0;
+
+				for (Map.Entry<String, Integer> id : match.getValue().entrySet())
+				{
+					if ((i > 0) && (!scores.containsKey(id.getKey()))) continue;
+
+					Entry entry = this.entries.get(id.getKey());
+					if (!accept(entry, context, poolId, questionType, survey, valid)) continue;
+
+					Double score = wordScores.get(id.getKey());
+					wordScores.put(id.getKey(), Double.valueOf(((score == null) ? 0.0 : score.doubleValue()) + weight * idf
+							* (1.0 + Math.log(id.getValue().doubleValue()))));
+				}
+			}
+
+			// keep only the questions matching every word so far
+			if (i > 0)
+			{
+				for (Map.Entry<String, Double> s : wordScores.entrySet())
+				{
+					s.setValue(Double.valueOf(s.getValue().doubleValue() + scores.get(s.getKey()).doubleValue()));
+				}
+			}
+			scores.clear();
+			scores.putAll(wordScores);
+			if (scores.isEmpty()) break;
+		}
+
+		List<String> rv = new ArrayList<String>(scores.keySet());
+		Collections.sort(rv, new Comparator<String>()
+		{
+			public int compare(String arg0, String arg1)
+			{
+				int rv = scores.get(arg1).compareTo(scores.get(arg0));
+				if (rv == 0) rv = arg0.compareTo(arg1);
+				return rv;
+			}
+		});
+
+		return rv;
+	}
+
+	/**
+	 * Check if the question text matches every word of the search, as search() would, without indexing it.
+	 * 
+	 * @param question
+	 *        The question.
+	 * @param search
+	 *        The search words.
+	 * @return true if the question matches, false if not.
+	 */
+	public boolean matches(QuestionImpl question, String search)
+	{
+		List<String> words = terms(search);
+		if (words.isEmpty()) return false;
+
+		TreeMap<String, Integer> questionTerms = new TreeMap<String, Integer>(countTerms(question));
+		for (int i = 0; i < words.size(); i++)
+		{
+			String word = words.get(i);
+			if (i == words.size() - 1)
+			{
+				if (questionTerms.subMap(word, word + Character.MAX_VALUE).isEmpty()) return false;
+			}
+			else if (!questionTerms.containsKey(word))
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Access the number of questions indexed.
+	 * 
+	 * @return The number of questions indexed.
+	 */
+	public synchronized int size()
+	{
+		return this.entries.size();
+	}
+
+	/**
+	 * Check an index entry against the search limits.
+	 * 
+	 * @return true if the entry is within the limits, false if not.
+	 */
+	protected boolean accept(Entry entry, String context, String poolId, String questionType, Boolean survey, Boolean valid)
+	{
+		if (entry == null) return false;
+		if ((context != null) && (!context.equals(entry.context))) return false;
+		if ((poolId != null) && (!poolId.equals(entry.poolId))) return false;
+		if ((questionType != null) && (!questionType.equals(entry.type))) return false;
+		if ((survey != null) && (!survey.equals(entry.survey))) return false;
+		if ((valid != null) && (!valid.equals(entry.valid))) return false;
+
+		return true;
+	}
+
+	/**
+	 * Count the terms in the searchable text of a question.
+	 * 
+	 * @param question
+	 *        The question.
+	 * @return The count of each term.
+	 */
+	protected Map<String, Integer> countTerms(Question question)
+	{
+		List<String> terms = new ArrayList<String>();
+		terms.addAll(terms(question.getPresentation().getText()));
+		terms.addAll(terms(question.getHints()));
+		terms.addAll(terms(question.getFeedback()));
+		if (question.getTypeSpecificQuestion() != null)
+		{
+			String[] data = question.getTypeSpecificQuestion().getData();
+			if (data != null)
+			{
+				for (String d : data)
+				{
+					terms.addAll(terms(d));
+				}
+			}
+		}
+
+		Map<String, Integer> rv = new HashMap<String, Integer>();
+		for (String term : terms)
+		{
+			Integer count = rv.get(term);
+			rv.put(term, Integer.valueOf((count == null) ? 1 : count.intValue() + 1));
+		}
+
+		return rv;
+	}
+
+	/**
+	 * Remove all the questions of a context from the index, and mark it as not loaded.
+	 * 
+	 * @param context
+	 *        The context.
+	 */
+	protected void removeContext(String context)
+	{
+		List<String> ids = new ArrayList<String>();
+		for (Map.Entry<String, Entry> entry : this.entries.entrySet())
+		{
+			if (context.equals(entry.getValue().context)) ids.add(entry.getKey());
+		}
+		for (String id : ids)
+		{
+			remove(id);
+		}
+		this.contexts.remove(context);
+	}
+}
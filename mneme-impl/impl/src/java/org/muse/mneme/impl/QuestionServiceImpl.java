@@ -22,10 +22,15 @@
 package org.muse.mneme.impl;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -39,16 +44,19 @@ import org.muse.mneme.api.SecurityService;
 import org.muse.mneme.api.Translation;
 import org.muse.mneme.api.TypeSpecificQuestion;
 import org.sakaiproject.db.api.SqlService;
+import org.sakaiproject.event.api.Event;
 import org.sakaiproject.event.api.EventTrackingService;
+import org.sakaiproject.memory.api.MemoryService;
 import org.sakaiproject.thread_local.api.ThreadLocalManager;
 import org.sakaiproject.tool.api.SessionManager;
+import org.sakaiproject.util.StringUtil;
 
 /**
  * <p>
  * QuestionServiceImpl implements QuestionService
  * </p>
  */
-public class QuestionServiceImpl implements QuestionService
+public class QuestionServiceImpl implements QuestionService, Observer
 {
 	public class QuestionCountsContext
 	{
@@ -89,12 +97,42 @@ public class QuestionServiceImpl implements QuestionService
 	/** Dependency: EventTrackingService */
 	protected EventTrackingService eventTrackingService = null;
 
+	/** Historical questions, kept on this server only - they never change, so are never invalidated, only dropped when deleted. */
+	protected MnemeCacheImpl historicalCache = null;
+
+	/** The maximum number of historical questions to cache. */
+	protected int historicalCacheSize = 5000;
+
+	/** Dependency: MemoryService */
+	protected MemoryService memoryService = null;
+
 	/** Dependency: MnemeService */
 	protected MnemeService mnemeService = null;
 
+	/** Pool question id lists, dropped on any question event (from this or any other app server), and kept only a short time. */
+	protected MnemeCacheImpl poolQuestionsCache = null;
+
+	/** The maximum number of pool question id lists to cache. */
+	protected int poolQuestionsCacheSize = 500;
+
 	/** Dependency: PoolService */
 	protected PoolServiceImpl poolService = null;
 
+	/** Non-historical questions, dropped on question events (from this or any other app server), and kept only a short time. */
+	protected MnemeCacheImpl questionCache = null;
+
+	/** The # seconds a non-historical question may stay in the question cache. */
+	protected int questionCacheSeconds = 5 * 60;
+
+	/** The maximum number of non-historical questions to cache. */
+	protected int questionCacheSize = 2000;
+
+	/** The question bank search index. */
+	protected QuestionSearchIndex searchIndex = null;
+
+	/** The most contexts to keep in the search index. */
+	protected int searchIndexContexts = 200;
+
 	/** Dependency: SecurityService */
 	protected SecurityService securityService = null;
 
@@ -254,6 +292,12 @@ public class QuestionServiceImpl implements QuestionService
 
 		if (pool == null) throw new IllegalArgumentException();
 
+		// searches come from the search index
+		if (StringUtil.trimToNull(search) != null)
+		{
+			return Integer.valueOf(searchQuestions(pool.getContext(), pool, search, questionType, survey, valid).size());
+		}
+
 		String key = cacheKeyPoolCount(pool.getId());
 		String secondaryKey = questionType + ":" + valid;
 		Pool.PoolCounts counts = null;
@@ -302,7 +346,11 @@ public class QuestionServiceImpl implements QuestionService
 	{
 		if (context == null) throw new IllegalArgumentException();
 
-		// TODO: search
+		// searches come from the search index
+		if (StringUtil.trimToNull(search) != null)
+		{
+			return Integer.valueOf(searchQuestions(context, null, search, questionType, survey, valid).size());
+		}
 
 		String key = cacheKeyContextCount(context);
 		String secondaryKey = questionType + ":" + survey + ":" + valid;
@@ -341,6 +389,27 @@ public class QuestionServiceImpl implements QuestionService
 	 */
 	public void destroy()
 	{
+		// stop watching for question changes
+		this.eventTrackingService.deleteObserver(this);
+		if (this.searchIndex != null) this.searchIndex.clear();
+
+		// drop the caches
+		if (this.historicalCache != null)
+		{
+			this.historicalCache.destroy();
+			this.historicalCache = null;
+		}
+		if (this.questionCache != null)
+		{
+			this.questionCache.destroy();
+			this.questionCache = null;
+		}
+		if (this.poolQuestionsCache != null)
+		{
+			this.poolQuestionsCache.destroy();
+			this.poolQuestionsCache = null;
+		}
+
 		M_log.info("destroy()");
 	}
 
@@ -383,9 +452,13 @@ public class QuestionServiceImpl implements QuestionService
 	{
 		if (pool == null) throw new IllegalArgumentException();
 
-		// TODO: search
+		if (M_log.isDebugEnabled()) M_log.debug("findQuestions: pool: " + pool.getId() + " search: " + search);
 
-		if (M_log.isDebugEnabled()) M_log.debug("findQuestions: pool: " + pool.getId());
+		// searches come from the search index, ranked
+		if (StringUtil.trimToNull(search) != null)
+		{
+			return getQuestions(page(searchQuestions(pool.getContext(), pool, search, questionType, survey, valid), pageNum, pageSize));
+		}
 
 		return new ArrayList<Question>(this.storage.findPoolQuestions(pool, sort, questionType, pageNum, pageSize, survey, valid));
 	}
@@ -398,9 +471,13 @@ public class QuestionServiceImpl implements QuestionService
 	{
 		if (context == null) throw new IllegalArgumentException();
 
-		// TODO: search
+		if (M_log.isDebugEnabled()) M_log.debug("findQuestions: context: " + context + " search: " + search);
 
-		if (M_log.isDebugEnabled()) M_log.debug("findQuestions: context: " + context);
+		// searches come from the search index, ranked
+		if (StringUtil.trimToNull(search) != null)
+		{
+			return getQuestions(page(searchQuestions(context, null, search, questionType, survey, valid), pageNum, pageSize));
+		}
 
 		return new ArrayList<Question>(this.storage.findContextQuestions(context, sort, questionType, pageNum, pageSize, survey, valid));
 	}
@@ -419,6 +496,8 @@ public class QuestionServiceImpl implements QuestionService
 
 		// clear thread-local caches
 		this.threadLocalManager.set(cacheKey(question.getId()), null);
+		uncacheQuestion(question.getId(), question.getIsHistorical());
+		uncachePoolQuestions(question.getPool().getId());
 		this.threadLocalManager.set(this.cacheKeyPoolCount(question.getPool().getId()), null);
 		this.threadLocalManager.set(this.cacheKeyContextCount(question.getContext()), null);
 		this.threadLocalManager.set(this.cacheKeyPoolQuestions(question.getPool().getId()), null);
@@ -440,10 +519,20 @@ public class QuestionServiceImpl implements QuestionService
 			questions = cached.map.get(secondaryKey);
 		}
 
-		// if not, get from storage
+		// then the shared cache, and if not there, get from storage
 		if (questions == null)
 		{
-			questions = this.storage.getPoolQuestions(pool, survey, valid);
+			String sharedKey = key + ":" + secondaryKey;
+			if (this.poolQuestionsCache != null) questions = (List<String>) this.poolQuestionsCache.get(sharedKey);
+			if (questions == null)
+			{
+				long version = cacheVersion(this.poolQuestionsCache);
+				questions = this.storage.getPoolQuestions(pool, survey, valid);
+				if (this.poolQuestionsCache != null)
+				{
+					this.poolQuestionsCache.putIfCurrent(sharedKey, new ArrayList<String>(questions), this.questionCacheSeconds, version);
+				}
+			}
 
 			// cache
 			if (cached == null)
@@ -475,12 +564,88 @@ public class QuestionServiceImpl implements QuestionService
 			return this.storage.clone(rv);
 		}
 
+		// check the shared caches
+		rv = getCachedQuestion(questionId);
+		if (rv != null)
+		{
+			// thread-local cache (a copy), and return a copy
+			this.threadLocalManager.set(key, this.storage.clone(rv));
+			return this.storage.clone(rv);
+		}
+
 		if (M_log.isDebugEnabled()) M_log.debug("getQuestion: " + questionId);
 
+		long historicalVersion = cacheVersion(this.historicalCache);
+		long questionVersion = cacheVersion(this.questionCache);
 		rv = this.storage.getQuestion(questionId);
 
-		// thread-local cache (a copy)
-		if (rv != null) this.threadLocalManager.set(key, this.storage.clone(rv));
+		if (rv != null)
+		{
+			// thread-local cache (a copy)
+			this.threadLocalManager.set(key, this.storage.clone(rv));
+
+			// shared cache (a copy), unless something changed while we were reading
+			cacheQuestion(rv, historicalVersion, questionVersion);
+		}
+
+		return rv;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<Question> getQuestions(Collection<String> questionIds)
+	{
+		if (questionIds == null) throw new IllegalArgumentException();
+
+		// take what we have thread-local or shared cached, and collect the rest to read
+		Map<String, QuestionImpl> found = new HashMap<String, QuestionImpl>();
+		Set<String> seen = new HashSet<String>();
+		List<String> needed = new ArrayList<String>();
+		for (String id : questionIds)
+		{
+			if (id == null) throw new IllegalArgumentException();
+			if (!seen.add(id)) continue;
+
+			QuestionImpl question = (QuestionImpl) this.threadLocalManager.get(cacheKey(id));
+			if (question == null)
+			{
+				question = getCachedQuestion(id);
+				if (question != null) this.threadLocalManager.set(cacheKey(id), this.storage.clone(question));
+			}
+
+			if (question != null)
+			{
+				found.put(id, question);
+			}
+			else
+			{
+				needed.add(id);
+			}
+		}
+
+		if (M_log.isDebugEnabled()) M_log.debug("getQuestions: " + questionIds.size() + " reading: " + needed.size());
+
+		// read the rest together, and thread-local and shared cache them
+		if (!needed.isEmpty())
+		{
+			long historicalVersion = cacheVersion(this.historicalCache);
+			long questionVersion = cacheVersion(this.questionCache);
+			for (QuestionImpl question : this.storage.getQuestions(needed))
+			{
+				this.threadLocalManager.set(cacheKey(question.getId()), question);
+				cacheQuestion(question, historicalVersion, questionVersion);
+				found.put(question.getId(), question);
+			}
+		}
+
+		// in the caller's order - each a copy
+		List<Question> rv = new ArrayList<Question>(questionIds.size());
+		for (String id : questionIds)
+		{
+			QuestionImpl question = found.get(id);
+			if (question != null) rv.add(this.storage.clone(question));
+		}
 
 		return rv;
 	}
@@ -514,7 +679,29 @@ public class QuestionServiceImpl implements QuestionService
 
 			storage.init();
 
-			M_log.info("init() storage: " + this.storage);
+			// the question caches - historical questions never change, so need no events, and stay till pushed out
+			if (this.historicalCacheSize > 0)
+			{
+				this.historicalCache = new MnemeCacheImpl(this.memoryService, this.eventTrackingService, this.historicalCacheSize, null, null);
+			}
+			if (this.questionCacheSize > 0)
+			{
+				this.questionCache = new MnemeCacheImpl(this.memoryService, this.eventTrackingService, this.questionCacheSize, null, null);
+			}
+			if (this.poolQuestionsCacheSize > 0)
+			{
+				this.poolQuestionsCache = new MnemeCacheImpl(this.memoryService, this.eventTrackingService, this.poolQuestionsCacheSize, null, null);
+			}
+
+			// the search index - loaded a context at a time, as searched
+			this.searchIndex = new QuestionSearchIndex(this.searchIndexContexts);
+
+			// keep the search index and question caches current by watching for question changes (here and on other servers)
+			this.eventTrackingService.addPriorityObserver(this);
+
+			M_log.info("init() historical cache size: " + this.historicalCacheSize + " question cache size: " + this.questionCacheSize
+					+ " pool questions cache size: " + this.poolQuestionsCacheSize + " search index contexts: " + this.searchIndexContexts + " storage: "
+					+ this.storage);
 		}
 		catch (Throwable t)
 		{
@@ -553,9 +740,21 @@ public class QuestionServiceImpl implements QuestionService
 		// clear the cache
 		String key = cacheKey(question.getId());
 		this.threadLocalManager.set(key, null);
+		uncacheQuestion(question.getId(), Boolean.FALSE);
 
 		// do the move
+		Pool from = question.getPool();
 		this.storage.moveQuestion(question, pool);
+		uncachePoolQuestions(from.getId());
+		uncachePoolQuestions(pool.getId());
+		this.threadLocalManager.set(this.cacheKeyPoolCount(from.getId()), null);
+		this.threadLocalManager.set(this.cacheKeyPoolQuestions(from.getId()), null);
+		this.threadLocalManager.set(this.cacheKeyPoolCount(pool.getId()), null);
+		this.threadLocalManager.set(this.cacheKeyPoolQuestions(pool.getId()), null);
+
+		// the assessments that draw from the pool the question left may have changed validity and totals
+		// (the edit event takes care of those that draw from the new pool)
+		this.assessmentService.summarizeDependentAssessments(from.getId(), null);
 
 		// event
 		eventTrackingService.post(eventTrackingService.newEvent(MnemeService.QUESTION_EDIT, getQuestionReference(question.getId()), true));
@@ -617,6 +816,23 @@ public class QuestionServiceImpl implements QuestionService
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public void rebuildSearchIndex()
+	{
+		if (M_log.isDebugEnabled()) M_log.debug("rebuildSearchIndex");
+
+		// re-read the questions of the contexts we are indexing - the others are read when first searched
+		List<String> contexts = this.searchIndex.getContexts();
+		for (String context : contexts)
+		{
+			this.searchIndex.load(context, this.storage.findContextQuestions(context, FindQuestionsSort.cdate_a, null, null, null, null, null));
+		}
+
+		M_log.info("rebuildSearchIndex: contexts: " + contexts.size() + " questions: " + this.searchIndex.size());
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -701,6 +917,28 @@ public class QuestionServiceImpl implements QuestionService
 		eventTrackingService = service;
 	}
 
+	/**
+	 * Set the maximum number of historical questions to cache.
+	 * 
+	 * @param size
+	 *        The maximum number of historical questions to cache - 0 disables the cache.
+	 */
+	public void setHistoricalCacheSize(String size)
+	{
+		this.historicalCacheSize = Integer.parseInt(size);
+	}
+
+	/**
+	 * Dependency: MemoryService.
+	 * 
+	 * @param service
+	 *        The MemoryService.
+	 */
+	public void setMemoryService(MemoryService service)
+	{
+		this.memoryService = service;
+	}
+
 	/**
 	 * Dependency: MnemeService.
 	 * 
@@ -712,6 +950,17 @@ public class QuestionServiceImpl implements QuestionService
 		mnemeService = service;
 	}
 
+	/**
+	 * Set the maximum number of pool question id lists to cache.
+	 * 
+	 * @param size
+	 *        The maximum number of pool question id lists to cache - 0 disables the cache.
+	 */
+	public void setPoolQuestionsCacheSize(String size)
+	{
+		this.poolQuestionsCacheSize = Integer.parseInt(size);
+	}
+
 	/**
 	 * Dependency: PoolService.
 	 * 
@@ -723,6 +972,39 @@ public class QuestionServiceImpl implements QuestionService
 		poolService = service;
 	}
 
+	/**
+	 * Set the # seconds a non-historical question may stay in the question cache.
+	 * 
+	 * @param time
+	 *        The # seconds a non-historical question may stay in the question cache.
+	 */
+	public void setQuestionCacheSeconds(String time)
+	{
+		this.questionCacheSeconds = Integer.parseInt(time);
+	}
+
+	/**
+	 * Set the maximum number of non-historical questions to cache.
+	 * 
+	 * @param size
+	 *        The maximum number of non-historical questions to cache - 0 disables the cache.
+	 */
+	public void setQuestionCacheSize(String size)
+	{
+		this.questionCacheSize = Integer.parseInt(size);
+	}
+
+	/**
+	 * Set the most contexts to keep in the question bank search index.
+	 * 
+	 * @param count
+	 *        The most contexts to keep in the search index - 0 for no limit.
+	 */
+	public void setSearchIndexContexts(String count)
+	{
+		this.searchIndexContexts = Integer.parseInt(count);
+	}
+
 	/**
 	 * Dependency: SecurityService.
 	 * 
@@ -800,6 +1082,61 @@ public class QuestionServiceImpl implements QuestionService
 		threadLocalManager = service;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public void update(Observable o, Object arg)
+	{
+		// arg is Event
+		if (!(arg instanceof Event)) return;
+		Event event = (Event) arg;
+
+		// we only care about question changes
+		String function = event.getEvent();
+		if (!(MnemeService.QUESTION_NEW.equals(function) || MnemeService.QUESTION_EDIT.equals(function) || MnemeService.QUESTION_DELETE
+				.equals(function))) return;
+
+		// the question id is the last part of the reference
+		String ref = event.getResource();
+		if (ref == null) return;
+		String id = ref.substring(ref.lastIndexOf('/') + 1);
+
+		if (M_log.isDebugEnabled()) M_log.debug("update: " + function + " : " + id);
+
+		// drop any shared cached copy - only historical questions are in the historical cache
+		uncacheQuestion(id, (this.historicalCache != null) && this.historicalCache.containsKeyExpiredOrNot(getQuestionReference(id)));
+
+		// drop the question id lists of the pool the question is now in, and of any pool it may have left
+		if (!MnemeService.QUESTION_DELETE.equals(function))
+		{
+			String poolId = this.storage.getQuestionPool(id);
+			if (poolId != null) uncachePoolQuestions(poolId);
+		}
+		if (!MnemeService.QUESTION_NEW.equals(function)) uncachePoolQuestionsWith(id);
+
+		// re-index only if we are indexing
+		if (this.searchIndex.isEmpty()) return;
+
+		// drop a deleted question, or one whose context we are not indexing
+		String context = MnemeService.QUESTION_DELETE.equals(function) ? null : this.storage.getQuestionContext(id);
+		if ((context == null) || (!this.searchIndex.isLoaded(context)))
+		{
+			this.searchIndex.remove(id);
+			return;
+		}
+
+		// re-index the question
+		QuestionImpl question = this.storage.getQuestion(id);
+		if (question != null)
+		{
+			this.searchIndex.add(question);
+		}
+		else
+		{
+			this.searchIndex.remove(id);
+		}
+	}
+
 	/**
 	 * Form a key for caching a question.
 	 * 
@@ -849,6 +1186,45 @@ public class QuestionServiceImpl implements QuestionService
 		return "mneme:question:pool:questions:" + poolId;
 	}
 
+	/**
+	 * Put a copy of this question, just read, into the shared cache for its kind, unless that cache has changed since the read started.<br />
+	 * Mint questions are still being authored, and are not shared cached.
+	 * 
+	 * @param question
+	 *        The question.
+	 * @param historicalVersion
+	 *        The historical cache version taken before the read.
+	 * @param questionVersion
+	 *        The question cache version taken before the read.
+	 */
+	protected void cacheQuestion(QuestionImpl question, long historicalVersion, long questionVersion)
+	{
+		if (question.getMint()) return;
+
+		String ref = getQuestionReference(question.getId());
+		if (question.getIsHistorical())
+		{
+			if (this.historicalCache != null) this.historicalCache.putIfCurrent(ref, this.storage.clone(question), 0, historicalVersion);
+		}
+		else if (this.questionCache != null)
+		{
+			this.questionCache.putIfCurrent(ref, this.storage.clone(question), this.questionCacheSeconds, questionVersion);
+		}
+	}
+
+	/**
+	 * Take the version of a shared cache, before a read that may end up cached.
+	 * 
+	 * @param cache
+	 *        The cache, may be null.
+	 * @return The cache version, or 0 if there is no cache.
+	 */
+	protected long cacheVersion(MnemeCacheImpl cache)
+	{
+		if (cache == null) return 0;
+		return cache.getVersion();
+	}
+
 	/**
 	 * Copy the questions from source to destination, possibly marked as historical, possibly with attachment translation.
 	 * 
@@ -910,10 +1286,15 @@ public class QuestionServiceImpl implements QuestionService
 
 		// clear caches
 		this.threadLocalManager.set(cacheKey(question.getId()), null);
+		uncacheQuestion(question.getId(), question.getIsHistorical());
+		uncachePoolQuestions(question.getPool().getId());
 		this.threadLocalManager.set(this.cacheKeyPoolCount(question.getPool().getId()), null);
 		this.threadLocalManager.set(this.cacheKeyContextCount(question.getContext()), null);
 		this.threadLocalManager.set(this.cacheKeyPoolQuestions(question.getPool().getId()), null);
 
+		// the assessments that draw from the question's pool may have changed validity and totals
+		this.assessmentService.summarizeDependentAssessments(currentPool.getId(), null);
+
 		// event
 		eventTrackingService.post(eventTrackingService.newEvent(MnemeService.QUESTION_DELETE, getQuestionReference(question.getId()), true));
 	}
@@ -953,6 +1334,8 @@ public class QuestionServiceImpl implements QuestionService
 
 		// clear thread-local caches
 		this.threadLocalManager.set(cacheKey(question.getId()), null);
+		uncacheQuestion(question.getId(), question.getIsHistorical());
+		uncachePoolQuestions(question.getPool().getId());
 		this.threadLocalManager.set(this.cacheKeyPoolCount(question.getPool().getId()), null);
 		this.threadLocalManager.set(this.cacheKeyContextCount(question.getContext()), null);
 		this.threadLocalManager.set(this.cacheKeyPoolQuestions(question.getPool().getId()), null);
@@ -961,6 +1344,38 @@ public class QuestionServiceImpl implements QuestionService
 		eventTrackingService.post(eventTrackingService.newEvent(event, getQuestionReference(question.getId()), true));
 	}
 
+	/**
+	 * Find the attachment references embedded in the questions of the pools in this context, from the reference index.
+	 * 
+	 * @param context
+	 *        The context.
+	 * @return The attachment references (normalized), each once.
+	 */
+	protected Set<String> getContextReferences(String context)
+	{
+		if (M_log.isDebugEnabled()) M_log.debug("getContextReferences: " + context);
+
+		return this.storage.getContextReferences(context);
+	}
+
+	/**
+	 * Find a question in the shared caches.<br />
+	 * The cached question must not be modified - callers must make their own copy.
+	 * 
+	 * @param questionId
+	 *        The question id.
+	 * @return The cached question, or null if not cached.
+	 */
+	protected QuestionImpl getCachedQuestion(String questionId)
+	{
+		String ref = getQuestionReference(questionId);
+		QuestionImpl rv = null;
+		if (this.historicalCache != null) rv = (QuestionImpl) this.historicalCache.get(ref);
+		if ((rv == null) && (this.questionCache != null)) rv = (QuestionImpl) this.questionCache.get(ref);
+
+		return rv;
+	}
+
 	/**
 	 * Form an question reference for this question id.
 	 * 
@@ -974,6 +1389,81 @@ public class QuestionServiceImpl implements QuestionService
 		return ref;
 	}
 
+	/**
+	 * Select a page from a list.
+	 * 
+	 * @param all
+	 *        The full list.
+	 * @param pageNum
+	 *        The page number (1 based), or null for all.
+	 * @param pageSize
+	 *        The page size, or null for all.
+	 * @return The page.
+	 */
+	protected List<String> page(List<String> all, Integer pageNum, Integer pageSize)
+	{
+		if ((pageNum == null) || (pageSize == null)) return all;
+
+		int start = Math.max((pageNum - 1) * pageSize, 0);
+		int end = Math.max(Math.min(pageNum * pageSize, all.size()), 0);
+		if (start >= end) return new ArrayList<String>();
+
+		return all.subList(start, end);
+	}
+
+	/**
+	 * Search the question bank, ranked. Results are cached thread-local, so a count and a find for the same search do the work once.
+	 * 
+	 * @param context
+	 *        The context.
+	 * @param pool
+	 *        Limit to this pool, or null for the whole context.
+	 * @param search
+	 *        The search words.
+	 * @param questionType
+	 *        Limit to this type, or null for any.
+	 * @param survey
+	 *        Limit to survey (TRUE) or non-survey (FALSE), or null for both.
+	 * @param valid
+	 *        Limit to valid (TRUE) or invalid (FALSE), or null for both.
+	 * @return The matching question ids, best match first.
+	 */
+	@SuppressWarnings("unchecked")
+	protected List<String> searchQuestions(String context, Pool pool, String search, String questionType, Boolean survey, Boolean valid)
+	{
+		String key = "mneme:question:search:" + context + ":" + ((pool == null) ? null : pool.getId()) + ":" + questionType + ":" + survey + ":"
+				+ valid + ":" + search;
+		List<String> rv = (List<String>) this.threadLocalManager.get(key);
+		if (rv != null) return rv;
+
+		if (M_log.isDebugEnabled())
+			M_log.debug("searchQuestions: context: " + context + " pool: " + ((pool == null) ? null : pool.getId()) + " search: " + search);
+
+		// historical pools are not indexed - check their questions directly
+		if ((pool != null) && pool.getIsHistorical())
+		{
+			rv = new ArrayList<String>();
+			for (QuestionImpl question : this.storage.findPoolQuestions(pool, FindQuestionsSort.cdate_a, questionType, null, null, survey, valid))
+			{
+				if (this.searchIndex.matches(question, search)) rv.add(question.getId());
+			}
+		}
+
+		else
+		{
+			// index the context's questions the first time it is searched
+			if (!this.searchIndex.isLoaded(context))
+			{
+				this.searchIndex.load(context, this.storage.findContextQuestions(context, FindQuestionsSort.cdate_a, null, null, null, null, null));
+			}
+
+			rv = this.searchIndex.search(context, (pool == null) ? null : pool.getId(), search, questionType, survey, valid);
+		}
+
+		this.threadLocalManager.set(key, rv);
+		return rv;
+	}
+
 	/**
 	 * Set the question type, and set it up with a type-specific handler.
 	 * 
@@ -1002,4 +1492,58 @@ public class QuestionServiceImpl implements QuestionService
 			M_log.warn("setTypeHandler: no plugin for type: " + type);
 		}
 	}
+
+	/**
+	 * Drop this pool's question id lists, for each survey and valid selection, from the shared cache.
+	 * 
+	 * @param poolId
+	 *        The pool id.
+	 */
+	protected void uncachePoolQuestions(String poolId)
+	{
+		if (this.poolQuestionsCache == null) return;
+
+		Boolean[] selections = {null, Boolean.TRUE, Boolean.FALSE};
+		String key = cacheKeyPoolQuestions(poolId);
+		for (Boolean survey : selections)
+		{
+			for (Boolean valid : selections)
+			{
+				this.poolQuestionsCache.remove(key + ":" + survey + ":" + valid);
+			}
+		}
+	}
+
+	/**
+	 * Drop from the shared cache the pool question id lists that hold this question, which it may have left - we may not know its old pool.
+	 * 
+	 * @param questionId
+	 *        The question id.
+	 */
+	protected void uncachePoolQuestionsWith(String questionId)
+	{
+		if (this.poolQuestionsCache == null) return;
+
+		for (Object key : this.poolQuestionsCache.getKeys())
+		{
+			List<String> questions = (List<String>) this.poolQuestionsCache.getExpiredOrNot(key);
+			if ((questions != null) && questions.contains(questionId)) this.poolQuestionsCache.remove(key);
+		}
+	}
+
+	/**
+	 * Drop this question from the shared caches.
+	 * 
+	 * @param questionId
+	 *        The question id.
+	 * @param historical
+	 *        TRUE if the question is historical - only then is it dropped from the historical cache, so the historical cache's version is not bumped
+	 *        by changes to current questions.
+	 */
+	protected void uncacheQuestion(String questionId, Boolean historical)
+	{
+		String ref = getQuestionReference(questionId);
+		if ((this.historicalCache != null) && historical) this.historicalCache.remove(ref);
+		if (this.questionCache != null) this.questionCache.remove(ref);
+	}
 }
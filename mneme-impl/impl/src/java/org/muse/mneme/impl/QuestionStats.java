@@ -0,0 +1,239 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+
+package org.muse.mneme.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.muse.mneme.api.Answer;
+import org.muse.mneme.api.AnswerDistribution;
+import org.muse.mneme.api.Question;
+import org.muse.mneme.api.Submission;
+
+/**
+ * QuestionStats holds the distribution of the answers to one question across the completed submissions to an assessment, for item analysis.<br />
+ * Answers are added one at a time as submissions complete, so reading a count never re-visits the submissions.
+ */
+public class QuestionStats implements AnswerDistribution
+{
+	/** Count of each choice id picked for each match id (from pairs of answer data: match id, choice id). */
+	protected Map<String, Map<String, Integer>> matches = new HashMap<String, Map<String, Integer>>();
+
+	/** Count of each answer data value at each position (fill-in). */
+	protected List<Map<String, Integer>> positions = new ArrayList<Map<String, Integer>>();
+
+	/** Count of answers. */
+	protected int total = 0;
+
+	/** Count of unanswered answers. */
+	protected int unanswered = 0;
+
+	/** Count of each answer data value, anywhere in the answer data. */
+	protected Map<String, Integer> values = new HashMap<String, Integer>();
+
+	/**
+	 * Construct, empty.
+	 */
+	public QuestionStats()
+	{
+	}
+
+	/**
+	 * Construct, adding the question's answers from the completed submissions in this list.
+	 * 
+	 * @param question
+	 *        The question.
+	 * @param submissions
+	 *        The submissions.
+	 */
+	public QuestionStats(Question question, List<Submission> submissions)
+	{
+		for (Submission s : submissions)
+		{
+			if (s.getIsPhantom()) continue;
+			if (!s.getIsComplete()) continue;
+
+			Answer a = s.getAnswer(question);
+			if (a != null)
+			{
+				add(a);
+			}
+		}
+	}
+
+	/**
+	 * Count this answer.
+	 * 
+	 * @param answer
+	 *        The answer.
+	 */
+	public synchronized void add(Answer answer)
+	{
+		this.total++;
+
+		if (!answer.getIsAnswered())
+		{
+			this.unanswered++;
+			return;
+		}
+
+		String[] data = answer.getTypeSpecificAnswer().getData();
+		if (data == null) return;
+
+		for (int i = 0; i < data.length; i++)
+		{
+			if (this.positions.size() <= i)
+			{
+				this.positions.add(new HashMap<String, Integer>());
+			}
+
+			if (data[i] != null)
+			{
+				increment(this.values, data[i]);
+				increment(this.positions.get(i), data[i]);
+			}
+		}
+
+		// Note: match answer data is match id, choice id, etc...
+		for (int i = 0; i + 1 < data.length; i += 2)
+		{
+			if ((data[i] != null) && (data[i + 1] != null))
+			{
+				Map<String, Integer> choices = this.matches.get(data[i]);
+				if (choices == null)
+				{
+					choices = new HashMap<String, Integer>();
+					this.matches.put(data[i], choices);
+				}
+				increment(choices, data[i + 1]);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public synchronized Integer getMatchCount(String matchId, String choiceId)
+	{
+		Map<String, Integer> choices = this.matches.get(matchId);
+		if (choices == null) return Integer.valueOf(0);
+
+		return Integer.valueOf(count(choices, choiceId));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public synchronized Integer getPositionCount(Integer pos, String value, Boolean caseSensitive)
+	{
+		if ((pos < 0) || (pos >= this.positions.size())) return Integer.valueOf(0);
+		Map<String, Integer> counts = this.positions.get(pos);
+
+		if (caseSensitive) return Integer.valueOf(count(counts, value));
+
+		int rv = 0;
+		for (Map.Entry<String, Integer> entry : counts.entrySet())
+		{
+			if (entry.getKey().equalsIgnoreCase(value))
+			{
+				rv += entry.getValue().intValue();
+			}
+		}
+
+		return Integer.valueOf(rv);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public synchronized List<String> getPositionValues(Integer pos, Boolean caseSensitive)
+	{
+		List<String> rv = new ArrayList<String>();
+		if ((pos < 0) || (pos >= this.positions.size())) return rv;
+
+		for (String value : this.positions.get(pos).keySet())
+		{
+			if (!caseSensitive) value = value.toLowerCase();
+			if (!rv.contains(value)) rv.add(value);
+		}
+
+		Collections.sort(rv);
+
+		return rv;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public synchronized Integer getTotal()
+	{
+		return Integer.valueOf(this.total);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public synchronized Integer getUnanswered()
+	{
+		return Integer.valueOf(this.unanswered);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public synchronized Integer getValueCount(String value)
+	{
+		return Integer.valueOf(count(this.values, value));
+	}
+
+	/**
+	 * Read a count from a map of counts.
+	 * 
+	 * @param counts
+	 *        The counts.
+	 * @param key
+	 *        The key.
+	 * @return The count for the key, 0 if missing.
+	 */
+	protected int count(Map<String, Integer> counts, String key)
+	{
+		Integer count = counts.get(key);
+		return (count == null) ? 0 : count.intValue();
+	}
+
+	/**
+	 * Increment a count in a map of counts.
+	 * 
+	 * @param counts
+	 *        The counts.
+	 * @param key
+	 *        The key.
+	 */
+	protected void increment(Map<String, Integer> counts, String key)
+	{
+		counts.put(key, Integer.valueOf(count(counts, key) + 1));
+	}
+}
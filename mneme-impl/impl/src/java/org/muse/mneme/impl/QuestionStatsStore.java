@@ -0,0 +1,300 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+
+package org.muse.mneme.impl;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.muse.mneme.api.Answer;
+import org.muse.mneme.api.Assessment;
+import org.muse.mneme.api.Question;
+
+/**
+ * QuestionStatsStore keeps the item analysis statistics (QuestionStats) for each question of the assessments recently asked for.<br />
+ * An assessment's statistics are read from storage once, then kept current by adding each submission as it completes.
+ */
+public class QuestionStatsStore
+{
+	/**
+	 * The statistics for one assessment.
+	 */
+	protected static class AssessmentStats
+	{
+		/** Set once the read of the completed submissions is done - true if it failed. */
+		protected boolean failed = false;
+
+		/** Set once the read of the completed submissions is done. */
+		protected boolean loaded = false;
+
+		/** The question stats, keyed by question id. */
+		protected Map<String, QuestionStats> questions = new HashMap<String, QuestionStats>();
+
+		/** The ids of the submissions counted. */
+		protected Set<String> submissionIds = new HashSet<String>();
+	}
+
+	/** The assessment stats, keyed by assessment id, least recently used first. */
+	protected Map<String, AssessmentStats> assessments = null;
+
+	/** The most assessments to keep. */
+	protected int maxSize = 0;
+
+	/** The submission storage. */
+	protected SubmissionStorage storage = null;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param storage
+	 *        The submission storage.
+	 * @param maxSize
+	 *        The most assessments to keep.
+	 */
+	public QuestionStatsStore(SubmissionStorage storage, int maxSize)
+	{
+		this.storage = storage;
+		this.maxSize = maxSize;
+		this.assessments = new LinkedHashMap<String, AssessmentStats>(16, 0.75f, true)
+		{
+			protected boolean removeEldestEntry(Map.Entry<String, AssessmentStats> eldest)
+			{
+				return size() > QuestionStatsStore.this.maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Count the answers of this completed submission in its assessment's stats - if we are keeping them, and it has not been counted.
+	 * 
+	 * @param assessmentId
+	 *        The submission's assessment id.
+	 * @param submissionId
+	 *        The submission id.
+	 * @param answers
+	 *        The submission's answers.
+	 */
+	public void add(String assessmentId, String submissionId, List<Answer> answers)
+	{
+		AssessmentStats stats = null;
+		synchronized (this.assessments)
+		{
+			stats = this.assessments.get(assessmentId);
+		}
+		if (stats == null) return;
+
+		add(stats, submissionId, answers);
+	}
+
+	/**
+	 * Clear all the stats.
+	 */
+	public void clear()
+	{
+		synchronized (this.assessments)
+		{
+			this.assessments.clear();
+		}
+	}
+
+	/**
+	 * Get the stats for this question in this assessment, reading the assessment's completed submissions if we are not already keeping them.
+	 * 
+	 * @param assessment
+	 *        The assessment.
+	 * @param question
+	 *        The question.
+	 * @return The QuestionStats for the question.
+	 */
+	public QuestionStats getQuestionStats(Assessment assessment, Question question)
+	{
+		AssessmentStats stats = null;
+		boolean load = false;
+		synchronized (this.assessments)
+		{
+			stats = this.assessments.get(assessment.getId());
+			if (stats == null)
+			{
+				// put in a placeholder before reading, so submissions that complete while we read are counted as they complete
+				stats = new AssessmentStats();
+				this.assessments.put(assessment.getId(), stats);
+				load = true;
+			}
+		}
+
+		if (load)
+		{
+			load(assessment, stats);
+		}
+
+		synchronized (stats)
+		{
+			// wait for the read, by us or another thread - if it failed, try again
+			boolean interrupted = false;
+			while (!stats.loaded)
+			{
+				try
+				{
+					stats.wait();
+				}
+				catch (InterruptedException e)
+				{
+					interrupted = true;
+				}
+			}
+			if (interrupted) Thread.currentThread().interrupt();
+			if (stats.failed) return getQuestionStats(assessment, question);
+
+			QuestionStats rv = stats.questions.get(question.getId());
+			if (rv == null)
+			{
+				// no answers to this question
+				rv = new QuestionStats();
+				stats.questions.put(question.getId(), rv);
+			}
+
+			return rv;
+		}
+	}
+
+	/**
+	 * Check if we are keeping the stats for this assessment.
+	 * 
+	 * @param assessmentId
+	 *        The assessment id.
+	 * @return true if we are, false if not.
+	 */
+	public boolean isLoaded(String assessmentId)
+	{
+		synchronized (this.assessments)
+		{
+			// don't disturb the recent use order
+			return this.assessments.containsKey(assessmentId);
+		}
+	}
+
+	/**
+	 * Check if we are keeping any stats.
+	 * 
+	 * @return true if empty, false if not.
+	 */
+	public boolean isEmpty()
+	{
+		synchronized (this.assessments)
+		{
+			return this.assessments.isEmpty();
+		}
+	}
+
+	/**
+	 * Drop the stats for this assessment.
+	 * 
+	 * @param assessmentId
+	 *        The assessment id.
+	 */
+	public void remove(String assessmentId)
+	{
+		synchronized (this.assessments)
+		{
+			this.assessments.remove(assessmentId);
+		}
+	}
+
+	/**
+	 * Count a submission's answers into an assessment's stats, unless already counted.
+	 * 
+	 * @param stats
+	 *        The assessment stats.
+	 * @param submissionId
+	 *        The submission id.
+	 * @param answers
+	 *        The submission's answers.
+	 */
+	protected void add(AssessmentStats stats, String submissionId, List<Answer> answers)
+	{
+		synchronized (stats)
+		{
+			if (!stats.submissionIds.add(submissionId)) return;
+
+			for (Answer answer : answers)
+			{
+				String questionId = ((AnswerImpl) answer).questionId;
+				QuestionStats q = stats.questions.get(questionId);
+				if (q == null)
+				{
+					q = new QuestionStats();
+					stats.questions.put(questionId, q);
+				}
+
+				q.add(answer);
+			}
+		}
+	}
+
+	/**
+	 * Read the assessment's completed submissions into its placeholder stats, and mark them loaded. If the read fails, the placeholder is dropped.
+	 * 
+	 * @param assessment
+	 *        The assessment.
+	 * @param stats
+	 *        The placeholder stats.
+	 */
+	protected void load(Assessment assessment, AssessmentStats stats)
+	{
+		boolean done = false;
+		try
+		{
+			// read outside the lock - any already counted as they completed are skipped
+			List<SubmissionImpl> submissions = this.storage.getAssessmentCompleteSubmissions(assessment);
+			for (SubmissionImpl submission : submissions)
+			{
+				if (!submission.getIsTestDrive())
+				{
+					add(stats, submission.getId(), submission.getAnswers());
+				}
+			}
+
+			done = true;
+		}
+		finally
+		{
+			if (!done)
+			{
+				synchronized (this.assessments)
+				{
+					if (this.assessments.get(assessment.getId()) == stats) this.assessments.remove(assessment.getId());
+				}
+			}
+
+			synchronized (stats)
+			{
+				stats.loaded = true;
+				stats.failed = !done;
+				stats.notifyAll();
+			}
+		}
+	}
+}
@@ -24,6 +24,7 @@ package org.muse.mneme.impl;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.muse.mneme.api.Pool;
 import org.muse.mneme.api.Question;
@@ -181,6 +182,15 @@ public interface QuestionStorage
 	List<QuestionImpl> findPoolQuestions(Pool pool, QuestionService.FindQuestionsSort sort, String questionType, Integer pageNum, Integer pageSize,
 			Boolean survey, Boolean valid);
 
+	/**
+	 * Find the attachment references embedded in the questions of the (non-historical) pools in this context, from the reference index.
+	 * 
+	 * @param context
+	 *        The context.
+	 * @return The attachment references (normalized), each once.
+	 */
+	Set<String> getContextReferences(String context);
+
 	/**
 	 * Find all the questions in the pool
 	 * 
@@ -203,6 +213,33 @@ public interface QuestionStorage
 	 */
 	QuestionImpl getQuestion(String id);
 
+	/**
+	 * Find the context of a question.
+	 * 
+	 * @param id
+	 *        the question id.
+	 * @return The question's context, or null if not found.
+	 */
+	String getQuestionContext(String id);
+
+	/**
+	 * Find the pool of a question.
+	 * 
+	 * @param id
+	 *        the question id.
+	 * @return The question's pool id, or null if not found.
+	 */
+	String getQuestionPool(String id);
+
+	/**
+	 * Access a set of questions by id.
+	 * 
+	 * @param ids
+	 *        The question ids.
+	 * @return The questions found, in no particular order.
+	 */
+	List<QuestionImpl> getQuestions(List<String> ids);
+
 	/**
 	 * Initialize.
 	 */
@@ -50,79 +50,41 @@ public abstract class QuestionStorageMysql extends QuestionStorageSql implements
 	}
 
 	/**
-	 * Insert a new question as a copy of another question, marked as history (copyPoolQuestions transaction code).
+	 * Insert new questions into the destination pool as copies of all the source pool's questions, in one statement (copyPoolQuestions transaction
+	 * code).
 	 * 
 	 * @param userId
 	 *        The user id.
-	 * @param qid
-	 *        The source question id.
+	 * @param source
+	 *        The pool of questions to copy.
 	 * @param destination
-	 *        The pool for the new question.
+	 *        The pool for the new questions.
+	 * @param asHistory
+	 *        If set, make the new questions historical.
 	 */
-	protected String copyQuestionHistoricalTx(String userId, String qid, Pool destination)
+	protected void copyPoolQuestionsTx(String userId, Pool source, Pool destination, boolean asHistory)
 	{
 		Date now = new Date();
 
 		StringBuilder sql = new StringBuilder();
 		sql.append("INSERT INTO MNEME_QUESTION");
-		sql.append(" (CONTEXT, CREATED_BY_DATE, CREATED_BY_USER, DESCRIPTION, EXPLAIN_REASON, FEEDBACK,");
+		sql.append(" (CONTEXT, COPIED_FROM, CREATED_BY_DATE, CREATED_BY_USER, DESCRIPTION, EXPLAIN_REASON, FEEDBACK,");
 		sql.append(" HINTS, HISTORICAL, MINT, MODIFIED_BY_DATE, MODIFIED_BY_USER, POOL_ID, PRESENTATION_TEXT,");
 		sql.append(" SURVEY, TYPE, VALID, GUEST)");
 		sql.append(" SELECT");
-		sql.append(" '" + destination.getContext() + "', " + now.getTime() + ", '" + userId + "',");
-		sql.append(" Q.DESCRIPTION, Q.EXPLAIN_REASON, Q.FEEDBACK, Q.HINTS, '1', Q.MINT,");
+		sql.append(" '" + destination.getContext() + "', Q.ID, " + now.getTime() + ", '" + userId + "',");
+		sql.append(" Q.DESCRIPTION, Q.EXPLAIN_REASON, Q.FEEDBACK, Q.HINTS, " + (asHistory ? "'1'" : "Q.HISTORICAL") + ", Q.MINT,");
 		sql.append(" '" + now.getTime() + "', '" + userId + "', " + destination.getId() + ",");
 		sql.append(" Q.PRESENTATION_TEXT, Q.SURVEY, Q.TYPE, Q.VALID, Q.GUEST");
-		sql.append(" FROM MNEME_QUESTION Q WHERE Q.ID=?");
+		sql.append(" FROM MNEME_QUESTION Q WHERE Q.MINT='0' AND Q.HISTORICAL IN ('0','1') AND Q.POOL_ID=?");
 
 		Object[] fields = new Object[1];
-		fields[0] = Long.valueOf(qid);
+		fields[0] = Long.valueOf(source.getId());
 
-		Long id = this.sqlService.dbInsert(null, sql.toString(), fields, "ID");
-		if (id == null)
+		if (!this.sqlService.dbWrite(sql.toString(), fields))
 		{
-			throw new RuntimeException("copyQuestionTx: db write failed");
+			throw new RuntimeException("copyPoolQuestionsTx: db write failed");
 		}
-
-		return id.toString();
-	}
-
-	/**
-	 * Insert a new question as a copy of another question (copyPoolQuestions transaction code).
-	 * 
-	 * @param userId
-	 *        The user id.
-	 * @param qid
-	 *        The source question id.
-	 * @param destination
-	 *        The pool for the new question.
-	 */
-	protected String copyQuestionTx(String userId, String qid, Pool destination)
-	{
-		Date now = new Date();
-
-		StringBuilder sql = new StringBuilder();
-		sql.append("INSERT INTO MNEME_QUESTION");
-		sql.append(" (CONTEXT, CREATED_BY_DATE, CREATED_BY_USER, DESCRIPTION, EXPLAIN_REASON, FEEDBACK,");
-		sql.append(" HINTS, HISTORICAL, MINT, MODIFIED_BY_DATE, MODIFIED_BY_USER, POOL_ID, PRESENTATION_TEXT,");
-		sql.append(" SURVEY, TYPE, VALID, GUEST)");
-		sql.append(" SELECT");
-		sql.append(" '" + destination.getContext() + "', " + now.getTime() + ", '" + userId + "',");
-		sql.append(" Q.DESCRIPTION, Q.EXPLAIN_REASON, Q.FEEDBACK, Q.HINTS, Q.HISTORICAL, Q.MINT,");
-		sql.append(" '" + now.getTime() + "', '" + userId + "', " + destination.getId() + ",");
-		sql.append(" Q.PRESENTATION_TEXT, Q.SURVEY, Q.TYPE, Q.VALID, Q.GUEST");
-		sql.append(" FROM MNEME_QUESTION Q WHERE Q.ID=?");
-
-		Object[] fields = new Object[1];
-		fields[0] = Long.valueOf(qid);
-
-		Long id = this.sqlService.dbInsert(null, sql.toString(), fields, "ID");
-		if (id == null)
-		{
-			throw new RuntimeException("copyQuestionTx: db write failed");
-		}
-
-		return id.toString();
 	}
 
 	/**
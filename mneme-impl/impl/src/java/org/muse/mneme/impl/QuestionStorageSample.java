@@ -311,6 +311,25 @@ public abstract class QuestionStorageSample implements QuestionStorage
 		return findQuestions(null, pool, sort, questionType, pageNum, pageSize, survey, valid);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public Set<String> getContextReferences(String context)
+	{
+		fakeIt();
+
+		Set<String> rv = new HashSet<String>();
+		for (QuestionImpl question : this.questions.values())
+		{
+			if ((!question.getMint()) && question.getContext().equals(context) && (!question.getPool().getIsHistorical()))
+			{
+				ReferenceScanner.harvest(question, rv);
+			}
+		}
+
+		return rv;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -345,6 +364,49 @@ public abstract class QuestionStorageSample implements QuestionStorage
 		return rv;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public String getQuestionContext(String id)
+	{
+		fakeIt();
+
+		QuestionImpl question = this.questions.get(id);
+		if (question == null) return null;
+
+		return question.getContext();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String getQuestionPool(String id)
+	{
+		fakeIt();
+
+		QuestionImpl question = this.questions.get(id);
+		if (question == null) return null;
+
+		return question.poolId;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<QuestionImpl> getQuestions(List<String> ids)
+	{
+		fakeIt();
+
+		List<QuestionImpl> rv = new ArrayList<QuestionImpl>();
+		for (String id : ids)
+		{
+			QuestionImpl question = this.questions.get(id);
+			if (question != null) rv.add(new QuestionImpl(question));
+		}
+
+		return rv;
+	}
+
 	/**
 	 * Final initialization, once all dependencies are set.
 	 */
@@ -26,8 +26,10 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -51,6 +53,9 @@ public abstract class QuestionStorageSql implements QuestionStorage
 	/** Our logger. */
 	private static Log M_log = LogFactory.getLog(QuestionStorageSql.class);
 
+	/** The most question ids to read in one IN list. */
+	protected static final int READ_QUESTIONS_CHUNK = 100;
+
 	/** Dependency: AttachmentService */
 	protected AttachmentService attachmentService = null;
 
@@ -116,43 +121,41 @@ public abstract class QuestionStorageSql implements QuestionStorage
 	public List<String> copyPoolQuestions(final String userId, final Pool source, final Pool destination, final boolean asHistory,
 			final Map<String, String> oldToNew, final List<Translation> attachmentTranslations)
 	{
-		// get source's question ids
+		// get source's question ids - the new ids are returned in this order
 		final List<String> poolQids = source.getAllQuestionIds(null, null);
 
 		final List<String> rv = new ArrayList<String>();
+		if (poolQids.isEmpty()) return rv;
 
 		this.sqlService.transact(new Runnable()
 		{
 			public void run()
 			{
+				// copy all the questions in one statement - each copy is marked with the id it was copied from
+				copyPoolQuestionsTx(userId, source, destination, asHistory);
+				Map<String, String> copied = readPoolCopiedQuestionIdsTx(destination);
+				if (copied.size() != poolQids.size())
+				{
+					throw new RuntimeException("copyPoolQuestions: copied: " + copied.size() + " expected: " + poolQids.size());
+				}
+
 				for (String qid : poolQids)
 				{
-					String newId = null;
-					if (asHistory)
-					{
-						newId = copyQuestionHistoricalTx(userId, qid, destination);
-						if (oldToNew != null)
-						{
-							oldToNew.put(qid, newId);
-						}
-					}
-					else
-					{
-						newId = copyQuestionTx(userId, qid, destination);
-						if (oldToNew != null)
-						{
-							oldToNew.put(qid, newId);
-						}
-					}
+					String newId = copied.get(qid);
+					if (newId == null) throw new RuntimeException("copyPoolQuestions: not copied: " + qid);
 
 					rv.add(newId);
+					if (oldToNew != null) oldToNew.put(qid, newId);
+				}
 
-					// translate attachments
-					if (attachmentTranslations != null)
-					{
-						translateQuestionAttachmentsTx(newId, attachmentTranslations);
-					}
+				// translate attachments
+				if ((attachmentTranslations != null) && (!attachmentTranslations.isEmpty()))
+				{
+					translatePoolQuestionsAttachmentsTx(destination, attachmentTranslations);
 				}
+
+				// the marks are only needed while copying
+				clearPoolCopiedFromTx(destination);
 			}
 		}, "copyPoolQuestions: " + source.getId());
 
@@ -529,6 +532,27 @@ public abstract class QuestionStorageSql implements QuestionStorage
 		return rv;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public Set<String> getContextReferences(String context)
+	{
+		// bring the index up to date
+		indexContextReferences(context);
+
+		StringBuilder sql = new StringBuilder();
+		sql.append("SELECT DISTINCT R.REF FROM MNEME_QUESTION_REF R");
+		sql.append(" LEFT OUTER JOIN MNEME_QUESTION Q ON R.QUESTION_ID=Q.ID");
+		sql.append(" LEFT OUTER JOIN MNEME_POOL P ON Q.POOL_ID=P.ID");
+		sql.append(" WHERE R.CONTEXT=? AND R.REF IS NOT NULL AND P.MINT='0' AND P.HISTORICAL='0'");
+
+		Object[] fields = new Object[1];
+		fields[0] = context;
+
+		List<String> results = this.sqlService.dbRead(sql.toString(), fields, null);
+		return new HashSet<String>(results);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -596,6 +620,62 @@ public abstract class QuestionStorageSql implements QuestionStorage
 		return readQuestion(id);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public String getQuestionContext(String id)
+	{
+		String sql = "SELECT Q.CONTEXT FROM MNEME_QUESTION Q WHERE Q.ID=?";
+		Object[] fields = new Object[1];
+		fields[0] = Long.valueOf(id);
+		List<String> results = this.sqlService.dbRead(sql, fields, null);
+		if (results.isEmpty()) return null;
+
+		return results.get(0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String getQuestionPool(String id)
+	{
+		String sql = "SELECT Q.POOL_ID FROM MNEME_QUESTION Q WHERE Q.ID=?";
+		Object[] fields = new Object[1];
+		fields[0] = Long.valueOf(id);
+		List<String> results = this.sqlService.dbRead(sql, fields, null);
+		if (results.isEmpty()) return null;
+
+		return results.get(0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<QuestionImpl> getQuestions(List<String> ids)
+	{
+		List<QuestionImpl> rv = new ArrayList<QuestionImpl>(ids.size());
+
+		// read in chunks, to keep the IN list reasonable
+		for (int start = 0; start < ids.size(); start += READ_QUESTIONS_CHUNK)
+		{
+			List<String> chunk = ids.subList(start, Math.min(start + READ_QUESTIONS_CHUNK, ids.size()));
+
+			StringBuilder where = new StringBuilder();
+			where.append("WHERE Q.ID IN (");
+			Object[] fields = new Object[chunk.size()];
+			for (int i = 0; i < chunk.size(); i++)
+			{
+				where.append(i == 0 ? "?" : ",?");
+				fields[i] = Long.valueOf(chunk.get(i));
+			}
+			where.append(")");
+
+			rv.addAll(readQuestions(where.toString(), fields));
+		}
+
+		return rv;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -709,6 +789,8 @@ public abstract class QuestionStorageSql implements QuestionStorage
 	 */
 	protected void clearContextTx(String context)
 	{
+		deleteContextReferencesTx(context);
+
 		StringBuilder sql = new StringBuilder();
 		sql.append("DELETE FROM MNEME_QUESTION");
 		sql.append(" WHERE CONTEXT=?");
@@ -748,28 +830,57 @@ public abstract class QuestionStorageSql implements QuestionStorage
 	}
 
 	/**
-	 * Insert a new question as a copy of another question, marked as history (copyPoolQuestions transaction code).
+	 * Clear the copied from marks on the questions in a pool (transaction code).
 	 * 
-	 * @param userId
-	 *        The user id.
-	 * @param qid
-	 *        The source question id.
-	 * @param destination
-	 *        The pool for the new question.
+	 * @param pool
+	 *        The pool.
 	 */
-	protected abstract String copyQuestionHistoricalTx(String userId, String qid, Pool destination);
+	protected void clearPoolCopiedFromTx(Pool pool)
+	{
+		String sql = "UPDATE MNEME_QUESTION SET COPIED_FROM=NULL WHERE POOL_ID=? AND COPIED_FROM IS NOT NULL";
+		Object[] fields = new Object[1];
+		fields[0] = Long.valueOf(pool.getId());
+
+		if (!this.sqlService.dbWrite(sql, fields))
+		{
+			throw new RuntimeException("clearPoolCopiedFromTx: db write failed");
+		}
+	}
 
 	/**
-	 * Insert a new question as a copy of another question (copyPoolQuestions transaction code).
+	 * Insert new questions into the destination pool as copies of all the source pool's questions, in one statement (copyPoolQuestions transaction
+	 * code).<br />
+	 * Each copy's COPIED_FROM is set to the id of the question it was copied from.
 	 * 
 	 * @param userId
 	 *        The user id.
-	 * @param qid
-	 *        The source question id.
+	 * @param source
+	 *        The pool of questions to copy.
 	 * @param destination
-	 *        The pool for the new question.
+	 *        The pool for the new questions.
+	 * @param asHistory
+	 *        If set, make the new questions historical.
+	 */
+	protected abstract void copyPoolQuestionsTx(String userId, Pool source, Pool destination, boolean asHistory);
+
+	/**
+	 * Delete the reference index entries for all the questions in a context (transaction code).
+	 * 
+	 * @param context
+	 *        The context.
 	 */
-	protected abstract String copyQuestionTx(String userId, String qid, Pool destination);
+	protected void deleteContextReferencesTx(String context)
+	{
+		String sql = "DELETE FROM MNEME_QUESTION_REF WHERE CONTEXT=?";
+
+		Object[] fields = new Object[1];
+		fields[0] = context;
+
+		if (!this.sqlService.dbWrite(sql, fields))
+		{
+			throw new RuntimeException("deleteContextReferencesTx: db write failed");
+		}
+	}
 
 	/**
 	 * Delete a question.
@@ -788,6 +899,25 @@ public abstract class QuestionStorageSql implements QuestionStorage
 		}, "deleteQuestion: " + question.getId());
 	}
 
+	/**
+	 * Delete the reference index entries for a question (transaction code).
+	 * 
+	 * @param question
+	 *        The question.
+	 */
+	protected void deleteQuestionReferencesTx(QuestionImpl question)
+	{
+		String sql = "DELETE FROM MNEME_QUESTION_REF WHERE QUESTION_ID=?";
+
+		Object[] fields = new Object[1];
+		fields[0] = Long.valueOf(question.getId());
+
+		if (!this.sqlService.dbWrite(sql, fields))
+		{
+			throw new RuntimeException("deleteQuestionReferencesTx: db write failed");
+		}
+	}
+
 	/**
 	 * Delete a question (transaction code).
 	 * 
@@ -796,6 +926,8 @@ public abstract class QuestionStorageSql implements QuestionStorage
 	 */
 	protected void deleteQuestionTx(QuestionImpl question)
 	{
+		deleteQuestionReferencesTx(question);
+
 		StringBuilder sql = new StringBuilder();
 		sql.append("DELETE FROM MNEME_QUESTION");
 		sql.append(" WHERE ID=?");
@@ -809,6 +941,33 @@ public abstract class QuestionStorageSql implements QuestionStorage
 		}
 	}
 
+	/**
+	 * Add any questions in the context missing from the reference index - those saved before there was an index, or copied in bulk.
+	 * 
+	 * @param context
+	 *        The context.
+	 */
+	protected void indexContextReferences(String context)
+	{
+		// every indexed question has at least one entry, with a null reference if it has none
+		Object[] fields = new Object[1];
+		fields[0] = context;
+		final List<QuestionImpl> questions = readQuestions(
+				"WHERE Q.CONTEXT=? AND Q.MINT='0' AND NOT EXISTS (SELECT 1 FROM MNEME_QUESTION_REF R WHERE R.QUESTION_ID=Q.ID)", fields);
+		if (questions.isEmpty()) return;
+
+		this.sqlService.transact(new Runnable()
+		{
+			public void run()
+			{
+				for (QuestionImpl question : questions)
+				{
+					saveQuestionReferencesTx(question);
+				}
+			}
+		}, "indexContextReferences: " + context);
+	}
+
 	/**
 	 * Insert a new question.
 	 * 
@@ -822,6 +981,7 @@ public abstract class QuestionStorageSql implements QuestionStorage
 			public void run()
 			{
 				insertQuestionTx(question);
+				saveQuestionReferencesTx(question);
 			}
 		}, "insertQuestion: " + question.getId());
 	}
@@ -873,6 +1033,41 @@ public abstract class QuestionStorageSql implements QuestionStorage
 		}
 	}
 
+	/**
+	 * Read the ids of the questions in a pool marked as copied from another question (transaction code).
+	 * 
+	 * @param pool
+	 *        The pool.
+	 * @return A map of the question id copied from to the id of its copy.
+	 */
+	protected Map<String, String> readPoolCopiedQuestionIdsTx(Pool pool)
+	{
+		String sql = "SELECT Q.COPIED_FROM, Q.ID FROM MNEME_QUESTION Q WHERE Q.POOL_ID=? AND Q.COPIED_FROM IS NOT NULL";
+		Object[] fields = new Object[1];
+		fields[0] = Long.valueOf(pool.getId());
+
+		final Map<String, String> rv = new HashMap<String, String>();
+		this.sqlService.dbRead(sql, fields, new SqlReader()
+		{
+			public Object readSqlResultRecord(ResultSet result)
+			{
+				try
+				{
+					rv.put(SqlHelper.readId(result, 1), SqlHelper.readId(result, 2));
+
+					return null;
+				}
+				catch (SQLException e)
+				{
+					M_log.warn("readPoolCopiedQuestionIdsTx: " + e);
+					return null;
+				}
+			}
+		});
+
+		return rv;
+	}
+
 	/**
 	 * Read a question
 	 * 
@@ -955,6 +1150,39 @@ public abstract class QuestionStorageSql implements QuestionStorage
 		return rv;
 	}
 
+	/**
+	 * Replace the reference index entries for a question with the references now embedded in it (transaction code).<br />
+	 * Mint questions are left out of the index until they are saved as non-mint.
+	 * 
+	 * @param question
+	 *        The question.
+	 */
+	protected void saveQuestionReferencesTx(QuestionImpl question)
+	{
+		deleteQuestionReferencesTx(question);
+		if (question.getMint()) return;
+
+		Set<String> refs = new HashSet<String>();
+		ReferenceScanner.harvest(question, refs);
+
+		// mark a question with no references as indexed
+		if (refs.isEmpty()) refs.add(null);
+
+		String sql = "INSERT INTO MNEME_QUESTION_REF (CONTEXT, QUESTION_ID, REF) VALUES (?,?,?)";
+		for (String ref : refs)
+		{
+			Object[] fields = new Object[3];
+			fields[0] = question.getContext();
+			fields[1] = Long.valueOf(question.getId());
+			fields[2] = limit(ref, 2048);
+
+			if (!this.sqlService.dbWrite(sql, fields))
+			{
+				throw new RuntimeException("saveQuestionReferencesTx: db write failed");
+			}
+		}
+	}
+
 	/**
 	 * Convert a FindQuestionsSort to a sql sort clause
 	 * 
@@ -1021,65 +1249,82 @@ public abstract class QuestionStorageSql implements QuestionStorage
 	}
 
 	/**
-	 * Translate any embedded attachments in the question presentation text or guest area
+	 * Translate any embedded attachments in the presentation text, guest area, hints and feedback of the questions in a pool marked as copied,
+	 * reading them all at once and writing only those that change (transaction code).
 	 * 
-	 * @param qid
-	 *        The question id.
+	 * @param pool
+	 *        The pool.
 	 * @param attachmentTranslations
 	 *        The translations.
 	 */
-	protected void translateQuestionAttachmentsTx(String qid, List<Translation> attachmentTranslations)
+	protected void translatePoolQuestionsAttachmentsTx(Pool pool, final List<Translation> attachmentTranslations)
 	{
-		// read the question's text
+		// read the questions' text
 		StringBuilder sql = new StringBuilder();
-		sql.append("SELECT Q.PRESENTATION_TEXT, Q.GUEST, Q.HINTS, Q.FEEDBACK");
+		sql.append("SELECT Q.PRESENTATION_TEXT, Q.GUEST, Q.HINTS, Q.FEEDBACK, Q.ID");
 		sql.append(" FROM MNEME_QUESTION Q ");
-		sql.append(" WHERE Q.ID=?");
+		sql.append(" WHERE Q.POOL_ID=? AND Q.COPIED_FROM IS NOT NULL");
 
 		Object[] fields = new Object[1];
-		fields[0] = Long.valueOf(qid);
-
-		final Object[] fields2 = new Object[5];
-		fields2[4] = fields[0];
+		fields[0] = Long.valueOf(pool.getId());
 
+		final List<Object[]> changed = new ArrayList<Object[]>();
 		this.sqlService.dbRead(sql.toString(), fields, new SqlReader()
 		{
 			public Object readSqlResultRecord(ResultSet result)
 			{
 				try
 				{
-					fields2[0] = SqlHelper.readString(result, 1);
-					fields2[1] = SqlHelper.decodeStringArray(StringUtil.trimToNull(result.getString(2)));
-					fields2[2] = SqlHelper.readString(result, 3);
-					fields2[3] = SqlHelper.readString(result, 4);
+					String text = SqlHelper.readString(result, 1);
+					String[] guest = SqlHelper.decodeStringArray(StringUtil.trimToNull(result.getString(2)));
+					String hints = SqlHelper.readString(result, 3);
+					String feedback = SqlHelper.readString(result, 4);
+
+					// translate
+					boolean different = false;
+					String newText = attachmentService.translateEmbeddedReferences(text, attachmentTranslations);
+					if (StringUtil.different(text, newText)) different = true;
+					String newHints = attachmentService.translateEmbeddedReferences(hints, attachmentTranslations);
+					if (StringUtil.different(hints, newHints)) different = true;
+					String newFeedback = attachmentService.translateEmbeddedReferences(feedback, attachmentTranslations);
+					if (StringUtil.different(feedback, newFeedback)) different = true;
+					for (int i = 0; i < guest.length; i++)
+					{
+						String newGuest = attachmentService.translateEmbeddedReferences(guest[i], attachmentTranslations);
+						if (StringUtil.different(guest[i], newGuest)) different = true;
+						guest[i] = newGuest;
+					}
+
+					// keep only the ones that need to be written
+					if (different)
+					{
+						Object[] update = new Object[5];
+						update[0] = newText;
+						update[1] = SqlHelper.encodeStringArray(guest);
+						update[2] = newHints;
+						update[3] = newFeedback;
+						update[4] = Long.valueOf(SqlHelper.readId(result, 5));
+						changed.add(update);
+					}
 
 					return null;
 				}
 				catch (SQLException e)
 				{
-					M_log.warn("translateQuestionAttachmentsTx(read): " + e);
+					M_log.warn("translatePoolQuestionsAttachmentsTx(read): " + e);
 					return null;
 				}
 			}
 		});
 
-		// translate
-		fields2[0] = this.attachmentService.translateEmbeddedReferences((String) fields2[0], attachmentTranslations);
-		fields2[2] = this.attachmentService.translateEmbeddedReferences((String) fields2[2], attachmentTranslations);
-		fields2[3] = this.attachmentService.translateEmbeddedReferences((String) fields2[3], attachmentTranslations);
-		for (int i = 0; i < ((String[]) fields2[1]).length; i++)
-		{
-			((String[]) fields2[1])[i] = this.attachmentService.translateEmbeddedReferences(((String[]) fields2[1])[i], attachmentTranslations);
-		}
-
-		fields2[1] = SqlHelper.encodeStringArray(((String[]) fields2[1]));
-
 		// update
-		sql = new StringBuilder();
-		sql.append("UPDATE MNEME_QUESTION SET PRESENTATION_TEXT=?, GUEST=?, HINTS=?, FEEDBACK=? WHERE ID=?");
-		if (!this.sqlService.dbWrite(sql.toString(), fields2))
+		String update = "UPDATE MNEME_QUESTION SET PRESENTATION_TEXT=?, GUEST=?, HINTS=?, FEEDBACK=? WHERE ID=?";
+		for (Object[] updateFields : changed)
 		{
-			throw new RuntimeException("translateQuestionAttachmentsTx(write): db write failed");
+			if (!this.sqlService.dbWrite(update, updateFields))
+			{
+				throw new RuntimeException("translatePoolQuestionsAttachmentsTx(write): db write failed");
+			}
 		}
 	}
 
@@ -1096,6 +1341,7 @@ public abstract class QuestionStorageSql implements QuestionStorage
 			public void run()
 			{
 				updateQuestionTx(question);
+				saveQuestionReferencesTx(question);
 			}
 		}, "updateQuestion: " + question.getId());
 	}
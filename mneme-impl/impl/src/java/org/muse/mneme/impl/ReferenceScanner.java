@@ -0,0 +1,259 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+package org.muse.mneme.impl;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.muse.ambrosia.util.EscapeRefUrl;
+import org.muse.mneme.api.Assessment;
+import org.muse.mneme.api.Part;
+import org.muse.mneme.api.Question;
+import org.muse.mneme.api.Translation;
+
+/**
+ * ReferenceScanner finds the attachment references embedded in user entered HTML, and translates them.<br />
+ * The src= / href= pattern is compiled once, and text that cannot hold a reference is passed over without running it.
+ */
+public class ReferenceScanner
+{
+	/** Our logger. */
+	private static Log M_log = LogFactory.getLog(ReferenceScanner.class);
+
+	/** Every embedded reference has this - text without it is not scanned. */
+	protected static final String ACCESS = "/access/";
+
+	/** Pattern to find any src= or href= text - groups: 0: the whole matching text 1: src|href 2: the string in the quotes. */
+	protected static final Pattern EMBEDDED = Pattern.compile("(src|href)[\\s]*=[\\s]*\"([^\"]*)\"");
+
+	/**
+	 * Collect all the attachment references in the html data:<br />
+	 * Anything referenced by a src= or href=. in our content docs, or in a site content area <br />
+	 * Ignore anything in a myWorkspace content area or the public content area.
+	 * 
+	 * @param data
+	 *        The data string.
+	 * @param normalize
+	 *        if true, decode the references by URL decoding rules.
+	 * @param rv
+	 *        The collection to add the references to.
+	 */
+	public static void harvest(String data, boolean normalize, Collection<String> rv)
+	{
+		if ((data == null) || (data.indexOf(ACCESS) == -1)) return;
+
+		Matcher m = EMBEDDED.matcher(data);
+		while (m.find())
+		{
+			String ref = m.group(2);
+			int index = referenceIndex(ref);
+			if (index != -1)
+			{
+				// save just the reference part (i.e. after the /access);
+				String refString = ref.substring(index + 7);
+
+				// deal with %20 and other encoded URL stuff
+				if (normalize) refString = decode(refString);
+
+				rv.add(refString);
+			}
+		}
+	}
+
+	/**
+	 * Collect all the (normalized) attachment references embedded in an assessment's presentation and submit presentation, and in its parts'
+	 * presentations.
+	 * 
+	 * @param assessment
+	 *        The assessment.
+	 * @param rv
+	 *        The collection to add the references to.
+	 */
+	public static void harvest(Assessment assessment, Collection<String> rv)
+	{
+		harvest(assessment.getPresentation().getText(), true, rv);
+		harvest(assessment.getSubmitPresentation().getText(), true, rv);
+		for (Part part : assessment.getParts().getParts())
+		{
+			harvest(part.getPresentation().getText(), true, rv);
+		}
+	}
+
+	/**
+	 * Collect all the (normalized) attachment references embedded in a question's presentation, hints, feedback and type-specific data.
+	 * 
+	 * @param question
+	 *        The question.
+	 * @param rv
+	 *        The collection to add the references to.
+	 */
+	public static void harvest(Question question, Collection<String> rv)
+	{
+		harvest(question.getPresentation().getText(), true, rv);
+		harvest(question.getHints(), true, rv);
+		harvest(question.getFeedback(), true, rv);
+		if (question.getTypeSpecificQuestion() != null)
+		{
+			String[] data = question.getTypeSpecificQuestion().getData();
+			if (data != null)
+			{
+				for (String d : data)
+				{
+					harvest(d, true, rv);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Collect all the attachment references in the html data, as harvest(data, normalize, rv) does.
+	 * 
+	 * @param data
+	 *        The data string.
+	 * @param normalize
+	 *        if true, decode the references by URL decoding rules.
+	 * @return The set of attachment references.
+	 */
+	public static Set<String> harvest(String data, boolean normalize)
+	{
+		Set<String> rv = new HashSet<String>();
+		harvest(data, normalize, rv);
+
+		return rv;
+	}
+
+	/**
+	 * Translate any embedded attachment references in the html data, based on the set of translations.<br />
+	 * Uses the same rules to find the references as harvest.
+	 * 
+	 * @param data
+	 *        The html data.
+	 * @param translations
+	 *        The translations.
+	 * @return The translated data - the same string if nothing was translated.
+	 */
+	public static String translate(String data, List<Translation> translations)
+	{
+		if ((data == null) || (translations == null) || translations.isEmpty()) return data;
+		if (data.indexOf(ACCESS) == -1) return data;
+
+		Matcher m = EMBEDDED.matcher(data);
+		StringBuffer sb = null;
+
+		// process each "harvested" string (avoiding like strings that are not in src= or href= patterns)
+		while (m.find())
+		{
+			String ref = m.group(2);
+			int index = referenceIndex(ref);
+			if (index == -1) continue;
+
+			// the reference part (i.e. after the /access), decoded
+			String normal = decode(ref.substring(index + 7));
+
+			// translate the normal form
+			String translated = normal;
+			for (Translation translation : translations)
+			{
+				translated = translation.translate(translated);
+			}
+
+			// if changed, replace
+			if (!normal.equals(translated))
+			{
+				if (sb == null) sb = new StringBuffer(data.length() + 64);
+				m.appendReplacement(sb, Matcher.quoteReplacement(m.group(1) + "=\"" + ref.substring(0, index + 7)
+						+ EscapeRefUrl.escapeUrl(translated) + "\""));
+			}
+		}
+
+		// nothing translated
+		if (sb == null) return data;
+
+		m.appendTail(sb);
+
+		return sb.toString();
+	}
+
+	/**
+	 * URL decode a reference.
+	 * 
+	 * @param ref
+	 *        The reference.
+	 * @return The decoded reference.
+	 */
+	protected static String decode(String ref)
+	{
+		// quick out for the usual case
+		if ((ref.indexOf('%') == -1) && (ref.indexOf('+') == -1)) return ref;
+
+		try
+		{
+			return URLDecoder.decode(ref, "UTF-8");
+		}
+		catch (UnsupportedEncodingException e)
+		{
+			M_log.warn("decode: " + e);
+			return ref;
+		}
+		catch (IllegalArgumentException e)
+		{
+			M_log.warn("decode: " + e);
+			return ref;
+		}
+	}
+
+	/**
+	 * Find where the attachment reference starts in a src= or href= value: any content hosting reference except those in /user/ or /public/, or any
+	 * of our docs references.
+	 * 
+	 * @param ref
+	 *        The src= or href= value.
+	 * @return The index of the "/access/" that starts the reference, or -1 if this is not an attachment reference.
+	 */
+	protected static int referenceIndex(String ref)
+	{
+		// harvest any content hosting reference
+		int index = ref.indexOf("/access/content/");
+		if (index != -1)
+		{
+			// except for any in /user/ or /public/
+			if ((ref.indexOf("/access/content/user/") != -1) || (ref.indexOf("/access/content/public/") != -1))
+			{
+				index = -1;
+			}
+		}
+
+		// harvest also the mneme docs references
+		if (index == -1) index = ref.indexOf("/access/mneme/content/");
+
+		// TODO: further filter to docs root and context (optional)
+		return index;
+	}
+}
@@ -0,0 +1,148 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+
+package org.muse.mneme.impl;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.muse.mneme.api.RescoreStatus;
+
+/**
+ * RescoreJob implements RescoreStatus, tracking a background re-scoring of the completed answers to a question.
+ */
+public class RescoreJob implements RescoreStatus
+{
+	/** The number of answers whose score changed. */
+	protected AtomicInteger changed = new AtomicInteger();
+
+	/** Set when done. */
+	protected volatile boolean complete = false;
+
+	/** When (ms) done. */
+	protected volatile long completed = 0;
+
+	/** The number of answers re-scored. */
+	protected AtomicInteger done = new AtomicInteger();
+
+	/** The question id. */
+	protected String questionId = null;
+
+	/** The number of answers to re-score, once known. */
+	protected volatile Integer total = null;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param questionId
+	 *        The question id.
+	 */
+	public RescoreJob(String questionId)
+	{
+		this.questionId = questionId;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Integer getAnswersChanged()
+	{
+		return Integer.valueOf(this.changed.get());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Integer getAnswersDone()
+	{
+		return Integer.valueOf(this.done.get());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Integer getAnswersTotal()
+	{
+		return this.total;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Boolean getIsComplete()
+	{
+		return Boolean.valueOf(this.complete);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String getQuestionId()
+	{
+		return this.questionId;
+	}
+
+	/**
+	 * Record another batch of answers re-scored.
+	 * 
+	 * @param done
+	 *        The number of answers re-scored.
+	 * @param changed
+	 *        The number of those whose score changed.
+	 */
+	protected void addDone(int done, int changed)
+	{
+		this.done.addAndGet(done);
+		this.changed.addAndGet(changed);
+	}
+
+	/**
+	 * Mark the job as done.
+	 */
+	protected void initComplete()
+	{
+		this.completed = System.currentTimeMillis();
+		this.complete = true;
+	}
+
+	/**
+	 * Check if the job was done before this time.
+	 * 
+	 * @param time
+	 *        The time (ms).
+	 * @return true if the job is done, and was done before the time, false if not.
+	 */
+	protected boolean isCompleteBefore(long time)
+	{
+		return this.complete && (this.completed < time);
+	}
+
+	/**
+	 * Set the number of answers to re-score.
+	 * 
+	 * @param total
+	 *        The number of answers.
+	 */
+	protected void initTotal(int total)
+	{
+		this.total = Integer.valueOf(total);
+	}
+}
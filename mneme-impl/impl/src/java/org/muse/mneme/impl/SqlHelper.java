@@ -22,8 +22,10 @@
 package org.muse.mneme.impl;
 
 import java.math.BigDecimal;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -37,6 +39,50 @@ import org.sakaiproject.util.StringUtil;
  */
 public class SqlHelper
 {
+	/**
+	 * Bind the fields to a prepared statement's parameters, for statements we run directly (such as batches) rather than through the SqlService.<br />
+	 * Nulls and empty strings bind as null, Booleans as "1" / "0".
+	 * 
+	 * @param statement
+	 *        The prepared statement.
+	 * @param fields
+	 *        The field values, in parameter order.
+	 * @throws SQLException
+	 */
+	public static void bindFields(PreparedStatement statement, Object[] fields) throws SQLException
+	{
+		for (int i = 0; i < fields.length; i++)
+		{
+			int pos = i + 1;
+			Object field = fields[i];
+
+			if ((field == null) || ((field instanceof String) && (((String) field).length() == 0)))
+			{
+				statement.setNull(pos, Types.VARCHAR);
+			}
+			else if (field instanceof Long)
+			{
+				statement.setLong(pos, ((Long) field).longValue());
+			}
+			else if (field instanceof Integer)
+			{
+				statement.setInt(pos, ((Integer) field).intValue());
+			}
+			else if (field instanceof Float)
+			{
+				statement.setFloat(pos, ((Float) field).floatValue());
+			}
+			else if (field instanceof Boolean)
+			{
+				statement.setString(pos, ((Boolean) field).booleanValue() ? "1" : "0");
+			}
+			else
+			{
+				statement.setString(pos, field.toString());
+			}
+		}
+	}
+
 	/**
 	 * Decode an encoded string array.
 	 * 
@@ -50,11 +50,17 @@ public class SubmissionAssessmentImpl implements Assessment
 	/** Our logger. */
 	private static Log M_log = LogFactory.getLog(SubmissionAssessmentImpl.class);
 
+	/** Our copy of the shared assessment snapshot, with our submission context set. */
+	protected transient AssessmentImpl assessment = null;
+
 	/** The assessment id the submission is part of, also used for getting submission-global settings. */
 	protected String assessmentId = null;
 
 	protected AssessmentService assessmentService = null;
 
+	/** The shared snapshot our assessment copy was made from. */
+	protected transient Assessment snapshot = null;
+
 	protected SubmissionImpl submission = null;
 
 	/**
@@ -599,11 +605,20 @@ public class SubmissionAssessmentImpl implements Assessment
 	 */
 	protected Assessment getAssessment()
 	{
-		// TODO: cache the actual assessment for the thread, to avoid the real assessment cache's copy-out policy
+		// read from the shared snapshot, copying only when the snapshot is new to us (we need our own to hold the submission context)
+		Assessment snapshot = ((AssessmentServiceImpl) this.assessmentService).getAssessmentReadOnly(this.assessmentId);
+		if (snapshot == null) return null;
+
+		// a changed assessment is read into a new snapshot
+		if ((this.assessment == null) || (this.snapshot != snapshot))
+		{
+			AssessmentImpl rv = new AssessmentImpl((AssessmentImpl) snapshot);
+			rv.initSubmissionContext(this.submission);
+			this.assessment = rv;
+			this.snapshot = snapshot;
+		}
 
-		AssessmentImpl rv = (AssessmentImpl) this.assessmentService.getAssessment(this.assessmentId);
-		rv.initSubmissionContext(this.submission);
-		return rv;
+		return this.assessment;
 	}
 
 	/**
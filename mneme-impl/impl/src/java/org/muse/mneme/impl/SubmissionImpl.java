@@ -23,7 +23,9 @@ package org.muse.mneme.impl;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -55,6 +57,18 @@ public class SubmissionImpl implements Submission
 
 	protected List<Answer> answers = new ArrayList<Answer>();
 
+	/** The sum of the stored answer auto scores, for a submission read without its answers. */
+	protected transient Float answersAutoScore = null;
+
+	/** The answers, keyed by question id - built on first use and kept current as answers are added. */
+	protected transient Map<String, Answer> answersIndex = null;
+
+	/** The sum of the stored answer scores, for a submission read without its answers. */
+	protected transient Float answersScore = null;
+
+	/** The number of answered but unscored answers, for a submission read without its answers. */
+	protected transient Integer answersUnscored = null;
+
 	protected SubmissionAssessmentImpl assessment = null;
 
 	protected transient AssessmentService assessmentService = null;
@@ -78,6 +92,12 @@ public class SubmissionImpl implements Submission
 
 	protected transient SessionManager sessionManager = null;
 
+	/** The questions our answers are to, keyed by part id and question id - for the assessment in questionsIndexAssessment. */
+	protected transient Map<String, Question> questionsIndex = null;
+
+	/** The assessment the questionsIndex was built from - a new assessment means a new index. */
+	protected transient Assessment questionsIndexAssessment = null;
+
 	protected transient Integer siblingCount = 0;
 
 	protected Date startDate = null;
@@ -151,9 +171,9 @@ public class SubmissionImpl implements Submission
 		if (!getEvaluationUsed())
 		{
 			// we need to have an answer
-			if (this.answers.size() > 0)
+			if (getAnswers().size() > 0)
 			{
-				Answer answer = answers.get(0);
+				Answer answer = getAnswers().get(0);
 
 				// if null, clear the evaluation score
 				if (this.totalScoreToBe == null)
@@ -197,7 +217,7 @@ public class SubmissionImpl implements Submission
 			{
 				// the current answer total score
 				float curAnswerScore = 0;
-				for (Answer answer : answers)
+				for (Answer answer : getAnswers())
 				{
 					Float answerScore = answer.getTotalScore();
 					if (answerScore != null)
@@ -248,6 +268,17 @@ public class SubmissionImpl implements Submission
 		if (question == null) return null;
 
 		Answer rv = findAnswer(question.getId());
+
+		// answers are stored only once something is saved for them - until then, a submission in progress has a virtual (unsaved) answer,
+		// new each time, and not added to our answers, so the submission (which may be shared from the cache) is not changed
+		if ((rv == null) && (this.id != null) && (this.submissionService != null) && (!getIsPhantom()) && (!getIsComplete()))
+		{
+			AnswerImpl answer = this.submissionService.newAnswer();
+			answer.initSubmission(this);
+			answer.initQuestion(question);
+			rv = answer;
+		}
+
 		return rv;
 	}
 
@@ -256,9 +287,10 @@ public class SubmissionImpl implements Submission
 	 */
 	public Answer getAnswer(String answerId)
 	{
-		for (Answer answer : this.answers)
+		for (Answer answer : getAnswers())
 		{
-			if (answer.getId().equals(answerId))
+			// virtual answers have no id
+			if ((answer.getId() != null) && answer.getId().equals(answerId))
 			{
 				return answer;
 			}
@@ -272,6 +304,9 @@ public class SubmissionImpl implements Submission
 	 */
 	public List<Answer> getAnswers()
 	{
+		// if we were read without our answers, read them now
+		if (this.answers == null) readAnswers();
+
 		return this.answers;
 	}
 
@@ -280,14 +315,21 @@ public class SubmissionImpl implements Submission
 	 */
 	public Float getAnswersAutoScore()
 	{
-		// count the answer auto scores
+		// count the answer auto scores - or use the stored sum if we were read without them
 		float total = 0;
-		for (Answer answer : this.answers)
+		if ((this.answers == null) && (this.answersAutoScore != null))
+		{
+			total = this.answersAutoScore.floatValue();
+		}
+		else
 		{
-			Float auto = answer.getAutoScore();
-			if (auto != null)
+			for (Answer answer : getAnswers())
 			{
-				total += auto.floatValue();
+				Float auto = answer.getAutoScore();
+				if (auto != null)
+				{
+					total += auto.floatValue();
+				}
 			}
 		}
 
@@ -426,7 +468,7 @@ public class SubmissionImpl implements Submission
 	public Boolean getEvaluationUsed()
 	{
 		// multiple answers or evaluation already in use (or phantom)
-		if ((this.answers.size() > 1) || (this.getEvaluation().getDefined()) || this.getIsPhantom()) return Boolean.TRUE;
+		if ((getAnswers().size() > 1) || (this.getEvaluation().getDefined()) || this.getIsPhantom()) return Boolean.TRUE;
 
 		return Boolean.FALSE;
 	}
@@ -597,6 +639,9 @@ public class SubmissionImpl implements Submission
 		// if the overall score has been set, none of the answers are considered unscored
 		if (this.evaluation.getScore() != null) return Boolean.FALSE;
 
+		// use the stored count if we were read without the answers
+		if ((this.answers == null) && (this.answersUnscored != null)) return Boolean.valueOf(this.answersUnscored.intValue() > 0);
+
 		for (Answer answer : getAnswers())
 		{
 			if ((answer.getIsAnswered()) && (answer.getTotalScore() == null))
@@ -999,14 +1044,24 @@ public class SubmissionImpl implements Submission
 		// phantoms don't have a total score
 		if (getIsPhantom()) return null;
 
-		// add up the scores from the answers
+		// add up the scores from the answers - or use the stored sum if we were read without them
 		float total = 0;
-		for (Answer answer : answers)
+		if (this.answers == null)
 		{
-			Float score = answer.getTotalScore();
-			if (score != null)
+			if (this.answersScore != null)
 			{
-				total += score.floatValue();
+				total += this.answersScore.floatValue();
+			}
+		}
+		else
+		{
+			for (Answer answer : answers)
+			{
+				Float score = answer.getTotalScore();
+				if (score != null)
+				{
+					total += score.floatValue();
+				}
 			}
 		}
 
@@ -1191,7 +1246,8 @@ public class SubmissionImpl implements Submission
 	 */
 	protected void clearAnswers()
 	{
-		this.answers.clear();
+		getAnswers().clear();
+		this.answersIndex = null;
 	}
 
 	/**
@@ -1227,16 +1283,54 @@ public class SubmissionImpl implements Submission
 	 */
 	protected Answer findAnswer(String questionId)
 	{
-		// find the answer to this assessment question
-		for (Answer answer : this.answers)
+		// index the answers by question the first time we need one
+		if (this.answersIndex == null)
 		{
-			if (((AnswerImpl) answer).questionId.equals(questionId))
+			List<Answer> answers = getAnswers();
+			Map<String, Answer> index = new HashMap<String, Answer>(answers.size() * 2);
+			for (Answer answer : answers)
 			{
-				return answer;
+				index.put(((AnswerImpl) answer).questionId, answer);
 			}
+			this.answersIndex = index;
 		}
 
-		return null;
+		return this.answersIndex.get(questionId);
+	}
+
+	/**
+	 * Find a question in the submission's assessment, resolving it just once for each part and question.
+	 * 
+	 * @param partId
+	 *        The part id.
+	 * @param questionId
+	 *        The question id.
+	 * @return The question, or null if not found.
+	 */
+	protected Question findQuestion(String partId, String questionId)
+	{
+		Assessment assessment = this.assessment.getAssessment();
+		if (assessment == null) return null;
+
+		// the index is good for the assessment it was built from
+		if ((this.questionsIndex == null) || (this.questionsIndexAssessment != assessment))
+		{
+			this.questionsIndex = new HashMap<String, Question>();
+			this.questionsIndexAssessment = assessment;
+		}
+
+		String key = partId + "/" + questionId;
+		Question rv = this.questionsIndex.get(key);
+		if (rv == null)
+		{
+			Part part = assessment.getParts().getPart(partId);
+			if (part == null) return null;
+
+			rv = part.getQuestion(questionId);
+			if (rv != null) this.questionsIndex.put(key, rv);
+		}
+
+		return rv;
 	}
 
 	/**
@@ -1279,6 +1373,24 @@ public class SubmissionImpl implements Submission
 	{
 		answer.initSubmission(this);
 		this.answers.add(answer);
+		if (this.answersIndex != null) this.answersIndex.put(answer.questionId, answer);
+	}
+
+	/**
+	 * Initialize the summary of the stored answers, for a submission read without its answers.
+	 * 
+	 * @param score
+	 *        The sum of the answer scores.
+	 * @param autoScore
+	 *        The sum of the answer auto scores.
+	 * @param unscored
+	 *        The number of answered answers with no score.
+	 */
+	protected void initAnswersSummary(Float score, Float autoScore, Integer unscored)
+	{
+		this.answersScore = score;
+		this.answersAutoScore = autoScore;
+		this.answersUnscored = unscored;
 	}
 
 	/**
@@ -1352,6 +1464,20 @@ public class SubmissionImpl implements Submission
 		this.userId = userId;
 	}
 
+	/**
+	 * Read in the answers, for a submission read without them.
+	 */
+	protected void readAnswers()
+	{
+		if ((this.submissionService != null) && (this.id != null) && (!getIsPhantom()))
+		{
+			this.submissionService.readSubmissionAnswers(this);
+		}
+
+		// if we still have none, we have none
+		if (this.answers == null) this.answers = new ArrayList<Answer>();
+	}
+
 	/**
 	 * Replace an existing answer with this one, or add it if there is no existing one.
 	 * 
@@ -1360,19 +1486,18 @@ public class SubmissionImpl implements Submission
 	 */
 	protected void replaceAnswer(AnswerImpl answer)
 	{
-		// preserve the (question) order
-		for (Answer current : this.answers)
+		// replace in place to preserve the (question) order
+		AnswerImpl current = (AnswerImpl) findAnswer(answer.questionId);
+		if (current != null)
 		{
-			if (((AnswerImpl) current).questionId.equals(answer.questionId))
-			{
-				((AnswerImpl) current).set(answer, this);
-				return;
-			}
+			current.set(answer, this);
+			return;
 		}
 
 		// add it
 		answer.initSubmission(this);
-		this.answers.add(answer);
+		getAnswers().add(answer);
+		this.answersIndex.put(answer.questionId, answer);
 	}
 
 	/**
@@ -1383,11 +1508,19 @@ public class SubmissionImpl implements Submission
 	 */
 	protected void set(SubmissionImpl other)
 	{
-		this.answers.clear();
-		for (Answer answer : other.answers)
+		this.answersIndex = null;
+		if (other.answers == null)
+		{
+			this.answers = null;
+		}
+		else
 		{
-			AnswerImpl a = new AnswerImpl((AnswerImpl) answer, this);
-			this.answers.add(a);
+			this.answers = new ArrayList<Answer>(other.answers.size());
+			for (Answer answer : other.answers)
+			{
+				AnswerImpl a = new AnswerImpl((AnswerImpl) answer, this);
+				this.answers.add(a);
+			}
 		}
 
 		setMain(other);
@@ -1402,6 +1535,9 @@ public class SubmissionImpl implements Submission
 	protected void setMain(SubmissionImpl other)
 	{
 		this.assessment = new SubmissionAssessmentImpl(other.assessment, this);
+		this.answersAutoScore = other.answersAutoScore;
+		this.answersScore = other.answersScore;
+		this.answersUnscored = other.answersUnscored;
 		this.assessmentService = other.assessmentService;
 		this.attachmentService = other.attachmentService;
 		this.bestSubmissionId = other.bestSubmissionId;
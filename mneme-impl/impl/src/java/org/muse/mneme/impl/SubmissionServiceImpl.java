@@ -26,15 +26,24 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Observable;
+import java.util.Observer;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.muse.mneme.api.Answer;
+import org.muse.mneme.api.AnswerDistribution;
 import org.muse.mneme.api.Assessment;
 import org.muse.mneme.api.AssessmentClosedException;
 import org.muse.mneme.api.AssessmentCompletedException;
@@ -45,25 +54,27 @@ import org.muse.mneme.api.MnemeService;
 import org.muse.mneme.api.Part;
 import org.muse.mneme.api.Question;
 import org.muse.mneme.api.QuestionService;
+import org.muse.mneme.api.RescoreStatus;
 import org.muse.mneme.api.SecurityService;
 import org.muse.mneme.api.Submission;
 import org.muse.mneme.api.SubmissionCompletedException;
 import org.muse.mneme.api.SubmissionService;
 import org.sakaiproject.component.cover.ComponentManager;
 import org.sakaiproject.db.api.SqlService;
+import org.sakaiproject.event.api.Event;
 import org.sakaiproject.event.api.EventTrackingService;
+import org.sakaiproject.memory.api.MemoryService;
 import org.sakaiproject.thread_local.api.ThreadLocalManager;
 import org.sakaiproject.tool.api.Session;
 import org.sakaiproject.tool.api.SessionManager;
 import org.sakaiproject.user.api.User;
 import org.sakaiproject.user.api.UserDirectoryService;
-import org.sakaiproject.user.api.UserNotDefinedException;
 import org.sakaiproject.util.StringUtil;
 
 /**
  * SubmissionServiceImpl implements SubmissionService
  */
-public class SubmissionServiceImpl implements SubmissionService, Runnable
+public class SubmissionServiceImpl implements SubmissionService, Runnable, Observer
 {
 	/** Our logger. */
 	private static Log M_log = LogFactory.getLog(SubmissionServiceImpl.class);
@@ -74,15 +85,57 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 	/** The checker thread. */
 	protected Thread checkerThread = null;
 
+	/** The open submissions due to time out soon, scheduled for when they will be well over. */
+	protected DeadlineWheel deadlines = null;
+
+	/** The number of locks striped over (assessment, user) to keep concurrent entries from making more than one submission. */
+	protected final static int ENTER_LOCKS = 256;
+
+	/** The striped locks for submission entry. */
+	protected Object[] enterLocks = null;
+
 	/** Dependency: EventTrackingService */
 	protected EventTrackingService eventTrackingService = null;
 
 	/** Dependency: GradesService */
 	protected GradesService gradesService = null;
 
+	/** Dependency: MemoryService */
+	protected MemoryService memoryService = null;
+
+	/** The resolved question pick order for each submission and part. */
+	protected PickOrderCache pickOrderCache = null;
+
+	/** The maximum number of submission parts to keep question pick orders for. */
+	protected int pickOrderCacheSize = 10000;
+
 	/** Dependency: QuestionService */
 	protected QuestionService questionService = null;
 
+	/** The item analysis statistics for recently viewed assessments, kept current as submissions complete. */
+	protected QuestionStatsStore questionStats = null;
+
+	/** The maximum number of assessments to keep item analysis statistics for. */
+	protected int questionStatsSize = 100;
+
+	/** The number of answers to re-score and save together. */
+	protected int rescoreBatchSize = 500;
+
+	/** How long (ms) to keep the status of a finished re-score job. */
+	protected long rescoreJobKeepMs = 1000L * 60L * 60L;
+
+	/** The latest re-score job for each question, keyed by question id - finished jobs are kept for a while. */
+	protected Map<String, RescoreJob> rescoreJobs = new HashMap<String, RescoreJob>();
+
+	/** Runs the re-score jobs, one at a time. */
+	protected ExecutorService rescoreRunner = null;
+
+	/** The number of threads to re-score answers with. */
+	protected int rescoreThreads = Runtime.getRuntime().availableProcessors();
+
+	/** The threads that re-score the answers, a batch at a time. */
+	protected ExecutorService rescoreWorkers = null;
+
 	/** Dependency: SecurityService */
 	protected SecurityService securityService = null;
 
@@ -98,6 +151,15 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 	/** Storage handler. */
 	protected SubmissionStorage storage = null;
 
+	/** The node-wide cache of submissions read from storage, keyed by submission reference. */
+	protected MnemeCacheImpl submissionCache = null;
+
+	/** How long (seconds) a submission may stay in the submission cache. */
+	protected int submissionCacheSeconds = 15 * 60;
+
+	/** The maximum number of submissions in the submission cache. 0 disables. */
+	protected int submissionCacheSize = 2000;
+
 	/** Storage option map key for the option to use. */
 	protected String storageKey = null;
 
@@ -113,6 +175,9 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 	/** How long to wait (ms) between checks for timed-out submission in the db. 0 disables. */
 	protected long timeoutCheckMs = 1000L * 300L;
 
+	/** How often (ms) to complete the timed-out submissions found in the db checks. */
+	protected long timeoutTickMs = 1000L * 10L;
+
 	/** Dependency: UserDirectoryService. */
 	protected UserDirectoryService userDirectoryService = null;
 
@@ -297,6 +362,9 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 			if (!assessment.getDates().getIsOpen(Boolean.TRUE)) throw new AssessmentClosedException();
 		}
 
+		// the answers not yet stored
+		List<Answer> missing = makeMissingAnswers(submission, new ArrayList<Answer>());
+
 		// update the submission
 		submission.setSubmittedDate(asOf);
 		submission.setIsComplete(Boolean.TRUE);
@@ -308,12 +376,11 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 		}
 
 		// clear the cache
-		String key = cacheKey(submission.getId());
-		this.threadLocalManager.set(key, null);
+		uncacheSubmission(submission.getId());
 
-		// store the changes
+		// store the changes, with the missing answers
 		((SubmissionImpl) submission).clearIsChanged();
-		this.storage.saveSubmission((SubmissionImpl) submission);
+		this.storage.saveSubmissionAnswers((SubmissionImpl) submission, missing);
 
 		// report the grade (not for test drive)
 		if (!submission.getIsTestDrive())
@@ -330,34 +397,34 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 	 */
 	public Integer countAssessmentSubmissions(Assessment assessment, Boolean official, String allUid)
 	{
-		// TODO: review the efficiency of this method! -ggolden
-
 		if (assessment == null) throw new IllegalArgumentException();
 		if (official == null) throw new IllegalArgumentException();
-		Date asOf = new Date();
 
 		if (M_log.isDebugEnabled())
 			M_log.debug("countAssessmentSubmissions: assessment: " + assessment.getId() + " official: " + official + " allUid: " + allUid);
 
-		// get the submissions to the assignment made by all possible submitters
-		List<SubmissionImpl> all = getAssessmentSubmissions(assessment, FindAssessmentSubmissionsSort.status_a, null);
-
-		// see if any needs to be completed based on time limit or dates
-		checkAutoComplete(all, asOf);
+		// count what findAssessmentSubmissions would find: each possible submitter's submissions, or a phantom if they have none
+		Map<String, Integer> counts = this.storage.countAssessmentSubmissions(assessment);
+		Set<String> userIds = getSubmitterSortNames(assessment.getContext()).keySet();
 
-		// pick one for each assessment - the one in progress, or the official complete one (if official)
-		List<Submission> rv = null;
-		if (official)
-		{
-			rv = officializeByUser(all, allUid);
-		}
-		else
+		int rv = 0;
+		for (String userId : userIds)
 		{
-			rv = new ArrayList<Submission>(all.size());
-			rv.addAll(all);
+			Integer count = counts.get(userId);
+			int submissions = ((count == null) || (count.intValue() == 0)) ? 1 : count.intValue();
+
+			// official picks one for each user - except for allUid, who keeps them all
+			if (official && (!userId.equals(allUid)))
+			{
+				rv++;
+			}
+			else
+			{
+				rv += submissions;
+			}
 		}
 
-		return rv.size();
+		return Integer.valueOf(rv);
 	}
 
 	/**
@@ -368,13 +435,19 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 		if (assessment == null) throw new IllegalArgumentException();
 		if (question == null) throw new IllegalArgumentException();
 
-		// TODO: review the efficiency of this method! -ggolden
-
 		if (M_log.isDebugEnabled()) M_log.debug("countSubmissionAnswers: assessment: " + assessment.getId() + " question: " + question.getId());
 
-		List<Answer> answers = findSubmissionAnswers(assessment, question, FindAssessmentSubmissionsSort.status_a, null, null);
+		// count what findSubmissionAnswers would find: the answers in the possible submitters' completed submissions
+		Map<String, Integer> counts = this.storage.countAssessmentQuestionAnswers(assessment, question);
+		Set<String> userIds = getSubmitterSortNames(assessment.getContext()).keySet();
 
-		return answers.size();
+		int rv = 0;
+		for (Map.Entry<String, Integer> count : counts.entrySet())
+		{
+			if (userIds.contains(count.getKey())) rv += count.getValue().intValue();
+		}
+
+		return Integer.valueOf(rv);
 	}
 
 	/**
@@ -385,6 +458,29 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 		// stop the checking thread
 		stop();
 
+		// stop any re-scoring
+		if (this.rescoreRunner != null)
+		{
+			this.rescoreRunner.shutdownNow();
+			this.rescoreRunner = null;
+		}
+		if (this.rescoreWorkers != null)
+		{
+			this.rescoreWorkers.shutdownNow();
+			this.rescoreWorkers = null;
+		}
+
+		// drop the cache
+		if (this.submissionCache != null)
+		{
+			this.submissionCache.destroy();
+			this.submissionCache = null;
+		}
+
+		// stop watching for completions
+		this.eventTrackingService.deleteObserver(this);
+		this.questionStats.clear();
+
 		M_log.info("destroy()");
 	}
 
@@ -428,50 +524,72 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 			return submission;
 		}
 
-		// the user must be able to create a new submission
-		// test drive can skip this
-		if (!submission.getIsTestDrive())
+		SubmissionImpl rv = null;
+
+		// one entry at a time for this user and assessment on this server, so concurrent entries continue the first one's submission
+		synchronized (enterLock(submission.getAssessment().getId(), submission.getUserId()))
 		{
-			Integer remaining = countRemainingSubmissions(submission);
-			if ((remaining != null) && (remaining == 0)) throw new AssessmentCompletedException();
-		}
+			// another entry may have started one since this submission was read
+			Submission inProgress = getSubmissionInProgress(submission);
+			if (inProgress != null)
+			{
+				this.eventTrackingService.post(eventTrackingService.newEvent(MnemeService.SUBMISSION_CONTINUE,
+						getSubmissionReference(inProgress.getId()), false));
 
-		// TODO: it is possible to make too many submissions for the assessment. If this method is entered concurrently for the same user and
-		// assessment, the previous count check might fail.
+				return inProgress;
+			}
 
-		// go live - not for test drive
-		if ((!submission.getIsTestDrive()) && (!submission.getAssessment().getIsLive()))
-		{
-			((AssessmentServiceImpl) this.assessmentService).makeLive(submission.getAssessment());
-		}
+			// the user must be able to create a new submission
+			// test drive can skip this
+			if (!submission.getIsTestDrive())
+			{
+				Integer remaining = countRemainingSubmissions(submission);
+				if ((remaining != null) && (remaining == 0)) throw new AssessmentCompletedException();
+			}
 
-		// make a new submission
-		SubmissionImpl rv = this.storage.newSubmission();
-		rv.initAssessmentId(submission.getAssessment().getId());
-		rv.initUserId(submission.getUserId());
-		rv.setIsComplete(Boolean.FALSE);
-		rv.setStartDate(asOf);
-		rv.setSubmittedDate(asOf);
+			// go live - not for test drive
+			if ((!submission.getIsTestDrive()) && (!submission.getAssessment().getIsLive()))
+			{
+				((AssessmentServiceImpl) this.assessmentService).makeLive(submission.getAssessment());
+			}
 
-		// if the user does not have submit, mark it as test drive
-		if (!securityService.checkSecurity(submission.getUserId(), MnemeService.SUBMIT_PERMISSION, submission.getAssessment().getContext()))
-		{
-			rv.initTestDrive(Boolean.TRUE);
-		}
+			// make a new submission
+			rv = this.storage.newSubmission();
+			rv.initAssessmentId(submission.getAssessment().getId());
+			rv.initUserId(submission.getUserId());
+			rv.setIsComplete(Boolean.FALSE);
+			rv.setStartDate(asOf);
+			rv.setSubmittedDate(asOf);
 
-		// store the new submission, setting the id
-		((SubmissionImpl) rv).clearIsChanged();
-		this.storage.saveSubmission(rv);
+			// if the user does not have submit, mark it as test drive
+			if (!securityService.checkSecurity(submission.getUserId(), MnemeService.SUBMIT_PERMISSION, submission.getAssessment().getContext()))
+			{
+				rv.initTestDrive(Boolean.TRUE);
+			}
 
-		// populate the questions (need to first have the submission id set for the draws)
-		for (Question question : rv.getAssessment().getParts().getQuestions())
-		{
-			AnswerImpl answer = this.storage.newAnswer();
-			answer.initQuestion(question);
-			((SubmissionImpl) rv).replaceAnswer(answer);
+			// store the new submission, setting the id
+			((SubmissionImpl) rv).clearIsChanged();
+			try
+			{
+				this.storage.saveSubmission(rv);
+			}
+			catch (RuntimeException e)
+			{
+				// the db refused it - most likely another server stored the user's one submission in progress first
+				inProgress = getSubmissionInProgress(submission);
+				if (inProgress == null) throw e;
+
+				this.eventTrackingService.post(eventTrackingService.newEvent(MnemeService.SUBMISSION_CONTINUE,
+						getSubmissionReference(inProgress.getId()), false));
+
+				return inProgress;
+			}
 		}
-		((SubmissionImpl) rv).clearIsChanged();
-		this.storage.saveAnswers(rv.getAnswers());
+
+		// watch for it to time out
+		scheduleTimeOut(rv);
+
+		// no answers are stored now - each is stored when first saved, the rest when the submission completes
 
 		// event track it
 		eventTrackingService.post(eventTrackingService.newEvent(MnemeService.SUBMISSION_ENTER, getSubmissionReference(rv.getId()), true));
@@ -527,8 +645,7 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 				((AnswerImpl) answer).clearIsChanged();
 
 				// clear the answer's submission from the thread-local cache
-				String key = cacheKey(answer.getSubmission().getId());
-				this.threadLocalManager.set(key, null);
+				uncacheSubmission(answer.getSubmission().getId());
 
 				submissions.add(answer.getSubmission());
 			}
@@ -705,9 +822,8 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 			this.storage.saveSubmissionReleased((SubmissionImpl) submission);
 		}
 
-		// clear the cache
-		String key = cacheKey(submission.getId());
-		this.threadLocalManager.set(key, null);
+		// clear the caches
+		uncacheSubmission(submission.getId());
 
 		// event
 		eventTrackingService.post(eventTrackingService.newEvent(MnemeService.SUBMISSION_GRADE, getSubmissionReference(submission.getId()), true));
@@ -745,7 +861,7 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 			// for single answer submissions that have no submission evaluation
 			if (!submission.getEvaluationUsed())
 			{
-				Answer answer = submission.answers.get(0);
+				Answer answer = submission.getAnswers().get(0);
 
 				// if there's a comment to set, append it
 				if (comment != null)
@@ -785,8 +901,7 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 					((EvaluationImpl) answer.getEvaluation()).clearIsChanged();
 
 					// clear the cache
-					String key = cacheKey(submission.getId());
-					this.threadLocalManager.set(key, null);
+					uncacheSubmission(submission.getId());
 
 					// save
 					List<Answer> answers = new ArrayList(1);
@@ -839,8 +954,7 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 					((EvaluationImpl) submission.getEvaluation()).clearIsChanged();
 
 					// clear the cache
-					String key = cacheKey(submission.getId());
-					this.threadLocalManager.set(key, null);
+					uncacheSubmission(submission.getId());
 
 					// save
 					this.storage.saveSubmissionEvaluation(submission);
@@ -911,6 +1025,8 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 			rv = rv.subList(start, end);
 		}
 
+		// the submissions carry their answer score summary - answers are read if someone asks for them
+
 		return rv;
 	}
 
@@ -922,16 +1038,10 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 		if (M_log.isDebugEnabled()) M_log.debug("findPartQuestions: " + part.getId());
 
 		List<String> qids = this.storage.findPartQuestions(part);
-		List<Question> rv = new ArrayList<Question>();
-
-		for (String qid : qids)
+		List<Question> rv = this.questionService.getQuestions(qids);
+		for (Question q : rv)
 		{
-			QuestionImpl q = (QuestionImpl) this.questionService.getQuestion(qid);
-			if (q != null)
-			{
-				q.initPartContext(part);
-				rv.add(q);
-			}
+			((QuestionImpl) q).initPartContext(part);
 		}
 
 		// sort by question text
@@ -1075,8 +1185,11 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 		if (M_log.isDebugEnabled())
 			M_log.debug("findAssessmentSubmissions: assessment: " + assessment.getId() + " question: " + question.getId() + " sort: " + sort);
 
+		// the scores of the answers to this question, by submission id - only answered answers are included
+		Map<String, Float> answerScores = this.storage.getAssessmentQuestionAnswerScores(assessment, question);
+
 		// read all the submissions for this assessment from all possible submitters
-		List<SubmissionImpl> all = getAssessmentSubmissions(assessment, sort, question);
+		List<SubmissionImpl> all = getAssessmentSubmissions(assessment, sort, answerScores);
 
 		// see if any needs to be completed based on time limit or dates
 		checkAutoComplete(all, asOf);
@@ -1091,17 +1204,13 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 			rv = sortByGradingSubmissionStatus((sort == FindAssessmentSubmissionsSort.status_d), rv);
 		}
 
-		// pull out the one answer we want from the completed submissions
-		List<Answer> answers = new ArrayList<Answer>();
+		// keep the completed submissions that answered the question
+		List<SubmissionImpl> answered = new ArrayList<SubmissionImpl>();
 		for (Submission s : rv)
 		{
-			if (s.getIsComplete())
+			if (s.getIsComplete() && answerScores.containsKey(s.getId()))
 			{
-				Answer a = s.getAnswer(question);
-				if ((a != null) && (a.getIsAnswered()))
-				{
-					answers.add(a);
-				}
+				answered.add((SubmissionImpl) s);
 			}
 		}
 
@@ -1111,19 +1220,42 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 			// start at ((pageNum-1)*pageSize)
 			int start = ((pageNum - 1) * pageSize);
 			if (start < 0) start = 0;
-			if (start > answers.size()) start = answers.size() - 1;
+			if (start > answered.size()) start = answered.size() - 1;
 
 			// end at ((pageNum)*pageSize)-1, or max-1, (note: subList is not inclusive for the end position)
 			int end = ((pageNum) * pageSize);
 			if (end < 0) end = 0;
-			if (end > answers.size()) end = answers.size();
+			if (end > answered.size()) end = answered.size();
+
+			answered = answered.subList(start, end);
+		}
 
-			answers = answers.subList(start, end);
+		// read the answers for just the submissions on the page, and pull out the one answer we want
+		this.storage.readAnswers(answered);
+		List<Answer> answers = new ArrayList<Answer>(answered.size());
+		for (SubmissionImpl s : answered)
+		{
+			Answer a = s.getAnswer(question);
+			if ((a != null) && (a.getIsAnswered()))
+			{
+				answers.add(a);
+			}
 		}
 
 		return answers;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public AnswerDistribution getAnswerDistribution(Question question, List<Submission> submissions)
+	{
+		// the stats are kept for questions in an assessment, else count these submissions
+		if ((question.getPart() == null) || (question.getPart().getAssessment() == null)) return new QuestionStats(question, submissions);
+
+		return this.questionStats.getQuestionStats(question.getPart().getAssessment(), question);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -1145,6 +1277,9 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 
 		if (M_log.isDebugEnabled()) M_log.debug("getAssessmentHasUnscoredSubmissions:" + assessment.getId());
 
+		// most of the time there are none - find that out without finding who
+		if (!this.storage.unscoredSubmissionsExist(assessment)) return Boolean.FALSE;
+
 		// get all the user ids with submissions that are unscored
 		List<String> ids = this.storage.getAssessmentHasUnscoredSubmissions(assessment);
 		if (!ids.isEmpty())
@@ -1233,6 +1368,19 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 		return rv;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<String> getAssessmentsGradedSince(Date since)
+	{
+		if (since == null) throw new IllegalArgumentException();
+
+		if (M_log.isDebugEnabled()) M_log.debug("getAssessmentsGradedSince:" + since);
+
+		List<String> rv = this.storage.getAssessmentsGradedSince(since);
+		return rv;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -1284,6 +1432,19 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 		return rv;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public RescoreStatus getRescoreStatus(Question question)
+	{
+		if (question == null) throw new IllegalArgumentException();
+
+		synchronized (this.rescoreJobs)
+		{
+			return this.rescoreJobs.get(question.getId());
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -1318,12 +1479,37 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 			return rv;
 		}
 
+		// check the submission cache
+		String ref = getSubmissionReference(id);
+		long version = 0;
+		if (this.submissionCache != null)
+		{
+			rv = (SubmissionImpl) this.submissionCache.get(ref);
+			if (rv != null)
+			{
+				// thread-local cache (a copy), and return a copy
+				this.threadLocalManager.set(key, this.storage.clone(rv));
+				return this.storage.clone(rv);
+			}
+
+			version = this.submissionCache.getVersion();
+		}
+
 		if (M_log.isDebugEnabled()) M_log.debug("getSubmission: " + id);
 
 		rv = this.storage.getSubmission(id);
 
-		// thread-local cache (a copy)
-		if (rv != null) this.threadLocalManager.set(key, this.storage.clone(rv));
+		if (rv != null)
+		{
+			// thread-local cache (a copy)
+			this.threadLocalManager.set(key, this.storage.clone(rv));
+
+			// submission cache (a copy), unless something changed while we were reading
+			if (this.submissionCache != null)
+			{
+				this.submissionCache.putIfCurrent(ref, this.storage.clone(rv), this.submissionCacheSeconds, version);
+			}
+		}
 
 		return rv;
 	}
@@ -1361,6 +1547,15 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 			publishedOnly = Boolean.FALSE;
 		}
 
+		// get all the assessments for this context, noting the valid ones from their stored validity
+		List<Assessment> assessments = this.assessmentService
+				.getContextAssessments(context, AssessmentService.AssessmentsSort.title_a, publishedOnly);
+		Set<String> valid = new HashSet<String>();
+		for (Assessment a : assessments)
+		{
+			if (((AssessmentImpl) a).getStoredValid()) valid.add(a.getId());
+		}
+
 		// read all the submissions for this user in the context
 		List<SubmissionImpl> all = this.storage.getUserContextSubmissions(context, userId, publishedOnly);
 
@@ -1368,20 +1563,16 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 		for (Iterator i = all.iterator(); i.hasNext();)
 		{
 			Submission s = (Submission) i.next();
-			if (!s.getAssessment().getIsValid())
+			if (!valid.contains(s.getAssessment().getId()))
 			{
 				i.remove();
 			}
 		}
 
-		// get all the assessments for this context
-		List<Assessment> assessments = this.assessmentService
-				.getContextAssessments(context, AssessmentService.AssessmentsSort.title_a, publishedOnly);
-
 		// if any valid assessment is not represented in the submissions we found, add an empty submission for it
 		for (Assessment a : assessments)
 		{
-			if (!a.getIsValid()) continue;
+			if (!valid.contains(a.getId())) continue;
 
 			boolean found = false;
 			for (Submission s : all)
@@ -1564,13 +1755,42 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 
 			storage.init();
 
-			// start the checking thread
+			// entry locks - each (assessment, user) maps to one, so entries for different users rarely wait on each other
+			this.enterLocks = new Object[ENTER_LOCKS];
+			for (int i = 0; i < ENTER_LOCKS; i++)
+			{
+				this.enterLocks[i] = new Object();
+			}
+
+			// the submission cache, invalidated by events on the submission's reference (with any ":" answer details removed)
+			if (this.submissionCacheSize > 0)
+			{
+				this.submissionCache = new MnemeCacheImpl(this.memoryService, this.eventTrackingService, this.submissionCacheSize,
+						getSubmissionReference(""), ":");
+			}
+
+			// item analysis stats, kept current by watching for submission completions (here and on other servers)
+			this.questionStats = new QuestionStatsStore(this.storage, this.questionStatsSize);
+
+			// question pick orders, dropped when assessments, pools or questions change (here and on other servers)
+			this.pickOrderCache = new PickOrderCache(this.pickOrderCacheSize);
+
+			// re-scoring: jobs run one at a time, each spreading its answers over the workers
+			this.rescoreRunner = Executors.newSingleThreadExecutor();
+			this.rescoreWorkers = Executors.newFixedThreadPool(Math.max(1, this.rescoreThreads));
+
+			this.eventTrackingService.addPriorityObserver(this);
+
+			// start the checking thread, with a wheel to hold what will time out before each check
 			if (timeoutCheckMs > 0)
 			{
+				this.deadlines = new DeadlineWheel(this.timeoutTickMs, (int) (this.timeoutCheckMs / this.timeoutTickMs) + 1, System
+						.currentTimeMillis());
 				start();
 			}
 
-			M_log.info("init(): timout check seconds: " + timeoutCheckMs / 1000 + " storage: " + this.storage);
+			M_log.info("init(): timout check seconds: " + timeoutCheckMs / 1000 + " submission cache size: " + this.submissionCacheSize
+					+ " storage: " + this.storage);
 		}
 		catch (Throwable t)
 		{
@@ -1609,13 +1829,12 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 			// clear the changed flag
 			((SubmissionImpl) submission).clearReleasedIsChanged();
 
-			// clear the cache
-			String key = cacheKey(submission.getId());
-			this.threadLocalManager.set(key, null);
-
 			// save release info
 			this.storage.saveSubmissionReleased(submission);
 
+			// clear the caches
+			uncacheSubmission(submission.getId());
+
 			// event
 			eventTrackingService.post(eventTrackingService.newEvent(MnemeService.SUBMISSION_GRADE, getSubmissionReference(submission.getId()), true));
 
@@ -1627,6 +1846,43 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public RescoreStatus rescoreAnswers(final Question question) throws AssessmentPermissionException
+	{
+		if (question == null) throw new IllegalArgumentException();
+
+		if (M_log.isDebugEnabled()) M_log.debug("rescoreAnswers: " + question.getId());
+
+		// security check
+		securityService.secure(sessionManager.getCurrentSessionUserId(), MnemeService.GRADE_PERMISSION, question.getContext());
+
+		// queue the job - if one is already running for the question, this one runs after it
+		final RescoreJob job = new RescoreJob(question.getId());
+		synchronized (this.rescoreJobs)
+		{
+			// drop the jobs finished long enough ago
+			long stale = System.currentTimeMillis() - this.rescoreJobKeepMs;
+			for (Iterator<RescoreJob> i = this.rescoreJobs.values().iterator(); i.hasNext();)
+			{
+				if (i.next().isCompleteBefore(stale)) i.remove();
+			}
+
+			this.rescoreJobs.put(question.getId(), job);
+		}
+
+		this.rescoreRunner.execute(new Runnable()
+		{
+			public void run()
+			{
+				rescore(job, question);
+			}
+		});
+
+		return job;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -1656,8 +1912,7 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 			((SubmissionImpl) submission).clearReleasedIsChanged();
 
 			// clear the cache
-			String key = cacheKey(submission.getId());
-			this.threadLocalManager.set(key, null);
+			uncacheSubmission(submission.getId());
 
 			// save the released info
 			this.storage.saveSubmissionReleased(submission);
@@ -1682,39 +1937,29 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 		// such as at server startup, wait here for a complete component manager
 		ComponentManager.waitTillConfigured();
 
+		long nextCheck = 0;
+
 		// loop till told to stop
 		while ((!threadStop) && (!Thread.currentThread().isInterrupted()))
 		{
 			try
 			{
-				if (M_log.isDebugEnabled()) M_log.debug("run: running");
+				long now = System.currentTimeMillis();
 
-				// get a list of submissions that are open, timed, and well expired (considering double our grace period),
-				// or open and past an accept-until date
-				List<Submission> submissions = getTimedOutSubmissions(2 * MnemeService.GRACE);
-
-				// for each one, close it if it is still open
-				for (Submission submission : submissions)
+				// each check period, pick up from the db the submissions that will be well over (considering double our grace period)
+				// before the next check
+				if (now >= nextCheck)
 				{
-					// we need to establish the "current" user to be the submission user
-					// so that various attributions of the complete process have the proper user
-					String user = submission.getUserId();
-					Session s = sessionManager.getCurrentSession();
-					if (s != null)
-					{
-						s.setUserId(user);
-					}
-					else
-					{
-						M_log.warn("run - no SessionManager.getCurrentSession, cannot set to user");
-					}
+					if (M_log.isDebugEnabled()) M_log.debug("run: checking");
 
-					// complete this submission, using the exact 'over' date for the final date
-					Date over = submission.getWhenOver();
-					if (over != null)
-					{
-						autoCompleteSubmission(over, submission);
-					}
+					nextCheck = now + this.timeoutCheckMs;
+					scheduleTimedOutSubmissions(nextCheck);
+				}
+
+				// close those that are now due
+				for (String id : this.deadlines.advance(now))
+				{
+					timeOutSubmission(id, now);
 				}
 			}
 			catch (Throwable e)
@@ -1730,7 +1975,7 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 			// take a small nap
 			try
 			{
-				Thread.sleep(timeoutCheckMs);
+				Thread.sleep(Math.min(this.timeoutTickMs, this.timeoutCheckMs));
 			}
 			catch (Exception ignore)
 			{
@@ -1782,6 +2027,28 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 		this.gradesService = service;
 	}
 
+	/**
+	 * Dependency: MemoryService.
+	 * 
+	 * @param service
+	 *        The MemoryService.
+	 */
+	public void setMemoryService(MemoryService service)
+	{
+		this.memoryService = service;
+	}
+
+	/**
+	 * Set the maximum number of submission parts to keep question pick orders for.
+	 * 
+	 * @param size
+	 *        The maximum number of submission parts.
+	 */
+	public void setPickOrderCacheSize(String size)
+	{
+		this.pickOrderCacheSize = Integer.parseInt(size);
+	}
+
 	/**
 	 * Dependency: QuestionService.
 	 * 
@@ -1793,6 +2060,39 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 		this.questionService = service;
 	}
 
+	/**
+	 * Set the number of answers to re-score and save together.
+	 * 
+	 * @param size
+	 *        The number of answers in each batch.
+	 */
+	public void setRescoreBatchSize(String size)
+	{
+		this.rescoreBatchSize = Integer.parseInt(size);
+	}
+
+	/**
+	 * Set the number of threads to re-score answers with.
+	 * 
+	 * @param count
+	 *        The number of threads.
+	 */
+	public void setRescoreThreads(String count)
+	{
+		this.rescoreThreads = Integer.parseInt(count);
+	}
+
+	/**
+	 * Set the maximum number of assessments to keep item analysis statistics for.
+	 * 
+	 * @param size
+	 *        The maximum number of assessments.
+	 */
+	public void setQuestionStatsSize(String size)
+	{
+		this.questionStatsSize = Integer.parseInt(size);
+	}
+
 	/**
 	 * Dependency: SecurityService.
 	 * 
@@ -1848,6 +2148,28 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 		this.storageKey = key;
 	}
 
+	/**
+	 * Set the # seconds a submission may stay in the submission cache.
+	 * 
+	 * @param time
+	 *        The # seconds a submission may stay in the submission cache.
+	 */
+	public void setSubmissionCacheSeconds(String time)
+	{
+		this.submissionCacheSeconds = Integer.parseInt(time);
+	}
+
+	/**
+	 * Set the maximum number of submissions to hold in the submission cache.
+	 * 
+	 * @param size
+	 *        The maximum number of submissions to cache - 0 disables the cache.
+	 */
+	public void setSubmissionCacheSize(String size)
+	{
+		this.submissionCacheSize = Integer.parseInt(size);
+	}
+
 	/**
 	 * Dependency: ThreadLocalManager.
 	 * 
@@ -1870,6 +2192,17 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 		this.timeoutCheckMs = Integer.parseInt(time) * 1000L;
 	}
 
+	/**
+	 * Set the # seconds between completing the timed-out submissions found in the db checks.
+	 * 
+	 * @param time
+	 *        The # seconds between completing the timed-out submissions found in the db checks.
+	 */
+	public void setTimeoutTickSeconds(String time)
+	{
+		this.timeoutTickMs = Integer.parseInt(time) * 1000L;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -1955,6 +2288,15 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 		Submission submission = getSubmission(answers.get(0).getSubmission().getId());
 		Assessment assessment = submission.getAssessment();
 
+		// a virtual answer to a question that has since been answered (say from another window) updates the stored answer
+		for (Answer answer : answers)
+		{
+			if (answer.getId() != null) continue;
+
+			Answer stored = ((SubmissionImpl) submission).findAnswer(((AnswerImpl) answer).questionId);
+			if ((stored != null) && (stored.getId() != null)) ((AnswerImpl) answer).initId(stored.getId());
+		}
+
 		// make sure this is an incomplete submission must be incomplete
 		if (submission.getIsComplete()) throw new SubmissionCompletedException();
 
@@ -2023,9 +2365,17 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 			}
 		}
 
-		// complete the submission is requested to
+		// complete the submission is requested to, storing the answers not yet stored along with these
+		List<Answer> save = work;
 		if (completeSubmission)
 		{
+			List<Answer> missing = makeMissingAnswers(submission, answers);
+			if (!missing.isEmpty())
+			{
+				save = new ArrayList<Answer>(work);
+				save.addAll(missing);
+			}
+
 			submission.setIsComplete(Boolean.TRUE);
 
 			// check if we should also mark it graded
@@ -2035,14 +2385,12 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 			}
 		}
 
-		// clear the cache
-		String key = cacheKey(submission.getId());
-		this.threadLocalManager.set(key, null);
-
-		// save the answers, update the submission
+		// save the answers, update the submission - together
 		((SubmissionImpl) submission).clearIsChanged();
-		this.storage.saveSubmission((SubmissionImpl) submission);
-		this.storage.saveAnswers(work);
+		this.storage.saveSubmissionAnswers((SubmissionImpl) submission, save);
+
+		// clear the caches
+		uncacheSubmission(submission.getId());
 
 		// event track it (one for each answer)
 		for (Answer answer : work)
@@ -2065,6 +2413,46 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public void update(Observable o, Object arg)
+	{
+		// arg is Event
+		if (!(arg instanceof Event)) return;
+		Event event = (Event) arg;
+
+		// changes to what the draws and shuffles are made from make the question pick orders that depend on them stale
+		String function = event.getEvent();
+		if (MnemeService.ASSESSMENT_EDIT.equals(function) || MnemeService.ASSESSMENT_DELETE.equals(function) || MnemeService.POOL_EDIT.equals(function)
+				|| MnemeService.POOL_DELETE.equals(function) || MnemeService.QUESTION_NEW.equals(function) || MnemeService.QUESTION_EDIT.equals(function)
+				|| MnemeService.QUESTION_DELETE.equals(function))
+		{
+			if ((this.pickOrderCache != null) && (event.getResource() != null)) uncachePickOrders(function, event.getResource());
+			return;
+		}
+
+		// otherwise we only care about submissions completing
+		if (!(MnemeService.SUBMISSION_COMPLETE.equals(function) || MnemeService.SUBMISSION_AUTO_COMPLETE.equals(function))) return;
+
+		// and only if we are keeping stats
+		if (this.questionStats.isEmpty()) return;
+
+		// the submission id is the last part of the reference
+		String ref = event.getResource();
+		if (ref == null) return;
+		String id = ref.substring(ref.lastIndexOf('/') + 1);
+
+		if (M_log.isDebugEnabled()) M_log.debug("update: " + function + " : " + id);
+
+		// only if we are keeping stats for the submission's assessment
+		String assessmentId = this.storage.getCompleteSubmissionAssessmentId(id);
+		if ((assessmentId == null) || (!this.questionStats.isLoaded(assessmentId))) return;
+
+		// count the completed submission's answers in its assessment's stats
+		this.questionStats.add(assessmentId, id, this.storage.getSubmissionAnswersData(id));
+	}
+
 	/**
 	 * Mark the submission as auto-complete as of now.
 	 * 
@@ -2081,6 +2469,9 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 
 		if (M_log.isDebugEnabled()) M_log.debug("autoCompleteSubmission: submission: " + submission.getId());
 
+		// the answers not yet stored
+		List<Answer> missing = makeMissingAnswers(submission, new ArrayList<Answer>());
+
 		// update the submission
 		submission.setIsComplete(Boolean.TRUE);
 		submission.setSubmittedDate(asOf);
@@ -2091,11 +2482,11 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 		}
 
 		// clear the cache
-		String key = cacheKey(submission.getId());
-		this.threadLocalManager.set(key, null);
+		uncacheSubmission(submission.getId());
 
+		// store the changes, with the missing answers
 		((SubmissionImpl) submission).clearIsChanged();
-		this.storage.saveSubmission((SubmissionImpl) submission);
+		this.storage.saveSubmissionAnswers((SubmissionImpl) submission, missing);
 
 		// push the grade
 		if (!submission.getIsTestDrive())
@@ -2123,26 +2514,6 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 		return key;
 	}
 
-	/**
-	 * Check if the candidate has a better score than the best so far.
-	 * 
-	 * @param bestSubmission
-	 *        The best so far.
-	 * @param candidateSub
-	 *        The candidate.
-	 * @return true if the candidate is better, false if not.
-	 */
-	protected boolean candidateBetter(SubmissionImpl bestSubmission, SubmissionImpl candidateSub)
-	{
-		Float best = bestSubmission.getTotalScore();
-		Float candidate = candidateSub.getTotalScore();
-		if ((best == null) && (candidate == null)) return false;
-		if (candidate == null) return false;
-		if (best == null) return true;
-		if (best.floatValue() < candidate.floatValue()) return true;
-		return false;
-	}
-
 	/**
 	 * Check a list of submissions to see if they need to be auto-completed.
 	 * 
@@ -2209,6 +2580,21 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 		return this.shuffle106CrossoverId;
 	}
 
+	/**
+	 * Find the entry lock for this user and assessment.
+	 * 
+	 * @param assessmentId
+	 *        The assessment id.
+	 * @param userId
+	 *        The user id.
+	 * @return The lock object to synchronize on.
+	 */
+	protected Object enterLock(String assessmentId, String userId)
+	{
+		int hash = (assessmentId + "/" + userId).hashCode() & 0x7fffffff;
+		return this.enterLocks[hash % ENTER_LOCKS];
+	}
+
 	/**
 	 * Get the submissions to the assignment made by all users.
 	 * 
@@ -2216,40 +2602,30 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 	 *        The assessment.
 	 * @param sort
 	 *        The sort.
-	 * @param question
-	 *        An optional question, to use for sort-by-score (the score would be for this question in the submission, not the overall).
-	 * @return A List<Submission> of the submissions for the assessment.
+	 * @param answerScores
+	 *        An optional map of submission id to the score of one question's answer, to use for sort-by-score (the score would be for this
+	 *        question in the submission, not the overall).
+	 * @return A List<Submission> of the submissions for the assessment, read without their answers.
 	 */
-	protected List<SubmissionImpl> getAssessmentSubmissions(Assessment assessment, final FindAssessmentSubmissionsSort sort, final Question question)
+	protected List<SubmissionImpl> getAssessmentSubmissions(Assessment assessment, final FindAssessmentSubmissionsSort sort,
+			final Map<String, Float> answerScores)
 	{
 		// collect the submissions to this assessment
 		List<SubmissionImpl> rv = this.storage.getAssessmentSubmissions(assessment);
 
-		// get all possible users who can submit
-		Set<String> userIds = this.securityService.getUsersIsAllowed(MnemeService.SUBMIT_PERMISSION, assessment.getContext());
+		// get all possible users who can submit, with their sort names
+		final Map<String, String> sortNames = getSubmitterSortNames(assessment.getContext());
+		Set<String> userIds = sortNames.keySet();
 
-		// filter out any userIds that are not currently defined
-		List<User> users = this.userDirectoryService.getUsers(userIds);
-		userIds.clear();
-		for (User user : users)
+		// if any user is not represented in the submissions we found, add an empty submission
+		Set<String> found = new HashSet<String>();
+		for (Submission s : rv)
 		{
-			userIds.add(user.getId());
+			found.add(s.getUserId());
 		}
-
-		// if any user is not represented in the submissions we found, add an empty submission
 		for (String userId : userIds)
 		{
-			boolean found = false;
-			for (Submission s : rv)
-			{
-				if (s.getUserId().equals(userId))
-				{
-					found = true;
-					break;
-				}
-			}
-
-			if (!found)
+			if (!found.contains(userId))
 			{
 				SubmissionImpl s = this.getPhantomSubmission(userId, assessment);
 				rv.add(s);
@@ -2281,25 +2657,8 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 					case status_a:
 					case status_d:
 					{
-						String id0 = ((Submission) arg0).getUserId();
-						try
-						{
-							User u = userDirectoryService.getUser(id0);
-							id0 = u.getSortName();
-						}
-						catch (UserNotDefinedException e)
-						{
-						}
-
-						String id1 = ((Submission) arg1).getUserId();
-						try
-						{
-							User u = userDirectoryService.getUser(id1);
-							id1 = u.getSortName();
-						}
-						catch (UserNotDefinedException e)
-						{
-						}
+						String id0 = getSubmitterSortName(sortNames, ((Submission) arg0).getUserId());
+						String id1 = getSubmitterSortName(sortNames, ((Submission) arg1).getUserId());
 
 						rv = id0.compareToIgnoreCase(id1);
 						secondary = FindAssessmentSubmissionsSort.sdate_a;
@@ -2310,12 +2669,12 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 					{
 						Float final0 = null;
 						Float final1 = null;
-						if (question != null)
+						if (answerScores != null)
 						{
-							Answer a0 = ((Submission) arg0).getAnswer(question);
-							Answer a1 = ((Submission) arg1).getAnswer(question);
-							final0 = ((a0 == null) ? Float.valueOf(0f) : a0.getTotalScore());
-							final1 = ((a1 == null) ? Float.valueOf(0f) : a1.getTotalScore());
+							String sid0 = ((Submission) arg0).getId();
+							String sid1 = ((Submission) arg1).getId();
+							final0 = (answerScores.containsKey(sid0) ? answerScores.get(sid0) : Float.valueOf(0f));
+							final1 = (answerScores.containsKey(sid1) ? answerScores.get(sid1) : Float.valueOf(0f));
 						}
 						else
 						{
@@ -2379,25 +2738,8 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 						case userName_a:
 						case userName_d:
 						{
-							String id0 = ((Submission) arg0).getUserId();
-							try
-							{
-								User u = userDirectoryService.getUser(id0);
-								id0 = u.getSortName();
-							}
-							catch (UserNotDefinedException e)
-							{
-							}
-
-							String id1 = ((Submission) arg1).getUserId();
-							try
-							{
-								User u = userDirectoryService.getUser(id1);
-								id1 = u.getSortName();
-							}
-							catch (UserNotDefinedException e)
-							{
-							}
+							String id0 = getSubmitterSortName(sortNames, ((Submission) arg0).getUserId());
+							String id1 = getSubmitterSortName(sortNames, ((Submission) arg1).getUserId());
 
 							rv = id0.compareToIgnoreCase(id1);
 							third = FindAssessmentSubmissionsSort.sdate_a;
@@ -2479,6 +2821,16 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 		return rv;
 	}
 
+	/**
+	 * Access the cache of question pick orders.
+	 * 
+	 * @return The PickOrderCache, or null if not yet set up.
+	 */
+	protected PickOrderCache getPickOrderCache()
+	{
+		return this.pickOrderCache;
+	}
+
 	/**
 	 * Create a phantom submission for this user and this assessment.
 	 * 
@@ -2508,70 +2860,82 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 	}
 
 	/**
-	 * Form a submission reference for this submission id.
+	 * Get a submitter's sort name, or the user id if we have no sort name for the user.
 	 * 
-	 * @param submissionId
-	 *        the submission id.
-	 * @return the submission reference for this submission id.
+	 * @param sortNames
+	 *        The submitter sort names, from getSubmitterSortNames().
+	 * @param userId
+	 *        The user id.
+	 * @return The user's sort name, or user id.
 	 */
-	protected String getSubmissionReference(String submissionId)
+	protected String getSubmitterSortName(Map<String, String> sortNames, String userId)
 	{
-		return MnemeService.REFERENCE_ROOT + "/" + MnemeService.SUBMISSION_TYPE + "/" + submissionId;
+		String rv = sortNames.get(userId);
+		if (rv == null) rv = userId;
+
+		return rv;
 	}
 
 	/**
-	 * Find the submissions that are open, timed, and well expired, or open and past a submit-until date
+	 * Get the users who may submit in this context, with their sort names, cached for the thread.
 	 * 
-	 * @param grace
-	 *        The number of ms past the time limit that the submission's elapsed time must be to qualify
-	 * @return A List of the submissions that are open, timed, and well expired.
+	 * @param context
+	 *        The context.
+	 * @return A map of user id to sort name for each (defined) user who may submit in the context.
 	 */
-	protected List<Submission> getTimedOutSubmissions(final long grace)
+	protected Map<String, String> getSubmitterSortNames(String context)
 	{
-		if (M_log.isDebugEnabled()) M_log.debug("getTimedOutSubmissions");
-
-		final Date asOf = new Date();
+		String key = "mneme:submitters:" + context;
+		Map<String, String> rv = (Map<String, String>) this.threadLocalManager.get(key);
+		if (rv != null) return rv;
 
-		// select all open submission for every user assessment context
-		// TODO: tune this so more is done in the db, fewer are read -ggolden
-		List<SubmissionImpl> all = this.storage.getOpenSubmissions();
+		// get all possible users who can submit
+		Set<String> userIds = this.securityService.getUsersIsAllowed(MnemeService.SUBMIT_PERMISSION, context);
 
-		// filter the ones we really want
-		List<Submission> rv = new ArrayList<Submission>();
-		for (Submission submission : all)
+		// filter out any userIds that are not currently defined
+		List<User> users = this.userDirectoryService.getUsers(userIds);
+		rv = new HashMap<String, String>();
+		for (User user : users)
 		{
-			// see if we want this one
-			boolean selected = false;
+			rv.put(user.getId(), user.getSortName());
+		}
 
-			// for timed, if the elapsed time since their start is well past the time limit
-			if (submission.getAssessment().getTimeLimit() != null)
-			{
-				if ((submission.getAssessment().getTimeLimit() > 0) && (submission.getSubmittedDate() != null)
-						&& ((asOf.getTime() - submission.getSubmittedDate().getTime()) > (submission.getAssessment().getTimeLimit() + grace)))
-				{
-					selected = true;
-				}
-			}
+		this.threadLocalManager.set(key, rv);
 
-			// for past submit-until date (ignore test drives)
-			if (!submission.getIsTestDrive())
-			{
-				if (submission.getAssessment().getDates().getSubmitUntilDate() != null)
-				{
-					if (asOf.getTime() > (submission.getAssessment().getDates().getSubmitUntilDate().getTime() + grace))
-					{
-						selected = true;
-					}
-				}
-			}
-			// TODO: what about unpublished? archived?
+		return rv;
+	}
 
-			if (selected) rv.add(submission);
-		}
+	/**
+	 * Find the user's submission in progress to the assessment, as stored.
+	 * 
+	 * @param submission
+	 *        A submission for the user and assessment.
+	 * @return The user's submission in progress to the assessment, or null if there is none.
+	 */
+	protected Submission getSubmissionInProgress(Submission submission)
+	{
+		String id = this.storage.getUserAssessmentInProgress(submission.getAssessment(), submission.getUserId());
+		if (id == null) return null;
+
+		// the one found may just have been completed
+		Submission rv = getSubmission(id);
+		if ((rv == null) || rv.getIsComplete()) return null;
 
 		return rv;
 	}
 
+	/**
+	 * Form a submission reference for this submission id.
+	 * 
+	 * @param submissionId
+	 *        the submission id.
+	 * @return the submission reference for this submission id.
+	 */
+	protected String getSubmissionReference(String submissionId)
+	{
+		return MnemeService.REFERENCE_ROOT + "/" + MnemeService.SUBMISSION_TYPE + "/" + submissionId;
+	}
+
 	/**
 	 * Get the user's submissions to the assessment. If there are none, create a phantom.
 	 * 
@@ -2595,6 +2959,53 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 		return rv;
 	}
 
+	/**
+	 * Make the answers, not yet stored, for the rest of the questions of a submission in progress - answers are stored only once something is saved
+	 * for them, so a submission needs the rest filled in as it completes, for grading.
+	 * 
+	 * @param submission
+	 *        The submission, not yet marked complete.
+	 * @param saving
+	 *        The answers being saved along with these, whose questions need nothing more.
+	 * @return The new answers, to be inserted. May be empty.
+	 */
+	protected List<Answer> makeMissingAnswers(Submission submission, List<Answer> saving)
+	{
+		Set<String> questionIds = new HashSet<String>();
+		for (Answer answer : saving)
+		{
+			questionIds.add(((AnswerImpl) answer).questionId);
+		}
+
+		List<Answer> rv = new ArrayList<Answer>();
+		if (submission.getAssessment() == null) return rv;
+
+		for (Question question : submission.getAssessment().getParts().getQuestions())
+		{
+			if (questionIds.contains(question.getId())) continue;
+
+			// a virtual answer, for a question with nothing stored
+			AnswerImpl answer = (AnswerImpl) submission.getAnswer(question);
+			if ((answer != null) && (answer.getId() == null))
+			{
+				answer.initStoredAutoScore(answer.computeAutoScore());
+				rv.add(answer);
+			}
+		}
+
+		return rv;
+	}
+
+	/**
+	 * Construct a new answer, not yet stored.
+	 * 
+	 * @return A new answer.
+	 */
+	protected AnswerImpl newAnswer()
+	{
+		return this.storage.newAnswer();
+	}
+
 	/**
 	 * Clump a list of all submissions from a user in a context, which may include many to the same assessment, into a list of official ones, with
 	 * siblings.<br /> Clumping is by assessment.
@@ -2605,111 +3016,65 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 	 */
 	protected List<Submission> officializeByAssessment(List<SubmissionImpl> all)
 	{
-		// pick one for each assessment - the one in progress, or the official complete one
-		List<Submission> official = new ArrayList<Submission>();
-
-		while (all.size() > 0)
+		// group by assessment, in one pass, keeping the order in which each assessment is first seen
+		Map<String, OfficialGroup> groups = new LinkedHashMap<String, OfficialGroup>();
+		for (SubmissionImpl submission : all)
 		{
-			// take the first one out
-			SubmissionImpl submission = all.remove(0);
-
-			// count the submissions actually present in the list for this assessment
-			int count = 0;
-			if (submission.getStartDate() != null)
-			{
-				count++;
-			}
-
 			String aid = submission.getAssessmentId();
-			SubmissionImpl bestSubmission = null;
-			SubmissionImpl inProgressSubmission = null;
+			OfficialGroup group = groups.get(aid);
 
-			// this one may be our best, or in progress, but only if it's started
-			if (submission.getStartDate() != null)
+			// the first for an assessment may be our best, or in progress, but only if it's started
+			if (group == null)
 			{
-				// if incomplete, record this as in progress
-				if (!submission.getIsComplete())
-				{
-					inProgressSubmission = submission;
-				}
-
-				// else, if complete, make it the best so far
-				else
-				{
-					bestSubmission = submission;
-				}
-			}
+				group = new OfficialGroup(submission);
+				groups.put(aid, group);
 
-			// remove all others with this one's assessment id - keeping track of the best score if complete
-			for (Iterator i = all.iterator(); i.hasNext();)
-			{
-				SubmissionImpl candidateSub = (SubmissionImpl) i.next();
-				if (candidateSub.getAssessmentId().equals(aid))
+				if (submission.getStartDate() != null)
 				{
-					// take this one out
-					i.remove();
+					group.count++;
 
-					// we should not get a second one that is unstarted
-					if (candidateSub.getStartDate() == null)
+					// if incomplete, record this as in progress, else make it the best so far
+					if (!submission.getIsComplete())
 					{
-						M_log.warn("officializeByAssessment: another unstarted for aid: " + aid + " sid:" + candidateSub.getId());
-						continue;
+						group.inProgress = submission;
 					}
-
-					// count as a sibling
-					count++;
-
-					// track the in-progress one, if any
-					if ((candidateSub.getIsComplete() == null) || (!candidateSub.getIsComplete()))
-					{
-						inProgressSubmission = candidateSub;
-					}
-
-					// if not in progress, then see if it has the best score so far
 					else
 					{
-						if (bestSubmission == null)
-						{
-							bestSubmission = candidateSub;
-						}
-
-						// take the new one if it exceeds the best so far
-						else if (candidateBetter(bestSubmission, candidateSub))
-						// else if (bestSubmission.getTotalScore().floatValue() < candidateSub.getTotalScore().floatValue())
-						{
-							bestSubmission = candidateSub;
-						}
-
-						// if we match the best, pick the latest submit date
-						else if (sameScores(bestSubmission, candidateSub))
-						// else if (bestSubmission.getTotalScore().floatValue() == candidateSub.getTotalScore().floatValue())
-						{
-							if ((bestSubmission.getSubmittedDate() != null) && (candidateSub.getSubmittedDate() != null)
-									&& (bestSubmission.getSubmittedDate().before(candidateSub.getSubmittedDate())))
-							{
-								bestSubmission = candidateSub;
-							}
-						}
+						group.offer(submission);
 					}
 				}
+
+				continue;
 			}
 
-			// pick the winner
-			SubmissionImpl winner = inProgressSubmission;
-			if (winner == null) winner = bestSubmission;
-			if (winner == null) winner = submission;
+			// we should not get a second one that is unstarted
+			if (submission.getStartDate() == null)
+			{
+				M_log.warn("officializeByAssessment: another unstarted for aid: " + aid + " sid:" + submission.getId());
+				continue;
+			}
 
-			// set the winner's sibling count
-			winner.initSiblingCount(new Integer(count));
+			// count as a sibling
+			group.count++;
 
-			// set the winner's best
-			if (bestSubmission != null)
+			// track the in-progress one, if any
+			if ((submission.getIsComplete() == null) || (!submission.getIsComplete()))
 			{
-				winner.initBest(bestSubmission);
+				group.inProgress = submission;
 			}
 
-			// keep the winner
-			official.add(winner);
+			// if not in progress, then see if it has the best score so far
+			else
+			{
+				group.offer(submission);
+			}
+		}
+
+		// keep the winner of each, with its sibling count and best set
+		List<Submission> official = new ArrayList<Submission>(groups.size());
+		for (OfficialGroup group : groups.values())
+		{
+			official.add(group.initWinner());
 		}
 
 		return official;
@@ -2727,170 +3092,123 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 	 */
 	protected List<Submission> officializeByUser(List<SubmissionImpl> all, String allUid)
 	{
-		// pick one for each user - the one in progress, or the official complete one
-		// List<Submission> official = new ArrayList<Submission>();
-
-		// in all's order
-		List<Submission> allOrder = new ArrayList<Submission>(all);
-
-		while (all.size() > 0)
+		// group by user, in one pass
+		Map<String, OfficialGroup> groups = new HashMap<String, OfficialGroup>();
+		for (SubmissionImpl submission : all)
 		{
-			// take the first one out
-			SubmissionImpl submission = all.remove(0);
-
-			// count the submissions actually present in the list for this user
-			int count = 0;
-			if (submission.getIsStarted())
-			{
-				count++;
-			}
-
 			String uid = submission.getUserId();
-			SubmissionImpl bestSubmission = null;
-			SubmissionImpl inProgressSubmission = null;
+			OfficialGroup group = groups.get(uid);
 
-			// keep it if it belongs to allUid
-			// if (uid.equals(allUid)) official.add(submission);
-
-			// this one may be our best, or in progress, but only if it's started
-			if (submission.getIsStarted())
+			// the first for a user may be our best, or in progress, but only if it's started
+			if (group == null)
 			{
-				// if incomplete, record this as in progress
-				if (!submission.getIsComplete())
-				{
-					inProgressSubmission = submission;
-				}
-
-				// else, if complete, make it the best so far
-				else
-				{
-					bestSubmission = submission;
-				}
-			}
+				group = new OfficialGroup(submission);
+				groups.put(uid, group);
 
-			// remove all others with this one's user id - keeping track of the best score if complete
-			List<Submission> loosers = new ArrayList<Submission>();
-			for (Iterator i = all.iterator(); i.hasNext();)
-			{
-				SubmissionImpl candidateSub = (SubmissionImpl) i.next();
-				if (candidateSub.getUserId().equals(uid))
+				if (submission.getIsStarted())
 				{
-					// take this one out
-					i.remove();
-
-					// keep it if it belongs to allUid
-					// if (candidateSub.getUserId().equals(allUid)) official.add(candidateSub);
+					group.count++;
 
-					// we should not get a second one that is unstarted
-					if (!candidateSub.getIsStarted())
+					// if incomplete, record this as in progress, else make it the best so far
+					if (!submission.getIsComplete())
 					{
-						M_log.warn("officializeByUser: another unstarted for uid: " + uid + " sid:" + candidateSub.getId());
-						continue;
+						group.inProgress = submission;
 					}
-
-					// count as a sibling
-					count++;
-
-					// track the in-progress one, if any
-					if (!candidateSub.getIsComplete())
+					else
 					{
-						if (inProgressSubmission != null)
-						{
-							M_log.warn("officializeByUser: another inprogress for uid: " + uid + " sid:" + candidateSub.getId());
-						}
-						inProgressSubmission = candidateSub;
+						group.offer(submission);
 					}
+				}
 
-					// if not in progress, then see if it has the best score so far
-					else
-					{
-						if (bestSubmission == null)
-						{
-							bestSubmission = candidateSub;
-						}
+				continue;
+			}
 
-						// take the new one if it exceeds the best so far
-						else if (candidateBetter(bestSubmission, candidateSub))
-						// else if (bestSubmission.getTotalScore().floatValue() < candidateSub.getTotalScore().floatValue())
-						{
-							loosers.add(bestSubmission);
-							bestSubmission = candidateSub;
-						}
+			// we should not get a second one that is unstarted
+			if (!submission.getIsStarted())
+			{
+				M_log.warn("officializeByUser: another unstarted for uid: " + uid + " sid:" + submission.getId());
+				continue;
+			}
 
-						// if we match the best, pick the latest submit date
-						else if (sameScores(bestSubmission, candidateSub))
-						// else if (bestSubmission.getTotalScore().floatValue() == candidateSub.getTotalScore().floatValue())
-						{
-							if ((bestSubmission.getSubmittedDate() != null) && (candidateSub.getSubmittedDate() != null)
-									&& (bestSubmission.getSubmittedDate().before(candidateSub.getSubmittedDate())))
-							{
-								loosers.add(bestSubmission);
-								bestSubmission = candidateSub;
-							}
-						}
-					}
+			// count as a sibling
+			group.count++;
 
-					if ((bestSubmission != candidateSub) && (inProgressSubmission != candidateSub))
-					{
-						loosers.add(candidateSub);
-					}
+			// track the in-progress one, if any
+			if (!submission.getIsComplete())
+			{
+				if (group.inProgress != null)
+				{
+					M_log.warn("officializeByUser: another inprogress for uid: " + uid + " sid:" + submission.getId());
 				}
+				group.inProgress = submission;
 			}
 
-			// pick the winner
-			SubmissionImpl winner = inProgressSubmission;
-			if (winner == null) winner = bestSubmission;
-			if (winner == null) winner = submission;
+			// if not in progress, then see if it has the best score so far (a best that is replaced becomes a looser)
+			else
+			{
+				group.offer(submission);
+			}
 
-			// did our best become a looser?
-			if ((bestSubmission != null) && (winner != bestSubmission))
+			if ((group.best != submission) && (group.inProgress != submission))
 			{
-				loosers.add(bestSubmission);
+				group.loosers.add(submission);
 			}
+		}
 
-			// set the winner's sibling count
-			winner.initSiblingCount(new Integer(count));
+		// pick each winner, and collect the loosers (except allUid's)
+		Set<Submission> loosers = new HashSet<Submission>();
+		for (Map.Entry<String, OfficialGroup> entry : groups.entrySet())
+		{
+			OfficialGroup group = entry.getValue();
+			SubmissionImpl winner = group.initWinner();
 
-			// set the winner's best
-			if (bestSubmission != null)
+			// did our best become a looser?
+			if ((group.best != null) && (winner != group.best))
 			{
-				winner.initBest(bestSubmission);
+				group.loosers.add(group.best);
 			}
 
-			// // keep the winner - unless we already did
-			// if (!winner.getUserId().equals(allUid))
-			// {
-			// official.add(winner);
-			// }
-
-			// mark the allUid's loosers
-			if (uid.equals(allUid))
+			// mark the allUid's loosers, and leave them in
+			if (entry.getKey().equals(allUid))
 			{
-				for (Submission looser : loosers)
+				if (group.best != null)
 				{
-					if (bestSubmission != null)
+					for (Submission looser : group.loosers)
 					{
-						((SubmissionImpl) looser).initBest(bestSubmission);
-						((SubmissionImpl) looser).initSiblingCount(new Integer(count));
+						((SubmissionImpl) looser).initBest(group.best);
+						((SubmissionImpl) looser).initSiblingCount(Integer.valueOf(group.count));
 					}
 				}
 			}
-
-			// remove the loosers from the allOrder (except allUid)
-			for (Submission looser : loosers)
+			else
 			{
-				if (!looser.getUserId().equals(allUid))
-				{
-					allOrder.remove(looser);
-				}
+				loosers.addAll(group.loosers);
 			}
 		}
 
-		// this returns the allUid entries grouped together, against any sort
-		// return official;
+		// the proper set of entries, preserving the sort, but allUid is not grouped
+		List<Submission> rv = new ArrayList<Submission>(groups.size());
+		for (SubmissionImpl submission : all)
+		{
+			if (!loosers.contains(submission)) rv.add(submission);
+		}
+
+		return rv;
+	}
+
+	/**
+	 * Read in the answers for a submission that was read without them.
+	 * 
+	 * @param submission
+	 *        The submission.
+	 */
+	protected void readSubmissionAnswers(SubmissionImpl submission)
+	{
+		if (M_log.isDebugEnabled()) M_log.debug("readSubmissionAnswers: " + submission.getId());
 
-		// this returns the proper set of entries, preserving the sort, but allUid is not grouped
-		return allOrder;
+		List<SubmissionImpl> submissions = new ArrayList<SubmissionImpl>(1);
+		submissions.add(submission);
+		this.storage.readAnswers(submissions);
 	}
 
 	/**
@@ -2902,6 +3220,9 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 	protected void removeTestDriveSubmissions(Assessment assessment)
 	{
 		this.storage.removeTestDriveSubmissions(assessment);
+
+		// we don't know which were removed
+		if (this.submissionCache != null) this.submissionCache.clear();
 	}
 
 	/**
@@ -2913,25 +3234,164 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 	protected void removeTestDriveSubmissions(String context)
 	{
 		this.storage.removeTestDriveSubmissions(context);
+
+		// we don't know which were removed
+		if (this.submissionCache != null) this.submissionCache.clear();
 	}
 
 	/**
-	 * Check if the candidate has a better score than the best so far.
+	 * Re-score the completed answers to a question (run in the background).<br />
+	 * The answers are scored in parallel, a batch to each worker; each batch's changes are saved in a transaction of its own. Once all are done,
+	 * the grades of each assessment with a changed score are reported, once.
 	 * 
-	 * @param bestSubmission
-	 *        The best so far.
-	 * @param candidateSub
-	 *        The candidate.
-	 * @return true if the candidate is better, false if not.
+	 * @param job
+	 *        The job, for progress.
+	 * @param question
+	 *        The question.
 	 */
-	protected boolean sameScores(SubmissionImpl bestSubmission, SubmissionImpl candidateSub)
+	protected void rescore(RescoreJob job, Question question)
 	{
-		Float best = bestSubmission.getTotalScore();
-		Float candidate = candidateSub.getTotalScore();
-		if ((best == null) && (candidate == null)) return true;
-		if ((candidate == null) || (best == null)) return false;
-		if (best.floatValue() == candidate.floatValue()) return true;
-		return false;
+		try
+		{
+			// the answers to re-score, found by the question id index
+			List<Answer> answers = this.storage.getQuestionCompleteAnswers(question);
+			job.initTotal(answers.size());
+
+			// score in parallel, a batch to each worker
+			int size = Math.max(1, this.rescoreBatchSize);
+			List<Future<List<Answer>>> batches = new ArrayList<Future<List<Answer>>>();
+			for (int start = 0; start < answers.size(); start += size)
+			{
+				final List<Answer> batch = answers.subList(start, Math.min(start + size, answers.size()));
+				batches.add(this.rescoreWorkers.submit(new Callable<List<Answer>>()
+				{
+					public List<Answer> call()
+					{
+						try
+						{
+							return rescoreBatch(batch);
+						}
+						finally
+						{
+							threadLocalManager.clear();
+						}
+					}
+				}));
+			}
+
+			// save each batch's changes as it is done, in order
+			Set<String> assessmentIds = new HashSet<String>();
+			for (int i = 0; i < batches.size(); i++)
+			{
+				List<Answer> changed = batches.get(i).get();
+				this.storage.saveAnswersAutoScore(changed);
+
+				Set<String> submissionIds = new HashSet<String>();
+				for (Answer answer : changed)
+				{
+					submissionIds.add(((AnswerImpl) answer).getSubmissionId());
+
+					// test drives have no assessment id here
+					String assessmentId = ((AnswerImpl) answer).getSubmissionAssessmentId();
+					if (assessmentId != null) assessmentIds.add(assessmentId);
+				}
+
+				// each changed submission is uncached, and its change announced, once
+				for (String submissionId : submissionIds)
+				{
+					uncacheSubmission(submissionId);
+					eventTrackingService.post(eventTrackingService.newEvent(MnemeService.SUBMISSION_GRADE, getSubmissionReference(submissionId), true));
+				}
+
+				job.addDone(Math.min(size, answers.size() - (i * size)), changed.size());
+			}
+
+			// one grade report for each assessment with a changed score, and its item analysis is out of date
+			for (String id : assessmentIds)
+			{
+				this.questionStats.remove(id);
+
+				Assessment assessment = this.assessmentService.getAssessment(id);
+				if (assessment != null) this.gradesService.reportAssessmentGrades(assessment);
+			}
+
+			M_log.info("rescore: question: " + question.getId() + " answers: " + job.getAnswersDone() + " changed: " + job.getAnswersChanged()
+					+ " assessments: " + assessmentIds.size());
+		}
+		catch (Throwable t)
+		{
+			M_log.warn("rescore: question: " + question.getId(), t);
+		}
+		finally
+		{
+			job.initComplete();
+			threadLocalManager.clear();
+		}
+	}
+
+	/**
+	 * Re-compute the auto score of these answers to completed submissions, setting the new score as their stored score.
+	 * 
+	 * @param answers
+	 *        The answers.
+	 * @return The answers whose score changed.
+	 */
+	protected List<Answer> rescoreBatch(List<Answer> answers)
+	{
+		List<Answer> rv = new ArrayList<Answer>();
+		for (Answer answer : answers)
+		{
+			AnswerImpl a = (AnswerImpl) answer;
+			if (a.getTypeSpecificAnswer() == null) continue;
+
+			Float score = a.computeAutoScore();
+			if (Different.different(score, a.storedAutoScore))
+			{
+				a.initStoredAutoScore(score);
+				rv.add(a);
+			}
+		}
+
+		return rv;
+	}
+
+	/**
+	 * If this submission will time out before the next db check, schedule it now so it is not missed.
+	 * 
+	 * @param submission
+	 *        The submission.
+	 */
+	protected void scheduleTimeOut(Submission submission)
+	{
+		if (this.deadlines == null) return;
+
+		Date over = submission.getWhenOver();
+		if (over == null) return;
+
+		long due = over.getTime() + 2 * MnemeService.GRACE;
+		if (due < System.currentTimeMillis() + this.timeoutCheckMs)
+		{
+			this.deadlines.schedule(submission.getId(), due);
+		}
+	}
+
+	/**
+	 * Find the open submissions that will be well over (considering double our grace period) by this time, and schedule them to be completed.
+	 * 
+	 * @param until
+	 *        The time (ms) of the next check.
+	 */
+	protected void scheduleTimedOutSubmissions(long until)
+	{
+		long grace = 2 * MnemeService.GRACE;
+
+		Map<String, Date> found = this.storage.getOpenSubmissionDeadlines(new Date(until - grace));
+		for (Map.Entry<String, Date> entry : found.entrySet())
+		{
+			this.deadlines.schedule(entry.getKey(), entry.getValue().getTime() + grace);
+		}
+
+		if (M_log.isDebugEnabled()) M_log.debug("scheduleTimedOutSubmissions: found: " + found.size() + " scheduled: " + this.deadlines.size());
 	}
 
 	/**
@@ -3158,4 +3618,100 @@ public class SubmissionServiceImpl implements SubmissionService, Runnable
 
 		checkerThread = null;
 	}
+
+	/**
+	 * Complete this submission if it is still open and is now well over (considering double our grace period), else re-schedule it.
+	 * 
+	 * @param id
+	 *        The submission id.
+	 * @param now
+	 *        The current time (ms).
+	 */
+	protected void timeOutSubmission(String id, long now)
+	{
+		SubmissionImpl submission = this.storage.getSubmission(id);
+		if (submission == null) return;
+
+		// not started, or already complete
+		Date over = submission.getWhenOver();
+		if (over == null) return;
+
+		// not yet well over (the user may have special access) - check again when it will be
+		long due = over.getTime() + 2 * MnemeService.GRACE;
+		if (now < due)
+		{
+			this.deadlines.schedule(id, due);
+			return;
+		}
+
+		// we need to establish the "current" user to be the submission user
+		// so that various attributions of the complete process have the proper user
+		String user = submission.getUserId();
+		Session s = sessionManager.getCurrentSession();
+		if (s != null)
+		{
+			s.setUserId(user);
+		}
+		else
+		{
+			M_log.warn("timeOutSubmission - no SessionManager.getCurrentSession, cannot set to user");
+		}
+
+		// complete this submission, using the exact 'over' date for the final date
+		autoCompleteSubmission(over, submission);
+	}
+
+	/**
+	 * Drop the cached question pick orders that depend on a changed assessment, pool or question.
+	 * 
+	 * @param function
+	 *        The change event function.
+	 * @param ref
+	 *        The changed assessment, pool or question reference.
+	 */
+	protected void uncachePickOrders(String function, String ref)
+	{
+		// the id is the last part of the reference
+		String id = ref.substring(ref.lastIndexOf('/') + 1);
+
+		if (MnemeService.ASSESSMENT_EDIT.equals(function) || MnemeService.ASSESSMENT_DELETE.equals(function))
+		{
+			this.pickOrderCache.dropAssessment(id);
+		}
+
+		else if (MnemeService.POOL_EDIT.equals(function) || MnemeService.POOL_DELETE.equals(function))
+		{
+			this.pickOrderCache.dropPool(id);
+		}
+
+		else
+		{
+			// if the question is gone, we can't tell which draws it was in
+			Question question = this.questionService.getQuestion(id);
+			if (question == null)
+			{
+				this.pickOrderCache.advance();
+			}
+			else
+			{
+				this.pickOrderCache.dropQuestion(id, ((QuestionImpl) question).poolId);
+			}
+		}
+	}
+
+	/**
+	 * Clear this submission from the thread-local and submission caches.
+	 * 
+	 * @param submissionId
+	 *        The submission id.
+	 */
+	protected void uncacheSubmission(String submissionId)
+	{
+		this.threadLocalManager.set(cacheKey(submissionId), null);
+
+		if (this.submissionCache != null)
+		{
+			this.submissionCache.remove(getSubmissionReference(submissionId));
+		}
+	}
 }
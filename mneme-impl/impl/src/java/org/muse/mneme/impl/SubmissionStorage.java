@@ -21,6 +21,7 @@
 
 package org.muse.mneme.impl;
 
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
@@ -44,6 +45,26 @@ public interface SubmissionStorage
 	 */
 	SubmissionImpl clone(SubmissionImpl other);
 
+	/**
+	 * Count, for each user, the completed (non test-drive) submissions to this assessment that answered this question.
+	 * 
+	 * @param assessment
+	 *        The assessment.
+	 * @param question
+	 *        The question.
+	 * @return A Map of user id to the count of their completed submissions that answered the question. Users with none are not included.
+	 */
+	Map<String, Integer> countAssessmentQuestionAnswers(Assessment assessment, Question question);
+
+	/**
+	 * Count, for each user, the (non test-drive) submissions to this assessment.
+	 * 
+	 * @param assessment
+	 *        The assessment.
+	 * @return A Map of user id to the count of their submissions. Users with none are not included.
+	 */
+	Map<String, Integer> countAssessmentSubmissions(Assessment assessment);
+
 	/**
 	 * Find the question ids that have been used in submissions in this assessment part.
 	 * 
@@ -91,6 +112,17 @@ public interface SubmissionStorage
 	 */
 	Map<String, Float> getAssessmentHighestScores(Assessment assessment, Boolean releasedOnly);
 
+	/**
+	 * Get the total scores of the answered answers to this question in the (non test-drive) submissions to this assessment.
+	 * 
+	 * @param assessment
+	 *        The assessment.
+	 * @param question
+	 *        The question.
+	 * @return A map of submission id to the answer's total score (null if the answer has no score) for each submission that answered the question.
+	 */
+	Map<String, Float> getAssessmentQuestionAnswerScores(Assessment assessment, Question question);
+
 	/**
 	 * Check if there are any completed submissions that have any null scores for answered answers to this question for this assessment.
 	 * 
@@ -108,23 +140,54 @@ public interface SubmissionStorage
 	List<Float> getAssessmentScores(Assessment assessment);
 
 	/**
-	 * Get the submissions to the assignment made by all users.
+	 * Find the assessments with (non test drive) submissions completed or evaluated since this time.
+	 * 
+	 * @param since
+	 *        The time.
+	 * @return A List of the assessment ids.
+	 */
+	List<String> getAssessmentsGradedSince(Date since);
+
+	/**
+	 * Get the submissions to the assignment made by all users, ordered by submitted date.<br />
+	 * The submissions may be read without their answers, with their total score taken from the stored answer scores; use readAnswers() to
+	 * complete any that need their answers.
 	 * 
 	 * @param assessment
 	 *        The assessment.
-	 * @param question
-	 *        An optional question, to use for sort-by-score (the score would be for this question in the submission, not the overall).
 	 * @return A List<Submission> of the submissions for the assessment.
 	 */
 	List<SubmissionImpl> getAssessmentSubmissions(Assessment assessment);
 
 	/**
-	 * Get all the in-progress (open) submissions (all users, all assessments, all contexts).<br />
-	 * Note: the submission answers are not needed nor read in.
+	 * Find the assessment of this submission, if it is complete and not a test drive.
 	 * 
-	 * @return The list of all in-progress (open) submissions.
+	 * @param submissionId
+	 *        The submission id.
+	 * @return The submission's assessment id, or null if not found, or not complete, or a test drive.
 	 */
-	List<SubmissionImpl> getOpenSubmissions();
+	String getCompleteSubmissionAssessmentId(String submissionId);
+
+	/**
+	 * Find the in-progress (open) submissions (all users, all assessments, all contexts) that will be over (past the time limit, or past the
+	 * assessment's submit-until date) before this time.<br />
+	 * The deadline considers the user's special access. Callers must check each submission before acting.
+	 * 
+	 * @param before
+	 *        The time by which the submissions will be over.
+	 * @return A map of submission id to deadline of the open submissions that will be over by then.
+	 */
+	Map<String, Date> getOpenSubmissionDeadlines(Date before);
+
+	/**
+	 * Access the answers to this question in completed submissions.<br />
+	 * The answers are read without their submissions - each knows its submission id and assessment id, and is only good for scoring.
+	 * 
+	 * @param question
+	 *        The question.
+	 * @return The answers to the question in completed submissions.
+	 */
+	List<Answer> getQuestionCompleteAnswers(Question question);
 
 	/**
 	 * Access all the submission scores to this question.
@@ -144,6 +207,16 @@ public interface SubmissionStorage
 	 */
 	SubmissionImpl getSubmission(String id);
 
+	/**
+	 * Access the answers to this submission, read with only their question and answer data, not their evaluation or submission - good for
+	 * counting answer distributions.
+	 * 
+	 * @param submissionId
+	 *        The submission id.
+	 * @return The submission's answers.
+	 */
+	List<Answer> getSubmissionAnswersData(String submissionId);
+
 	/**
 	 * Find the highest submission score for this user to this assessment.
 	 * 
@@ -164,6 +237,17 @@ public interface SubmissionStorage
 	 */
 	Float getSubmissionScore(Submission submissionImpl);
 
+	/**
+	 * Find the submission in progress to the assessment by this user.
+	 * 
+	 * @param assessment
+	 *        The assessment.
+	 * @param userId
+	 *        The user id.
+	 * @return The id of the user's submission in progress to the assessment, or null if there is none.
+	 */
+	String getUserAssessmentInProgress(Assessment assessment, String userId);
+
 	/**
 	 * Get the submissions to the assignment made by this user.
 	 * 
@@ -216,6 +300,14 @@ public interface SubmissionStorage
 	 */
 	SubmissionImpl newSubmission();
 
+	/**
+	 * Read the answers for any of these submissions that were read without them.
+	 * 
+	 * @param submissions
+	 *        The submissions.
+	 */
+	void readAnswers(List<SubmissionImpl> submissions);
+
 	/**
 	 * Remove any test-drive submissions for this assessment.
 	 * 
@@ -240,6 +332,14 @@ public interface SubmissionStorage
 	 */
 	void saveAnswers(List<Answer> answers);
 
+	/**
+	 * Save just the auto score of these answers to completed submissions, all in one transaction.
+	 * 
+	 * @param answers
+	 *        the answers to save.
+	 */
+	void saveAnswersAutoScore(List<Answer> answers);
+
 	/**
 	 * Save changes made to this submission.
 	 * 
@@ -248,6 +348,16 @@ public interface SubmissionStorage
 	 */
 	void saveSubmission(SubmissionImpl submission);
 
+	/**
+	 * Save changes made to this submission and these answers, all in one transaction.
+	 * 
+	 * @param submission
+	 *        the submission to save, or null to save just the answers.
+	 * @param answers
+	 *        the answers to save.
+	 */
+	void saveSubmissionAnswers(SubmissionImpl submission, List<Answer> answers);
+
 	/**
 	 * Save evaluation changes made to this submission.
 	 * 
@@ -281,4 +391,13 @@ public interface SubmissionStorage
 	 * @return TRUE if there are any submissions to the assesment.
 	 */
 	Boolean submissionsExist(Assessment assessment);
+
+	/**
+	 * Check if there are any completed submissions that have any null scores for answered answers for this assessment, without finding who.
+	 * 
+	 * @param assessment
+	 *        The assessment.
+	 * @return TRUE if there are any unscored submissions to the assessment, FALSE if not.
+	 */
+	Boolean unscoredSubmissionsExist(Assessment assessment);
 }
@@ -21,10 +21,16 @@
 
 package org.muse.mneme.impl;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.muse.mneme.api.Assessment;
-import org.muse.mneme.api.Question;
 
 /**
  * SubmissionStorageMysql implements SubmissionStorage for MySQL.
@@ -34,6 +40,9 @@ public abstract class SubmissionStorageMysql extends SubmissionStorageSql implem
 	/** Our logger. */
 	private static Log M_log = LogFactory.getLog(SubmissionStorageMysql.class);
 
+	/** The most answer rows to put in one multi-row insert. */
+	protected static final int INSERT_ANSWERS_CHUNK = 100;
+
 	/**
 	 * Final initialization, once all dependencies are set.
 	 */
@@ -49,46 +58,64 @@ public abstract class SubmissionStorageMysql extends SubmissionStorageSql implem
 	}
 
 	/**
-	 * Insert a new pool (transaction code).
-	 * 
-	 * @param pool
-	 *        The pool.
+	 * {@inheritDoc}
 	 */
-	protected void insertAnswerTx(AnswerImpl answer)
+	protected void insertAnswersTx(List<AnswerImpl> answers, Connection connection) throws SQLException
 	{
-		StringBuilder sql = new StringBuilder();
-		sql.append("INSERT INTO MNEME_ANSWER (");
-		sql.append(" ANSWERED, AUTO_SCORE, GUEST, EVAL_ATRIB_DATE, EVAL_ATRIB_USER, EVAL_ATTACHMENTS, EVAL_COMMENT, EVAL_EVALUATED, EVAL_SCORE,");
-		sql.append(" PART_ID, QUESTION_ID, QUESTION_TYPE, REASON, REVIEW, SUBMISSION_ID, SUBMITTED_DATE)");
-		sql.append(" VALUES(?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)");
-
-		Object[] fields = new Object[16];
-		fields[0] = answer.getIsAnswered();
-		fields[1] = answer.getAutoScore();
-		fields[2] = SqlHelper.encodeStringArray(answer.getTypeSpecificAnswer().getData());
-		fields[3] = (answer.getEvaluation().getAttribution().getDate() == null) ? null : answer.getEvaluation().getAttribution().getDate().getTime();
-		fields[4] = answer.getEvaluation().getAttribution().getUserId();
-		fields[5] = SqlHelper.encodeReferences(answer.getEvaluation().getAttachments());
-		fields[6] = answer.getEvaluation().getComment();
-		fields[7] = answer.getEvaluation().getEvaluated() ? "1" : "0";
-		fields[8] = answer.getEvaluation().getScore() == null ? null : Float.valueOf(answer.getEvaluation().getScore());
-		fields[9] = Long.valueOf(answer.getPartId());
-		Question q = answer.getQuestion();
-		fields[10] = Long.valueOf(q.getId());
-		fields[11] = q.getType();
-		fields[12] = answer.getReason();
-		fields[13] = answer.getMarkedForReview() ? "1" : "0";
-		fields[14] = Long.valueOf(answer.getSubmission().getId());
-		fields[15] = (answer.getSubmittedDate() == null) ? null : answer.getSubmittedDate().getTime();
-
-		Long id = this.sqlService.dbInsert(null, sql.toString(), fields, "ID");
-		if (id == null)
+		// one multi-row insert per chunk, reading back the generated ids in order
+		for (int start = 0; start < answers.size(); start += INSERT_ANSWERS_CHUNK)
 		{
-			throw new RuntimeException("insertPoolTx: dbInsert failed");
+			List<AnswerImpl> chunk = answers.subList(start, Math.min(start + INSERT_ANSWERS_CHUNK, answers.size()));
+
+			StringBuilder sql = new StringBuilder();
+			sql.append("INSERT INTO MNEME_ANSWER (");
+			sql.append(" ANSWERED, AUTO_SCORE, GUEST, EVAL_ATRIB_DATE, EVAL_ATRIB_USER, EVAL_ATTACHMENTS, EVAL_COMMENT, EVAL_EVALUATED, EVAL_SCORE,");
+			sql.append(" PART_ID, QUESTION_ID, QUESTION_TYPE, REASON, REVIEW, SUBMISSION_ID, SUBMITTED_DATE)");
+			sql.append(" VALUES");
+			for (int i = 0; i < chunk.size(); i++)
+			{
+				if (i > 0) sql.append(",");
+				sql.append("(?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)");
+			}
+
+			Object[] fields = new Object[16 * chunk.size()];
+			int i = 0;
+			for (AnswerImpl answer : chunk)
+			{
+				Object[] answerFields = insertAnswerFields(answer);
+				System.arraycopy(answerFields, 0, fields, i, answerFields.length);
+				i += answerFields.length;
+			}
+
+			PreparedStatement statement = connection.prepareStatement(sql.toString(), Statement.RETURN_GENERATED_KEYS);
+			try
+			{
+				SqlHelper.bindFields(statement, fields);
+				statement.executeUpdate();
+
+				// set the answers' ids
+				ResultSet keys = statement.getGeneratedKeys();
+				try
+				{
+					for (AnswerImpl answer : chunk)
+					{
+						if (!keys.next())
+						{
+							throw new SQLException("insertAnswersTx: missing generated key");
+						}
+						answer.initId(Long.toString(keys.getLong(1)));
+					}
+				}
+				finally
+				{
+					keys.close();
+				}
+			}
+			finally
+			{
+				statement.close();
+			}
 		}
-
-		// set the answer's id
-		answer.initId(id.toString());
 	}
 
 	/**
@@ -96,18 +123,20 @@ public abstract class SubmissionStorageMysql extends SubmissionStorageSql implem
 	 * 
 	 * @param submission
 	 *        The submission.
+	 * @param connection
+	 *        The connection to use, or null to use the SqlService's current transaction.
 	 */
-	protected void insertSubmissionTx(SubmissionImpl submission)
+	protected void insertSubmissionTx(SubmissionImpl submission, Connection connection)
 	{
 		// new submissions have no answers yet
 
 		StringBuilder sql = new StringBuilder();
 		sql.append("INSERT INTO MNEME_SUBMISSION (");
 		sql.append(" ASSESSMENT_ID, COMPLETE, CONTEXT, EVAL_ATRIB_DATE, EVAL_ATRIB_USER, EVAL_ATTACHMENTS,");
-		sql.append(" EVAL_COMMENT, EVAL_EVALUATED, EVAL_SCORE, RELEASED, START_DATE, SUBMITTED_DATE, TEST_DRIVE, USERID)");
-		sql.append(" VALUES(?,?,?,?,?,?,?,?,?,?,?,?,?,?)");
+		sql.append(" EVAL_COMMENT, EVAL_EVALUATED, EVAL_SCORE, IN_PROGRESS, RELEASED, START_DATE, SUBMITTED_DATE, TEST_DRIVE, USERID)");
+		sql.append(" VALUES(?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)");
 
-		Object[] fields = new Object[14];
+		Object[] fields = new Object[15];
 		fields[0] = Long.valueOf(submission.getAssessment().getId());
 		fields[1] = submission.getIsComplete() ? "1" : "0";
 		fields[2] = submission.getAssessment().getContext();
@@ -118,13 +147,14 @@ public abstract class SubmissionStorageMysql extends SubmissionStorageSql implem
 		fields[6] = submission.getEvaluation().getComment();
 		fields[7] = submission.getEvaluation().getEvaluated() ? "1" : "0";
 		fields[8] = submission.getEvaluation().getScore() == null ? null : Float.valueOf(submission.getEvaluation().getScore());
-		fields[9] = submission.getIsReleased() ? "1" : "0";
-		fields[10] = (submission.getStartDate() == null) ? null : submission.getStartDate().getTime();
-		fields[11] = (submission.getSubmittedDate() == null) ? null : submission.getSubmittedDate().getTime();
-		fields[12] = submission.getIsTestDrive() ? "1" : "0";
-		fields[13] = submission.getUserId();
-
-		Long id = this.sqlService.dbInsert(null, sql.toString(), fields, "ID");
+		fields[9] = submission.getIsComplete() ? null : "1";
+		fields[10] = submission.getIsReleased() ? "1" : "0";
+		fields[11] = (submission.getStartDate() == null) ? null : submission.getStartDate().getTime();
+		fields[12] = (submission.getSubmittedDate() == null) ? null : submission.getSubmittedDate().getTime();
+		fields[13] = submission.getIsTestDrive() ? "1" : "0";
+		fields[14] = submission.getUserId();
+
+		Long id = this.sqlService.dbInsert(connection, sql.toString(), fields, "ID");
 		if (id == null)
 		{
 			throw new RuntimeException("insertSubmissionTx: dbInsert failed");
@@ -193,4 +223,12 @@ public abstract class SubmissionStorageMysql extends SubmissionStorageSql implem
 			throw new RuntimeException("removeTestDriveSubmissions(context,submission): db write failed");
 		}
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	protected String userInListSql(String usersColumn, String userColumn)
+	{
+		return usersColumn + " LIKE CONCAT('%', CHAR_LENGTH(" + userColumn + "), ':', " + userColumn + ", '%')";
+	}
 }
@@ -21,10 +21,16 @@
 
 package org.muse.mneme.impl;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.muse.mneme.api.Assessment;
-import org.muse.mneme.api.Question;
 
 /**
  * SubmissionStorageMysql implements SubmissionStorage for Oracle.
@@ -49,49 +55,71 @@ public abstract class SubmissionStorageOracle extends SubmissionStorageSql imple
 	}
 
 	/**
-	 * Insert a new pool (transaction code).
-	 * 
-	 * @param pool
-	 *        The pool.
+	 * {@inheritDoc}
 	 */
-	protected void insertAnswerTx(AnswerImpl answer)
+	protected void insertAnswersTx(List<AnswerImpl> answers, Connection connection) throws SQLException
 	{
-		// get the next id
-		Long id = this.sqlService.getNextSequence("MNEME_ANSWER_SEQ", null);
+		// get all the ids we need from the sequence in one round trip
+		List<Long> ids = new ArrayList<Long>(answers.size());
+		PreparedStatement statement = connection.prepareStatement("SELECT MNEME_ANSWER_SEQ.NEXTVAL FROM DUAL CONNECT BY LEVEL <= ?");
+		try
+		{
+			statement.setInt(1, answers.size());
+			ResultSet result = statement.executeQuery();
+			try
+			{
+				while (result.next())
+				{
+					ids.add(Long.valueOf(result.getLong(1)));
+				}
+			}
+			finally
+			{
+				result.close();
+			}
+		}
+		finally
+		{
+			statement.close();
+		}
+		if (ids.size() != answers.size())
+		{
+			throw new SQLException("insertAnswersTx: sequence returned " + ids.size() + " of " + answers.size());
+		}
 
+		// insert as a batch
 		StringBuilder sql = new StringBuilder();
 		sql.append("INSERT INTO MNEME_ANSWER (ID, ");
 		sql.append(" ANSWERED, AUTO_SCORE, GUEST, EVAL_ATRIB_DATE, EVAL_ATRIB_USER, EVAL_ATTACHMENTS, EVAL_COMMENT, EVAL_EVALUATED, EVAL_SCORE,");
 		sql.append(" PART_ID, QUESTION_ID, QUESTION_TYPE, REASON, REVIEW, SUBMISSION_ID, SUBMITTED_DATE)");
 		sql.append(" VALUES(?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)");
 
-		Object[] fields = new Object[17];
-		fields[0] = id;
-		fields[1] = answer.getIsAnswered();
-		fields[2] = answer.getAutoScore();
-		fields[3] = SqlHelper.encodeStringArray(answer.getTypeSpecificAnswer().getData());
-		fields[4] = (answer.getEvaluation().getAttribution().getDate() == null) ? null : answer.getEvaluation().getAttribution().getDate().getTime();
-		fields[5] = answer.getEvaluation().getAttribution().getUserId();
-		fields[6] = SqlHelper.encodeReferences(answer.getEvaluation().getAttachments());
-		fields[7] = answer.getEvaluation().getComment();
-		fields[8] = answer.getEvaluation().getEvaluated() ? "1" : "0";
-		fields[9] = answer.getEvaluation().getScore() == null ? null : Float.valueOf(answer.getEvaluation().getScore());
-		fields[10] = Long.valueOf(answer.getPartId());
-		Question q = answer.getQuestion();
-		fields[11] = Long.valueOf(q.getId());
-		fields[12] = q.getType();
-		fields[13] = answer.getReason();
-		fields[14] = answer.getMarkedForReview() ? "1" : "0";
-		fields[15] = Long.valueOf(answer.getSubmission().getId());
-		fields[16] = (answer.getSubmittedDate() == null) ? null : answer.getSubmittedDate().getTime();
-
-		if (!this.sqlService.dbWrite(null, sql.toString(), fields))
+		statement = connection.prepareStatement(sql.toString());
+		try
 		{
-			throw new RuntimeException("insertPoolTx: dbWrite failed");
+			for (int i = 0; i < answers.size(); i++)
+			{
+				Object[] answerFields = insertAnswerFields(answers.get(i));
+				Object[] fields = new Object[answerFields.length + 1];
+				fields[0] = ids.get(i);
+				System.arraycopy(answerFields, 0, fields, 1, answerFields.length);
+
+				SqlHelper.bindFields(statement, fields);
+				statement.addBatch();
+			}
+
+			statement.executeBatch();
+		}
+		finally
+		{
+			statement.close();
 		}
 
-		// set the answer's id
-		answer.initId(id.toString());
+		// set the answers' ids
+		for (int i = 0; i < answers.size(); i++)
+		{
+			answers.get(i).initId(ids.get(i).toString());
+		}
 	}
 
 	/**
@@ -99,21 +127,23 @@ public abstract class SubmissionStorageOracle extends SubmissionStorageSql imple
 	 * 
 	 * @param submission
 	 *        The submission.
+	 * @param connection
+	 *        The connection to use, or null to use the SqlService's current transaction.
 	 */
-	protected void insertSubmissionTx(SubmissionImpl submission)
+	protected void insertSubmissionTx(SubmissionImpl submission, Connection connection)
 	{
 		// new submissions have no answers yet
 
 		// get the next id
-		Long id = this.sqlService.getNextSequence("MNEME_SUBMISSION_SEQ", null);
+		Long id = this.sqlService.getNextSequence("MNEME_SUBMISSION_SEQ", connection);
 
 		StringBuilder sql = new StringBuilder();
 		sql.append("INSERT INTO MNEME_SUBMISSION (ID,");
 		sql.append(" ASSESSMENT_ID, COMPLETE, CONTEXT, EVAL_ATRIB_DATE, EVAL_ATRIB_USER, EVAL_ATTACHMENTS,");
-		sql.append(" EVAL_COMMENT, EVAL_EVALUATED, EVAL_SCORE, RELEASED, START_DATE, SUBMITTED_DATE, TEST_DRIVE, USERID)");
-		sql.append(" VALUES(?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)");
+		sql.append(" EVAL_COMMENT, EVAL_EVALUATED, EVAL_SCORE, IN_PROGRESS, RELEASED, START_DATE, SUBMITTED_DATE, TEST_DRIVE, USERID)");
+		sql.append(" VALUES(?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)");
 
-		Object[] fields = new Object[15];
+		Object[] fields = new Object[16];
 		fields[0] = id;
 		fields[1] = Long.valueOf(submission.getAssessment().getId());
 		fields[2] = submission.getIsComplete() ? "1" : "0";
@@ -125,13 +155,14 @@ public abstract class SubmissionStorageOracle extends SubmissionStorageSql imple
 		fields[7] = submission.getEvaluation().getComment();
 		fields[8] = submission.getEvaluation().getEvaluated() ? "1" : "0";
 		fields[9] = submission.getEvaluation().getScore() == null ? null : Float.valueOf(submission.getEvaluation().getScore());
-		fields[10] = submission.getIsReleased() ? "1" : "0";
-		fields[11] = (submission.getStartDate() == null) ? null : submission.getStartDate().getTime();
-		fields[12] = (submission.getSubmittedDate() == null) ? null : submission.getSubmittedDate().getTime();
-		fields[13] = submission.getIsTestDrive() ? "1" : "0";
-		fields[14] = submission.getUserId();
-
-		if (!this.sqlService.dbWrite(null, sql.toString(), fields))
+		fields[10] = submission.getIsComplete() ? null : "1";
+		fields[11] = submission.getIsReleased() ? "1" : "0";
+		fields[12] = (submission.getStartDate() == null) ? null : submission.getStartDate().getTime();
+		fields[13] = (submission.getSubmittedDate() == null) ? null : submission.getSubmittedDate().getTime();
+		fields[14] = submission.getIsTestDrive() ? "1" : "0";
+		fields[15] = submission.getUserId();
+
+		if (!this.sqlService.dbWrite(connection, sql.toString(), fields))
 		{
 			throw new RuntimeException("insertSubmissionTx: dbWrite failed");
 		}
@@ -199,4 +230,12 @@ public abstract class SubmissionStorageOracle extends SubmissionStorageSql imple
 			throw new RuntimeException("removeTestDriveSubmissions(context,submission): db write failed");
 		}
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	protected String userInListSql(String usersColumn, String userColumn)
+	{
+		return usersColumn + " LIKE '%' || LENGTH(" + userColumn + ") || ':' || " + userColumn + " || '%'";
+	}
 }
@@ -22,10 +22,13 @@
 package org.muse.mneme.impl;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -74,6 +77,46 @@ public abstract class SubmissionStorageSample implements SubmissionStorage
 		return new SubmissionImpl(other);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public Map<String, Integer> countAssessmentQuestionAnswers(Assessment assessment, Question question)
+	{
+		Map<String, Integer> rv = new HashMap<String, Integer>();
+		for (SubmissionImpl submission : this.submissions.values())
+		{
+			if (submission.getAssessment().equals(assessment) && submission.getIsComplete() && (!submission.getIsTestDrive()))
+			{
+				Answer answer = submission.findAnswer(question.getId());
+				if ((answer != null) && answer.getIsAnswered())
+				{
+					Integer count = rv.get(submission.getUserId());
+					rv.put(submission.getUserId(), Integer.valueOf((count == null) ? 1 : count.intValue() + 1));
+				}
+			}
+		}
+
+		return rv;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Map<String, Integer> countAssessmentSubmissions(Assessment assessment)
+	{
+		Map<String, Integer> rv = new HashMap<String, Integer>();
+		for (SubmissionImpl submission : this.submissions.values())
+		{
+			if (submission.getAssessment().equals(assessment) && (!submission.getIsTestDrive()))
+			{
+				Integer count = rv.get(submission.getUserId());
+				rv.put(submission.getUserId(), Integer.valueOf((count == null) ? 1 : count.intValue() + 1));
+			}
+		}
+
+		return rv;
+	}
+
 	/**
 	 * Returns to uninitialized state.
 	 */
@@ -212,6 +255,27 @@ public abstract class SubmissionStorageSample implements SubmissionStorage
 		return rv;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public Map<String, Float> getAssessmentQuestionAnswerScores(Assessment assessment, Question question)
+	{
+		Map<String, Float> rv = new HashMap<String, Float>();
+		for (SubmissionImpl submission : this.submissions.values())
+		{
+			if (submission.getAssessment().equals(assessment) && (!submission.getIsTestDrive()))
+			{
+				Answer answer = submission.findAnswer(question.getId());
+				if ((answer != null) && answer.getIsAnswered())
+				{
+					rv.put(submission.getId(), answer.getTotalScore());
+				}
+			}
+		}
+
+		return rv;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -251,6 +315,27 @@ public abstract class SubmissionStorageSample implements SubmissionStorage
 		return rv;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<String> getAssessmentsGradedSince(Date since)
+	{
+		Set<String> rv = new LinkedHashSet<String>();
+		for (SubmissionImpl submission : this.submissions.values())
+		{
+			if ((!submission.getIsComplete()) || submission.getIsTestDrive()) continue;
+
+			Date submitted = submission.getSubmittedDate();
+			Date evaluated = submission.getEvaluation().getAttribution().getDate();
+			if (((submitted != null) && (!submitted.before(since))) || ((evaluated != null) && (!evaluated.before(since))))
+			{
+				rv.add(submission.getAssessmentId());
+			}
+		}
+
+		return new ArrayList<String>(rv);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -272,20 +357,54 @@ public abstract class SubmissionStorageSample implements SubmissionStorage
 	/**
 	 * {@inheritDoc}
 	 */
-	public List<SubmissionImpl> getOpenSubmissions()
+	public String getCompleteSubmissionAssessmentId(String submissionId)
 	{
-		List<SubmissionImpl> rv = new ArrayList<SubmissionImpl>();
+		SubmissionImpl submission = this.submissions.get(submissionId);
+		if ((submission == null) || (!submission.getIsComplete()) || submission.getIsTestDrive()) return null;
+
+		return submission.getAssessmentId();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Map<String, Date> getOpenSubmissionDeadlines(Date before)
+	{
+		Map<String, Date> rv = new HashMap<String, Date>();
 		for (SubmissionImpl submission : this.submissions.values())
 		{
-			if (!submission.getIsComplete())
+			// getWhenOver() already considers the user's special access
+			Date over = submission.getWhenOver();
+			if ((over != null) && over.before(before))
 			{
-				rv.add(new SubmissionImpl(submission));
+				rv.put(submission.getId(), over);
 			}
 		}
 
 		return rv;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<Answer> getQuestionCompleteAnswers(Question question)
+	{
+		List<Answer> rv = new ArrayList<Answer>();
+		for (SubmissionImpl submission : this.submissions.values())
+		{
+			if (!submission.getIsComplete()) continue;
+
+			AnswerImpl answer = (AnswerImpl) submission.findAnswer(question.getId());
+			if (answer == null) continue;
+
+			AnswerImpl a = new AnswerImpl(answer, null);
+			a.initWithoutSubmission(submission.getId(), submission.getIsTestDrive() ? null : submission.getAssessmentId(), question);
+			rv.add(a);
+		}
+
+		return rv;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -310,6 +429,21 @@ public abstract class SubmissionStorageSample implements SubmissionStorage
 		return rv;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<Answer> getSubmissionAnswersData(String submissionId)
+	{
+		List<Answer> rv = new ArrayList<Answer>();
+		SubmissionImpl submission = this.submissions.get(submissionId);
+		if (submission != null)
+		{
+			rv.addAll(new SubmissionImpl(submission).getAnswers());
+		}
+
+		return rv;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -342,6 +476,22 @@ public abstract class SubmissionStorageSample implements SubmissionStorage
 		return 0f;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public String getUserAssessmentInProgress(Assessment assessment, String userId)
+	{
+		for (SubmissionImpl submission : this.submissions.values())
+		{
+			if (submission.getAssessment().equals(assessment) && submission.getUserId().equals(userId) && (!submission.getIsComplete()))
+			{
+				return submission.getId();
+			}
+		}
+
+		return null;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -416,6 +566,14 @@ public abstract class SubmissionStorageSample implements SubmissionStorage
 	 */
 	public abstract SubmissionImpl newSubmission();
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public void readAnswers(List<SubmissionImpl> submissions)
+	{
+		// we always have the answers
+	}
+
 	// /**
 	// * {@inheritDoc}
 	// */
@@ -509,6 +667,23 @@ public abstract class SubmissionStorageSample implements SubmissionStorage
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public void saveAnswersAutoScore(List<Answer> answers)
+	{
+		for (Answer a : answers)
+		{
+			// find the submission and our answer to the question
+			SubmissionImpl s = this.submissions.get(a.getSubmission().getId());
+			if (s != null)
+			{
+				AnswerImpl answer = (AnswerImpl) s.findAnswer(((AnswerImpl) a).questionId);
+				if (answer != null) answer.initStoredAutoScore(a.getAutoScore());
+			}
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -548,6 +723,15 @@ public abstract class SubmissionStorageSample implements SubmissionStorage
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public void saveSubmissionAnswers(SubmissionImpl submission, List<Answer> answers)
+	{
+		if (submission != null) saveSubmission(submission);
+		saveAnswers(answers);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -670,4 +854,12 @@ public abstract class SubmissionStorageSample implements SubmissionStorage
 		}
 		return Boolean.FALSE;
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Boolean unscoredSubmissionsExist(Assessment assessment)
+	{
+		return Boolean.valueOf(!getAssessmentHasUnscoredSubmissions(assessment).isEmpty());
+	}
 }
@@ -21,9 +21,12 @@
 
 package org.muse.mneme.impl;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -54,6 +57,9 @@ public abstract class SubmissionStorageSql implements SubmissionStorage
 	/** Our logger. */
 	private static Log M_log = LogFactory.getLog(SubmissionStorageSql.class);
 
+	/** The most submission ids to read answers for in one IN list. */
+	protected static final int READ_ANSWERS_CHUNK = 100;
+
 	/** Dependency: AssessmentService. */
 	protected AssessmentService assessmentService = null;
 
@@ -89,6 +95,40 @@ public abstract class SubmissionStorageSql implements SubmissionStorage
 		return new SubmissionImpl(other);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public Map<String, Integer> countAssessmentQuestionAnswers(Assessment assessment, Question question)
+	{
+		StringBuilder sql = new StringBuilder();
+		sql.append("SELECT S.USERID, COUNT(1) FROM MNEME_ANSWER A");
+		sql.append(" JOIN MNEME_SUBMISSION S ON A.SUBMISSION_ID=S.ID AND S.ASSESSMENT_ID=? AND S.COMPLETE='1' AND S.TEST_DRIVE='0'");
+		sql.append(" WHERE A.QUESTION_ID=? AND A.ANSWERED='1'");
+		sql.append(" GROUP BY S.USERID");
+
+		Object[] fields = new Object[2];
+		fields[0] = Long.valueOf(assessment.getId());
+		fields[1] = Long.valueOf(question.getId());
+
+		return readUserCounts(sql.toString(), fields, "countAssessmentQuestionAnswers");
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Map<String, Integer> countAssessmentSubmissions(Assessment assessment)
+	{
+		StringBuilder sql = new StringBuilder();
+		sql.append("SELECT S.USERID, COUNT(1) FROM MNEME_SUBMISSION S");
+		sql.append(" WHERE S.ASSESSMENT_ID=? AND S.TEST_DRIVE='0'");
+		sql.append(" GROUP BY S.USERID");
+
+		Object[] fields = new Object[1];
+		fields[0] = Long.valueOf(assessment.getId());
+
+		return readUserCounts(sql.toString(), fields, "countAssessmentSubmissions");
+	}
+
 	/**
 	 * Returns to uninitialized state.
 	 */
@@ -257,6 +297,56 @@ public abstract class SubmissionStorageSql implements SubmissionStorage
 		return scores;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public Map<String, Float> getAssessmentQuestionAnswerScores(Assessment assessment, Question question)
+	{
+		StringBuilder sql = new StringBuilder();
+		sql.append("SELECT A.SUBMISSION_ID, A.EVAL_SCORE, A.AUTO_SCORE FROM MNEME_ANSWER A");
+		sql.append(" JOIN MNEME_SUBMISSION S ON A.SUBMISSION_ID=S.ID AND S.ASSESSMENT_ID=? AND S.TEST_DRIVE='0'");
+		sql.append(" WHERE A.QUESTION_ID=? AND A.ANSWERED='1'");
+
+		Object[] fields = new Object[2];
+		fields[0] = Long.valueOf(assessment.getId());
+		fields[1] = Long.valueOf(question.getId());
+
+		final Map<String, Float> scores = new HashMap<String, Float>();
+		this.sqlService.dbRead(sql.toString(), fields, new SqlReader()
+		{
+			public Object readSqlResultRecord(ResultSet result)
+			{
+				try
+				{
+					String sid = SqlHelper.readId(result, 1);
+					Float aEval = SqlHelper.readFloat(result, 2);
+					Float aAuto = SqlHelper.readFloat(result, 3);
+
+					// no auto nor evaluation, no score
+					Float total = null;
+					if ((aEval != null) || (aAuto != null))
+					{
+						total = Float.valueOf((aEval == null ? 0f : aEval.floatValue()) + (aAuto == null ? 0f : aAuto.floatValue()));
+
+						// massage total - 2 decimal places
+						total = Float.valueOf(((float) Math.round(total.floatValue() * 100.0f)) / 100.0f);
+					}
+
+					scores.put(sid, total);
+
+					return null;
+				}
+				catch (SQLException e)
+				{
+					M_log.warn("getAssessmentQuestionAnswerScores: " + e);
+					return null;
+				}
+			}
+		});
+
+		return scores;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -285,6 +375,22 @@ public abstract class SubmissionStorageSql implements SubmissionStorage
 		return rv;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<String> getAssessmentsGradedSince(Date since)
+	{
+		String sql = "SELECT DISTINCT S.ASSESSMENT_ID FROM MNEME_SUBMISSION S"
+				+ " WHERE S.COMPLETE='1' AND S.TEST_DRIVE='0' AND (S.SUBMITTED_DATE >= ? OR S.EVAL_ATRIB_DATE >= ?)";
+
+		Object[] fields = new Object[2];
+		fields[0] = Long.valueOf(since.getTime());
+		fields[1] = fields[0];
+
+		List<String> rv = this.sqlService.dbRead(sql, fields, null);
+		return rv;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -297,20 +403,187 @@ public abstract class SubmissionStorageSql implements SubmissionStorage
 		Object[] fields = new Object[1];
 		fields[0] = Long.valueOf(assessment.getId());
 
-		List<SubmissionImpl> rv = readSubmissions(where, order, fields, true);
+		// skip the answers - we just need their scores
+		List<SubmissionImpl> rv = readSubmissions(where, order, fields, false);
+		final Map<String, SubmissionImpl> submissions = new HashMap<String, SubmissionImpl>();
+		for (SubmissionImpl submission : rv)
+		{
+			submissions.put(submission.getId(), submission);
+		}
+
+		// sum the stored answer scores for each submission, and count the answered answers with no score
+		StringBuilder sql = new StringBuilder();
+		sql.append("SELECT A.SUBMISSION_ID, SUM(A.EVAL_SCORE), SUM(A.AUTO_SCORE),");
+		sql.append(" SUM(CASE WHEN A.ANSWERED='1' AND A.EVAL_SCORE IS NULL AND A.AUTO_SCORE IS NULL THEN 1 ELSE 0 END) FROM MNEME_ANSWER A");
+		sql.append(" JOIN MNEME_SUBMISSION S ON A.SUBMISSION_ID=S.ID ");
+		sql.append(where);
+		sql.append(" GROUP BY A.SUBMISSION_ID");
+
+		this.sqlService.dbRead(sql.toString(), fields, new SqlReader()
+		{
+			public Object readSqlResultRecord(ResultSet result)
+			{
+				try
+				{
+					String sid = SqlHelper.readId(result, 1);
+					Float aEval = SqlHelper.readFloat(result, 2);
+					Float aAuto = SqlHelper.readFloat(result, 3);
+					Integer unscored = SqlHelper.readInteger(result, 4);
+
+					SubmissionImpl s = submissions.get(sid);
+					if (s != null)
+					{
+						s.initAnswersSummary(Float.valueOf((aEval == null ? 0f : aEval.floatValue()) + (aAuto == null ? 0f : aAuto.floatValue())),
+								Float.valueOf(aAuto == null ? 0f : aAuto.floatValue()), unscored);
+					}
+
+					return null;
+				}
+				catch (SQLException e)
+				{
+					M_log.warn("getAssessmentSubmissions: " + e);
+					return null;
+				}
+			}
+		});
+
+		// a submission with no answer rows has nothing to sum - give it an empty summary, so it does not go back for its (no) answers
+		for (SubmissionImpl submission : rv)
+		{
+			if (submission.answersScore == null) submission.initAnswersSummary(Float.valueOf(0f), Float.valueOf(0f), Integer.valueOf(0));
+		}
+
 		return rv;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
-	public List<SubmissionImpl> getOpenSubmissions()
+	public String getCompleteSubmissionAssessmentId(String submissionId)
 	{
-		// collect the submissions to this assessment
-		String where = "WHERE S.COMPLETE='0'";
-		String order = "ORDER BY S.SUBMITTED_DATE ASC";
+		String sql = "SELECT S.ASSESSMENT_ID FROM MNEME_SUBMISSION S WHERE S.ID=? AND S.COMPLETE='1' AND S.TEST_DRIVE='0'";
+
+		Object[] fields = new Object[1];
+		try
+		{
+			fields[0] = Long.valueOf(submissionId);
+		}
+		catch (NumberFormatException e)
+		{
+			return null;
+		}
+
+		List<String> rv = this.sqlService.dbRead(sql, fields, null);
+		if (rv.isEmpty()) return null;
+
+		return rv.get(0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Map<String, Date> getOpenSubmissionDeadlines(Date before)
+	{
+		// each open, started submission's time limit end and submit-until date, taking the user's special access (if any) over the assessment's
+		// settings (test drives have no submit-until) - the scan is of the open submissions only (by the COMPLETE, START_DATE index), and the
+		// deadlines are computed in the db
+		StringBuilder inner = new StringBuilder();
+		inner.append("SELECT S.ID,");
+		inner.append(" CASE WHEN A.TIME_LIMIT > 0 THEN S.START_DATE + (CASE WHEN X.OVERRIDE_TIME_LIMIT='1' THEN X.TIME_LIMIT ELSE A.TIME_LIMIT END)");
+		inner.append(" ELSE NULL END AS LIMIT_END,");
+		inner.append(" CASE WHEN S.TEST_DRIVE='0' THEN COALESCE(CASE WHEN X.OVERRIDE_ACCEPT_UNTIL='1' THEN X.DATES_ACCEPT_UNTIL ELSE A.DATES_ACCEPT_UNTIL END,");
+		inner.append(" CASE WHEN X.OVERRIDE_DUE='1' THEN X.DATES_DUE ELSE A.DATES_DUE END) ELSE NULL END AS UNTIL");
+		inner.append(" FROM MNEME_SUBMISSION S");
+		inner.append(" JOIN MNEME_ASSESSMENT A ON S.ASSESSMENT_ID=A.ID");
+		inner.append(" LEFT OUTER JOIN MNEME_ASSESSMENT_ACCESS X ON X.ASSESSMENT_ID=S.ASSESSMENT_ID AND ");
+		inner.append(userInListSql("X.USERS", "S.USERID"));
+		inner.append(" WHERE S.COMPLETE='0' AND S.START_DATE IS NOT NULL");
+
+		// the earlier of the two is the deadline, as SubmissionImpl.getWhenOver()
+		StringBuilder sql = new StringBuilder();
+		sql.append("SELECT T.ID, CASE WHEN T.UNTIL IS NULL OR T.LIMIT_END < T.UNTIL THEN T.LIMIT_END ELSE T.UNTIL END FROM (");
+		sql.append(inner);
+		sql.append(") T WHERE T.LIMIT_END < ? OR T.UNTIL < ?");
+
+		Object[] fields = new Object[2];
+		fields[0] = Long.valueOf(before.getTime());
+		fields[1] = Long.valueOf(before.getTime());
+
+		final Map<String, Date> rv = new HashMap<String, Date>();
+		this.sqlService.dbRead(sql.toString(), fields, new SqlReader()
+		{
+			public Object readSqlResultRecord(ResultSet result)
+			{
+				try
+				{
+					String sid = SqlHelper.readId(result, 1);
+					Date deadline = SqlHelper.readDate(result, 2);
+
+					// if more than one of the assessment's special access matches the user, take the earliest - the submission is checked when due
+					Date prior = rv.get(sid);
+					if ((prior == null) || (deadline.before(prior)))
+					{
+						rv.put(sid, deadline);
+					}
+
+					return null;
+				}
+				catch (SQLException e)
+				{
+					M_log.warn("getOpenSubmissionDeadlines: " + e);
+					return null;
+				}
+			}
+		});
+
+		return rv;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<Answer> getQuestionCompleteAnswers(Question question)
+	{
+		// just what scoring needs from the answer, and the submission's ids
+		StringBuilder sql = new StringBuilder();
+		sql.append("SELECT A.GUEST, A.ID, A.PART_ID, A.SUBMISSION_ID, A.AUTO_SCORE, S.ASSESSMENT_ID, S.TEST_DRIVE");
+		sql.append(" FROM MNEME_ANSWER A");
+		sql.append(" JOIN MNEME_SUBMISSION S ON A.SUBMISSION_ID=S.ID");
+		sql.append(" WHERE A.QUESTION_ID=? AND S.COMPLETE='1'");
+
+		Object[] fields = new Object[1];
+		fields[0] = Long.valueOf(question.getId());
+
+		final Question q = question;
+		final List<Answer> rv = new ArrayList<Answer>();
+		this.sqlService.dbRead(sql.toString(), fields, new SqlReader()
+		{
+			public Object readSqlResultRecord(ResultSet result)
+			{
+				try
+				{
+					AnswerImpl a = newAnswer();
+					a.initId(SqlHelper.readId(result, 2));
+					a.initPartId(SqlHelper.readId(result, 3));
+					a.initQuestion(q.getId(), q.getType());
+					a.initStoredAutoScore(SqlHelper.readFloat(result, 5));
+					String assessmentId = Boolean.TRUE.equals(SqlHelper.readBoolean(result, 7)) ? null : SqlHelper.readId(result, 6);
+					a.initWithoutSubmission(SqlHelper.readId(result, 4), assessmentId, q);
+					a.getTypeSpecificAnswer().setData(SqlHelper.decodeStringArray(StringUtil.trimToNull(result.getString(1))));
+
+					a.clearIsChanged();
+					rv.add(a);
+
+					return null;
+				}
+				catch (SQLException e)
+				{
+					M_log.warn("getQuestionCompleteAnswers: " + e);
+					return null;
+				}
+			}
+		});
 
-		List<SubmissionImpl> rv = readSubmissions(where, order, null, false);
 		return rv;
 	}
 
@@ -340,6 +613,42 @@ public abstract class SubmissionStorageSql implements SubmissionStorage
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<Answer> getSubmissionAnswersData(String submissionId)
+	{
+		String sql = "SELECT A.QUESTION_ID, A.QUESTION_TYPE, A.GUEST FROM MNEME_ANSWER A WHERE A.SUBMISSION_ID=?";
+
+		Object[] fields = new Object[1];
+		fields[0] = Long.valueOf(submissionId);
+
+		final List<Answer> rv = new ArrayList<Answer>();
+		this.sqlService.dbRead(sql, fields, new SqlReader()
+		{
+			public Object readSqlResultRecord(ResultSet result)
+			{
+				try
+				{
+					AnswerImpl a = newAnswer();
+					a.initQuestion(SqlHelper.readId(result, 1), SqlHelper.readString(result, 2));
+					a.getTypeSpecificAnswer().setData(SqlHelper.decodeStringArray(StringUtil.trimToNull(result.getString(3))));
+					a.clearIsChanged();
+					rv.add(a);
+
+					return null;
+				}
+				catch (SQLException e)
+				{
+					M_log.warn("getSubmissionAnswersData: " + e);
+					return null;
+				}
+			}
+		});
+
+		return rv;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -468,6 +777,23 @@ public abstract class SubmissionStorageSql implements SubmissionStorage
 		return Float.valueOf(0f);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public String getUserAssessmentInProgress(Assessment assessment, String userId)
+	{
+		String sql = "SELECT S.ID FROM MNEME_SUBMISSION S WHERE S.ASSESSMENT_ID=? AND S.USERID=? AND S.COMPLETE='0' ORDER BY S.ID DESC";
+
+		Object[] fields = new Object[2];
+		fields[0] = Long.valueOf(assessment.getId());
+		fields[1] = userId;
+
+		List<String> rv = this.sqlService.dbRead(sql, fields, null);
+		if (rv.isEmpty()) return null;
+
+		return rv.get(0);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -533,6 +859,43 @@ public abstract class SubmissionStorageSql implements SubmissionStorage
 	 */
 	public abstract SubmissionImpl newSubmission();
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public void readAnswers(List<SubmissionImpl> submissions)
+	{
+		// collect those read without answers
+		Map<String, SubmissionImpl> hobbled = new HashMap<String, SubmissionImpl>();
+		for (SubmissionImpl submission : submissions)
+		{
+			if ((submission.answers == null) && (submission.getId() != null)
+					&& (!submission.getId().startsWith(SubmissionService.PHANTOM_PREFIX)))
+			{
+				submission.answers = new ArrayList<Answer>();
+				hobbled.put(submission.getId(), submission);
+			}
+		}
+
+		// read in chunks, to keep the IN list reasonable
+		List<String> ids = new ArrayList<String>(hobbled.keySet());
+		for (int start = 0; start < ids.size(); start += READ_ANSWERS_CHUNK)
+		{
+			List<String> chunk = ids.subList(start, Math.min(start + READ_ANSWERS_CHUNK, ids.size()));
+
+			StringBuilder where = new StringBuilder();
+			where.append("WHERE S.ID IN (");
+			Object[] fields = new Object[chunk.size()];
+			for (int i = 0; i < chunk.size(); i++)
+			{
+				where.append(i == 0 ? "?" : ",?");
+				fields[i] = Long.valueOf(chunk.get(i));
+			}
+			where.append(")");
+
+			readAnswers(where.toString(), fields, hobbled);
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -566,18 +929,53 @@ public abstract class SubmissionStorageSql implements SubmissionStorage
 	 */
 	public void saveAnswers(List<Answer> answers)
 	{
-		// for each answer, update or insert
-		for (Answer a : answers)
+		saveSubmissionAnswers(null, answers);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void saveAnswersAutoScore(List<Answer> answers)
+	{
+		if (answers.isEmpty()) return;
+
+		// one transaction, on a connection of our own so we can batch
+		Connection connection = null;
+		boolean wasCommit = true;
+		try
 		{
-			if (a.getId() == null)
-			{
-				// insert
-				insertAnswer((AnswerImpl) a);
-			}
-			else
+			connection = this.sqlService.borrowConnection();
+			wasCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+
+			updateAnswersAutoScoreTx(answers, connection);
+
+			connection.commit();
+		}
+		catch (SQLException e)
+		{
+			rollback(connection);
+			M_log.warn("saveAnswersAutoScore: " + e);
+			throw new RuntimeException("saveAnswersAutoScore: " + e);
+		}
+		catch (RuntimeException e)
+		{
+			rollback(connection);
+			throw e;
+		}
+		finally
+		{
+			if (connection != null)
 			{
-				// update
-				updateAnswer((AnswerImpl) a);
+				try
+				{
+					connection.setAutoCommit(wasCommit);
+				}
+				catch (SQLException e)
+				{
+					M_log.warn("saveAnswersAutoScore: " + e);
+				}
+				this.sqlService.returnConnection(connection);
 			}
 		}
 	}
@@ -608,6 +1006,87 @@ public abstract class SubmissionStorageSql implements SubmissionStorage
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public void saveSubmissionAnswers(SubmissionImpl submission, List<Answer> answers)
+	{
+		// lets not save phantom submissions
+		if ((submission != null) && (submission.getId() != null) && submission.getId().startsWith(SubmissionService.PHANTOM_PREFIX))
+		{
+			throw new IllegalArgumentException();
+		}
+
+		// split the answers into updates and inserts
+		List<AnswerImpl> inserts = new ArrayList<AnswerImpl>();
+		List<AnswerImpl> updates = new ArrayList<AnswerImpl>();
+		for (Answer a : answers)
+		{
+			if (a.getId() == null)
+			{
+				inserts.add((AnswerImpl) a);
+			}
+			else
+			{
+				updates.add((AnswerImpl) a);
+			}
+		}
+
+		if ((submission == null) && inserts.isEmpty() && updates.isEmpty()) return;
+
+		try
+		{
+			saveSubmissionAnswersTx(submission, inserts, updates);
+		}
+		catch (SQLException e)
+		{
+			// an answer is stored once per question - if a concurrent save (from another window or server) stored one for the same question first,
+			// the insert breaks the unique key: update that answer instead (a new submission has no answers stored by anyone else)
+			boolean newSubmission = (submission != null) && (submission.getId() == null);
+			if (newSubmission || inserts.isEmpty() || !isConstraintViolation(e))
+			{
+				M_log.warn("saveSubmissionAnswers: " + e);
+				throw new RuntimeException("saveSubmissionAnswers: " + e);
+			}
+
+			if (M_log.isDebugEnabled()) M_log.debug("saveSubmissionAnswers: updating answers stored concurrently: " + e);
+
+			List<AnswerImpl> stillInserts = new ArrayList<AnswerImpl>();
+			Map<String, Map<String, String>> storedIds = new HashMap<String, Map<String, String>>();
+			for (AnswerImpl answer : inserts)
+			{
+				String submissionId = answer.getSubmission().getId();
+				Map<String, String> ids = storedIds.get(submissionId);
+				if (ids == null)
+				{
+					ids = readAnswerIds(submissionId);
+					storedIds.put(submissionId, ids);
+				}
+
+				// the id may have been set by the rolled back insert
+				answer.initId(ids.get(answer.questionId));
+				if (answer.getId() == null)
+				{
+					stillInserts.add(answer);
+				}
+				else
+				{
+					updates.add(answer);
+				}
+			}
+
+			try
+			{
+				saveSubmissionAnswersTx(submission, stillInserts, updates);
+			}
+			catch (SQLException e2)
+			{
+				M_log.warn("saveSubmissionAnswers: " + e2);
+				throw new RuntimeException("saveSubmissionAnswers: " + e2);
+			}
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -768,29 +1247,64 @@ public abstract class SubmissionStorageSql implements SubmissionStorage
 	}
 
 	/**
-	 * Insert a new answer.
+	 * {@inheritDoc}
+	 */
+	public Boolean unscoredSubmissionsExist(Assessment assessment)
+	{
+		StringBuilder sql = new StringBuilder();
+		sql.append("SELECT 1 FROM DUAL WHERE EXISTS (SELECT 1 FROM MNEME_ANSWER A");
+		sql.append(" JOIN MNEME_SUBMISSION S ON A.SUBMISSION_ID=S.ID AND S.ASSESSMENT_ID=? AND S.COMPLETE='1' AND S.TEST_DRIVE='0'");
+		sql.append(" WHERE A.ANSWERED='1' AND A.EVAL_SCORE IS NULL AND A.AUTO_SCORE IS NULL AND S.EVAL_SCORE IS NULL)");
+
+		Object[] fields = new Object[1];
+		fields[0] = Long.valueOf(assessment.getId());
+
+		List results = this.sqlService.dbRead(sql.toString(), fields, null);
+		return Boolean.valueOf(!results.isEmpty());
+	}
+
+	/**
+	 * Collect the field values for inserting an answer: ANSWERED, AUTO_SCORE, GUEST, EVAL_ATRIB_DATE, EVAL_ATRIB_USER, EVAL_ATTACHMENTS,
+	 * EVAL_COMMENT, EVAL_EVALUATED, EVAL_SCORE, PART_ID, QUESTION_ID, QUESTION_TYPE, REASON, REVIEW, SUBMISSION_ID, SUBMITTED_DATE.
 	 * 
 	 * @param answer
 	 *        The answer.
+	 * @return The field values.
 	 */
-	protected void insertAnswer(final AnswerImpl answer)
+	protected Object[] insertAnswerFields(AnswerImpl answer)
 	{
-		this.sqlService.transact(new Runnable()
-		{
-			public void run()
-			{
-				insertAnswerTx(answer);
-			}
-		}, "insertAnswer: " + answer.getId());
+		Object[] fields = new Object[16];
+		fields[0] = answer.getIsAnswered();
+		fields[1] = answer.getAutoScore();
+		fields[2] = SqlHelper.encodeStringArray(answer.getTypeSpecificAnswer().getData());
+		fields[3] = (answer.getEvaluation().getAttribution().getDate() == null) ? null : answer.getEvaluation().getAttribution().getDate().getTime();
+		fields[4] = answer.getEvaluation().getAttribution().getUserId();
+		fields[5] = SqlHelper.encodeReferences(answer.getEvaluation().getAttachments());
+		fields[6] = answer.getEvaluation().getComment();
+		fields[7] = answer.getEvaluation().getEvaluated() ? "1" : "0";
+		fields[8] = answer.getEvaluation().getScore() == null ? null : Float.valueOf(answer.getEvaluation().getScore());
+		fields[9] = Long.valueOf(answer.getPartId());
+		Question q = answer.getQuestion();
+		fields[10] = Long.valueOf(q.getId());
+		fields[11] = q.getType();
+		fields[12] = answer.getReason();
+		fields[13] = answer.getMarkedForReview() ? "1" : "0";
+		fields[14] = Long.valueOf(answer.getSubmission().getId());
+		fields[15] = (answer.getSubmittedDate() == null) ? null : answer.getSubmittedDate().getTime();
+
+		return fields;
 	}
 
 	/**
-	 * Insert a new pool (transaction code).
+	 * Insert new answers, as one batch, setting their ids (transaction code).
 	 * 
-	 * @param pool
-	 *        The pool.
+	 * @param answers
+	 *        The answers.
+	 * @param connection
+	 *        The transaction's connection.
+	 * @throws SQLException
 	 */
-	protected abstract void insertAnswerTx(AnswerImpl answer);
+	protected abstract void insertAnswersTx(List<AnswerImpl> answers, Connection connection) throws SQLException;
 
 	/**
 	 * Insert a new submission.
@@ -804,7 +1318,7 @@ public abstract class SubmissionStorageSql implements SubmissionStorage
 		{
 			public void run()
 			{
-				insertSubmissionTx(submission);
+				insertSubmissionTx(submission, null);
 			}
 		}, "insertSubmission: " + submission.getId());
 	}
@@ -814,8 +1328,124 @@ public abstract class SubmissionStorageSql implements SubmissionStorage
 	 * 
 	 * @param submission
 	 *        The submission.
+	 * @param connection
+	 *        The connection to use, or null to use the SqlService's current transaction.
+	 */
+	protected abstract void insertSubmissionTx(SubmissionImpl submission, Connection connection);
+
+	/**
+	 * Check if this failure, or any chained to it, is an integrity constraint violation, such as a duplicate unique key.
+	 * 
+	 * @param e
+	 *        The failure.
+	 * @return true if it is a constraint violation, false if not.
+	 */
+	protected boolean isConstraintViolation(SQLException e)
+	{
+		for (SQLException cur = e; cur != null; cur = cur.getNextException())
+		{
+			// SQL state class 23: integrity constraint violation
+			if ((cur.getSQLState() != null) && cur.getSQLState().startsWith("23")) return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Read the ids of the answers stored for this submission.
+	 * 
+	 * @param submissionId
+	 *        The submission id.
+	 * @return The answer ids, keyed by question id.
 	 */
-	protected abstract void insertSubmissionTx(SubmissionImpl submission);
+	protected Map<String, String> readAnswerIds(String submissionId)
+	{
+		String sql = "SELECT A.QUESTION_ID, A.ID FROM MNEME_ANSWER A WHERE A.SUBMISSION_ID=?";
+		Object[] fields = new Object[1];
+		fields[0] = Long.valueOf(submissionId);
+
+		final Map<String, String> rv = new HashMap<String, String>();
+		this.sqlService.dbRead(sql, fields, new SqlReader()
+		{
+			public Object readSqlResultRecord(ResultSet result)
+			{
+				try
+				{
+					rv.put(SqlHelper.readId(result, 1), SqlHelper.readId(result, 2));
+
+					return null;
+				}
+				catch (SQLException e)
+				{
+					M_log.warn("readAnswerIds: " + e);
+					return null;
+				}
+			}
+		});
+
+		return rv;
+	}
+
+	/**
+	 * Read the answers for a selection of submissions.
+	 * 
+	 * @param where
+	 *        The where clause, on the submissions (S).
+	 * @param fields
+	 *        The bind variables.
+	 * @param submissions
+	 *        The submissions the answers belong to, keyed by id.
+	 */
+	protected void readAnswers(String where, Object[] fields, final Map<String, SubmissionImpl> submissions)
+	{
+		StringBuilder sql = new StringBuilder();
+		sql.append("SELECT A.GUEST, A.EVAL_ATRIB_DATE, A.EVAL_ATRIB_USER, A.EVAL_ATTACHMENTS, A.EVAL_COMMENT, A.EVAL_EVALUATED,");
+		sql.append(" A.EVAL_SCORE, A.ID, A.PART_ID, A.QUESTION_ID, A.QUESTION_TYPE, A.REASON, A.REVIEW,");
+		sql.append(" A.SUBMISSION_ID, A.SUBMITTED_DATE, A.AUTO_SCORE");
+		sql.append(" FROM MNEME_ANSWER A");
+		sql.append(" JOIN MNEME_SUBMISSION S ON A.SUBMISSION_ID=S.ID ");
+		sql.append(where);
+		sql.append(" ORDER BY A.SUBMISSION_ID ASC");
+
+		this.sqlService.dbRead(sql.toString(), fields, new SqlReader()
+		{
+			public Object readSqlResultRecord(ResultSet result)
+			{
+				try
+				{
+					String sid = SqlHelper.readId(result, 14);
+					SubmissionImpl s = submissions.get(sid);
+					AnswerImpl a = newAnswer();
+
+					((AttributionImpl) a.getEvaluation().getAttribution()).initDate(SqlHelper.readDate(result, 2));
+					((AttributionImpl) a.getEvaluation().getAttribution()).initUserId(SqlHelper.readString(result, 3));
+					((EvaluationImpl) a.getEvaluation()).setAttachments(SqlHelper.readReferences(result, 4, attachmentService));
+					((EvaluationImpl) a.getEvaluation()).initComment(SqlHelper.readString(result, 5));
+					((EvaluationImpl) a.getEvaluation()).initEvaluated(SqlHelper.readBoolean(result, 6));
+					((EvaluationImpl) a.getEvaluation()).initScore(SqlHelper.readFloat(result, 7));
+					a.initId(SqlHelper.readId(result, 8));
+					a.initPartId(SqlHelper.readId(result, 9));
+					a.initQuestion(SqlHelper.readId(result, 10), SqlHelper.readString(result, 11));
+					a.getTypeSpecificAnswer().setData(SqlHelper.decodeStringArray(StringUtil.trimToNull(result.getString(1))));
+					a.setReason(SqlHelper.readString(result, 12));
+					a.setMarkedForReview(SqlHelper.readBoolean(result, 13));
+					a.setSubmittedDate(SqlHelper.readDate(result, 15));
+					a.initStoredAutoScore(SqlHelper.readFloat(result, 16));
+
+					a.clearIsChanged();
+					a.initSubmission(s);
+					s.initAnswer(a);
+
+					return null;
+				}
+				catch (SQLException e)
+				{
+					M_log.warn("readAnswers: " + e);
+					return null;
+				}
+			}
+		});
+	}
 
 	/**
 	 * Read an submission
@@ -915,54 +1545,45 @@ public abstract class SubmissionStorageSql implements SubmissionStorage
 		if (complete)
 		{
 			// read all the answers for these submissions
-			sql = new StringBuilder();
-			sql.append("SELECT A.GUEST, A.EVAL_ATRIB_DATE, A.EVAL_ATRIB_USER, A.EVAL_ATTACHMENTS, A.EVAL_COMMENT, A.EVAL_EVALUATED,");
-			sql.append(" A.EVAL_SCORE, A.ID, A.PART_ID, A.QUESTION_ID, A.QUESTION_TYPE, A.REASON, A.REVIEW,");
-			sql.append(" A.SUBMISSION_ID, A.SUBMITTED_DATE, A.AUTO_SCORE");
-			sql.append(" FROM MNEME_ANSWER A");
-			sql.append(" JOIN MNEME_SUBMISSION S ON A.SUBMISSION_ID=S.ID ");
-			sql.append(where);
-			sql.append(" ORDER BY A.SUBMISSION_ID ASC");
-
-			this.sqlService.dbRead(sql.toString(), fields, new SqlReader()
+			readAnswers(where, fields, submissions);
+		}
+
+		return rv;
+	}
+
+	/**
+	 * Read a user id, count result.
+	 * 
+	 * @param sql
+	 *        The sql, selecting the user id and the count.
+	 * @param fields
+	 *        The bind variables.
+	 * @param where
+	 *        The caller's name, for logging.
+	 * @return A Map of user id to count.
+	 */
+	protected Map<String, Integer> readUserCounts(String sql, Object[] fields, final String where)
+	{
+		final Map<String, Integer> rv = new HashMap<String, Integer>();
+		this.sqlService.dbRead(sql, fields, new SqlReader()
+		{
+			public Object readSqlResultRecord(ResultSet result)
 			{
-				public Object readSqlResultRecord(ResultSet result)
+				try
 				{
-					try
-					{
-						String sid = SqlHelper.readId(result, 14);
-						SubmissionImpl s = submissions.get(sid);
-						AnswerImpl a = newAnswer();
-
-						((AttributionImpl) a.getEvaluation().getAttribution()).initDate(SqlHelper.readDate(result, 2));
-						((AttributionImpl) a.getEvaluation().getAttribution()).initUserId(SqlHelper.readString(result, 3));
-						((EvaluationImpl) a.getEvaluation()).setAttachments(SqlHelper.readReferences(result, 4, attachmentService));
-						((EvaluationImpl) a.getEvaluation()).initComment(SqlHelper.readString(result, 5));
-						((EvaluationImpl) a.getEvaluation()).initEvaluated(SqlHelper.readBoolean(result, 6));
-						((EvaluationImpl) a.getEvaluation()).initScore(SqlHelper.readFloat(result, 7));
-						a.initId(SqlHelper.readId(result, 8));
-						a.initPartId(SqlHelper.readId(result, 9));
-						a.initQuestion(SqlHelper.readId(result, 10), SqlHelper.readString(result, 11));
-						a.getTypeSpecificAnswer().setData(SqlHelper.decodeStringArray(StringUtil.trimToNull(result.getString(1))));
-						a.setReason(SqlHelper.readString(result, 12));
-						a.setMarkedForReview(SqlHelper.readBoolean(result, 13));
-						a.setSubmittedDate(SqlHelper.readDate(result, 15));
-						a.initStoredAutoScore(SqlHelper.readFloat(result, 16));
-
-						a.clearIsChanged();
-						a.initSubmission(s);
-						s.initAnswer(a);
-
-						return null;
-					}
-					catch (SQLException e)
-					{
-						M_log.warn("readSubmissions(answers): " + e);
-						return null;
-					}
+					String user = SqlHelper.readString(result, 1);
+					Integer count = SqlHelper.readInteger(result, 2);
+					rv.put(user, count);
+
+					return null;
 				}
-			});
-		}
+				catch (SQLException e)
+				{
+					M_log.warn(where + ": " + e);
+					return null;
+				}
+			}
+		});
 
 		return rv;
 	}
@@ -978,29 +1599,146 @@ public abstract class SubmissionStorageSql implements SubmissionStorage
 	protected abstract void removeTestDriveSubmissionsTx(String context);
 
 	/**
-	 * Update an existing submission answer.
+	 * Form the sql condition that a user is one of those in a column of users encoded with SqlHelper.encodeStringArray().
 	 * 
-	 * @param answer
-	 *        The answer.
+	 * @param usersColumn
+	 *        The encoded users column.
+	 * @param userColumn
+	 *        The user id column.
+	 * @return The sql condition.
+	 */
+	protected abstract String userInListSql(String usersColumn, String userColumn);
+
+	/**
+	 * Roll back a transaction, if we got as far as a connection.
+	 * 
+	 * @param connection
+	 *        The connection.
 	 */
-	protected void updateAnswer(final AnswerImpl answer)
+	protected void rollback(Connection connection)
 	{
-		this.sqlService.transact(new Runnable()
+		if (connection == null) return;
+
+		try
 		{
-			public void run()
+			connection.rollback();
+		}
+		catch (SQLException e)
+		{
+			M_log.warn("rollback: " + e);
+		}
+	}
+
+	/**
+	 * Save the submission (if any), update and insert the answers, all in one transaction, on a connection of our own so we can batch.
+	 * 
+	 * @param submission
+	 *        The submission to insert or update - may be null.
+	 * @param inserts
+	 *        The answers to insert.
+	 * @param updates
+	 *        The answers to update.
+	 * @throws SQLException
+	 *         if the transaction fails - it is rolled back.
+	 */
+	protected void saveSubmissionAnswersTx(SubmissionImpl submission, List<AnswerImpl> inserts, List<AnswerImpl> updates) throws SQLException
+	{
+		// one transaction for it all, on a connection of our own so we can batch
+		Connection connection = null;
+		boolean wasCommit = true;
+		try
+		{
+			connection = this.sqlService.borrowConnection();
+			wasCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+
+			if (submission != null)
 			{
-				updateAnswerTx(answer);
+				if (submission.getId() == null)
+				{
+					insertSubmissionTx(submission, connection);
+				}
+				else
+				{
+					updateSubmissionTx(submission, connection);
+				}
 			}
-		}, "updateAnswer: " + answer.getId());
+
+			if (!updates.isEmpty()) updateAnswersTx(updates, connection);
+			if (!inserts.isEmpty()) insertAnswersTx(inserts, connection);
+
+			connection.commit();
+		}
+		catch (SQLException e)
+		{
+			rollback(connection);
+			throw e;
+		}
+		catch (RuntimeException e)
+		{
+			rollback(connection);
+			throw e;
+		}
+		finally
+		{
+			if (connection != null)
+			{
+				try
+				{
+					connection.setAutoCommit(wasCommit);
+				}
+				catch (SQLException e)
+				{
+					M_log.warn("saveSubmissionAnswersTx: " + e);
+				}
+				this.sqlService.returnConnection(connection);
+			}
+		}
 	}
 
 	/**
-	 * Update an existing submission answer (transaction code).
+	 * Update the auto score of existing answers, as one batch (transaction code).
 	 * 
-	 * @param answer
-	 *        The answer.
+	 * @param answers
+	 *        The answers.
+	 * @param connection
+	 *        The transaction's connection.
+	 * @throws SQLException
+	 */
+	protected void updateAnswersAutoScoreTx(List<Answer> answers, Connection connection) throws SQLException
+	{
+		PreparedStatement statement = connection.prepareStatement("UPDATE MNEME_ANSWER SET AUTO_SCORE=? WHERE ID=?");
+		try
+		{
+			for (Answer answer : answers)
+			{
+				// the answers are to completed submissions, so this is the stored auto score
+				Object[] fields = new Object[2];
+				fields[0] = ((AnswerImpl) answer).storedAutoScore;
+				fields[1] = Long.valueOf(answer.getId());
+
+				SqlHelper.bindFields(statement, fields);
+				statement.addBatch();
+			}
+
+			statement.executeBatch();
+		}
+		finally
+		{
+			statement.close();
+		}
+	}
+
+	/**
+	 * Update existing submission answers, as one batch (transaction code).
+	 * 
+	 * @param answers
+	 *        The answers.
+	 * @param connection
+	 *        The transaction's connection.
+	 * @throws SQLException
 	 */
-	protected void updateAnswerTx(AnswerImpl answer)
+	protected void updateAnswersTx(List<AnswerImpl> answers, Connection connection) throws SQLException
 	{
 		StringBuilder sql = new StringBuilder();
 		sql.append("UPDATE MNEME_ANSWER SET");
@@ -1008,24 +1746,36 @@ public abstract class SubmissionStorageSql implements SubmissionStorage
 		sql.append(" EVAL_SCORE=?, REASON=?, REVIEW=?, SUBMITTED_DATE=?");
 		sql.append(" WHERE ID=?");
 
-		Object[] fields = new Object[13];
-		fields[0] = answer.getIsAnswered();
-		fields[1] = answer.getAutoScore();
-		fields[2] = SqlHelper.encodeStringArray(answer.getTypeSpecificAnswer().getData());
-		fields[3] = (answer.getEvaluation().getAttribution().getDate() == null) ? null : answer.getEvaluation().getAttribution().getDate().getTime();
-		fields[4] = answer.getEvaluation().getAttribution().getUserId();
-		fields[5] = SqlHelper.encodeReferences(answer.getEvaluation().getAttachments());
-		fields[6] = answer.getEvaluation().getComment();
-		fields[7] = answer.getEvaluation().getEvaluated() ? "1" : "0";
-		fields[8] = answer.getEvaluation().getScore() == null ? null : Float.valueOf(answer.getEvaluation().getScore());
-		fields[9] = answer.getReason();
-		fields[10] = answer.getMarkedForReview() ? "1" : "0";
-		fields[11] = (answer.getSubmittedDate() == null) ? null : answer.getSubmittedDate().getTime();
-		fields[12] = Long.valueOf(answer.getId());
+		PreparedStatement statement = connection.prepareStatement(sql.toString());
+		try
+		{
+			for (AnswerImpl answer : answers)
+			{
+				Object[] fields = new Object[13];
+				fields[0] = answer.getIsAnswered();
+				fields[1] = answer.getAutoScore();
+				fields[2] = SqlHelper.encodeStringArray(answer.getTypeSpecificAnswer().getData());
+				fields[3] = (answer.getEvaluation().getAttribution().getDate() == null) ? null : answer.getEvaluation().getAttribution().getDate()
+						.getTime();
+				fields[4] = answer.getEvaluation().getAttribution().getUserId();
+				fields[5] = SqlHelper.encodeReferences(answer.getEvaluation().getAttachments());
+				fields[6] = answer.getEvaluation().getComment();
+				fields[7] = answer.getEvaluation().getEvaluated() ? "1" : "0";
+				fields[8] = answer.getEvaluation().getScore() == null ? null : Float.valueOf(answer.getEvaluation().getScore());
+				fields[9] = answer.getReason();
+				fields[10] = answer.getMarkedForReview() ? "1" : "0";
+				fields[11] = (answer.getSubmittedDate() == null) ? null : answer.getSubmittedDate().getTime();
+				fields[12] = Long.valueOf(answer.getId());
+
+				SqlHelper.bindFields(statement, fields);
+				statement.addBatch();
+			}
 
-		if (!this.sqlService.dbWrite(sql.toString(), fields))
+			statement.executeBatch();
+		}
+		finally
 		{
-			throw new RuntimeException("updateAnswerTx: db write failed");
+			statement.close();
 		}
 	}
 
@@ -1041,7 +1791,7 @@ public abstract class SubmissionStorageSql implements SubmissionStorage
 		{
 			public void run()
 			{
-				updateSubmissionTx(submission);
+				updateSubmissionTx(submission, null);
 			}
 		}, "updateSubmission: " + submission.getId());
 	}
@@ -1137,13 +1887,18 @@ public abstract class SubmissionStorageSql implements SubmissionStorage
 	 * 
 	 * @param submission
 	 *        The submission.
+	 * @param connection
+	 *        The connection to use, or null to use the SqlService's current transaction.
 	 */
-	protected void updateSubmissionTx(SubmissionImpl submission)
+	protected void updateSubmissionTx(SubmissionImpl submission, Connection connection)
 	{
 		StringBuilder sql = new StringBuilder();
 		sql.append("UPDATE MNEME_SUBMISSION SET");
 		sql.append(" COMPLETE=?, EVAL_ATRIB_DATE=?, EVAL_ATRIB_USER=?, EVAL_ATTACHMENTS=?, EVAL_COMMENT=?, EVAL_EVALUATED=?,");
 		sql.append(" EVAL_SCORE=?, RELEASED=?, SUBMITTED_DATE=?");
+
+		// leaving progress frees the user to start another - IN_PROGRESS is only ever set on insert
+		if (submission.getIsComplete()) sql.append(", IN_PROGRESS=NULL");
 		sql.append(" WHERE ID=?");
 
 		Object[] fields = new Object[10];
@@ -1159,7 +1914,7 @@ public abstract class SubmissionStorageSql implements SubmissionStorage
 		fields[8] = (submission.getSubmittedDate() == null) ? null : submission.getSubmittedDate().getTime();
 		fields[9] = Long.valueOf(submission.getId());
 
-		if (!this.sqlService.dbWrite(sql.toString(), fields))
+		if (!this.sqlService.dbWrite(connection, sql.toString(), fields))
 		{
 			throw new RuntimeException("updateSubmissionTx: db write failed");
 		}
@@ -0,0 +1,264 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+package org.muse.mneme.impl;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.muse.mneme.api.TransferStatus;
+import org.muse.mneme.api.Translation;
+
+/**
+ * TransferJob implements TransferStatus, tracking a copy of one context's pools, questions and assessments into another.<br />
+ * The job remembers what has been copied, so if it fails part way through, running it again resumes where it stopped.
+ */
+public class TransferJob implements TransferStatus
+{
+	/** The ids of the source assessments already copied. */
+	protected Set<String> assessmentsCopied = new HashSet<String>();
+
+	/** The number of assessments to copy, once known. */
+	protected volatile Integer assessmentsTotal = null;
+
+	/** Set when done. */
+	protected volatile boolean complete = false;
+
+	/** Set when stopped by a failure. */
+	protected volatile boolean failed = false;
+
+	/** The source context. */
+	protected String fromContext = null;
+
+	/** Map from source pool ids to the new pool ids, for the pools already copied. */
+	protected Map<String, String> pidMap = new HashMap<String, String>();
+
+	/** The number of pools to copy, once known. */
+	protected volatile Integer poolsTotal = null;
+
+	/** Map from source question ids to the new question ids, for the pools already copied. */
+	protected Map<String, String> qidMap = new HashMap<String, String>();
+
+	/** The number of questions to copy, once known. */
+	protected volatile Integer questionsTotal = null;
+
+	/** The destination context. */
+	protected String toContext = null;
+
+	/** The attachment translations, once the attachments have been copied. */
+	protected List<Translation> translations = null;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param fromContext
+	 *        The source context.
+	 * @param toContext
+	 *        The destination context.
+	 */
+	public TransferJob(String fromContext, String toContext)
+	{
+		this.fromContext = fromContext;
+		this.toContext = toContext;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public synchronized Integer getAssessmentsDone()
+	{
+		return Integer.valueOf(this.assessmentsCopied.size());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Integer getAssessmentsTotal()
+	{
+		return this.assessmentsTotal;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String getFromContext()
+	{
+		return this.fromContext;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Boolean getIsComplete()
+	{
+		return Boolean.valueOf(this.complete);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Boolean getIsFailed()
+	{
+		return Boolean.valueOf(this.failed);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public synchronized Integer getPoolsDone()
+	{
+		return Integer.valueOf(this.pidMap.size());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Integer getPoolsTotal()
+	{
+		return this.poolsTotal;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public synchronized Integer getQuestionsDone()
+	{
+		return Integer.valueOf(this.qidMap.size());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Integer getQuestionsTotal()
+	{
+		return this.questionsTotal;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String getToContext()
+	{
+		return this.toContext;
+	}
+
+	/**
+	 * Record an assessment as copied.
+	 * 
+	 * @param assessmentId
+	 *        The source assessment id.
+	 */
+	protected synchronized void addAssessment(String assessmentId)
+	{
+		this.assessmentsCopied.add(assessmentId);
+	}
+
+	/**
+	 * Record a pool, with all its questions, as copied.
+	 * 
+	 * @param poolId
+	 *        The source pool id.
+	 * @param newPoolId
+	 *        The new pool id.
+	 * @param questionIds
+	 *        The map from the source pool's question ids to the new question ids.
+	 */
+	protected synchronized void addPool(String poolId, String newPoolId, Map<String, String> questionIds)
+	{
+		this.pidMap.put(poolId, newPoolId);
+		this.qidMap.putAll(questionIds);
+	}
+
+	/**
+	 * Mark the job as done.
+	 */
+	protected void initComplete()
+	{
+		this.complete = true;
+		this.failed = false;
+	}
+
+	/**
+	 * Mark the job as stopped by a failure, or clear that to resume it.
+	 * 
+	 * @param failed
+	 *        true if stopped by a failure, false to resume.
+	 */
+	protected void initFailed(boolean failed)
+	{
+		this.failed = failed;
+	}
+
+	/**
+	 * Set the number of pools, questions and assessments to copy.
+	 * 
+	 * @param pools
+	 *        The number of pools.
+	 * @param questions
+	 *        The number of questions.
+	 * @param assessments
+	 *        The number of assessments.
+	 */
+	protected void initTotals(int pools, int questions, int assessments)
+	{
+		this.poolsTotal = Integer.valueOf(pools);
+		this.questionsTotal = Integer.valueOf(questions);
+		this.assessmentsTotal = Integer.valueOf(assessments);
+	}
+
+	/**
+	 * Set the attachment translations, once the attachments have been copied.
+	 * 
+	 * @param translations
+	 *        The translations.
+	 */
+	protected void initTranslations(List<Translation> translations)
+	{
+		this.translations = translations;
+	}
+
+	/**
+	 * Check if an assessment has been copied.
+	 * 
+	 * @param assessmentId
+	 *        The source assessment id.
+	 * @return true if copied, false if not.
+	 */
+	protected synchronized boolean isAssessmentCopied(String assessmentId)
+	{
+		return this.assessmentsCopied.contains(assessmentId);
+	}
+
+	/**
+	 * Check if a pool has been copied.
+	 * 
+	 * @param poolId
+	 *        The source pool id.
+	 * @return true if copied, false if not.
+	 */
+	protected synchronized boolean isPoolCopied(String poolId)
+	{
+		return this.pidMap.containsKey(poolId);
+	}
+}
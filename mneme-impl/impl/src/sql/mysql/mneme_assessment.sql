@@ -44,6 +44,7 @@ CREATE TABLE MNEME_ASSESSMENT
 	MINT					CHAR (1),
 	MODIFIED_BY_DATE		BIGINT,
 	MODIFIED_BY_USER		VARCHAR (99),
+	NUM_QUESTIONS			INT UNSIGNED,
 	PARTS_CONTINUOUS		CHAR (1),
 	PARTS_SHOW_PRES			CHAR (1),
 	PASSWORD				VARCHAR (255),
@@ -59,8 +60,10 @@ CREATE TABLE MNEME_ASSESSMENT
 	SUBMIT_PRES_TEXT		LONGTEXT,
 	TIME_LIMIT				BIGINT UNSIGNED,
 	TITLE					VARCHAR (255),
+	TOTAL_POINTS			FLOAT,
 	TRIES					INT UNSIGNED,
-	TYPE					VARCHAR (32)
+	TYPE					VARCHAR (32),
+	VALID					CHAR (1)
 );
 
 CREATE INDEX MNEME_ASSESSMENT_IDX_CAMHP ON MNEME_ASSESSMENT
@@ -76,6 +79,11 @@ CREATE INDEX MNEME_ASSESSMENT_IDX_MINT ON MNEME_ASSESSMENT
 	MINT		ASC
 );
 
+CREATE INDEX MNEME_ASSESSMENT_IDX_OPEN ON MNEME_ASSESSMENT
+(
+	DATES_OPEN	ASC
+);
+
 -----------------------------------------------------------------------------
 
 CREATE TABLE MNEME_ASSESSMENT_ACCESS
@@ -102,6 +110,11 @@ CREATE INDEX MNEME_ASSESSMENT_ACCESS_IDX_AID ON MNEME_ASSESSMENT_ACCESS
 	ASSESSMENT_ID	ASC
 );
 
+CREATE INDEX MNEME_ASSESSMENT_ACCESS_IDX_OPEN ON MNEME_ASSESSMENT_ACCESS
+(
+	DATES_OPEN	ASC
+);
+
 -----------------------------------------------------------------------------
 
 CREATE TABLE MNEME_ASSESSMENT_PART
@@ -142,3 +155,34 @@ CREATE INDEX MNEME_ASSESSMENT_PART_DETAIL_IDX_PID ON MNEME_ASSESSMENT_PART_DETAI
 (
 	PART_ID	ASC
 );
+
+CREATE INDEX MNEME_ASSESSMENT_PART_DETAIL_IDX_POOL ON MNEME_ASSESSMENT_PART_DETAIL
+(
+	POOL_ID	ASC
+);
+
+CREATE INDEX MNEME_ASSESSMENT_PART_DETAIL_IDX_QID ON MNEME_ASSESSMENT_PART_DETAIL
+(
+	QUESTION_ID	ASC
+);
+
+-----------------------------------------------------------------------------
+
+CREATE TABLE MNEME_ASSESSMENT_REF
+(
+	ASSESSMENT_ID			BIGINT UNSIGNED NOT NULL,
+	CONTEXT					VARCHAR (99),
+	PART_ID					BIGINT UNSIGNED,
+	REF						VARCHAR (2048)
+);
+
+CREATE INDEX MNEME_ASSESSMENT_REF_IDX_AID ON MNEME_ASSESSMENT_REF
+(
+	ASSESSMENT_ID	ASC
+);
+
+CREATE INDEX MNEME_ASSESSMENT_REF_IDX_CR ON MNEME_ASSESSMENT_REF
+(
+	CONTEXT		ASC,
+	REF (255)	ASC
+);
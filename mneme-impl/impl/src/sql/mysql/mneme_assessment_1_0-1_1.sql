@@ -30,3 +30,28 @@ ALTER TABLE MNEME_ASSESSMENT
 ALTER TABLE MNEME_ASSESSMENT_ACCESS CHANGE USERS USERS LONGTEXT;
 
 ALTER TABLE MNEME_ASSESSMENT_PART CHANGE PRESENTATION_TEXT PRESENTATION_TEXT LONGTEXT;
+
+ALTER TABLE MNEME_ASSESSMENT
+	ADD NUM_QUESTIONS INT UNSIGNED,
+	ADD TOTAL_POINTS FLOAT,
+	ADD VALID CHAR (1);
+
+CREATE INDEX MNEME_ASSESSMENT_PART_DETAIL_IDX_POOL ON MNEME_ASSESSMENT_PART_DETAIL
+(
+	POOL_ID	ASC
+);
+
+CREATE INDEX MNEME_ASSESSMENT_PART_DETAIL_IDX_QID ON MNEME_ASSESSMENT_PART_DETAIL
+(
+	QUESTION_ID	ASC
+);
+
+CREATE INDEX MNEME_ASSESSMENT_IDX_OPEN ON MNEME_ASSESSMENT
+(
+	DATES_OPEN	ASC
+);
+
+CREATE INDEX MNEME_ASSESSMENT_ACCESS_IDX_OPEN ON MNEME_ASSESSMENT_ACCESS
+(
+	DATES_OPEN	ASC
+);
@@ -26,6 +26,7 @@
 DROP TABLE MNEME_ANSWER;
 DROP TABLE MNEME_SUBMISSION;
 
+DROP TABLE MNEME_ASSESSMENT_REF;
 DROP TABLE MNEME_ASSESSMENT_PART_DETAIL;
 DROP TABLE MNEME_ASSESSMENT_PART;
 DROP TABLE MNEME_ASSESSMENT_ACCESS;
@@ -33,4 +34,5 @@ DROP TABLE MNEME_ASSESSMENT;
 
 DROP TABLE MNEME_POOL;
 
+DROP TABLE MNEME_QUESTION_REF;
 DROP TABLE MNEME_QUESTION;
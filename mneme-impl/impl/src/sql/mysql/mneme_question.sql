@@ -26,6 +26,7 @@
 CREATE TABLE MNEME_QUESTION
 (
 	CONTEXT				VARCHAR (99),
+	COPIED_FROM			BIGINT UNSIGNED,
 	CREATED_BY_DATE		BIGINT,
 	CREATED_BY_USER		VARCHAR (99),
 	DESCRIPTION			VARCHAR (255),
@@ -54,3 +55,22 @@ CREATE INDEX MNEME_QUESTION_IDX_MHPSV ON MNEME_QUESTION
 	VALID		ASC
 );
 
+-----------------------------------------------------------------------------
+
+CREATE TABLE MNEME_QUESTION_REF
+(
+	CONTEXT				VARCHAR (99),
+	QUESTION_ID			BIGINT UNSIGNED NOT NULL,
+	REF					VARCHAR (2048)
+);
+
+CREATE INDEX MNEME_QUESTION_REF_IDX_QID ON MNEME_QUESTION_REF
+(
+	QUESTION_ID	ASC
+);
+
+CREATE INDEX MNEME_QUESTION_REF_IDX_CR ON MNEME_QUESTION_REF
+(
+	CONTEXT		ASC,
+	REF (255)	ASC
+);
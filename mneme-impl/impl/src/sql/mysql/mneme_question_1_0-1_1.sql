@@ -46,3 +46,5 @@ ALTER TABLE MNEME_QUESTION
 	CHANGE HINTS HINTS LONGTEXT,
 	CHANGE PRESENTATION_TEXT PRESENTATION_TEXT LONGTEXT,
 	CHANGE GUEST GUEST LONGTEXT;
+
+ALTER TABLE MNEME_QUESTION ADD (COPIED_FROM BIGINT UNSIGNED);
@@ -35,6 +35,7 @@ CREATE TABLE MNEME_SUBMISSION
 	EVAL_EVALUATED		CHAR (1),
 	EVAL_SCORE			FLOAT,
 	ID					BIGINT UNSIGNED AUTO_INCREMENT NOT NULL PRIMARY KEY,
+	IN_PROGRESS			CHAR (1),
 	RELEASED			CHAR,
 	START_DATE			BIGINT,
 	SUBMITTED_DATE		BIGINT,
@@ -68,6 +69,20 @@ CREATE INDEX MNEME_SUBMISSION_IDX_COMPLETE ON MNEME_SUBMISSION
 	COMPLETE			ASC
 );
 
+CREATE INDEX MNEME_SUBMISSION_IDX_CS ON MNEME_SUBMISSION
+(
+	COMPLETE			ASC,
+	START_DATE			ASC
+);
+
+-- one submission in progress per user per assessment: IN_PROGRESS is '1' till complete, then NULL, which the index does not hold unique
+CREATE UNIQUE INDEX MNEME_SUBMISSION_IDX_OPEN ON MNEME_SUBMISSION
+(
+	ASSESSMENT_ID		ASC,
+	USERID				ASC,
+	IN_PROGRESS			ASC
+);
+
 -----------------------------------------------------------------------------
 
 CREATE TABLE MNEME_ANSWER
@@ -96,7 +111,9 @@ CREATE INDEX MNEME_ANSWER_IDX_QID ON MNEME_ANSWER
 	QUESTION_ID			ASC
 );
 
-CREATE INDEX MNEME_ANSWER_IDX_SID ON MNEME_ANSWER
+-- one answer per question per submission
+CREATE UNIQUE INDEX MNEME_ANSWER_IDX_SQ ON MNEME_ANSWER
 (
-	SUBMISSION_ID		ASC
+	SUBMISSION_ID		ASC,
+	QUESTION_ID			ASC
 );
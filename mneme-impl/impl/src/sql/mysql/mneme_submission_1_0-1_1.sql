@@ -57,3 +57,28 @@ ALTER TABLE MNEME_ANSWER
 
 ALTER TABLE MNEME_SUBMISSION ADD (EVAL_ATTACHMENTS LONGTEXT);
 ALTER TABLE MNEME_ANSWER ADD (EVAL_ATTACHMENTS LONGTEXT);
+
+ALTER TABLE MNEME_SUBMISSION ADD (IN_PROGRESS CHAR (1));
+
+-- mark only the latest incomplete submission per user per assessment as in progress, so the unique index can be built
+UPDATE MNEME_SUBMISSION S JOIN (SELECT MAX(ID) AS ID FROM MNEME_SUBMISSION WHERE COMPLETE='0' GROUP BY ASSESSMENT_ID, USERID) L ON S.ID=L.ID SET S.IN_PROGRESS='1';
+
+CREATE UNIQUE INDEX MNEME_SUBMISSION_IDX_OPEN ON MNEME_SUBMISSION
+(
+	ASSESSMENT_ID		ASC,
+	USERID				ASC,
+	IN_PROGRESS			ASC
+);
+
+-- keep only the latest answer per question per submission, so the unique index can be built
+DELETE A FROM MNEME_ANSWER A JOIN (SELECT SUBMISSION_ID, QUESTION_ID, MAX(ID) AS ID FROM MNEME_ANSWER GROUP BY SUBMISSION_ID, QUESTION_ID HAVING COUNT(*) > 1) L
+	ON A.SUBMISSION_ID=L.SUBMISSION_ID AND A.QUESTION_ID=L.QUESTION_ID AND A.ID<L.ID;
+
+-- one answer per question per submission - this also serves the lookups by submission, so the old index goes once it is built
+CREATE UNIQUE INDEX MNEME_ANSWER_IDX_SQ ON MNEME_ANSWER
+(
+	SUBMISSION_ID		ASC,
+	QUESTION_ID			ASC
+);
+
+DROP INDEX MNEME_ANSWER_IDX_SID ON MNEME_ANSWER;
@@ -44,6 +44,7 @@ CREATE TABLE MNEME_ASSESSMENT
 	MINT					CHAR,
 	MODIFIED_BY_DATE		NUMBER,
 	MODIFIED_BY_USER		VARCHAR2 (99),
+	NUM_QUESTIONS			NUMBER,
 	PARTS_CONTINUOUS		CHAR (1),
 	PARTS_SHOW_PRES			CHAR (1),
 	PASSWORD				VARCHAR2 (255 CHAR),
@@ -59,8 +60,10 @@ CREATE TABLE MNEME_ASSESSMENT
 	SUBMIT_PRES_TEXT		CLOB,
 	TIME_LIMIT				NUMBER,
 	TITLE					VARCHAR2 (255 CHAR),
+	TOTAL_POINTS			FLOAT,
 	TRIES					NUMBER,
-	TYPE					VARCHAR2 (32)
+	TYPE					VARCHAR2 (32),
+	VALID					CHAR (1)
 );
 
 CREATE SEQUENCE MNEME_ASSESSMENT_SEQ;
@@ -78,6 +81,11 @@ CREATE INDEX MNEME_ASSESSMENT_IDX_MINT ON MNEME_ASSESSMENT
 	MINT		ASC
 );
 
+CREATE INDEX MNEME_ASSESSMENT_IDX_OPEN ON MNEME_ASSESSMENT
+(
+	DATES_OPEN	ASC
+);
+
 -----------------------------------------------------------------------------
 
 CREATE TABLE MNEME_ASSESSMENT_ACCESS
@@ -106,6 +114,11 @@ CREATE INDEX MNEME_AA_IDX_AID ON MNEME_ASSESSMENT_ACCESS
 	ASSESSMENT_ID	ASC
 );
 
+CREATE INDEX MNEME_AA_IDX_OPEN ON MNEME_ASSESSMENT_ACCESS
+(
+	DATES_OPEN	ASC
+);
+
 -----------------------------------------------------------------------------
 
 CREATE TABLE MNEME_ASSESSMENT_PART
@@ -148,3 +161,34 @@ CREATE INDEX MNEME_APD_IDX_PID ON MNEME_ASSESSMENT_PART_DETAIL
 (
 	PART_ID	ASC
 );
+
+CREATE INDEX MNEME_APD_IDX_POOL ON MNEME_ASSESSMENT_PART_DETAIL
+(
+	POOL_ID	ASC
+);
+
+CREATE INDEX MNEME_APD_IDX_QID ON MNEME_ASSESSMENT_PART_DETAIL
+(
+	QUESTION_ID	ASC
+);
+
+-----------------------------------------------------------------------------
+
+CREATE TABLE MNEME_ASSESSMENT_REF
+(
+	ASSESSMENT_ID			NUMBER NOT NULL,
+	CONTEXT					VARCHAR2 (99),
+	PART_ID					NUMBER,
+	REF						VARCHAR2 (2048)
+);
+
+CREATE INDEX MNEME_AR_IDX_AID ON MNEME_ASSESSMENT_REF
+(
+	ASSESSMENT_ID	ASC
+);
+
+CREATE INDEX MNEME_AR_IDX_CR ON MNEME_ASSESSMENT_REF
+(
+	CONTEXT		ASC,
+	REF			ASC
+);
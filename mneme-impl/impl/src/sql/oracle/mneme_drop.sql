@@ -28,6 +28,7 @@ DROP TABLE MNEME_SUBMISSION;
 DROP SEQUENCE MNEME_SUBMISSION_SEQ;
 DROP SEQUENCE MNEME_ANSWER_SEQ;
 
+DROP TABLE MNEME_ASSESSMENT_REF;
 DROP TABLE MNEME_ASSESSMENT_PART_DETAIL;
 DROP TABLE MNEME_ASSESSMENT_PART;
 DROP TABLE MNEME_ASSESSMENT_ACCESS;
@@ -39,6 +40,7 @@ DROP SEQUENCE MNEME_ASSESSMENT_PART_SEQ;
 DROP TABLE MNEME_POOL;
 DROP SEQUENCE MNEME_POOL_SEQ;
 
+DROP TABLE MNEME_QUESTION_REF;
 DROP TABLE MNEME_QUESTION;
 DROP SEQUENCE MNEME_QUESTION_SEQ;
 
@@ -26,6 +26,7 @@
 CREATE TABLE MNEME_QUESTION
 (
 	CONTEXT				VARCHAR2 (99),
+	COPIED_FROM			NUMBER,
 	CREATED_BY_DATE		NUMBER,
 	CREATED_BY_USER		VARCHAR2 (99),
 	DESCRIPTION			VARCHAR2 (255 CHAR),
@@ -55,3 +56,23 @@ CREATE INDEX MNEME_QUESTION_IDX_MHPSV ON MNEME_QUESTION
 	SURVEY		ASC,
 	VALID		ASC
 );
+
+-----------------------------------------------------------------------------
+
+CREATE TABLE MNEME_QUESTION_REF
+(
+	CONTEXT				VARCHAR2 (99),
+	QUESTION_ID			NUMBER NOT NULL,
+	REF					VARCHAR2 (2048)
+);
+
+CREATE INDEX MNEME_QR_IDX_QID ON MNEME_QUESTION_REF
+(
+	QUESTION_ID	ASC
+);
+
+CREATE INDEX MNEME_QR_IDX_CR ON MNEME_QUESTION_REF
+(
+	CONTEXT		ASC,
+	REF			ASC
+);
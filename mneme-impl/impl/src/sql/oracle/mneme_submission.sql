@@ -35,6 +35,7 @@ CREATE TABLE MNEME_SUBMISSION
 	EVAL_EVALUATED		CHAR (1),
 	EVAL_SCORE			FLOAT,
 	ID					NUMBER NOT NULL PRIMARY KEY,
+	IN_PROGRESS			CHAR (1),
 	RELEASED			CHAR (1),
 	START_DATE			NUMBER,
 	SUBMITTED_DATE		NUMBER,
@@ -70,6 +71,19 @@ CREATE INDEX MNEME_SUBMISSION_IDX_COMPLETE ON MNEME_SUBMISSION
 	COMPLETE			ASC
 );
 
+CREATE INDEX MNEME_SUBMISSION_IDX_CS ON MNEME_SUBMISSION
+(
+	COMPLETE			ASC,
+	START_DATE			ASC
+);
+
+-- one submission in progress per user per assessment: only rows with IN_PROGRESS '1' have index entries
+CREATE UNIQUE INDEX MNEME_SUBMISSION_IDX_OPEN ON MNEME_SUBMISSION
+(
+	CASE WHEN IN_PROGRESS='1' THEN ASSESSMENT_ID END,
+	CASE WHEN IN_PROGRESS='1' THEN USERID END
+);
+
 -----------------------------------------------------------------------------
 
 CREATE TABLE MNEME_ANSWER
@@ -100,7 +114,9 @@ CREATE INDEX MNEME_ANSWER_IDX_QID ON MNEME_ANSWER
 	QUESTION_ID			ASC
 );
 
-CREATE INDEX MNEME_ANSWER_IDX_SID ON MNEME_ANSWER
+-- one answer per question per submission
+CREATE UNIQUE INDEX MNEME_ANSWER_IDX_SQ ON MNEME_ANSWER
 (
-	SUBMISSION_ID		ASC
+	SUBMISSION_ID		ASC,
+	QUESTION_ID			ASC
 );
@@ -0,0 +1,92 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+
+package org.muse.mneme.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.muse.mneme.api.Translation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmark finding and translating the embedded media references in question text, as done on save and course copy.
+ */
+@State(Scope.Thread)
+public class AttachmentServiceBenchmark
+{
+	/** The text to scan. */
+	protected String html = null;
+
+	/** The number of references in the text. */
+	@Param( {"2", "50"})
+	public int references;
+
+	/** The service - the scanning methods need none of its dependencies. */
+	protected AttachmentServiceImpl service = null;
+
+	/** Translations from the old to the new site. */
+	protected List<Translation> translations = null;
+
+	@Benchmark
+	public Set<String> harvest()
+	{
+		return this.service.harvestAttachmentsReferenced(this.html, true);
+	}
+
+	@Setup
+	public void setup()
+	{
+		this.service = new AttachmentServiceImpl();
+
+		StringBuilder buf = new StringBuilder();
+		for (int i = 0; i < this.references; i++)
+		{
+			if ((i % 2) == 0)
+			{
+				buf.append("<p>See <img src=\"/access/mneme/content/private/mneme/oldsite/docs/").append(i).append("/figure%20").append(i);
+				buf.append(".png\" alt=\"figure\" /></p>\n");
+			}
+			else
+			{
+				buf.append("<p>Read <a href=\"http://example.edu/access/content/group/oldsite/reading").append(i);
+				buf.append(".pdf\">this</a> first.</p>\n");
+			}
+		}
+		this.html = buf.toString();
+
+		this.translations = new ArrayList<Translation>();
+		this.translations.add(new TranslationImpl("/content/group/oldsite/", "/content/group/newsite/"));
+		this.translations.add(new TranslationImpl("/mneme/content/private/mneme/oldsite/", "/mneme/content/private/mneme/newsite/"));
+	}
+
+	@Benchmark
+	public String translate()
+	{
+		return this.service.translateEmbeddedReferences(this.html, this.translations);
+	}
+}
@@ -0,0 +1,127 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+
+package org.muse.mneme.impl;
+
+import org.muse.ambrosia.api.UiService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmark auto-scoring an answer, for each auto-scored question type.
+ */
+@State(Scope.Thread)
+public class AutoScoreBenchmark
+{
+	protected AnswerImpl fillBlanks = null;
+
+	protected AnswerImpl likert = null;
+
+	protected AnswerImpl match = null;
+
+	protected AnswerImpl multipleChoice = null;
+
+	protected AnswerImpl trueFalse = null;
+
+	@Benchmark
+	public Float fillBlanks()
+	{
+		return this.fillBlanks.computeAutoScore();
+	}
+
+	@Benchmark
+	public Float likert()
+	{
+		return this.likert.computeAutoScore();
+	}
+
+	@Benchmark
+	public Float match()
+	{
+		return this.match.computeAutoScore();
+	}
+
+	@Benchmark
+	public Float multipleChoice()
+	{
+		return this.multipleChoice.computeAutoScore();
+	}
+
+	@Setup
+	public void setup()
+	{
+		UiService ui = BenchmarkSupport.newUiService();
+
+		// multiple choice, multiple correct, 2 of 5 correct, answered 1 right and 1 wrong
+		MultipleChoicePlugin mc = new MultipleChoicePlugin();
+		mc.setUi(ui);
+		QuestionImpl q = BenchmarkSupport.newQuestion(mc, new String[] {"false", "false", "red", "true", "green", "false", "blue", "true", "yellow",
+				"false", "purple", "false"});
+		this.multipleChoice = BenchmarkSupport.newAnswer(mc, q, new String[] {"0", "1"});
+
+		// match, 5 pairs, 4 matched right
+		MatchPlugin mp = new MatchPlugin();
+		mp.setUi(ui);
+		mp.setIdManager(BenchmarkSupport.newIdManager());
+		String[] data = new String[24];
+		String[] answer = new String[10];
+		for (int i = 0; i < 5; i++)
+		{
+			data[4 + (i * 4)] = "choice " + i;
+			data[5 + (i * 4)] = "c" + i;
+			data[6 + (i * 4)] = "match " + i;
+			data[7 + (i * 4)] = "p" + i;
+			answer[i * 2] = "p" + i;
+			answer[(i * 2) + 1] = "c" + ((i == 4) ? 0 : i);
+		}
+		q = BenchmarkSupport.newQuestion(mp, data);
+		this.match = BenchmarkSupport.newAnswer(mp, q, answer);
+
+		// fill in the blanks, textual, with alternates
+		FillBlanksPlugin fb = new FillBlanksPlugin();
+		fb.setUi(ui);
+		q = BenchmarkSupport.newQuestion(fb, new String[] {"false", "false", "true",
+				"Roses are {red}, violets are {blue|purple}, sugar is {sweet} and so are {you|thou}."});
+		q.initId("1");
+		this.fillBlanks = BenchmarkSupport.newAnswer(fb, q, new String[] {"Red", "purple", "sour", "you"});
+
+		// true false
+		TrueFalsePlugin tf = new TrueFalsePlugin();
+		tf.setUi(ui);
+		q = BenchmarkSupport.newQuestion(tf, new String[] {"true"});
+		this.trueFalse = BenchmarkSupport.newAnswer(tf, q, new String[] {"true"});
+
+		// likert, agree - disagree
+		LikertScalePlugin ls = new LikertScalePlugin();
+		ls.setUi(ui);
+		q = BenchmarkSupport.newQuestion(ls, new String[] {"0"});
+		this.likert = BenchmarkSupport.newAnswer(ls, q, new String[] {"2"});
+	}
+
+	@Benchmark
+	public Float trueFalse()
+	{
+		return this.trueFalse.computeAutoScore();
+	}
+}
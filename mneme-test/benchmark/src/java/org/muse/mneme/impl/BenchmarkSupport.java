@@ -0,0 +1,219 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+
+package org.muse.mneme.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.UUID;
+
+import org.muse.ambrosia.api.UiService;
+import org.muse.ambrosia.api.Value;
+import org.muse.mneme.api.MnemeService;
+import org.muse.mneme.api.Pool;
+import org.muse.mneme.api.PoolGetService;
+import org.muse.mneme.api.Question;
+import org.muse.mneme.api.QuestionPlugin;
+import org.muse.mneme.api.TypeSpecificAnswer;
+import org.sakaiproject.id.api.IdManager;
+
+/**
+ * BenchmarkSupport builds the questions, answers and stand-in services the benchmarks need, without a Sakai component manager.
+ */
+public class BenchmarkSupport
+{
+	/**
+	 * An answer bound to a single question, as QuestionFillinTest does, so scoring does not need a submission and assessment.
+	 */
+	public static class FixedAnswerImpl extends AnswerImpl
+	{
+		protected Question fixedQuestion = null;
+
+		public FixedAnswerImpl(Question question)
+		{
+			this.fixedQuestion = question;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public Question getQuestion()
+		{
+			return this.fixedQuestion;
+		}
+	}
+
+	/**
+	 * Just enough MnemeService for the plugins to register.
+	 */
+	public static class MyMnemeService implements MnemeService
+	{
+		/**
+		 * {@inheritDoc}
+		 */
+		public QuestionPlugin getQuestionPlugin(String type)
+		{
+			return null;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public List<QuestionPlugin> getQuestionPlugins()
+		{
+			return null;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public void registerQuestionPlugin(QuestionPlugin plugin)
+		{
+		}
+	}
+
+	/**
+	 * A pool for every id, worth 10 points a question.
+	 */
+	public static class MyPoolGetService implements PoolGetService
+	{
+		/**
+		 * {@inheritDoc}
+		 */
+		public Pool getPool(String poolId)
+		{
+			PoolImpl rv = new PoolImpl();
+			rv.initId(poolId);
+			rv.setContext("context");
+			rv.setPoints(Float.valueOf(10));
+			return rv;
+		}
+	}
+
+	/**
+	 * Create an answer to this question, with this data, handled by this plugin.
+	 * 
+	 * @param plugin
+	 *        The question type plugin.
+	 * @param question
+	 *        The question.
+	 * @param data
+	 *        The answer data.
+	 * @return The answer.
+	 */
+	public static AnswerImpl newAnswer(QuestionPlugin plugin, Question question, String[] data)
+	{
+		AnswerImpl rv = new FixedAnswerImpl(question);
+		rv.init();
+		TypeSpecificAnswer handler = plugin.newAnswer(rv);
+		rv.initTypeSpecificAnswer(handler);
+		handler.setData(data);
+
+		return rv;
+	}
+
+	/**
+	 * Create an IdManager that hands out random UUIDs.
+	 * 
+	 * @return The IdManager.
+	 */
+	public static IdManager newIdManager()
+	{
+		return (IdManager) Proxy.newProxyInstance(IdManager.class.getClassLoader(), new Class[] {IdManager.class}, new InvocationHandler()
+		{
+			public Object invoke(Object proxy, Method method, Object[] args)
+			{
+				if (method.getName().equals("createUuid")) return UUID.randomUUID().toString();
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+
+	/**
+	 * Create a question of the plugin's type, in pool "1", with this data.
+	 * 
+	 * @param plugin
+	 *        The question type plugin.
+	 * @param data
+	 *        The question data.
+	 * @return The question.
+	 */
+	public static QuestionImpl newQuestion(QuestionPlugin plugin, String[] data)
+	{
+		PoolGetService poolService = new MyPoolGetService();
+
+		QuestionImpl rv = new QuestionImpl();
+		rv.setPoolService(poolService);
+		rv.initTypeSpecificQuestion(plugin.newQuestion(rv));
+		rv.initType(plugin.getType());
+		rv.setPool(poolService.getPool("1"));
+		rv.getTypeSpecificQuestion().setData(data);
+
+		return rv;
+	}
+
+	/**
+	 * Create a UiService that can only make Values - all the question and answer handlers need outside of the UI.
+	 * 
+	 * @return The UiService.
+	 */
+	public static UiService newUiService()
+	{
+		return (UiService) Proxy.newProxyInstance(UiService.class.getClassLoader(), new Class[] {UiService.class}, new InvocationHandler()
+		{
+			public Object invoke(Object proxy, Method method, Object[] args)
+			{
+				if (method.getName().equals("newValue")) return newValue();
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+
+	/**
+	 * Create a simple Value holder.
+	 * 
+	 * @return The Value.
+	 */
+	protected static Value newValue()
+	{
+		return (Value) Proxy.newProxyInstance(Value.class.getClassLoader(), new Class[] {Value.class}, new InvocationHandler()
+		{
+			protected String value = null;
+
+			public Object invoke(Object proxy, Method method, Object[] args)
+			{
+				if (method.getName().equals("getValue")) return this.value;
+				if (method.getName().equals("setValue"))
+				{
+					this.value = (String) args[0];
+					return null;
+				}
+				if (method.getName().equals("hashCode")) return Integer.valueOf(System.identityHashCode(proxy));
+				if (method.getName().equals("equals")) return Boolean.valueOf(proxy == args[0]);
+				if (method.getName().equals("toString")) return String.valueOf(this.value);
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+}
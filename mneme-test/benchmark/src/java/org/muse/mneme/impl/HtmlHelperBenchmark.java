@@ -0,0 +1,62 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+
+package org.muse.mneme.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmark cleaning user entered html, as done on every question, answer and evaluation save.
+ */
+@State(Scope.Thread)
+public class HtmlHelperBenchmark
+{
+	/** The html to clean. */
+	protected String html = null;
+
+	/** The number of paragraphs in the html. */
+	@Param( {"1", "20"})
+	public int paragraphs;
+
+	@Benchmark
+	public String clean()
+	{
+		return HtmlHelper.clean(this.html);
+	}
+
+	@Setup
+	public void setup()
+	{
+		StringBuilder buf = new StringBuilder();
+		for (int i = 0; i < this.paragraphs; i++)
+		{
+			buf.append("<p class=\"MsoNormal\"><span style=\"font-family: Arial\">Paragraph ").append(i);
+			buf.append(" with <b>bold <i>and italic</b></i> text, an <img src=\"/access/content/group/site/image").append(i);
+			buf.append(".png\"> image and a <a href=\"http://example.edu/\">link</a></span><o:p></o:p></p>\n");
+		}
+		this.html = buf.toString();
+	}
+}
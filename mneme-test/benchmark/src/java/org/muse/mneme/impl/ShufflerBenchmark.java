@@ -0,0 +1,84 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+
+package org.muse.mneme.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.muse.mneme.api.Shuffler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmark the part shuffler, for submissions on either side of the 1.0.6 shuffle crossover.
+ */
+@State(Scope.Thread)
+public class ShufflerBenchmark
+{
+	/** The items to shuffle. */
+	protected List<String> items = null;
+
+	/** Shuffle the 1.0.5 way (true) or the current way (false). */
+	@Param( {"false", "true"})
+	public boolean old;
+
+	/** The shuffler. */
+	protected Shuffler shuffler = null;
+
+	/** The number of items to shuffle. */
+	@Param( {"2", "50"})
+	public int size;
+
+	@Setup
+	public void setup()
+	{
+		SubmissionServiceImpl submissionService = new SubmissionServiceImpl();
+		submissionService.set106ShuffleCrossoverId("1000");
+
+		SubmissionImpl submission = new SubmissionImpl();
+		submission.initId(this.old ? "500" : "1500");
+
+		AssessmentImpl assessment = new AssessmentImpl(null, null, null, submissionService, null, null, null);
+		assessment.initSubmissionContext(submission);
+
+		ManualPartImpl part = new ManualPartImpl(assessment, null, submissionService, null, null);
+		part.initId("1");
+		this.shuffler = part.new ShufflerImpl(part);
+
+		this.items = new ArrayList<String>(this.size + 1);
+		for (int i = 0; i < this.size; i++)
+		{
+			this.items.add(Integer.toString(i));
+		}
+	}
+
+	@Benchmark
+	public List<String> shuffle()
+	{
+		this.shuffler.shuffle(this.items, "q1");
+		return this.items;
+	}
+}
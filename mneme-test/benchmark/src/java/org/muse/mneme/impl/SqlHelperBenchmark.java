@@ -0,0 +1,69 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+
+package org.muse.mneme.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmark the string array encoding used for the question and answer data columns.
+ */
+@State(Scope.Thread)
+public class SqlHelperBenchmark
+{
+	/** Data as stored in the db. */
+	protected String encoded = null;
+
+	/** Data as held in the question or answer. */
+	protected String[] data = null;
+
+	/** The number of strings in the array. */
+	@Param( {"4", "40"})
+	public int size;
+
+	@Benchmark
+	public String[] decode()
+	{
+		return SqlHelper.decodeStringArray(this.encoded);
+	}
+
+	@Benchmark
+	public String encode()
+	{
+		return SqlHelper.encodeStringArray(this.data);
+	}
+
+	@Setup
+	public void setup()
+	{
+		this.data = new String[this.size];
+		for (int i = 0; i < this.size; i++)
+		{
+			this.data[i] = "<p>Choice " + i + " for the question, with a bit of <b>markup</b> and a comma, or two.</p>";
+		}
+		this.encoded = SqlHelper.encodeStringArray(this.data);
+	}
+}
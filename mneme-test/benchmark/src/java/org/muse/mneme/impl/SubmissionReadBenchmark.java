@@ -0,0 +1,97 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+
+package org.muse.mneme.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.muse.mneme.api.Answer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmark reading a whole submission, with its answers, from the in-memory sample storage.<br />
+ * This measures the deep copy the services pay on each read, without a database.
+ */
+@State(Scope.Thread)
+public class SubmissionReadBenchmark
+{
+	/** The number of answers in the submission. */
+	@Param( {"10", "50"})
+	public int answers;
+
+	/** The submission's id. */
+	protected String id = null;
+
+	/** The storage. */
+	protected SubmissionStorageSample storage = null;
+
+	@Benchmark
+	public SubmissionImpl read()
+	{
+		return this.storage.getSubmission(this.id);
+	}
+
+	@Setup
+	public void setup()
+	{
+		this.storage = new SubmissionStorageSample()
+		{
+			public AnswerImpl newAnswer()
+			{
+				return new AnswerImpl();
+			}
+
+			public SubmissionImpl newSubmission()
+			{
+				return new SubmissionImpl();
+			}
+		};
+
+		SubmissionImpl submission = this.storage.newSubmission();
+		submission.init();
+		submission.initAssessmentId("a1");
+		submission.initUserId("user");
+		this.storage.saveSubmission(submission);
+		this.id = submission.getId();
+
+		// multiple choice answers: those clone without needing a UiService
+		MultipleChoicePlugin mc = new MultipleChoicePlugin();
+		List<Answer> work = new ArrayList<Answer>(this.answers);
+		for (int i = 0; i < this.answers; i++)
+		{
+			AnswerImpl answer = this.storage.newAnswer();
+			answer.init();
+			answer.initPartId("p1");
+			answer.questionId = "q" + i;
+			answer.initTypeSpecificAnswer(mc.newAnswer(answer));
+			answer.getTypeSpecificAnswer().setData(new String[] {Integer.toString(i % 4)});
+			submission.initAnswer(answer);
+			work.add(answer);
+		}
+		this.storage.saveAnswers(work);
+	}
+}
@@ -0,0 +1,100 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+package org.muse.mneme.impl;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Test AttachmentServiceImpl's thumbnail scaling.
+ */
+public class AttachmentServiceImplTest extends TestCase
+{
+	/** Logger. */
+	private static final Log log = LogFactory.getLog(AttachmentServiceImplTest.class);
+
+	/**
+	 * @param arg0
+	 */
+	public AttachmentServiceImplTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	public void testMakeThumbNotImage() throws Exception
+	{
+		AttachmentServiceImpl service = new AttachmentServiceImpl();
+		try
+		{
+			service.makeThumb(new ByteArrayInputStream("not an image".getBytes()), 80, 80, 0.75f);
+			fail("expected IOException");
+		}
+		catch (IOException e)
+		{
+		}
+	}
+
+	public void testMakeThumbTall() throws Exception
+	{
+		AttachmentServiceImpl service = new AttachmentServiceImpl();
+		BufferedImage thumb = ImageIO.read(new ByteArrayInputStream(service.makeThumb(image(1000, 4000, "jpeg"), 80, 80, 0.75f)));
+		assertEquals(20, thumb.getWidth());
+		assertEquals(80, thumb.getHeight());
+	}
+
+	public void testMakeThumbWide() throws Exception
+	{
+		// a large image, sub-sampled as read
+		AttachmentServiceImpl service = new AttachmentServiceImpl();
+		BufferedImage thumb = ImageIO.read(new ByteArrayInputStream(service.makeThumb(image(4000, 2000, "png"), 80, 80, 0.75f)));
+		assertEquals(80, thumb.getWidth());
+		assertEquals(40, thumb.getHeight());
+	}
+
+	/**
+	 * Make an encoded image.
+	 * 
+	 * @param width
+	 *        The width.
+	 * @param height
+	 *        The height.
+	 * @param format
+	 *        The ImageIO format name.
+	 * @return The image stream.
+	 */
+	protected ByteArrayInputStream image(int width, int height, String format) throws IOException
+	{
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, format, out);
+		return new ByteArrayInputStream(out.toByteArray());
+	}
+}
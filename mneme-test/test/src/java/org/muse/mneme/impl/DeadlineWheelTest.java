@@ -0,0 +1,126 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+package org.muse.mneme.impl;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Test DeadlineWheel.
+ */
+public class DeadlineWheelTest extends TestCase
+{
+	/** Logger. */
+	private static final Log log = LogFactory.getLog(DeadlineWheelTest.class);
+
+	/**
+	 * @param arg0
+	 */
+	public DeadlineWheelTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	public void testAdvance() throws Exception
+	{
+		DeadlineWheel wheel = new DeadlineWheel(1000, 10, 0);
+		wheel.schedule("a", 2500);
+		wheel.schedule("b", 5000);
+		assertEquals(2, wheel.size());
+
+		// nothing due yet
+		assertTrue(wheel.advance(2000).isEmpty());
+
+		// a is due
+		List<String> due = wheel.advance(3000);
+		assertEquals(1, due.size());
+		assertEquals("a", due.get(0));
+		assertEquals(1, wheel.size());
+
+		// b is due, exactly on time
+		due = wheel.advance(5000);
+		assertEquals(1, due.size());
+		assertEquals("b", due.get(0));
+		assertEquals(0, wheel.size());
+	}
+
+	public void testCancel() throws Exception
+	{
+		DeadlineWheel wheel = new DeadlineWheel(1000, 10, 0);
+		wheel.schedule("a", 2500);
+		wheel.cancel("a");
+		assertNull(wheel.getDue("a"));
+		assertTrue(wheel.advance(10000).isEmpty());
+	}
+
+	public void testPastDue() throws Exception
+	{
+		DeadlineWheel wheel = new DeadlineWheel(1000, 10, 5000);
+		wheel.advance(5000);
+
+		// scheduled in the past - due on the next advance
+		wheel.schedule("a", 1000);
+		List<String> due = wheel.advance(6000);
+		assertEquals(1, due.size());
+		assertEquals("a", due.get(0));
+	}
+
+	public void testReschedule() throws Exception
+	{
+		DeadlineWheel wheel = new DeadlineWheel(1000, 10, 0);
+		wheel.schedule("a", 2500);
+		wheel.schedule("a", 7500);
+		assertEquals(1, wheel.size());
+		assertEquals(Long.valueOf(7500), wheel.getDue("a"));
+
+		assertTrue(wheel.advance(5000).isEmpty());
+		assertEquals(1, wheel.advance(8000).size());
+	}
+
+	public void testWrap() throws Exception
+	{
+		// a wheel of 10 seconds, with ids due further out than that
+		DeadlineWheel wheel = new DeadlineWheel(1000, 10, 0);
+		wheel.schedule("a", 3500);
+		wheel.schedule("b", 13500);
+		wheel.schedule("c", 33500);
+
+		List<String> due = wheel.advance(4000);
+		assertEquals(1, due.size());
+		assertEquals("a", due.get(0));
+
+		// b shares a's slot, but is not due till the wheel comes around
+		due = wheel.advance(14000);
+		assertEquals(1, due.size());
+		assertEquals("b", due.get(0));
+
+		// a long jump past c still finds it
+		due = wheel.advance(100000);
+		assertEquals(1, due.size());
+		assertEquals("c", due.get(0));
+		assertEquals(0, wheel.size());
+	}
+}
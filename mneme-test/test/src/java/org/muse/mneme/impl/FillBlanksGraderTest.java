@@ -0,0 +1,106 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+
+package org.muse.mneme.impl;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Test FillBlanksGrader.
+ */
+public class FillBlanksGraderTest extends TestCase
+{
+	/** Logger. */
+	private static final Log log = LogFactory.getLog(FillBlanksGraderTest.class);
+
+	/**
+	 * @param arg0
+	 */
+	public FillBlanksGraderTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	public void testAnyOrder() throws Exception
+	{
+		FillBlanksGrader grader = new FillBlanksGrader("{a} {b}", false, true, true, false, Arrays.asList("red", "blue"));
+
+		// either order is fine
+		List<Boolean> corrects = grader.getEntryCorrects(new String[] {"blue", "red"});
+		assertEquals(Boolean.TRUE, corrects.get(0));
+		assertEquals(Boolean.TRUE, corrects.get(1));
+
+		// but the same answer counts only once
+		corrects = grader.getEntryCorrects(new String[] {"red", "RED"});
+		assertEquals(Boolean.TRUE, corrects.get(0));
+		assertEquals(Boolean.FALSE, corrects.get(1));
+	}
+
+	public void testIsFor() throws Exception
+	{
+		FillBlanksGrader grader = new FillBlanksGrader("Roses are {red}", false, false, true, false, Arrays.asList("red"));
+		assertTrue(grader.isFor("Roses are {red}", false, false, true, false));
+		assertFalse(grader.isFor("Roses are {blue}", false, false, true, false));
+		assertFalse(grader.isFor("Roses are {red}", true, false, true, false));
+		assertFalse(grader.isFor("Roses are {red}", false, false, true, true));
+	}
+
+	public void testNumeric() throws Exception
+	{
+		FillBlanksGrader grader = new FillBlanksGrader("{}", false, false, false, false, Arrays.asList("3|1", "2,5", "x"));
+
+		List<Boolean> corrects = grader.getEntryCorrects(new String[] {"2", "2.5", "2"});
+		assertEquals(Boolean.TRUE, corrects.get(0));
+		assertEquals(Boolean.TRUE, corrects.get(1));
+		assertEquals(Boolean.FALSE, corrects.get(2));
+
+		corrects = grader.getEntryCorrects(new String[] {"3.5", "two", null});
+		assertEquals(Boolean.FALSE, corrects.get(0));
+		assertEquals(Boolean.FALSE, corrects.get(1));
+		assertEquals(Boolean.FALSE, corrects.get(2));
+	}
+
+	public void testTextual() throws Exception
+	{
+		FillBlanksGrader grader = new FillBlanksGrader("{}", false, false, true, false, Arrays.asList("blue|purple", "s*t", "Red"));
+
+		List<Boolean> corrects = grader.getEntryCorrects(new String[] {"Purple", "sweet", "red"});
+		assertEquals(Boolean.TRUE, corrects.get(0));
+		assertEquals(Boolean.TRUE, corrects.get(1));
+		assertEquals(Boolean.TRUE, corrects.get(2));
+
+		// the wild card needs at least one character, and regex characters are taken literally
+		corrects = grader.getEntryCorrects(new String[] {"blue.", "st", null});
+		assertEquals(Boolean.FALSE, corrects.get(0));
+		assertEquals(Boolean.FALSE, corrects.get(1));
+		assertEquals(Boolean.FALSE, corrects.get(2));
+
+		// not answered
+		assertEquals(Arrays.asList(Boolean.FALSE, Boolean.FALSE, Boolean.FALSE), grader.getEntryCorrects(null));
+	}
+}
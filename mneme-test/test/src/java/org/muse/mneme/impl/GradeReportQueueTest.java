@@ -0,0 +1,127 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+
+package org.muse.mneme.impl;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Test GradeReportQueue.
+ */
+public class GradeReportQueueTest extends TestCase
+{
+	/** Logger. */
+	private static final Log log = LogFactory.getLog(GradeReportQueueTest.class);
+
+	/**
+	 * @param arg0
+	 */
+	public GradeReportQueueTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	public void testAssessmentCovers() throws Exception
+	{
+		GradeReportQueue queue = new GradeReportQueue(1000);
+		queue.add("a", "u1", true, 0);
+		queue.add("a", "u2", false, 0);
+		queue.add("b", "u1", true, 0);
+		queue.add("a", null, true, 0);
+
+		// the released user report for "a" is covered, the withheld one is not
+		assertEquals(3, queue.size());
+
+		// and new released user reports are covered while the assessment report waits
+		queue.add("a", "u3", true, 100);
+		assertEquals(3, queue.size());
+	}
+
+	public void testCoalesce() throws Exception
+	{
+		GradeReportQueue queue = new GradeReportQueue(1000);
+		queue.add("a", "u1", true, 0);
+		queue.add("a", "u1", false, 500);
+		assertEquals(1, queue.size());
+
+		// not due till the first change's delay is up
+		assertTrue(queue.due(900).isEmpty());
+
+		// the last release setting wins
+		List<GradeReportQueue.Report> due = queue.due(1000);
+		assertEquals(1, due.size());
+		assertFalse(due.get(0).getReleased());
+		assertEquals(0, queue.size());
+	}
+
+	public void testLag() throws Exception
+	{
+		GradeReportQueue queue = new GradeReportQueue(1000);
+		assertEquals(0, queue.getLag(5000));
+
+		queue.add("a", "u1", true, 1000);
+		queue.add("a", "u2", true, 3000);
+		assertEquals(4000, queue.getLag(5000));
+	}
+
+	public void testRemove() throws Exception
+	{
+		GradeReportQueue queue = new GradeReportQueue(1000);
+		queue.add("a", "u1", true, 0);
+		queue.add("a", "u2", true, 0);
+		queue.add("b", "u1", true, 0);
+
+		queue.remove("a", "u1");
+		assertEquals(2, queue.size());
+
+		queue.remove("a", null);
+		assertEquals(1, queue.size());
+	}
+
+	public void testRetry() throws Exception
+	{
+		GradeReportQueue queue = new GradeReportQueue(1000);
+		queue.add("a", "u1", true, 0);
+		GradeReportQueue.Report report = queue.due(1000).get(0);
+
+		// back off longer with each attempt
+		queue.retry(report, 500, 1000);
+		assertEquals(1, report.getAttempts());
+		assertTrue(queue.due(1400).isEmpty());
+		report = queue.due(1500).get(0);
+
+		queue.retry(report, 500, 1500);
+		assertTrue(queue.due(2400).isEmpty());
+		assertEquals(1, queue.due(2500).size());
+
+		// a newer report makes the retry unneeded
+		queue.add("a", "u1", true, 3000);
+		queue.retry(report, 500, 3000);
+		assertEquals(1, queue.size());
+		assertEquals(0, queue.due(4000).get(0).getAttempts());
+	}
+}
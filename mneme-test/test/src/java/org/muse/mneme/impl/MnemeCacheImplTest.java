@@ -0,0 +1,199 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+
+package org.muse.mneme.impl;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Test MnemeCacheImpl.
+ */
+public class MnemeCacheImplTest extends TestCase
+{
+	/** Logger. */
+	private static final Log log = LogFactory.getLog(MnemeCacheImplTest.class);
+
+	/**
+	 * @param arg0
+	 */
+	public MnemeCacheImplTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	public void testGetPut() throws Exception
+	{
+		MnemeCacheImpl cache = new MnemeCacheImpl(null, null, 10, null, null);
+		assertNull(cache.get("k1"));
+
+		cache.put("k1", "v1");
+		assertEquals("v1", cache.get("k1"));
+		assertEquals(1, cache.getSize());
+
+		cache.put("k1", "v2");
+		assertEquals("v2", cache.get("k1"));
+		assertEquals(1, cache.getSize());
+
+		cache.remove("k1");
+		assertNull(cache.get("k1"));
+		assertEquals(0, cache.getSize());
+	}
+
+	public void testProbationEvictedFirst() throws Exception
+	{
+		MnemeCacheImpl cache = new MnemeCacheImpl(null, null, 5, null, null);
+
+		// k1 and k2 are hit, and so promoted
+		cache.put("k1", "v1");
+		cache.put("k2", "v2");
+		cache.get("k1");
+		cache.get("k2");
+
+		// a scan of once-read entries pushes out only other once-read entries
+		for (int i = 0; i < 20; i++)
+		{
+			cache.put("s" + i, "scan");
+		}
+
+		assertEquals(5, cache.getSize());
+		assertEquals("v1", cache.get("k1"));
+		assertEquals("v2", cache.get("k2"));
+		assertNull(cache.get("s0"));
+		assertEquals("scan", cache.get("s19"));
+		assertEquals(17, cache.getEvictCount());
+	}
+
+	public void testProtectedBound() throws Exception
+	{
+		// protected holds 4 of 5
+		MnemeCacheImpl cache = new MnemeCacheImpl(null, null, 5, null, null);
+		for (int i = 0; i < 5; i++)
+		{
+			cache.put("k" + i, "v" + i);
+			cache.get("k" + i);
+		}
+		assertEquals(5, cache.getSize());
+
+		// the least recent protected entry went back to probation, and so is the first to go
+		cache.put("n", "new");
+		assertEquals(5, cache.getSize());
+		assertNull(cache.get("k0"));
+		assertEquals("v1", cache.get("k1"));
+		assertEquals("new", cache.get("n"));
+	}
+
+	public void testPutIfCurrent() throws Exception
+	{
+		MnemeCacheImpl cache = new MnemeCacheImpl(null, null, 10, null, null);
+
+		long version = cache.getVersion();
+		assertTrue(cache.putIfCurrent("k1", "v1", 0, version));
+		assertEquals("v1", cache.get("k1"));
+
+		// a value read before a removal of its key is not cached after it
+		version = cache.getVersion();
+		cache.remove("k1");
+		assertFalse(cache.putIfCurrent("k1", "stale", 0, version));
+		assertNull(cache.get("k1"));
+		assertTrue(cache.putIfCurrent("k1", "v1", 0, cache.getVersion()));
+
+		// nor one read before a clear
+		version = cache.getVersion();
+		cache.clear();
+		assertFalse(cache.putIfCurrent("k1", "stale", 0, version));
+		assertNull(cache.get("k1"));
+
+		assertTrue(cache.putIfCurrent("k1", "v2", 0, cache.getVersion()));
+		assertEquals("v2", cache.get("k1"));
+	}
+
+	public void testPutIfCurrentOtherKeyRemoved() throws Exception
+	{
+		MnemeCacheImpl cache = new MnemeCacheImpl(null, null, 10, null, null);
+
+		// removing another key, cached or not, does not refuse the put
+		long version = cache.getVersion();
+		cache.put("k2", "v2");
+		cache.remove("k2");
+		cache.remove("k3");
+		assertTrue(cache.putIfCurrent("k1", "v1", 0, version));
+		assertEquals("v1", cache.get("k1"));
+
+		// once a removal is forgotten, to keep within the size, puts of values read before it are refused
+		version = cache.getVersion();
+		cache.remove("k1");
+		for (int i = 0; i < 10; i++)
+		{
+			cache.remove("r" + i);
+		}
+		assertFalse(cache.putIfCurrent("k1", "stale", 0, version));
+		assertTrue(cache.putIfCurrent("k1", "v2", 0, cache.getVersion()));
+		assertEquals("v2", cache.get("k1"));
+	}
+
+	public void testStripes() throws Exception
+	{
+		// a large cache is striped, but still holds to its total size
+		MnemeCacheImpl cache = new MnemeCacheImpl(null, null, 2000, null, null);
+		assertEquals(MnemeCacheImpl.STRIPES, cache.m_stripes.length);
+
+		for (int i = 0; i < 10000; i++)
+		{
+			cache.put("k" + i, "v" + i);
+		}
+		assertEquals(2000, cache.getSize());
+		assertEquals(2000, cache.getKeys().size());
+		assertEquals("v9999", cache.get("k9999"));
+
+		// a small cache keeps a single stripe
+		assertEquals(1, new MnemeCacheImpl(null, null, 100, null, null).m_stripes.length);
+	}
+
+	public void testExpire() throws Exception
+	{
+		MnemeCacheImpl cache = new MnemeCacheImpl(null, null, 10, null, null);
+		cache.put("k1", "v1", 1);
+		cache.put("k2", "v2", 0);
+		assertEquals("v1", cache.get("k1"));
+
+		Thread.sleep(1100);
+		assertNull(cache.get("k1"));
+		assertEquals("v2", cache.get("k2"));
+	}
+
+	public void testClearKeepsCounts() throws Exception
+	{
+		MnemeCacheImpl cache = new MnemeCacheImpl(null, null, 10, null, null);
+		cache.put("k1", "v1");
+		cache.get("k1");
+		cache.get("k2");
+
+		cache.clear();
+		assertEquals(0, cache.getSize());
+		assertEquals(1, cache.getPutCount());
+		assertEquals(2, cache.getGetCount());
+		assertEquals(1, cache.getHitCount());
+	}
+}
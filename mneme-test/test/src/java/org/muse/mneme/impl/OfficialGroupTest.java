@@ -0,0 +1,66 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+
+package org.muse.mneme.impl;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Test OfficialGroup.
+ */
+public class OfficialGroupTest extends TestCase
+{
+	/** Logger. */
+	private static final Log log = LogFactory.getLog(OfficialGroupTest.class);
+
+	/**
+	 * @param arg0
+	 */
+	public OfficialGroupTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	public void testCandidateBetter() throws Exception
+	{
+		assertTrue(OfficialGroup.candidateBetter(Float.valueOf(1f), Float.valueOf(2f)));
+		assertFalse(OfficialGroup.candidateBetter(Float.valueOf(2f), Float.valueOf(1f)));
+		assertFalse(OfficialGroup.candidateBetter(Float.valueOf(2f), Float.valueOf(2f)));
+
+		// any score beats no score, and no score beats nothing
+		assertTrue(OfficialGroup.candidateBetter(null, Float.valueOf(0f)));
+		assertFalse(OfficialGroup.candidateBetter(Float.valueOf(0f), null));
+		assertFalse(OfficialGroup.candidateBetter(null, null));
+	}
+
+	public void testSameScores() throws Exception
+	{
+		assertTrue(OfficialGroup.sameScores(Float.valueOf(2f), Float.valueOf(2f)));
+		assertTrue(OfficialGroup.sameScores(null, null));
+		assertFalse(OfficialGroup.sameScores(Float.valueOf(2f), null));
+		assertFalse(OfficialGroup.sameScores(null, Float.valueOf(2f)));
+		assertFalse(OfficialGroup.sameScores(Float.valueOf(1f), Float.valueOf(2f)));
+	}
+}
@@ -0,0 +1,141 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+
+package org.muse.mneme.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Test PickOrderCache.
+ */
+public class PickOrderCacheTest extends TestCase
+{
+	/** Logger. */
+	private static final Log log = LogFactory.getLog(PickOrderCacheTest.class);
+
+	/**
+	 * @param arg0
+	 */
+	public PickOrderCacheTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	public void testGetPut() throws Exception
+	{
+		PickOrderCache cache = new PickOrderCache(10);
+		List<String> pools = new ArrayList<String>();
+		assertNull(cache.get(null, "s1", "p1"));
+
+		List<PoolPick> order = new ArrayList<PoolPick>();
+		order.add(new PoolPick(null, "q2"));
+		order.add(new PoolPick(null, "q1"));
+		cache.put("s1", "p1", "a1", pools, cache.getGeneration(), order);
+
+		List<PoolPick> cached = cache.get(null, "s1", "p1");
+		assertEquals(2, cached.size());
+		assertEquals("q2", cached.get(0).getQuestionId());
+		assertEquals("q1", cached.get(1).getQuestionId());
+
+		// a new list each time
+		assertNotSame(cached, cache.get(null, "s1", "p1"));
+		assertNull(cache.get(null, "s1", "p2"));
+	}
+
+	public void testGeneration() throws Exception
+	{
+		PickOrderCache cache = new PickOrderCache(10);
+		List<String> pools = new ArrayList<String>();
+		List<PoolPick> order = new ArrayList<PoolPick>();
+		order.add(new PoolPick(null, "q1"));
+
+		cache.put("s1", "p1", "a1", pools, cache.getGeneration(), order);
+		cache.advance();
+		assertNull(cache.get(null, "s1", "p1"));
+
+		// an order computed before a change is not kept
+		long generation = cache.getGeneration();
+		cache.advance();
+		cache.put("s1", "p1", "a1", pools, generation, order);
+		assertNull(cache.get(null, "s1", "p1"));
+	}
+
+	public void testDrop() throws Exception
+	{
+		PickOrderCache cache = new PickOrderCache(10);
+		List<String> pools = new ArrayList<String>();
+		pools.add("pool1");
+		List<PoolPick> order = new ArrayList<PoolPick>();
+		order.add(new PoolPick(null, "q1"));
+		List<PoolPick> order2 = new ArrayList<PoolPick>();
+		order2.add(new PoolPick(null, "q2"));
+
+		// s1 draws from pool1 in a1, s2 picks q2 in a2, s3 picks q1 in a3
+		cache.put("s1", "p1", "a1", pools, cache.getGeneration(), order);
+		cache.put("s2", "p1", "a2", new ArrayList<String>(), cache.getGeneration(), order2);
+		cache.put("s3", "p1", "a3", new ArrayList<String>(), cache.getGeneration(), order);
+		assertEquals(3, cache.size());
+
+		// only the orders that depend on the change go
+		cache.dropAssessment("a2");
+		assertNull(cache.get(null, "s2", "p1"));
+		assertNotNull(cache.get(null, "s1", "p1"));
+		assertNotNull(cache.get(null, "s3", "p1"));
+
+		cache.dropPool("pool2");
+		assertEquals(2, cache.size());
+		cache.dropPool("pool1");
+		assertNull(cache.get(null, "s1", "p1"));
+		assertNotNull(cache.get(null, "s3", "p1"));
+
+		// a question goes with the orders that pick it, or draw from its pool
+		cache.put("s1", "p1", "a1", pools, cache.getGeneration(), order2);
+		cache.dropQuestion("q1", "pool1");
+		assertEquals(0, cache.size());
+
+		// an order computed before a drop is not kept
+		long generation = cache.getGeneration();
+		cache.dropAssessment("a9");
+		cache.put("s1", "p1", "a1", pools, generation, order);
+		assertNull(cache.get(null, "s1", "p1"));
+	}
+
+	public void testSize() throws Exception
+	{
+		PickOrderCache cache = new PickOrderCache(2);
+		List<String> pools = new ArrayList<String>();
+		List<PoolPick> order = new ArrayList<PoolPick>();
+		order.add(new PoolPick(null, "q1"));
+
+		cache.put("s1", "p1", "a1", pools, cache.getGeneration(), order);
+		cache.put("s2", "p1", "a1", pools, cache.getGeneration(), order);
+		cache.put("s3", "p1", "a1", pools, cache.getGeneration(), order);
+		assertEquals(2, cache.size());
+		assertNull(cache.get(null, "s1", "p1"));
+	}
+}
@@ -0,0 +1,291 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+
+package org.muse.mneme.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.muse.mneme.api.Pool;
+import org.muse.mneme.api.TypeSpecificQuestion;
+
+/**
+ * Test QuestionSearchIndex.
+ */
+public class QuestionSearchIndexTest extends TestCase
+{
+	/**
+	 * A question with just what the index reads.
+	 */
+	public class MyQuestion extends QuestionImpl
+	{
+		protected String myContext = null;
+
+		protected boolean myHistorical = false;
+
+		protected String myId = null;
+
+		protected Pool myPool = null;
+
+		protected boolean mySurvey = false;
+
+		protected String myType = null;
+
+		protected boolean myValid = true;
+
+		public MyQuestion(String id, String context, String poolId, String type, String text)
+		{
+			this.myId = id;
+			this.myContext = context;
+			this.myPool = (Pool) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {Pool.class}, new PoolHandler(poolId));
+			this.myType = type;
+			getPresentation().setText(text);
+		}
+
+		public String getContext()
+		{
+			return this.myContext;
+		}
+
+		public String getFeedback()
+		{
+			return null;
+		}
+
+		public String getHints()
+		{
+			return null;
+		}
+
+		public String getId()
+		{
+			return this.myId;
+		}
+
+		public Boolean getIsHistorical()
+		{
+			return Boolean.valueOf(this.myHistorical);
+		}
+
+		public Boolean getIsSurvey()
+		{
+			return Boolean.valueOf(this.mySurvey);
+		}
+
+		public Boolean getIsValid()
+		{
+			return Boolean.valueOf(this.myValid);
+		}
+
+		public Boolean getMint()
+		{
+			return Boolean.FALSE;
+		}
+
+		public Pool getPool()
+		{
+			return this.myPool;
+		}
+
+		public String getType()
+		{
+			return this.myType;
+		}
+
+		public TypeSpecificQuestion getTypeSpecificQuestion()
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Answers a pool's id.
+	 */
+	public class PoolHandler implements InvocationHandler
+	{
+		protected String id = null;
+
+		public PoolHandler(String id)
+		{
+			this.id = id;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args)
+		{
+			if (method.getName().equals("getId")) return this.id;
+			return null;
+		}
+	}
+
+	protected final static String MC = "mneme:MultipleChoice";
+
+	protected final static String TF = "mneme:TrueFalse";
+
+	/** Logger. */
+	private static final Log log = LogFactory.getLog(QuestionSearchIndexTest.class);
+
+	/**
+	 * @param arg0
+	 */
+	public QuestionSearchIndexTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	public void testFilters() throws Exception
+	{
+		QuestionSearchIndex index = load();
+
+		assertEquals(Arrays.asList("q4", "q3"), index.search("c1", "p2", "cell", null, null, null));
+		assertEquals(Arrays.asList("q3"), index.search("c1", null, "cell", TF, null, null));
+		assertEquals(Arrays.asList("q3"), index.search("c1", null, "cell", null, Boolean.TRUE, null));
+		assertEquals(Arrays.asList("q4"), index.search("c1", null, "cell", null, null, Boolean.FALSE));
+		assertTrue(index.search("c1", "p1", "cell", TF, null, null).isEmpty());
+
+		// any context
+		assertEquals(Arrays.asList("q4", "q1", "q3", "q2", "q5"), index.search(null, null, "cell", null, null, null));
+	}
+
+	public void testRemove() throws Exception
+	{
+		QuestionSearchIndex index = load();
+		assertEquals(5, index.size());
+
+		index.remove("q4");
+		assertEquals(4, index.size());
+		assertEquals(Arrays.asList("q1", "q3", "q2"), index.search("c1", null, "cell", null, null, null));
+		assertTrue(index.search("c1", null, "division", null, null, null).isEmpty());
+
+		// a changed question is indexed for its new text only
+		index.add(new MyQuestion("q1", "c1", "p1", MC, "Plant leaf"));
+		assertEquals(Arrays.asList("q3", "q2"), index.search("c1", null, "cell", null, null, null));
+		assertEquals(Arrays.asList("q1"), index.search("c1", null, "leaf", null, null, null));
+
+		// a question that becomes historical is dropped
+		MyQuestion q3 = new MyQuestion("q3", "c1", "p2", TF, "Is a cell alive");
+		q3.myHistorical = true;
+		index.add(q3);
+		assertEquals(Arrays.asList("q2"), index.search("c1", null, "cell", null, null, null));
+		assertEquals(3, index.size());
+	}
+
+	public void testSearch() throws Exception
+	{
+		QuestionSearchIndex index = load();
+
+		// ranked by term count, whole word before prefix, then id
+		assertEquals(Arrays.asList("q4", "q1", "q3", "q2"), index.search("c1", null, "cell", null, null, null));
+
+		// every word must match - only the last as a prefix
+		assertEquals(Arrays.asList("q1"), index.search("c1", null, "cell wall", null, null, null));
+		assertEquals(Arrays.asList("q4"), index.search("c1", null, "Cell div", null, null, null));
+		assertTrue(index.search("c1", null, "cel wall", null, null, null).isEmpty());
+		assertTrue(index.search("c1", null, "mitochondria", null, null, null).isEmpty());
+	}
+
+	public void testWholeWordOverPrefix() throws Exception
+	{
+		QuestionSearchIndex index = new QuestionSearchIndex();
+		List<QuestionImpl> questions = new ArrayList<QuestionImpl>();
+		questions.add(new MyQuestion("q1", "c1", "p1", MC, "Cellular"));
+		questions.add(new MyQuestion("q2", "c1", "p1", MC, "Cell"));
+		index.load("c1", questions);
+
+		assertEquals(Arrays.asList("q2", "q1"), index.search("c1", null, "cell", null, null, null));
+		assertEquals(Arrays.asList("q1"), index.search("c1", null, "cellu", null, null, null));
+	}
+
+	public void testEmptySearch() throws Exception
+	{
+		QuestionSearchIndex index = new QuestionSearchIndex();
+		assertTrue(index.isEmpty());
+		assertTrue(index.search("context", null, " ", null, null, null).isEmpty());
+		assertTrue(index.search("context", null, null, null, null, null).isEmpty());
+	}
+
+	public void testContextBound() throws Exception
+	{
+		QuestionSearchIndex index = new QuestionSearchIndex(2);
+		index.load("c1", new ArrayList<QuestionImpl>());
+		index.load("c2", new ArrayList<QuestionImpl>());
+		assertTrue(index.isLoaded("c1"));
+		assertTrue(index.isLoaded("c2"));
+
+		// searching c1 makes c2 the least recently used, so it goes when c3 is loaded
+		index.search("c1", null, "cell", null, null, null);
+		index.load("c3", new ArrayList<QuestionImpl>());
+		assertTrue(index.isLoaded("c1"));
+		assertFalse(index.isLoaded("c2"));
+		assertTrue(index.isLoaded("c3"));
+		assertEquals(2, index.getContexts().size());
+	}
+
+	public void testTerms() throws Exception
+	{
+		// markup, entities, case and stop words are dropped
+		List<String> terms = QuestionSearchIndex.terms("<p>The <b>Mitochondria</b>&nbsp;is the power-house of a Cell 42</p>");
+		assertEquals(5, terms.size());
+		assertEquals("mitochondria", terms.get(0));
+		assertEquals("power", terms.get(1));
+		assertEquals("house", terms.get(2));
+		assertEquals("cell", terms.get(3));
+		assertEquals("42", terms.get(4));
+
+		assertTrue(QuestionSearchIndex.terms(null).isEmpty());
+		assertTrue(QuestionSearchIndex.terms("<br />").isEmpty());
+	}
+
+	/**
+	 * Load an index with questions in two contexts, of two pools and types, some survey or invalid.
+	 * 
+	 * @return The index.
+	 */
+	protected QuestionSearchIndex load()
+	{
+		QuestionSearchIndex index = new QuestionSearchIndex();
+
+		List<QuestionImpl> questions = new ArrayList<QuestionImpl>();
+		questions.add(new MyQuestion("q1", "c1", "p1", MC, "The cell wall"));
+		questions.add(new MyQuestion("q2", "c1", "p1", MC, "<p>Cellular respiration</p>"));
+		MyQuestion q3 = new MyQuestion("q3", "c1", "p2", TF, "Is a cell alive");
+		q3.mySurvey = true;
+		questions.add(q3);
+		MyQuestion q4 = new MyQuestion("q4", "c1", "p2", MC, "Cell division of the cell");
+		q4.myValid = false;
+		questions.add(q4);
+		index.load("c1", questions);
+
+		questions = new ArrayList<QuestionImpl>();
+		questions.add(new MyQuestion("q5", "c2", "p3", MC, "Cellular membrane"));
+		index.load("c2", questions);
+
+		return index;
+	}
+}
@@ -0,0 +1,272 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+
+package org.muse.mneme.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.muse.mneme.api.Assessment;
+import org.muse.mneme.api.Question;
+import org.muse.mneme.api.TypeSpecificAnswer;
+
+/**
+ * Test QuestionStatsStore and QuestionStats.
+ */
+public class QuestionStatsStoreTest extends TestCase
+{
+	/**
+	 * Answers the interface methods named in the pairs, and null for the rest.
+	 */
+	public class MockHandler implements InvocationHandler
+	{
+		protected Object[] pairs = null;
+
+		public MockHandler(Object[] pairs)
+		{
+			this.pairs = pairs;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args)
+		{
+			for (int i = 0; i < this.pairs.length; i += 2)
+			{
+				if (this.pairs[i].equals(method.getName())) return this.pairs[i + 1];
+			}
+
+			return null;
+		}
+	}
+
+	/**
+	 * Sample storage that reads the completed submissions set by the test, and can be set to have a submission complete during the read, or to
+	 * fail the read.
+	 */
+	public class MySubmissionStorageSample extends SubmissionStorageSample
+	{
+		protected SubmissionImpl completesDuringRead = null;
+
+		protected List<SubmissionImpl> complete = new ArrayList<SubmissionImpl>();
+
+		protected boolean fail = false;
+
+		protected int reads = 0;
+
+		public List<SubmissionImpl> getAssessmentCompleteSubmissions(Assessment assessment)
+		{
+			this.reads++;
+			if (this.fail)
+			{
+				this.fail = false;
+				throw new RuntimeException("getAssessmentCompleteSubmissions: dbRead failed");
+			}
+
+			// the completion event arrives while we read, and must find the stats loading
+			if (this.completesDuringRead != null)
+			{
+				assertTrue(store.isLoaded(assessment.getId()));
+				store.add(assessment.getId(), this.completesDuringRead.getId(), this.completesDuringRead.getAnswers());
+			}
+
+			return this.complete;
+		}
+	}
+
+	/** Logger. */
+	private static final Log log = LogFactory.getLog(QuestionStatsStoreTest.class);
+
+	protected Assessment assessment = null;
+
+	protected Question question = null;
+
+	protected MySubmissionStorageSample storage = null;
+
+	protected QuestionStatsStore store = null;
+
+	/**
+	 * @param arg0
+	 */
+	public QuestionStatsStoreTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	public void testCompletedDuringRead() throws Exception
+	{
+		// s1 is read, and also counted as it completes during the read - it is counted once
+		SubmissionImpl s1 = submission("s1", Boolean.FALSE, new String[] {"a"});
+		this.storage.complete.add(s1);
+		this.storage.complete.add(submission("s2", Boolean.FALSE, new String[] {"b"}));
+		this.storage.completesDuringRead = submission("s3", Boolean.FALSE, new String[] {"a"});
+
+		QuestionStats stats = this.store.getQuestionStats(this.assessment, this.question);
+		assertEquals(Integer.valueOf(3), stats.getTotal());
+		assertEquals(Integer.valueOf(2), stats.getValueCount("a"));
+
+		// counted again as it completes: no change
+		this.store.add("a1", "s1", s1.getAnswers());
+		assertEquals(Integer.valueOf(3), stats.getTotal());
+	}
+
+	public void testCounts() throws Exception
+	{
+		// match answers: pairs of match id, choice id
+		QuestionStats stats = new QuestionStats();
+		stats.add(answer(new String[] {"m1", "c1", "m2", "c2"}));
+		stats.add(answer(new String[] {"m1", "c1", "m2", "c1"}));
+		stats.add(answer(new String[] {"m1", "c2", "m2", null}));
+		stats.add(answer(null));
+
+		assertEquals(Integer.valueOf(4), stats.getTotal());
+		assertEquals(Integer.valueOf(1), stats.getUnanswered());
+		assertEquals(Integer.valueOf(2), stats.getMatchCount("m1", "c1"));
+		assertEquals(Integer.valueOf(1), stats.getMatchCount("m1", "c2"));
+		assertEquals(Integer.valueOf(1), stats.getMatchCount("m2", "c1"));
+		assertEquals(Integer.valueOf(0), stats.getMatchCount("m3", "c1"));
+		assertEquals(Integer.valueOf(3), stats.getValueCount("m1"));
+
+		// fill-in answers: a value at each position
+		stats = new QuestionStats();
+		stats.add(answer(new String[] {"Red", "blue"}));
+		stats.add(answer(new String[] {"red", "blue"}));
+		stats.add(answer(new String[] {"red"}));
+
+		assertEquals(Integer.valueOf(2), stats.getPositionCount(0, "red", Boolean.TRUE));
+		assertEquals(Integer.valueOf(3), stats.getPositionCount(0, "red", Boolean.FALSE));
+		assertEquals(Integer.valueOf(2), stats.getPositionCount(1, "blue", Boolean.TRUE));
+		assertEquals(Integer.valueOf(0), stats.getPositionCount(2, "blue", Boolean.TRUE));
+		assertEquals(1, stats.getPositionValues(0, Boolean.FALSE).size());
+		assertEquals(2, stats.getPositionValues(0, Boolean.TRUE).size());
+	}
+
+	public void testFailedReadRetried() throws Exception
+	{
+		this.storage.complete.add(submission("s1", Boolean.FALSE, new String[] {"a"}));
+		this.storage.fail = true;
+
+		// the failed read leaves nothing loaded, so completions are not counted into a partial set
+		try
+		{
+			this.store.getQuestionStats(this.assessment, this.question);
+			fail();
+		}
+		catch (RuntimeException e)
+		{
+		}
+		assertFalse(this.store.isLoaded("a1"));
+
+		// the next asks again
+		assertEquals(Integer.valueOf(1), this.store.getQuestionStats(this.assessment, this.question).getTotal());
+		assertEquals(2, this.storage.reads);
+	}
+
+	public void testLoadedOnce() throws Exception
+	{
+		// test drives are not counted
+		this.storage.complete.add(submission("s1", Boolean.FALSE, new String[] {"a"}));
+		this.storage.complete.add(submission("s2", Boolean.TRUE, new String[] {"a"}));
+
+		assertFalse(this.store.isLoaded("a1"));
+		assertEquals(Integer.valueOf(1), this.store.getQuestionStats(this.assessment, this.question).getTotal());
+		assertTrue(this.store.isLoaded("a1"));
+
+		// a completion after the read is counted, without reading again
+		this.store.add("a1", "s3", submission("s3", Boolean.FALSE, new String[] {"b"}).getAnswers());
+		assertEquals(Integer.valueOf(2), this.store.getQuestionStats(this.assessment, this.question).getTotal());
+		assertEquals(1, this.storage.reads);
+
+		// once dropped, it is read again
+		this.store.remove("a1");
+		assertFalse(this.store.isLoaded("a1"));
+		assertEquals(Integer.valueOf(1), this.store.getQuestionStats(this.assessment, this.question).getTotal());
+		assertEquals(2, this.storage.reads);
+	}
+
+	/**
+	 * Make an answer to the question.
+	 * 
+	 * @param data
+	 *        The answer data, or null if unanswered.
+	 * @return The answer.
+	 */
+	protected AnswerImpl answer(String[] data)
+	{
+		AnswerImpl rv = new AnswerImpl();
+		rv.questionId = this.question.getId();
+		rv.initTypeSpecificAnswer((TypeSpecificAnswer) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {TypeSpecificAnswer.class},
+				new MockHandler(new Object[] {"getIsAnswered", Boolean.valueOf(data != null), "getData", data})));
+
+		return rv;
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+
+		this.assessment = (Assessment) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {Assessment.class}, new MockHandler(
+				new Object[] {"getId", "a1"}));
+		this.question = (Question) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {Question.class}, new MockHandler(new Object[] {
+				"getId", "q1"}));
+
+		this.storage = new MySubmissionStorageSample();
+		this.store = new QuestionStatsStore(this.storage, 10);
+	}
+
+	/**
+	 * Make a completed submission with one answer to the question.
+	 * 
+	 * @param id
+	 *        The submission id.
+	 * @param testDrive
+	 *        TRUE if a test drive.
+	 * @param data
+	 *        The answer data.
+	 * @return The submission.
+	 */
+	protected SubmissionImpl submission(String id, Boolean testDrive, String[] data)
+	{
+		SubmissionImpl rv = new SubmissionImpl();
+		rv.initId(id);
+		rv.initTestDrive(testDrive);
+		rv.answers.add(answer(data));
+
+		return rv;
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	protected void tearDown() throws Exception
+	{
+		super.tearDown();
+	}
+}
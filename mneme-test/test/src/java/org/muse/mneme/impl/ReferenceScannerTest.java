@@ -0,0 +1,98 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+package org.muse.mneme.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.muse.mneme.api.Translation;
+
+/**
+ * Test ReferenceScanner.
+ */
+public class ReferenceScannerTest extends TestCase
+{
+	/** Logger. */
+	private static final Log log = LogFactory.getLog(ReferenceScannerTest.class);
+
+	/**
+	 * @param arg0
+	 */
+	public ReferenceScannerTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	public void testHarvest() throws Exception
+	{
+		String html = "<img src=\"http://host/access/content/group/site/a.jpg\" />"
+				+ "<a href = \"/access/mneme/content/private/mneme/site/docs/b.pdf\">b</a>"
+				+ "<img src=\"http://host/access/content/user/someone/c.jpg\" />"
+				+ "<img src=\"http://host/access/content/public/d.jpg\" />" + "<a href=\"http://elsewhere/e.html\">e</a>";
+
+		Set<String> refs = ReferenceScanner.harvest(html, false);
+		assertEquals(2, refs.size());
+		assertTrue(refs.contains("/content/group/site/a.jpg"));
+		assertTrue(refs.contains("/mneme/content/private/mneme/site/docs/b.pdf"));
+
+		// nothing to find
+		assertTrue(ReferenceScanner.harvest("<p>no references here</p>", false).isEmpty());
+		assertTrue(ReferenceScanner.harvest(null, false).isEmpty());
+	}
+
+	public void testNormalize() throws Exception
+	{
+		String html = "<img src=\"/access/content/group/site/my%20image.jpg\" />";
+
+		assertTrue(ReferenceScanner.harvest(html, false).contains("/content/group/site/my%20image.jpg"));
+		assertTrue(ReferenceScanner.harvest(html, true).contains("/content/group/site/my image.jpg"));
+	}
+
+	public void testTranslate() throws Exception
+	{
+		List<Translation> translations = new ArrayList<Translation>();
+		translations.add(new TranslationImpl("/content/group/site/", "/mneme/content/private/mneme/other/docs/"));
+
+		String html = "<p><img src=\"http://host/access/content/group/site/a.jpg\" /> and <img src=\"/access/content/group/third/b.jpg\" /></p>";
+		String translated = ReferenceScanner.translate(html, translations);
+		assertEquals("<p><img src=\"http://host/access/mneme/content/private/mneme/other/docs/a.jpg\" /> and <img src=\"/access/content/group/third/b.jpg\" /></p>",
+				translated);
+	}
+
+	public void testTranslateUnchanged() throws Exception
+	{
+		List<Translation> translations = new ArrayList<Translation>();
+		translations.add(new TranslationImpl("/content/group/site/", "/mneme/content/private/mneme/other/docs/"));
+
+		// nothing to translate - the very same string comes back
+		String html = "<p><img src=\"/access/content/group/third/b.jpg\" /></p>";
+		assertSame(html, ReferenceScanner.translate(html, translations));
+
+		String plain = "<p>plain</p>";
+		assertSame(plain, ReferenceScanner.translate(plain, translations));
+	}
+}
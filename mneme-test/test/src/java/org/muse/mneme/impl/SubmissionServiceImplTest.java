@@ -0,0 +1,254 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2008 The Regents of the University of Michigan & Foothill College, ETUDES Project
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+
+package org.muse.mneme.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.muse.mneme.api.Assessment;
+import org.muse.mneme.api.AssessmentDates;
+import org.muse.mneme.api.SecurityService;
+import org.muse.mneme.api.Submission;
+import org.sakaiproject.event.api.EventTrackingService;
+
+/**
+ * Test SubmissionServiceImpl.
+ */
+public class SubmissionServiceImplTest extends TestCase
+{
+	/**
+	 * Answers the interface methods named in the pairs, and null for the rest.
+	 */
+	public class MockHandler implements InvocationHandler
+	{
+		protected Object[] pairs = null;
+
+		public MockHandler(Object[] pairs)
+		{
+			this.pairs = pairs;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args)
+		{
+			for (int i = 0; i < this.pairs.length; i += 2)
+			{
+				if (this.pairs[i].equals(method.getName())) return this.pairs[i + 1];
+			}
+
+			return null;
+		}
+	}
+
+	/**
+	 * Sample storage that makes plain submissions, and can be set to act as if another server stored the user's submission in progress first.
+	 */
+	public class MySubmissionStorageSample extends SubmissionStorageSample
+	{
+		protected boolean beatenByAnotherServer = false;
+
+		public AnswerImpl newAnswer()
+		{
+			return new AnswerImpl();
+		}
+
+		public SubmissionImpl newSubmission()
+		{
+			SubmissionImpl rv = new SubmissionImpl();
+			rv.init();
+			return rv;
+		}
+
+		public void saveSubmission(SubmissionImpl submission)
+		{
+			if (this.beatenByAnotherServer && (submission.getId() == null))
+			{
+				this.beatenByAnotherServer = false;
+
+				// the other server's submission
+				SubmissionImpl other = newSubmission();
+				other.initAssessmentId(assessment.getId());
+				other.initUserId(submission.getUserId());
+				other.setStartDate(submission.getStartDate());
+				super.saveSubmission(other);
+
+				// and the unique index refuses ours
+				throw new RuntimeException("insertSubmissionTx: dbInsert failed");
+			}
+
+			super.saveSubmission(submission);
+		}
+	}
+
+	/**
+	 * The service, reading submissions straight from storage, with no limit on the number of submissions.
+	 */
+	public class MySubmissionServiceImpl extends SubmissionServiceImpl
+	{
+		public Submission getSubmission(String id)
+		{
+			return this.storage.getSubmission(id);
+		}
+
+		protected Integer countRemainingSubmissions(Submission submission)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * The user's placeholder submission, to enter from.
+	 */
+	public class MySubmission extends SubmissionImpl
+	{
+		public Assessment getAssessment()
+		{
+			return assessment;
+		}
+	}
+
+	/** Logger. */
+	private static final Log log = LogFactory.getLog(SubmissionServiceImplTest.class);
+
+	protected Assessment assessment = null;
+
+	protected MySubmissionServiceImpl service = null;
+
+	protected MySubmissionStorageSample storage = null;
+
+	/**
+	 * @param arg0
+	 */
+	public SubmissionServiceImplTest(String arg0)
+	{
+		super(arg0);
+	}
+
+	public void testEnterCollapses() throws Exception
+	{
+		// many entries at once, on this server, all get the same submission
+		final Set<String> ids = new HashSet<String>();
+		Thread[] entries = new Thread[8];
+		for (int i = 0; i < entries.length; i++)
+		{
+			entries[i] = new Thread()
+			{
+				public void run()
+				{
+					try
+					{
+						Submission submission = service.enterSubmission(placeholder());
+						synchronized (ids)
+						{
+							ids.add(submission.getId());
+						}
+					}
+					catch (Exception e)
+					{
+						log.warn("enter: " + e);
+					}
+				}
+			};
+		}
+
+		for (Thread entry : entries)
+		{
+			entry.start();
+		}
+		for (Thread entry : entries)
+		{
+			entry.join();
+		}
+
+		assertEquals(1, ids.size());
+		assertEquals(ids.iterator().next(), this.storage.getUserAssessmentInProgress(this.assessment, "user"));
+	}
+
+	public void testEnterContinuesAfterRefusedInsert() throws Exception
+	{
+		// another server stores the user's submission in progress between our check and our insert
+		this.storage.beatenByAnotherServer = true;
+
+		Submission submission = this.service.enterSubmission(placeholder());
+		assertNotNull(submission.getId());
+		assertEquals(this.storage.getUserAssessmentInProgress(this.assessment, "user"), submission.getId());
+	}
+
+	/**
+	 * Make a new placeholder submission for the user to the assessment.
+	 * 
+	 * @return The placeholder submission.
+	 */
+	protected Submission placeholder()
+	{
+		MySubmission rv = new MySubmission();
+		rv.init();
+		rv.initAssessmentId(this.assessment.getId());
+		rv.initUserId("user");
+
+		return rv;
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+
+		AssessmentDates dates = (AssessmentDates) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {AssessmentDates.class},
+				new MockHandler(new Object[] {"getIsOpen", Boolean.TRUE}));
+		this.assessment = (Assessment) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {Assessment.class}, new MockHandler(
+				new Object[] {"getId", "a1", "getContext", "context", "getDates", dates, "getIsLive", Boolean.TRUE}));
+
+		this.storage = new MySubmissionStorageSample();
+		this.storage.init();
+
+		this.service = new MySubmissionServiceImpl();
+		this.service.storage = this.storage;
+		this.service.securityService = (SecurityService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {SecurityService.class},
+				new MockHandler(new Object[] {"checkSecurity", Boolean.TRUE}));
+		this.service.eventTrackingService = (EventTrackingService) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class[] {EventTrackingService.class}, new MockHandler(new Object[0]));
+		this.service.enterLocks = new Object[SubmissionServiceImpl.ENTER_LOCKS];
+		for (int i = 0; i < this.service.enterLocks.length; i++)
+		{
+			this.service.enterLocks[i] = new Object();
+		}
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	protected void tearDown() throws Exception
+	{
+		this.storage.destroy();
+		super.tearDown();
+	}
+}
@@ -23,6 +23,7 @@ package org.muse.mneme.tool;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
@@ -201,21 +202,18 @@ public class PoolEditView extends ControllerImpl
 
 		if (destination.equals("DELETE"))
 		{
-			for (String id : values.getValues())
+			// read the selected questions together
+			for (Question question : this.questionService.getQuestions(Arrays.asList(values.getValues())))
 			{
-				Question question = this.questionService.getQuestion(id);
-				if (question != null)
+				try
+				{
+					this.questionService.removeQuestion(question);
+				}
+				catch (AssessmentPermissionException e)
 				{
-					try
-					{
-						this.questionService.removeQuestion(question);
-					}
-					catch (AssessmentPermissionException e)
-					{
-						// redirect to error
-						res.sendRedirect(res.encodeRedirectURL(Web.returnUrl(req, "/error/" + Errors.unauthorized)));
-						return;
-					}
+					// redirect to error
+					res.sendRedirect(res.encodeRedirectURL(Web.returnUrl(req, "/error/" + Errors.unauthorized)));
+					return;
 				}
 			}
 
@@ -22,6 +22,7 @@
 package org.muse.mneme.tool;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
@@ -199,21 +200,18 @@ public class QuestionsCopyMoveView extends ControllerImpl
 				{
 					// question id's are in the params array at the index 7
 					String qids[] = StringUtil.split(questionIds, "+");
-					for (String qid : qids)
+
+					// read the questions together
+					for (Question question : this.questionService.getQuestions(Arrays.asList(qids)))
 					{
-						// get the question
-						Question question = this.questionService.getQuestion(qid);
-						if (question != null)
+						// which function to perform
+						if (path.startsWith("question_copy"))
+						{
+							this.questionService.copyQuestion(question, pool);
+						}
+						else if (path.startsWith("question_move"))
 						{
-							// which function to perform
-							if (path.startsWith("question_copy"))
-							{
-								this.questionService.copyQuestion(question, pool);
-							}
-							else if (path.startsWith("question_move"))
-							{
-								this.questionService.moveQuestion(question, pool);
-							}
+							this.questionService.moveQuestion(question, pool);
 						}
 					}
 
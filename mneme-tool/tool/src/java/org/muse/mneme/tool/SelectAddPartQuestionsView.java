@@ -23,6 +23,7 @@ package org.muse.mneme.tool;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
@@ -295,13 +296,10 @@ public class SelectAddPartQuestionsView extends ControllerImpl
 		// read form
 		String destination = this.uiService.decode(req, context);
 
-		for (String id : values.getValues())
+		// read the selected questions together
+		for (Question question : this.questionService.getQuestions(Arrays.asList(values.getValues())))
 		{
-			Question question = this.questionService.getQuestion(id);
-			if (question != null)
-			{
-				part.addQuestion(question);
-			}
+			part.addQuestion(question);
 		}
 
 		// commit the save